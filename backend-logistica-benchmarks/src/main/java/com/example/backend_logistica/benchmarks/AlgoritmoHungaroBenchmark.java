@@ -0,0 +1,64 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.util.AlgoritmoHungaro;
+import com.example.backend_logistica.util.GeoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Asignación de lote pura (sin base de datos): pedidos x conductores con distancias reales en la zona
+// sembrada. El objetivo es que 1000 x 1000 quede muy por debajo de un segundo.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlgoritmoHungaroBenchmark {
+
+    @Param({"100", "500", "1000"})
+    public int pedidos;
+
+    @Param({"1", "2"})
+    public int conductoresPorPedido;
+
+    private double[] costos;
+    private int columnas;
+
+    @Setup(Level.Trial)
+    public void construirMatriz() {
+        Random aleatorio = new Random(42L);
+        columnas = pedidos * conductoresPorPedido;
+        costos = new double[pedidos * columnas];
+        double[] latitudes = new double[columnas];
+        double[] longitudes = new double[columnas];
+        for (int j = 0; j < columnas; j++) {
+            latitudes[j] = EntornoLogistica.entre(aleatorio, EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+            longitudes[j] = EntornoLogistica.entre(aleatorio, EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+        }
+        for (int i = 0; i < pedidos; i++) {
+            double latitud = EntornoLogistica.entre(aleatorio, EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+            double longitud = EntornoLogistica.entre(aleatorio, EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+            for (int j = 0; j < columnas; j++) {
+                costos[i * columnas + j] = GeoUtils.distanciaKm(latitud, longitud, latitudes[j], longitudes[j]);
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] resolver() {
+        return AlgoritmoHungaro.resolver(costos, pedidos, columnas);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.backend_logistica.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Prueba de carga HTTP real (Tomcat + Spring MVC + JPA) con muchos clientes concurrentes, comparando
+// el pool de hilos de plataforma de Tomcat con el perfil hilos-virtuales. Cubre el endpoint de
+// ubicación de conductores (escritura en memoria, 202) y el historial por conductor (lectura JDBC).
+// La concurrencia por defecto (@Threads) supera los 200 hilos de Tomcat a propósito; se ajusta con -t.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+@Threads(256)
+@State(Scope.Benchmark)
+public class CargaHttpBenchmark {
+
+    @Param({"plataforma", "virtuales"})
+    public String modoHilos;
+
+    @Param({"1000"})
+    public int tamanoFlota;
+
+    private EntornoLogistica entorno;
+    private HttpClient clienteHttp;
+    private String urlBase;
+    private long[] conductorIds;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        entorno = "virtuales".equals(modoHilos)
+                ? EntornoLogistica.iniciarConServidorWeb(tamanoFlota, "--spring.profiles.active=hilos-virtuales")
+                : EntornoLogistica.iniciarConServidorWeb(tamanoFlota);
+        urlBase = "http://localhost:" + entorno.puertoHttp();
+        conductorIds = entorno.conductorIds();
+        clienteHttp = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        clienteHttp.close();
+        entorno.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Aleatorio {
+        final SplittableRandom generador = new SplittableRandom();
+    }
+
+    @Benchmark
+    public int actualizarUbicacion(Aleatorio aleatorio) throws IOException, InterruptedException {
+        SplittableRandom generador = aleatorio.generador;
+        long conductorId = conductorIds[generador.nextInt(conductorIds.length)];
+        double latitud = generador.nextDouble(EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+        double longitud = generador.nextDouble(EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(urlBase + "/api/conductores/" + conductorId
+                        + "/ubicacion?latitud=" + latitud + "&longitud=" + longitud))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return enviar(peticion);
+    }
+
+    @Benchmark
+    public int historialPorConductor(Aleatorio aleatorio) throws IOException, InterruptedException {
+        long conductorId = conductorIds[aleatorio.generador.nextInt(conductorIds.length)];
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(urlBase + "/api/envios/historial/conductor/" + conductorId))
+                .GET()
+                .build();
+        return enviar(peticion);
+    }
+
+    private int enviar(HttpRequest peticion) throws IOException, InterruptedException {
+        HttpResponse<Void> respuesta = clienteHttp.send(peticion, HttpResponse.BodyHandlers.discarding());
+        if (respuesta.statusCode() >= 500) {
+            throw new IllegalStateException("Respuesta " + respuesta.statusCode() + " de " + peticion.uri());
+        }
+        return respuesta.statusCode();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.services.ConductorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Camino caliente de los pings GPS: validación del conductor, cola write-behind e índice geoespacial.
+// La escritura por lotes sigue corriendo en segundo plano como en producción.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConductorServiceBenchmark {
+
+    @Param({"1000"})
+    public int tamanoFlota;
+
+    private EntornoLogistica entorno;
+    private ConductorService conductorService;
+    private long[] conductorIds;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        entorno = EntornoLogistica.iniciar(tamanoFlota);
+        conductorService = entorno.bean(ConductorService.class);
+        conductorIds = entorno.conductorIds();
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        entorno.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Aleatorio {
+        final SplittableRandom generador = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean actualizarUbicacionConductor(Aleatorio aleatorio) {
+        SplittableRandom generador = aleatorio.generador;
+        Long conductorId = conductorIds[generador.nextInt(conductorIds.length)];
+        double latitud = generador.nextDouble(EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+        double longitud = generador.nextDouble(EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+        return conductorService.actualizarUbicacionConductor(conductorId, latitud, longitud);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.BackendLogisticaApplication;
+import com.example.backend_logistica.services.IndiceGeoespacialConductores;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Arranca el backend completo sobre H2 en memoria y siembra una flota sintética:
+// un vehículo por conductor, un cliente por conductor con varios pedidos y un historial de envíos
+// entregados por conductor. Todo se inserta con lotes JDBC para que la siembra no domine el arranque.
+final class EntornoLogistica implements AutoCloseable {
+
+    static final int PEDIDOS_POR_CLIENTE = 5;
+    static final int ENVIOS_HISTORICOS_POR_CONDUCTOR = 20;
+    static final int DIAS_DE_HISTORIAL = 90;
+
+    // Zona de Quito: los conductores quedan lo bastante densos para que el índice geoespacial trabaje
+    static final double LATITUD_MIN = -0.35;
+    static final double LATITUD_MAX = -0.05;
+    static final double LONGITUD_MIN = -78.60;
+    static final double LONGITUD_MAX = -78.40;
+
+    private static final int TAMANO_LOTE = 1000;
+    private static final long SEMILLA = 42L;
+
+    private final ConfigurableApplicationContext contexto;
+    private final long[] conductorIds;
+    private final long[] clienteIds;
+    private final long[] pedidoIds;
+
+    private EntornoLogistica(ConfigurableApplicationContext contexto, long[] conductorIds, long[] clienteIds, long[] pedidoIds) {
+        this.contexto = contexto;
+        this.conductorIds = conductorIds;
+        this.clienteIds = clienteIds;
+        this.pedidoIds = pedidoIds;
+    }
+
+    static EntornoLogistica iniciar(int tamanoFlota) {
+        return iniciar(tamanoFlota, WebApplicationType.NONE);
+    }
+
+    // Con servidor web en un puerto libre (ver puertoHttp()); los argumentos extra son propiedades
+    // de Spring en formato de línea de comandos, p. ej. "--spring.profiles.active=hilos-virtuales"
+    static EntornoLogistica iniciarConServidorWeb(int tamanoFlota, String... argumentos) {
+        return iniciar(tamanoFlota, WebApplicationType.SERVLET, argumentos);
+    }
+
+    private static EntornoLogistica iniciar(int tamanoFlota, WebApplicationType tipoAplicacion, String... argumentos) {
+        String[] argumentosArranque = new String[argumentos.length + 2];
+        argumentosArranque[0] = "--spring.config.additional-location=classpath:/benchmark.properties";
+        argumentosArranque[1] = "--server.port=0";
+        System.arraycopy(argumentos, 0, argumentosArranque, 2, argumentos.length);
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(BackendLogisticaApplication.class)
+                .web(tipoAplicacion)
+                .logStartupInfo(false)
+                .run(argumentosArranque);
+
+        JdbcTemplate jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        Random aleatorio = new Random(SEMILLA);
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<Object[]> vehiculos = new ArrayList<>(tamanoFlota);
+        for (int i = 0; i < tamanoFlota; i++) {
+            vehiculos.add(new Object[]{String.format("PBA-%05d", i), i % 3 == 0 ? "Camioneta" : "Moto", "Modelo " + (i % 10), "Marca " + (i % 7)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vehiculo (matricula, tipo, modelo, marca) VALUES (?, ?, ?, ?)", vehiculos);
+        long[] vehiculoIds = ids(jdbcTemplate, "vehiculo");
+
+        List<Object[]> conductores = new ArrayList<>(tamanoFlota);
+        for (int i = 0; i < tamanoFlota; i++) {
+            conductores.add(new Object[]{"Conductor " + i, "Sintético", true, vehiculoIds[i],
+                    entre(aleatorio, LATITUD_MIN, LATITUD_MAX), entre(aleatorio, LONGITUD_MIN, LONGITUD_MAX), 0L});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO conductor (nombre, apellido, disponible, vehiculo_id, "
+                + "ubicacion_actual_latitud, ubicacion_actual_longitud, version) VALUES (?, ?, ?, ?, ?, ?, ?)", conductores);
+        long[] conductorIds = ids(jdbcTemplate, "conductor");
+
+        List<Object[]> clientes = new ArrayList<>(tamanoFlota);
+        for (int i = 0; i < tamanoFlota; i++) {
+            clientes.add(new Object[]{"Cliente " + i, "Calle " + i, "099" + String.format("%07d", i), "cliente" + i + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO clientes (nombre, direccion, telefono, email) VALUES (?, ?, ?, ?)", clientes);
+        long[] clienteIds = ids(jdbcTemplate, "clientes");
+
+        List<Object[]> pedidos = new ArrayList<>(TAMANO_LOTE);
+        for (int i = 0; i < clienteIds.length; i++) {
+            for (int p = 0; p < PEDIDOS_POR_CLIENTE; p++) {
+                LocalDateTime creacion = ahora.minusDays(aleatorio.nextInt(DIAS_DE_HISTORIAL));
+                pedidos.add(new Object[]{"PED-" + i + "-" + p, "Nuevo", Timestamp.valueOf(creacion.plusDays(2)),
+                        Timestamp.valueOf(creacion), clienteIds[i]});
+                if (pedidos.size() == TAMANO_LOTE) {
+                    insertarPedidos(jdbcTemplate, pedidos);
+                }
+            }
+        }
+        insertarPedidos(jdbcTemplate, pedidos);
+        long[] pedidoIds = ids(jdbcTemplate, "pedido");
+
+        List<Object[]> envios = new ArrayList<>(TAMANO_LOTE);
+        for (int i = 0; i < conductorIds.length; i++) {
+            for (int e = 0; e < ENVIOS_HISTORICOS_POR_CONDUCTOR; e++) {
+                LocalDateTime creacion = ahora.minusDays(aleatorio.nextInt(DIAS_DE_HISTORIAL)).minusMinutes(aleatorio.nextInt(1440));
+                envios.add(new Object[]{pedidoIds[aleatorio.nextInt(pedidoIds.length)], conductorIds[i], vehiculoIds[i],
+                        Timestamp.valueOf(creacion.plusHours(3)), Timestamp.valueOf(creacion), Timestamp.valueOf(creacion.plusHours(2)),
+                        "Entregado", entre(aleatorio, LATITUD_MIN, LATITUD_MAX), entre(aleatorio, LONGITUD_MIN, LONGITUD_MAX)});
+                if (envios.size() == TAMANO_LOTE) {
+                    insertarEnvios(jdbcTemplate, envios);
+                }
+            }
+        }
+        insertarEnvios(jdbcTemplate, envios);
+
+        // La siembra ocurre después de ApplicationReadyEvent: el índice se recarga con la flota
+        contexto.getBean(IndiceGeoespacialConductores.class).cargarIndice();
+        return new EntornoLogistica(contexto, conductorIds, clienteIds, pedidoIds);
+    }
+
+    <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+
+    int puertoHttp() {
+        return Integer.parseInt(contexto.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+    long[] conductorIds() {
+        return conductorIds;
+    }
+
+    long[] clienteIds() {
+        return clienteIds;
+    }
+
+    long[] pedidoIds() {
+        return pedidoIds;
+    }
+
+    static double entre(Random aleatorio, double minimo, double maximo) {
+        return minimo + aleatorio.nextDouble() * (maximo - minimo);
+    }
+
+    @Override
+    public void close() {
+        contexto.close();
+    }
+
+    private static void insertarPedidos(JdbcTemplate jdbcTemplate, List<Object[]> pedidos) {
+        jdbcTemplate.batchUpdate("INSERT INTO pedido (numero_pedido, estado, fecha_entrega_estimada, fecha_creacion, cliente_id) "
+                + "VALUES (?, ?, ?, ?, ?)", pedidos);
+        pedidos.clear();
+    }
+
+    private static void insertarEnvios(JdbcTemplate jdbcTemplate, List<Object[]> envios) {
+        jdbcTemplate.batchUpdate("INSERT INTO envio (pedido_id, conductor_id, vehiculo_id, fecha_entrega_estimada, fecha_creacion, "
+                + "fecha_entrega_real, estado_envio, ubicacion_origen_latitud, ubicacion_origen_longitud) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", envios);
+        envios.clear();
+    }
+
+    private static long[] ids(JdbcTemplate jdbcTemplate, String tabla) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + tabla + " ORDER BY id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.services.EnvioService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Ciclo de vida de un envío: asignación (índice geoespacial + dos escrituras) y registro de entrega.
+// Cada operación es una transacción completa contra H2, por lo que el coste de los hooks
+// por invocación (Level.Invocation) es despreciable frente a lo medido.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvioServiceBenchmark {
+
+    @Param({"1000"})
+    public int tamanoFlota;
+
+    private EntornoLogistica entorno;
+    private EnvioService envioService;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        entorno = EntornoLogistica.iniciar(tamanoFlota);
+        envioService = entorno.bean(EnvioService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        entorno.close();
+    }
+
+    // Estado por hilo: cada hilo recorre los pedidos y origina envíos en puntos distintos de la zona
+    public abstract static class Operacion {
+
+        final Random aleatorio = new Random();
+        long[] pedidoIds;
+        EnvioService envioService;
+
+        Long pedidoId;
+        double latitudOrigen;
+        double longitudOrigen;
+        EnvioDTO envioAsignado;
+
+        @Setup(Level.Trial)
+        public void iniciar(EnvioServiceBenchmark benchmark) {
+            pedidoIds = benchmark.entorno.pedidoIds();
+            envioService = benchmark.envioService;
+        }
+
+        void prepararAsignacion() {
+            pedidoId = pedidoIds[aleatorio.nextInt(pedidoIds.length)];
+            latitudOrigen = EntornoLogistica.entre(aleatorio, EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+            longitudOrigen = EntornoLogistica.entre(aleatorio, EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+        }
+
+        // Devuelve el conductor a la flota disponible para que la flota no se agote durante la medición
+        void liberarConductor() {
+            if (envioAsignado != null) {
+                envioService.registrarEntrega(envioAsignado.getId(), "QR", null);
+                envioAsignado = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AsignacionPendiente extends Operacion {
+
+        @Setup(Level.Invocation)
+        public void preparar() {
+            prepararAsignacion();
+        }
+
+        @TearDown(Level.Invocation)
+        public void liberar() {
+            liberarConductor();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EntregaPendiente extends Operacion {
+
+        @Setup(Level.Invocation)
+        public void preparar() {
+            prepararAsignacion();
+            envioAsignado = envioService.asignarEnvio(pedidoId, latitudOrigen, longitudOrigen);
+        }
+    }
+
+    @Benchmark
+    public EnvioDTO asignarEnvio(AsignacionPendiente operacion) {
+        operacion.envioAsignado = envioService.asignarEnvio(operacion.pedidoId, operacion.latitudOrigen, operacion.longitudOrigen);
+        return operacion.envioAsignado;
+    }
+
+    @Benchmark
+    public EnvioDTO registrarEntrega(EntregaPendiente operacion) {
+        return envioService.registrarEntrega(operacion.envioAsignado.getId(), "QR", null);
+    }
+}
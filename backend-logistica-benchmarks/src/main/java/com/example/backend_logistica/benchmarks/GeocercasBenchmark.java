@@ -0,0 +1,113 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.util.Geocerca;
+import com.example.backend_logistica.util.IndiceGeocercas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Evaluación de geocercas (sin base de datos) sobre la zona sembrada: envíos en curso con origen y destino
+// repartidos entre conductores (envios * 2 geocercas activas) y un lote con un ping por conductor, como el
+// que drena la ingesta cada segundo. Una parte de los pings cae junto al destino de uno de sus envíos para
+// que haya llegadas y salidas. poligonos = true sustituye los círculos por cuadrados de tamaño parecido
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class GeocercasBenchmark {
+
+    private static final double RADIO_METROS = 150;
+    private static final double LADO_GRADOS = 0.0027; // ~300 m
+
+    @State(Scope.Benchmark)
+    public static class Flota {
+
+        @Param({"25000"})
+        public int envios;
+
+        @Param({"5000"})
+        public int conductores;
+
+        @Param({"false", "true"})
+        public boolean poligonos;
+
+        IndiceGeocercas indice;
+        double[] latitudesPing;
+        double[] longitudesPing;
+        double[][] destinos;
+        long marcaTiempo;
+
+        @Setup(Level.Trial)
+        public void generar() {
+            Random aleatorio = new Random(42L);
+            indice = new IndiceGeocercas(50);
+            destinos = new double[conductores][];
+            for (int envio = 0; envio < envios; envio++) {
+                int conductor = envio % conductores;
+                double[] origen = punto(aleatorio);
+                double[] destino = punto(aleatorio);
+                destinos[conductor] = destino;
+                indice.registrar(envio, conductor, geocerca(origen), geocerca(destino));
+            }
+            latitudesPing = new double[conductores];
+            longitudesPing = new double[conductores];
+        }
+
+        // Cada lote mueve a los conductores: uno de cada diez entra o sale del destino de su último envío
+        @Setup(Level.Invocation)
+        public void mover() {
+            Random aleatorio = new Random(marcaTiempo);
+            boolean dentro = marcaTiempo % 2 == 0;
+            for (int conductor = 0; conductor < conductores; conductor++) {
+                if (conductor % 10 == 0) {
+                    double desvio = dentro ? 0 : LADO_GRADOS * 2;
+                    latitudesPing[conductor] = destinos[conductor][0] + desvio;
+                    longitudesPing[conductor] = destinos[conductor][1];
+                } else {
+                    double[] posicion = punto(aleatorio);
+                    latitudesPing[conductor] = posicion[0];
+                    longitudesPing[conductor] = posicion[1];
+                }
+            }
+            marcaTiempo++;
+        }
+
+        private Geocerca geocerca(double[] centro) {
+            if (!poligonos) {
+                return new Geocerca.Circulo(centro[0], centro[1], RADIO_METROS);
+            }
+            double medio = LADO_GRADOS / 2;
+            return new Geocerca.Poligono(
+                    new double[]{centro[0] - medio, centro[0] - medio, centro[0] + medio, centro[0] + medio},
+                    new double[]{centro[1] - medio, centro[1] + medio, centro[1] + medio, centro[1] - medio});
+        }
+
+        private static double[] punto(Random aleatorio) {
+            return new double[]{EntornoLogistica.entre(aleatorio, EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX),
+                    EntornoLogistica.entre(aleatorio, EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX)};
+        }
+    }
+
+    @Benchmark
+    public long evaluarLote(Flota flota) {
+        long[] detecciones = new long[1];
+        for (int conductor = 0; conductor < flota.conductores; conductor++) {
+            flota.indice.evaluar(conductor, flota.latitudesPing[conductor], flota.longitudesPing[conductor], flota.marcaTiempo,
+                    deteccion -> detecciones[0]++);
+        }
+        return detecciones[0];
+    }
+}
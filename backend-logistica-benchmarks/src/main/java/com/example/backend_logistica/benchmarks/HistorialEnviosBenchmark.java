@@ -0,0 +1,84 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.services.EnvioService;
+import com.example.backend_logistica.util.CursorHistorial;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Consultas de historial sobre la flota sembrada (ENVIOS_HISTORICOS_POR_CONDUCTOR envíos por conductor
+// repartidos en DIAS_DE_HISTORIAL días): por conductor, por cliente y por un rango de un día.
+// Se mide la primera página, que es lo que piden las pantallas de historial.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistorialEnviosBenchmark {
+
+    private static final int LIMITE_PAGINA = 100;
+
+    @Param({"1000"})
+    public int tamanoFlota;
+
+    private EntornoLogistica entorno;
+    private EnvioService envioService;
+    private long[] conductorIds;
+    private long[] clienteIds;
+    private LocalDateTime ahora;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        entorno = EntornoLogistica.iniciar(tamanoFlota);
+        envioService = entorno.bean(EnvioService.class);
+        conductorIds = entorno.conductorIds();
+        clienteIds = entorno.clienteIds();
+        ahora = LocalDateTime.now();
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        entorno.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Aleatorio {
+        final SplittableRandom generador = new SplittableRandom();
+    }
+
+    @Benchmark
+    public List<EnvioDTO> historialPorConductor(Aleatorio aleatorio) {
+        return envioService.obtenerHistorialEnviosPorConductor(conductorIds[aleatorio.generador.nextInt(conductorIds.length)],
+                CursorHistorial.PRIMERA_PAGINA, LIMITE_PAGINA);
+    }
+
+    @Benchmark
+    public List<EnvioDTO> historialPorCliente(Aleatorio aleatorio) {
+        return envioService.obtenerHistorialEnviosPorCliente(clienteIds[aleatorio.generador.nextInt(clienteIds.length)],
+                CursorHistorial.PRIMERA_PAGINA, LIMITE_PAGINA);
+    }
+
+    @Benchmark
+    public List<EnvioDTO> historialPorRangoDeUnDia(Aleatorio aleatorio) {
+        LocalDateTime inicio = ahora.minusDays(1 + aleatorio.generador.nextInt(EntornoLogistica.DIAS_DE_HISTORIAL));
+        return envioService.obtenerHistorialEnviosPorRangoFechas(inicio, inicio.plusDays(1), null,
+                CursorHistorial.PRIMERA_PAGINA, LIMITE_PAGINA);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.dto.ResultadoImportacionDTO;
+import com.example.backend_logistica.services.ImportacionMasivaService;
+import com.example.backend_logistica.services.TipoImportacion;
+import com.example.backend_logistica.util.LectorRegistros;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Importación masiva de pedidos por el mismo camino que POST /api/pedidos/importar (sin HTTP): lectura,
+// validación, comprobación de clientes e INSERT por lotes. Cada invocación carga el archivo completo;
+// la tabla crece entre iteraciones como lo haría en una carga real.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportacionMasivaBenchmark {
+
+    @Param({"100000"})
+    public int pedidos;
+
+    @Param({LectorRegistros.TIPO_CSV, LectorRegistros.TIPO_NDJSON})
+    public String formato;
+
+    private EntornoLogistica entorno;
+    private ImportacionMasivaService importacion;
+    private byte[] archivo;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        entorno = EntornoLogistica.iniciar(1000);
+        importacion = entorno.bean(ImportacionMasivaService.class);
+        long[] clienteIds = entorno.clienteIds();
+        String creacion = LocalDateTime.now().withNano(0).toString();
+        StringBuilder texto = new StringBuilder(pedidos * 100);
+        boolean csv = LectorRegistros.TIPO_CSV.equals(formato);
+        if (csv) {
+            texto.append("numeroPedido,estado,fechaCreacion,clienteId\n");
+        }
+        for (int i = 0; i < pedidos; i++) {
+            long clienteId = clienteIds[i % clienteIds.length];
+            if (csv) {
+                texto.append("IMP-").append(i).append(",Nuevo,").append(creacion).append(',').append(clienteId).append('\n');
+            } else {
+                texto.append("{\"numeroPedido\":\"IMP-").append(i).append("\",\"estado\":\"Nuevo\",\"fechaCreacion\":\"")
+                        .append(creacion).append("\",\"cliente\":{\"id\":").append(clienteId).append("}}\n");
+            }
+        }
+        archivo = texto.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        entorno.close();
+    }
+
+    @Benchmark
+    public ResultadoImportacionDTO importarPedidos() throws IOException {
+        ResultadoImportacionDTO resultado = importacion.importar(TipoImportacion.PEDIDOS, formato, new ByteArrayInputStream(archivo));
+        if (resultado.getRegistrosInsertados() != pedidos) {
+            throw new IllegalStateException("Importados " + resultado.getRegistrosInsertados() + " de " + pedidos);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.util.LoteUbicacionesBinario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Pings de ubicación por segundo a través de HTTP real: lote binario (POST /api/conductores/ubicaciones,
+// 100 registros por petición) frente a los endpoints de un ping por petición (conductor por parámetros
+// y envío, que además responde con el EnvioDTO en JSON). Los resultados se miden en pings/s, no en
+// peticiones/s, gracias a @OperationsPerInvocation en el lote.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class IngestaUbicacionesHttpBenchmark {
+
+    private static final int REGISTROS_POR_LOTE = 100;
+
+    @Param({"1000"})
+    public int tamanoFlota;
+
+    private EntornoLogistica entorno;
+    private HttpClient clienteHttp;
+    private String urlBase;
+    private long[] conductorIds;
+    private long[] envioIds;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        entorno = EntornoLogistica.iniciarConServidorWeb(tamanoFlota);
+        urlBase = "http://localhost:" + entorno.puertoHttp();
+        conductorIds = entorno.conductorIds();
+        envioIds = entorno.bean(JdbcTemplate.class)
+                .queryForList("SELECT id FROM envio WHERE conductor_id IS NOT NULL ORDER BY id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+        clienteHttp = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        clienteHttp.close();
+        entorno.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Aleatorio {
+        final SplittableRandom generador = new SplittableRandom();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REGISTROS_POR_LOTE)
+    public int loteBinario(Aleatorio aleatorio) throws IOException, InterruptedException {
+        SplittableRandom generador = aleatorio.generador;
+        long[] ids = new long[REGISTROS_POR_LOTE];
+        double[] latitudes = new double[REGISTROS_POR_LOTE];
+        double[] longitudes = new double[REGISTROS_POR_LOTE];
+        long[] marcasTiempo = new long[REGISTROS_POR_LOTE];
+        long ahora = System.currentTimeMillis();
+        for (int i = 0; i < REGISTROS_POR_LOTE; i++) {
+            ids[i] = conductorIds[generador.nextInt(conductorIds.length)];
+            latitudes[i] = generador.nextDouble(EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+            longitudes[i] = generador.nextDouble(EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+            marcasTiempo[i] = ahora;
+        }
+        ByteBuffer lote = LoteUbicacionesBinario.codificar(ids, latitudes, longitudes, marcasTiempo);
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(urlBase + "/api/conductores/ubicaciones"))
+                .header("Content-Type", LoteUbicacionesBinario.TIPO_CONTENIDO)
+                .header("Accept", LoteUbicacionesBinario.TIPO_CONTENIDO)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(lote.array()))
+                .build();
+        return enviar(peticion);
+    }
+
+    @Benchmark
+    public int pingConductor(Aleatorio aleatorio) throws IOException, InterruptedException {
+        SplittableRandom generador = aleatorio.generador;
+        long conductorId = conductorIds[generador.nextInt(conductorIds.length)];
+        return enviar(peticionPing("/api/conductores/" + conductorId + "/ubicacion", generador));
+    }
+
+    @Benchmark
+    public int pingEnvio(Aleatorio aleatorio) throws IOException, InterruptedException {
+        SplittableRandom generador = aleatorio.generador;
+        long envioId = envioIds[generador.nextInt(envioIds.length)];
+        return enviar(peticionPing("/api/envios/" + envioId + "/ubicacion", generador));
+    }
+
+    private HttpRequest peticionPing(String ruta, SplittableRandom generador) {
+        double latitud = generador.nextDouble(EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+        double longitud = generador.nextDouble(EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+        return HttpRequest.newBuilder(URI.create(urlBase + ruta + "?latitud=" + latitud + "&longitud=" + longitud))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private int enviar(HttpRequest peticion) throws IOException, InterruptedException {
+        // Se lee el cuerpo completo para que el coste de la respuesta (acuse o JSON) entre en la medida
+        HttpResponse<byte[]> respuesta = clienteHttp.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+        if (respuesta.statusCode() >= 400 && respuesta.statusCode() != 429) {
+            throw new IllegalStateException("Respuesta " + respuesta.statusCode() + " de " + peticion.uri());
+        }
+        return respuesta.body().length;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.util.OptimizadorRuta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Orden de paradas con recolección y entrega (sin base de datos) sobre la zona sembrada. ordenar mide una
+// ruta sintética grande con distintos plazos: plazoMs = 0 es solo el vecino más cercano y la distancia
+// resultante se imprime al final de cada trial para comparar la calidad. rutasEnParalelo reparte muchas
+// rutas pequeñas (las de asignar-rutas) entre núcleos, como PlanificadorRutas.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class OptimizadorRutaBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Ruta {
+
+        @Param({"1000", "10000"})
+        public int paradas;
+
+        @Param({"0", "200", "2000"})
+        public long plazoMs;
+
+        Instancia instancia;
+        double ultimaDistanciaKm;
+
+        @Setup(Level.Trial)
+        public void generar() {
+            instancia = Instancia.generar(new Random(42L), paradas / 2);
+        }
+
+        @TearDown(Level.Trial)
+        public void informar() {
+            System.out.printf("%n%d paradas, plazo %d ms: %.1f km%n", paradas, plazoMs, ultimaDistanciaKm);
+        }
+    }
+
+    @Benchmark
+    public OptimizadorRuta.Resultado ordenar(Ruta ruta) {
+        OptimizadorRuta.Resultado resultado = ruta.instancia.ordenar(TimeUnit.MILLISECONDS.toNanos(ruta.plazoMs));
+        ruta.ultimaDistanciaKm = resultado.distanciaKm();
+        return resultado;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Flota {
+
+        @Param({"500"})
+        public int conductores;
+
+        @Param({"16"})
+        public int paradasPorConductor;
+
+        List<Instancia> rutas;
+
+        @Setup(Level.Trial)
+        public void generar() {
+            Random aleatorio = new Random(7L);
+            rutas = IntStream.range(0, conductores)
+                    .mapToObj(i -> Instancia.generar(aleatorio, paradasPorConductor / 2))
+                    .toList();
+        }
+    }
+
+    @Benchmark
+    public double rutasEnParalelo(Flota flota) {
+        long plazoNanos = TimeUnit.MILLISECONDS.toNanos(200);
+        return flota.rutas.parallelStream().mapToDouble(ruta -> ruta.ordenar(plazoNanos).distanciaKm()).sum();
+    }
+
+    @Benchmark
+    public double rutasEnSecuencia(Flota flota) {
+        long plazoNanos = TimeUnit.MILLISECONDS.toNanos(200);
+        return flota.rutas.stream().mapToDouble(ruta -> ruta.ordenar(plazoNanos).distanciaKm()).sum();
+    }
+
+    // Envíos con origen y destino al azar: parada 2k = recolección, 2k + 1 = su entrega
+    static final class Instancia {
+        final double[] latitudes;
+        final double[] longitudes;
+        final int[] predecesores;
+        final double latitudSalida;
+        final double longitudSalida;
+
+        private Instancia(double[] latitudes, double[] longitudes, int[] predecesores, double latitudSalida, double longitudSalida) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.predecesores = predecesores;
+            this.latitudSalida = latitudSalida;
+            this.longitudSalida = longitudSalida;
+        }
+
+        static Instancia generar(Random aleatorio, int envios) {
+            int n = envios * 2;
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            int[] predecesores = new int[n];
+            for (int i = 0; i < n; i++) {
+                latitudes[i] = EntornoLogistica.entre(aleatorio, EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX);
+                longitudes[i] = EntornoLogistica.entre(aleatorio, EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX);
+                predecesores[i] = i % 2 == 0 ? OptimizadorRuta.SIN_PREDECESOR : i - 1;
+            }
+            return new Instancia(latitudes, longitudes, predecesores,
+                    EntornoLogistica.entre(aleatorio, EntornoLogistica.LATITUD_MIN, EntornoLogistica.LATITUD_MAX),
+                    EntornoLogistica.entre(aleatorio, EntornoLogistica.LONGITUD_MIN, EntornoLogistica.LONGITUD_MAX));
+        }
+
+        OptimizadorRuta.Resultado ordenar(long plazoNanos) {
+            return OptimizadorRuta.ordenar(latitudes, longitudes, predecesores, latitudSalida, longitudSalida, plazoNanos);
+        }
+    }
+}
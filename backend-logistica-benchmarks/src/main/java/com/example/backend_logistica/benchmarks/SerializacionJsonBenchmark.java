@@ -0,0 +1,125 @@
+package com.example.backend_logistica.benchmarks;
+
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.dto.PedidoDTO;
+import com.example.backend_logistica.model.Cliente;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.model.Pedido;
+import com.example.backend_logistica.model.Vehiculo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialización Jackson de grafos profundos, sin base de datos: el grafo de entidades que devolvía
+// GET /api/clientes/{id} (cliente con todos sus pedidos) frente a las listas de DTOs que sirven hoy
+// los endpoints de pedidos y envíos.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializacionJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int pedidosPorCliente;
+
+    // Mismo ObjectMapper que configura Spring Boot (fechas ISO, módulos registrados)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private Cliente cliente;
+    private List<PedidoDTO> pedidos;
+    private List<EnvioDTO> envios;
+
+    @Setup(Level.Trial)
+    public void construirGrafos() {
+        LocalDateTime ahora = LocalDateTime.now();
+
+        cliente = new Cliente();
+        cliente.setId(1L);
+        cliente.setNombre("Cliente Sintético");
+        cliente.setDireccion("Av. Amazonas N34-451");
+        cliente.setTelefono("0991234567");
+        cliente.setEmail("cliente@example.com");
+        cliente.setPedidos(new ArrayList<>(pedidosPorCliente));
+
+        pedidos = new ArrayList<>(pedidosPorCliente);
+        envios = new ArrayList<>(pedidosPorCliente);
+        for (int i = 0; i < pedidosPorCliente; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setId((long) i);
+            pedido.setNumeroPedido("PED-" + i);
+            pedido.setEstado("Nuevo");
+            pedido.setFechaCreacion(ahora.minusDays(i % 90));
+            pedido.setFechaEntregaEstimada(ahora.plusDays(2));
+            pedido.setCliente(cliente);
+            cliente.getPedidos().add(pedido);
+            pedidos.add(PedidoDTO.desde(pedido));
+
+            Vehiculo vehiculo = new Vehiculo();
+            vehiculo.setId((long) i);
+            vehiculo.setMatricula(String.format("PBA-%05d", i));
+            vehiculo.setTipo("Moto");
+            vehiculo.setModelo("Modelo " + (i % 10));
+            vehiculo.setMarca("Marca " + (i % 7));
+
+            Conductor conductor = new Conductor();
+            conductor.setId((long) i);
+            conductor.setNombre("Conductor " + i);
+            conductor.setApellido("Sintético");
+            conductor.setVehiculo(vehiculo);
+            conductor.setUbicacionActualLatitud(-0.18);
+            conductor.setUbicacionActualLongitud(-78.48);
+
+            Envio envio = new Envio();
+            envio.setId((long) i);
+            envio.setPedido(pedido);
+            envio.setConductor(conductor);
+            envio.setVehiculo(vehiculo);
+            envio.setEstadoEnvio(EstadoEnvio.ENTREGADO);
+            envio.setFechaCreacion(ahora.minusHours(5));
+            envio.setFechaEntregaEstimada(ahora.minusHours(2));
+            envio.setFechaEntregaReal(ahora.minusHours(3));
+            envio.setUbicacionOrigenLatitud(-0.20);
+            envio.setUbicacionOrigenLongitud(-78.50);
+            envio.setUbicacionDestinoLatitud(-0.10);
+            envio.setUbicacionDestinoLongitud(-78.45);
+            envio.setCodigoQrEntrega("QR-" + i);
+            envios.add(EnvioDTO.desde(envio));
+        }
+    }
+
+    @Benchmark
+    public byte[] clienteConPedidosEntidad() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cliente);
+    }
+
+    @Benchmark
+    public byte[] pedidosDTO() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pedidos);
+    }
+
+    @Benchmark
+    public byte[] enviosDTO() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(envios);
+    }
+}
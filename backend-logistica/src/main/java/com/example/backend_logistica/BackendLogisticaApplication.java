@@ -6,11 +6,16 @@ import com.google.firebase.FirebaseOptions;
 import com.google.firebase.messaging.FirebaseMessaging;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import java.io.IOException;
 import java.io.InputStream;
 
 @SpringBootApplication
+@EnableScheduling // Tareas periódicas (p. ej. escritura por lotes de ubicaciones)
+@EnableCaching // Cachés de entidades de referencia (ver CachesReferencia)
 public class BackendLogisticaApplication {
 
 	public static void main(String[] args) {
@@ -18,6 +23,7 @@ public class BackendLogisticaApplication {
 	}
 
 	@Bean // Indica que este método provee un Bean para Spring IoC Container
+	@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "firebase", matchIfMissing = true)
 	public FirebaseApp firebaseApp() throws IOException {
 		InputStream serviceAccount = getClass().getClassLoader().getResourceAsStream("serviceAccountKey.json"); // Reemplaza "serviceAccountKey.json" si nombraste tu archivo diferente y si lo pusiste en otra ruta dentro de resources.
 
@@ -33,6 +39,7 @@ public class BackendLogisticaApplication {
 	}
 
 	@Bean // Bean para FirebaseMessaging (para inyectar en tus Services que necesiten enviar notificaciones push)
+	@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "firebase", matchIfMissing = true)
 	public FirebaseMessaging firebaseMessaging(FirebaseApp firebaseApp) {
 		return FirebaseMessaging.getInstance(firebaseApp);
 	}
@@ -0,0 +1,34 @@
+package com.example.backend_logistica.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// DataSource de la aplicación: la primaria de siempre (spring.datasource.*, pool spring.datasource.hikari.*)
+// detrás de un enrutador que manda las transacciones de solo lectura a las réplicas (ReplicasLectura).
+// JPA, JdbcTemplate y Flyway usan el DataSource @Primary; Flyway migra sin transacción, es decir, la primaria.
+@Configuration
+public class ConfiguracionDataSources {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaria(DataSourceProperties propiedades) {
+        HikariDataSource dataSource = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primaria");
+        return dataSource;
+    }
+
+    // El gestor de transacciones pide la conexión antes de marcar la transacción como de solo lectura: con
+    // LazyConnectionDataSourceProxy la conexión real se obtiene en la primera sentencia, con la marca ya puesta
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource dataSourcePrimaria, ReplicasLectura replicasLectura) {
+        return new LazyConnectionDataSourceProxy(new DataSourceLecturaEscritura(dataSourcePrimaria, replicasLectura));
+    }
+}
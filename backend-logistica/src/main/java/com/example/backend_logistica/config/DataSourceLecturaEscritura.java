@@ -0,0 +1,43 @@
+package com.example.backend_logistica.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+// Transacciones de solo lectura (@Transactional(readOnly = true), TransactionTemplate de solo lectura) a una
+// réplica; escrituras, transacciones de lectura dentro de una de escritura y accesos sin transacción, a la
+// primaria. Si la réplica elegida no da conexión, se descarta hasta la siguiente comprobación y se lee de la primaria
+class DataSourceLecturaEscritura extends AbstractDataSource {
+
+    private final DataSource primaria;
+    private final ReplicasLectura replicas;
+
+    DataSourceLecturaEscritura(DataSource primaria, ReplicasLectura replicas) {
+        this.primaria = primaria;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Optional<DataSource> replica = replicas.elegir();
+            if (replica.isPresent()) {
+                try {
+                    return replica.get().getConnection();
+                } catch (SQLException e) {
+                    replicas.descartar(replica.get(), e);
+                }
+            }
+        }
+        return primaria.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        return primaria.getConnection(usuario, clave);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.backend_logistica.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Réplicas de lectura con reparto round-robin y control de retraso. La primaria escribe cada intervalo su hora
+// en latido_replicacion; cada réplica la recibe por replicación y su retraso es la diferencia con la hora
+// actual (como pt-heartbeat: igual en MySQL y en H2, sin permisos para SHOW REPLICA STATUS). Una réplica con
+// más retraso que el máximo, o que no responde, deja de recibir lecturas hasta que se recupera; sin réplicas
+// disponibles las lecturas van a la primaria. El retraso se mide con la resolución del intervalo del latido y
+// supone los relojes de las instancias sincronizados
+@Component
+public class ReplicasLectura {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicasLectura.class);
+
+    private static final String SQL_ESCRIBIR_LATIDO = "UPDATE latido_replicacion SET marca_ms = ? WHERE id = 1";
+    private static final String SQL_LEER_LATIDO = "SELECT marca_ms FROM latido_replicacion WHERE id = 1";
+
+    private final JdbcTemplate jdbcPrimaria;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger turno = new AtomicInteger();
+    private final long retrasoMaximoMs;
+    private final long intervaloLatidoMs;
+    private final Counter lecturasEnReplica;
+    private final Counter lecturasEnPrimaria;
+
+    @Autowired
+    public ReplicasLectura(HikariDataSource dataSourcePrimaria,
+                           MeterRegistry meterRegistry,
+                           @Value("${datasource.replicas.urls:}") String urls,
+                           @Value("${datasource.replicas.username:${spring.datasource.username:}}") String usuario,
+                           @Value("${datasource.replicas.password:${spring.datasource.password:}}") String clave,
+                           @Value("${datasource.replicas.tamano-pool:10}") int tamanoPool,
+                           @Value("${datasource.replicas.timeout-conexion-ms:1000}") long timeoutConexionMs,
+                           @Value("${datasource.replicas.retraso-maximo-ms:2000}") long retrasoMaximoMs,
+                           @Value("${datasource.replicas.intervalo-latido-ms:500}") long intervaloLatidoMs) {
+        this.jdbcPrimaria = new JdbcTemplate(dataSourcePrimaria);
+        this.retrasoMaximoMs = retrasoMaximoMs;
+        this.intervaloLatidoMs = intervaloLatidoMs;
+        this.lecturasEnReplica = Counter.builder("datasource.lecturas").tag("destino", "replica").register(meterRegistry);
+        this.lecturasEnPrimaria = Counter.builder("datasource.lecturas").tag("destino", "primaria").register(meterRegistry);
+        for (String url : urls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(usuario);
+            config.setPassword(clave);
+            config.setMaximumPoolSize(tamanoPool);
+            config.setConnectionTimeout(timeoutConexionMs); // Una réplica caída no debe retener la petición
+            config.setInitializationFailTimeout(-1); // Arranca aunque la réplica aún no esté disponible
+            config.setReadOnly(true);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)); // hikaricp.connections.* por réplica
+            Replica replica = new Replica(config.getPoolName(), new HikariDataSource(config));
+            Gauge.builder("datasource.replica.retraso", replica, r -> r.retrasoMs)
+                    .tag("replica", replica.nombre)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            replicas.add(replica);
+        }
+    }
+
+    // Siguiente réplica disponible en round-robin; vacío si no hay ninguna (se lee de la primaria)
+    public Optional<DataSource> elegir() {
+        int cantidad = replicas.size();
+        if (cantidad == 0) {
+            return Optional.empty();
+        }
+        int inicio = Math.floorMod(turno.getAndIncrement(), cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Replica replica = replicas.get((inicio + i) % cantidad);
+            if (replica.disponible) {
+                lecturasEnReplica.increment();
+                return Optional.of(replica.dataSource);
+            }
+        }
+        lecturasEnPrimaria.increment();
+        return Optional.empty();
+    }
+
+    void descartar(DataSource dataSource, SQLException causa) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource && replica.disponible) {
+                replica.disponible = false;
+                logger.warn("Réplica {} sin conexión, las lecturas van a la primaria: {}", replica.nombre, causa.getMessage());
+            }
+        }
+        lecturasEnPrimaria.increment();
+    }
+
+    // Primero se lee el latido de cada réplica (el escrito en la pasada anterior, hace un intervalo) y después
+    // se escribe el nuevo en la primaria
+    @Scheduled(fixedDelayString = "${datasource.replicas.intervalo-latido-ms:500}")
+    public void comprobar() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        for (Replica replica : replicas) {
+            try {
+                Long marca = replica.jdbc.queryForObject(SQL_LEER_LATIDO, Long.class);
+                replica.retrasoMs = marca != null ? Math.max(0, ahora - marca - intervaloLatidoMs) : Long.MAX_VALUE;
+            } catch (DataAccessException e) {
+                replica.retrasoMs = Long.MAX_VALUE;
+            }
+            boolean disponible = replica.retrasoMs <= retrasoMaximoMs;
+            if (disponible != replica.disponible) {
+                if (disponible) {
+                    logger.info("Réplica {} disponible (retraso {} ms)", replica.nombre, replica.retrasoMs);
+                } else {
+                    logger.warn("Réplica {} fuera de servicio: retraso {} ms, máximo {} ms", replica.nombre,
+                            replica.retrasoMs == Long.MAX_VALUE ? "desconocido" : replica.retrasoMs, retrasoMaximoMs);
+                }
+                replica.disponible = disponible;
+            }
+        }
+        try {
+            jdbcPrimaria.update(SQL_ESCRIBIR_LATIDO, ahora);
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo escribir el latido de replicación en la primaria", e);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static final class Replica {
+        private final String nombre;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbc;
+        // Hasta la primera comprobación las lecturas van a la primaria
+        private volatile boolean disponible;
+        private volatile long retrasoMs = Long.MAX_VALUE;
+
+        private Replica(String nombre, HikariDataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(dataSource);
+        }
+    }
+}
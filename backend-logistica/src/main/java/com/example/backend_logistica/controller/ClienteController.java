@@ -1,49 +1,85 @@
 package com.example.backend_logistica.controller;
 
+import com.example.backend_logistica.dto.ClienteDTO;
+import com.example.backend_logistica.dto.ResultadoImportacionDTO;
 import com.example.backend_logistica.model.Cliente;
 import com.example.backend_logistica.services.ClienteService;
+import com.example.backend_logistica.services.ExportadorNdjson;
+import com.example.backend_logistica.services.ImportacionMasivaService;
+import com.example.backend_logistica.services.TipoImportacion;
+import com.example.backend_logistica.util.LectorRegistros;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/clientes")
 public class ClienteController {
 
     private final ClienteService clienteService;
+    private final ExportadorNdjson exportadorNdjson;
+    private final ImportacionMasivaService importacionMasivaService;
 
     @Autowired
-    public ClienteController(ClienteService clienteService) {
+    public ClienteController(ClienteService clienteService, ExportadorNdjson exportadorNdjson,
+                             ImportacionMasivaService importacionMasivaService) {
         this.clienteService = clienteService;
+        this.exportadorNdjson = exportadorNdjson;
+        this.importacionMasivaService = importacionMasivaService;
     }
 
-    @GetMapping
-    public ResponseEntity<List<Cliente>> obtenerTodosClientes() {
-        return new ResponseEntity<>(clienteService.obtenerTodosClientes(), HttpStatus.OK);
+    @GetMapping // Paginado por cursor: ?cursor=<último id recibido>&limite=<n>
+    public ResponseEntity<List<ClienteDTO>> obtenerTodosClientes(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<ClienteDTO> pagina = clienteService.obtenerPaginaClientes(cursor, limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, ClienteDTO::getId), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson") // Exportación completa en streaming
+    public ResponseEntity<StreamingResponseBody> exportarClientes() {
+        return new ResponseEntity<>(exportadorNdjson.exportar(clienteService::streamTodosClientes), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/importar", consumes = {LectorRegistros.TIPO_CSV, LectorRegistros.TIPO_NDJSON}) // Carga masiva en streaming
+    public ResponseEntity<ResultadoImportacionDTO> importarClientes(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoContenido,
+                                                                    InputStream cuerpo) throws IOException {
+        try {
+            return new ResponseEntity<>(importacionMasivaService.importar(TipoImportacion.CLIENTES, tipoContenido, cuerpo), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Formato no reconocido o CSV sin cabecera
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS); // Hay importacion.max-simultaneas en curso
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Cliente> obtenerClientePorId(@PathVariable Long id) {
-        Optional<Cliente> cliente = clienteService.obtenerClientePorId(id);
+    public ResponseEntity<ClienteDTO> obtenerClientePorId(@PathVariable Long id) {
+        Optional<ClienteDTO> cliente = clienteService.obtenerClientePorId(id);
         return cliente.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PostMapping
-    public ResponseEntity<Cliente> crearCliente(@RequestBody Cliente cliente) {
-        Cliente nuevoCliente = clienteService.guardarCliente(cliente);
+    public ResponseEntity<ClienteDTO> crearCliente(@RequestBody Cliente cliente) {
+        ClienteDTO nuevoCliente = clienteService.guardarCliente(cliente);
         return new ResponseEntity<>(nuevoCliente, HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Cliente> actualizarCliente(@PathVariable Long id, @RequestBody Cliente clienteActualizado) {
-        Optional<Cliente> clienteExistente = clienteService.obtenerClientePorId(id);
-        if (clienteExistente.isPresent()) {
+    public ResponseEntity<ClienteDTO> actualizarCliente(@PathVariable Long id, @RequestBody Cliente clienteActualizado) {
+        if (clienteService.existeCliente(id)) {
             clienteActualizado.setId(id);
-            Cliente clienteGuardado = clienteService.guardarCliente(clienteActualizado);
+            ClienteDTO clienteGuardado = clienteService.guardarCliente(clienteActualizado);
             return new ResponseEntity<>(clienteGuardado, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -1,11 +1,25 @@
 package com.example.backend_logistica.controller;
 
+import com.example.backend_logistica.dto.ConductorDTO;
+import com.example.backend_logistica.dto.RutaConductorDTO;
+import com.example.backend_logistica.dto.TrayectoriaDTO;
 import com.example.backend_logistica.model.Conductor;
 import com.example.backend_logistica.services.ConductorService;
+import com.example.backend_logistica.services.ExportadorNdjson;
+import com.example.backend_logistica.services.PlanificadorRutas;
+import com.example.backend_logistica.services.ResultadoLoteUbicaciones;
+import com.example.backend_logistica.services.TrayectoriaService;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.LoteUbicacionesBinario;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,38 +27,64 @@ import java.util.Optional;
 @RequestMapping("/api/conductores")
 public class ConductorController {
 
+    private static final int MAX_CERCANOS = 100;
+    private static final int MAX_DIAS_TRAYECTORIA = 7;
+    private static final double MAX_TOLERANCIA_METROS = 1000;
+
     private final ConductorService conductorService;
+    private final ExportadorNdjson exportadorNdjson;
+    private final TrayectoriaService trayectoriaService;
+    private final PlanificadorRutas planificadorRutas;
 
     @Autowired
-    public ConductorController(ConductorService conductorService) {
+    public ConductorController(ConductorService conductorService, ExportadorNdjson exportadorNdjson, TrayectoriaService trayectoriaService,
+                               PlanificadorRutas planificadorRutas) {
         this.conductorService = conductorService;
+        this.exportadorNdjson = exportadorNdjson;
+        this.trayectoriaService = trayectoriaService;
+        this.planificadorRutas = planificadorRutas;
+    }
+
+    @GetMapping // Paginado por cursor: ?cursor=<último id recibido>&limite=<n>
+    public ResponseEntity<List<ConductorDTO>> obtenerTodosConductores(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<ConductorDTO> pagina = conductorService.obtenerPaginaConductores(cursor, limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, ConductorDTO::getId), HttpStatus.OK);
     }
 
-    @GetMapping
-    public ResponseEntity<List<Conductor>> obtenerTodosConductores() {
-        return new ResponseEntity<>(conductorService.obtenerTodosConductores(), HttpStatus.OK);
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson") // Exportación completa en streaming
+    public ResponseEntity<StreamingResponseBody> exportarConductores() {
+        return new ResponseEntity<>(exportadorNdjson.exportar(conductorService::streamTodosConductores), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Conductor> obtenerConductorPorId(@PathVariable Long id) {
-        Optional<Conductor> conductor = conductorService.obtenerConductorPorId(id);
+    public ResponseEntity<ConductorDTO> obtenerConductorPorId(@PathVariable Long id) {
+        Optional<ConductorDTO> conductor = conductorService.obtenerConductorPorId(id);
         return conductor.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PostMapping
-    public ResponseEntity<Conductor> crearConductor(@RequestBody Conductor conductor) {
-        Conductor nuevoConductor = conductorService.guardarConductor(conductor);
+    public ResponseEntity<ConductorDTO> crearConductor(@RequestBody Conductor conductor) {
+        ConductorDTO nuevoConductor = conductorService.guardarConductor(conductor);
         return new ResponseEntity<>(nuevoConductor, HttpStatus.CREATED);
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<Conductor> actualizarConductor(@PathVariable Long id, @RequestBody Conductor conductorActualizado) {
-        Optional<Conductor> conductorExistente = conductorService.obtenerConductorPorId(id);
-        if (conductorExistente.isPresent()) {
+    @PutMapping("/{id}") // "version" obligatoria: la del último GET
+    public ResponseEntity<ConductorDTO> actualizarConductor(@PathVariable Long id, @RequestBody Conductor conductorActualizado) {
+        if (conductorActualizado.getVersion() == null) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_REQUIRED); // Sin ella no se detectan ediciones concurrentes
+        }
+        if (conductorService.existeConductor(id)) {
             conductorActualizado.setId(id);
-            Conductor conductorGuardado = conductorService.guardarConductor(conductorActualizado);
-            return new ResponseEntity<>(conductorGuardado, HttpStatus.OK);
+            try {
+                ConductorDTO conductorGuardado = conductorService.guardarConductor(conductorActualizado);
+                return new ResponseEntity<>(conductorGuardado, HttpStatus.OK);
+            } catch (OptimisticLockingFailureException e) {
+                return new ResponseEntity<>(HttpStatus.CONFLICT); // La versión enviada ya no es la vigente
+            }
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -57,20 +97,79 @@ public class ConductorController {
     }
 
     @GetMapping("/disponibles")
-    public ResponseEntity<List<Conductor>> obtenerConductoresDisponibles() {
+    public ResponseEntity<List<ConductorDTO>> obtenerConductoresDisponibles() {
         return new ResponseEntity<>(conductorService.obtenerConductoresDisponibles(), HttpStatus.OK);
     }
 
+    @GetMapping("/cercanos") // Conductores disponibles más cercanos a un punto (índice geoespacial en memoria)
+    public ResponseEntity<List<ConductorDTO>> obtenerConductoresCercanos(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(defaultValue = "5") int k) {
+        if (!GeoUtils.coordenadasValidas(lat, lon) || k <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(conductorService.obtenerConductoresCercanos(lat, lon, Math.min(k, MAX_CERCANOS)), HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/trayectoria") // Recorrido del conductor en una ventana de hasta MAX_DIAS_TRAYECTORIA días
+    public ResponseEntity<TrayectoriaDTO> obtenerTrayectoria(
+            @PathVariable Long id,
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "0") double tolerancia) {
+        if (desde.isAfter(hasta) || desde.plusDays(MAX_DIAS_TRAYECTORIA).isBefore(hasta)
+                || tolerancia < 0 || tolerancia > MAX_TOLERANCIA_METROS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(trayectoriaService.obtenerTrayectoriaConductor(id, desde, hasta, tolerancia), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{id}/ruta") // Paradas pendientes del conductor en orden de visita, desde su última posición
+    public ResponseEntity<RutaConductorDTO> obtenerRuta(@PathVariable Long id) {
+        try {
+            return new ResponseEntity<>(planificadorRutas.obtenerRuta(id), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
     @PostMapping("/{id}/ubicacion") // Endpoint para actualizar la ubicación del conductor directamente
-    public ResponseEntity<Conductor> actualizarUbicacionConductor(
+    public ResponseEntity<Void> actualizarUbicacionConductor(
             @PathVariable Long id,
             @RequestParam Double latitud,
             @RequestParam Double longitud) {
+        if (!GeoUtils.coordenadasValidas(latitud, longitud)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         try {
-            Conductor conductorActualizado = conductorService.actualizarUbicacionConductor(id, latitud, longitud);
-            return new ResponseEntity<>(conductorActualizado, HttpStatus.OK);
+            boolean aceptada = conductorService.actualizarUbicacionConductor(id, latitud, longitud);
+            // 202: la posición queda en memoria y se escribe a la base de datos en el siguiente lote
+            return new ResponseEntity<>(aceptada ? HttpStatus.ACCEPTED : HttpStatus.TOO_MANY_REQUESTS);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+
+    // Lote binario de posiciones (formato en LoteUbicacionesBinario) para clientes que envían pings a alta
+    // frecuencia: responde solo con el acuse de 12 bytes. 429 si la cola se llenó; el acuse indica cuántos
+    // registros del final del lote hay que reenviar
+    @PostMapping(value = "/ubicaciones", consumes = LoteUbicacionesBinario.TIPO_CONTENIDO,
+            produces = LoteUbicacionesBinario.TIPO_CONTENIDO)
+    public ResponseEntity<byte[]> registrarLoteUbicaciones(@RequestBody byte[] cuerpo) {
+        ByteBuffer lote = ByteBuffer.wrap(cuerpo);
+        int registros;
+        try {
+            registros = LoteUbicacionesBinario.validar(lote);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        ResultadoLoteUbicaciones resultado = conductorService.registrarLoteUbicaciones(lote, registros);
+        byte[] acuse = LoteUbicacionesBinario.codificarAcuse(resultado.aceptados(), resultado.descartados(), resultado.pendientes());
+        return new ResponseEntity<>(acuse, resultado.pendientes() > 0 ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.ACCEPTED);
+    }
+}
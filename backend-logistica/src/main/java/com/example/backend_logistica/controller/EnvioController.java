@@ -1,53 +1,224 @@
 package com.example.backend_logistica.controller;
 
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.dto.EtaEnvioDTO;
+import com.example.backend_logistica.dto.EventoEnvioDTO;
+import com.example.backend_logistica.dto.GeocercaDTO;
+import com.example.backend_logistica.dto.PedidoPorAsignarDTO;
+import com.example.backend_logistica.dto.ResultadoAsignacionLoteDTO;
+import com.example.backend_logistica.dto.ResultadoAsignacionRutasDTO;
+import com.example.backend_logistica.dto.ResultadoImportacionDTO;
+import com.example.backend_logistica.dto.TrayectoriaDTO;
 import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.services.AlmacenEvidencias;
+import com.example.backend_logistica.services.AlmacenEvidencias.ArchivoEvidencia;
+import com.example.backend_logistica.services.AsignacionLoteService;
 import com.example.backend_logistica.services.EnvioService;
+import com.example.backend_logistica.services.ExportadorNdjson;
+import com.example.backend_logistica.services.ImportacionMasivaService;
+import com.example.backend_logistica.services.MotorEta;
+import com.example.backend_logistica.services.MotorGeocercas;
+import com.example.backend_logistica.services.TipoImportacion;
+import com.example.backend_logistica.services.TrayectoriaService;
+import com.example.backend_logistica.util.CursorHistorial;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.LectorRegistros;
+import com.example.backend_logistica.util.TipoGeocerca;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/envios")
 public class EnvioController {
 
+    private static final double MAX_TOLERANCIA_METROS = 1000;
+    private static final String CABECERA_IDEMPOTENCIA = "Idempotency-Key";
+    private static final int MAX_LARGO_CLAVE_IDEMPOTENCIA = 64; // evento_envio.clave_idempotencia
+    // Atributos de petición con los que Tomcat envía un archivo por sendfile (como su DefaultServlet)
+    private static final String SENDFILE_ADMITIDO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
     private final EnvioService envioService;
+    private final AsignacionLoteService asignacionLoteService;
+    private final ExportadorNdjson exportadorNdjson;
+    private final ImportacionMasivaService importacionMasivaService;
+    private final TrayectoriaService trayectoriaService;
+    private final MotorEta motorEta;
+    private final MotorGeocercas motorGeocercas;
+    private final AlmacenEvidencias almacenEvidencias;
 
     @Autowired
-    public EnvioController(EnvioService envioService) {
+    public EnvioController(EnvioService envioService, AsignacionLoteService asignacionLoteService, ExportadorNdjson exportadorNdjson,
+                           TrayectoriaService trayectoriaService, MotorEta motorEta, MotorGeocercas motorGeocercas,
+                           ImportacionMasivaService importacionMasivaService, AlmacenEvidencias almacenEvidencias) {
         this.envioService = envioService;
+        this.asignacionLoteService = asignacionLoteService;
+        this.exportadorNdjson = exportadorNdjson;
+        this.trayectoriaService = trayectoriaService;
+        this.motorEta = motorEta;
+        this.motorGeocercas = motorGeocercas;
+        this.importacionMasivaService = importacionMasivaService;
+        this.almacenEvidencias = almacenEvidencias;
+    }
+
+    @GetMapping // Paginado por cursor: ?cursor=<último id recibido>&limite=<n>
+    public ResponseEntity<List<EnvioDTO>> obtenerTodosEnvios(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<EnvioDTO> pagina = envioService.obtenerPaginaEnvios(cursor, limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, EnvioDTO::getId), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson") // Exportación completa en streaming
+    public ResponseEntity<StreamingResponseBody> exportarEnvios() {
+        return new ResponseEntity<>(exportadorNdjson.exportar(envioService::streamTodosEnvios), HttpStatus.OK);
     }
 
-    @GetMapping
-    public ResponseEntity<List<Envio>> obtenerTodosEnvios() {
-        return new ResponseEntity<>(envioService.obtenerTodosEnvios(), HttpStatus.OK);
+    @PostMapping(value = "/importar", consumes = {LectorRegistros.TIPO_CSV, LectorRegistros.TIPO_NDJSON}) // Carga masiva en streaming
+    public ResponseEntity<ResultadoImportacionDTO> importarEnvios(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoContenido,
+                                                                  InputStream cuerpo) throws IOException {
+        try {
+            return new ResponseEntity<>(importacionMasivaService.importar(TipoImportacion.ENVIOS, tipoContenido, cuerpo), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Formato no reconocido o CSV sin cabecera
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS); // Hay importacion.max-simultaneas en curso
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Envio> obtenerEnvioPorId(@PathVariable Long id) {
-        Optional<Envio> envio = envioService.obtenerEnvioPorId(id);
+    public ResponseEntity<EnvioDTO> obtenerEnvioPorId(@PathVariable Long id) {
+        Optional<EnvioDTO> envio = envioService.obtenerEnvioPorId(id);
         return envio.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    @GetMapping("/{id}/eta") // Entrega estimada con la última posición del conductor; 404 si no está en curso o no tiene destino
+    public ResponseEntity<EtaEnvioDTO> obtenerEta(@PathVariable Long id) {
+        return motorEta.obtenerEta(id).map(eta -> new ResponseEntity<>(eta, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/{id}/geocercas") // Geocercas vigiladas para detectar llegadas y salidas; 404 si el envío no está en curso
+    public ResponseEntity<List<GeocercaDTO>> obtenerGeocercas(@PathVariable Long id) {
+        return motorGeocercas.obtenerGeocercas(id).map(geocercas -> new ResponseEntity<>(geocercas, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    // tipo: origen o destino. Cuerpo: [[latitud, longitud], ...] con entre 3 y MotorGeocercas.MAX_VERTICES vértices;
+    // sustituye el círculo alrededor de las coordenadas del envío
+    @PutMapping("/{id}/geocercas/{tipo}")
+    public ResponseEntity<Void> definirGeocerca(@PathVariable Long id, @PathVariable String tipo, @RequestBody List<double[]> vertices) {
+        Optional<TipoGeocerca> tipoGeocerca = TipoGeocerca.buscar(tipo);
+        if (tipoGeocerca.isEmpty() || !verticesValidos(vertices)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            motorGeocercas.definirPoligono(id, tipoGeocerca.get(), vertices);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @DeleteMapping("/{id}/geocercas/{tipo}") // Vuelve al círculo
+    public ResponseEntity<Void> eliminarGeocerca(@PathVariable Long id, @PathVariable String tipo) {
+        Optional<TipoGeocerca> tipoGeocerca = TipoGeocerca.buscar(tipo);
+        if (tipoGeocerca.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            motorGeocercas.eliminarPoligono(id, tipoGeocerca.get());
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    // Recorrido del conductor durante el envío; tolerancia (metros) simplifica la línea para mapas
+    // de poco detalle, y desde/hasta acotan la ventana dentro de la vida del envío
+    @GetMapping("/{id}/trayectoria")
+    public ResponseEntity<TrayectoriaDTO> obtenerTrayectoria(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "0") double tolerancia) {
+        if (tolerancia < 0 || tolerancia > MAX_TOLERANCIA_METROS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(trayectoriaService.obtenerTrayectoriaEnvio(id, desde, hasta, tolerancia), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
     @PostMapping
-    public ResponseEntity<Envio> crearEnvio(@RequestBody Envio envio) {
+    public ResponseEntity<EnvioDTO> crearEnvio(@RequestBody Envio envio) {
         return new ResponseEntity<>(envioService.guardarEnvio(envio), HttpStatus.CREATED);
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<Envio> actualizarEnvio(@PathVariable Long id, @RequestBody Envio envioActualizado) {
-        Optional<Envio> envioExistente = envioService.obtenerEnvioPorId(id);
-        if (envioExistente.isPresent()) {
-            envioActualizado.setId(id);
-            return new ResponseEntity<>(envioService.guardarEnvio(envioActualizado), HttpStatus.OK);
-        } else {
+    @PutMapping("/{id}") // El estado se ignora: se cambia con POST /{id}/estado
+    public ResponseEntity<EnvioDTO> actualizarEnvio(@PathVariable Long id, @RequestBody Envio envioActualizado) {
+        try {
+            return new ResponseEntity<>(envioService.actualizarEnvio(id, envioActualizado), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // "version" desactualizada o edición concurrente
+        }
+    }
+
+    // ?estado= nombre o etiqueta (RECOGIDO, "En Tránsito"...). Con la cabecera Idempotency-Key, repetir la
+    // petición devuelve el envío sin volver a aplicar la transición; 409 si el estado actual no lo permite
+    @PostMapping("/{id}/estado")
+    public ResponseEntity<EnvioDTO> cambiarEstado(
+            @PathVariable Long id,
+            @RequestParam String estado,
+            @RequestHeader(value = CABECERA_IDEMPOTENCIA, required = false) String claveIdempotencia) {
+        Optional<EstadoEnvio> destino = EstadoEnvio.buscar(estado);
+        if (destino.isEmpty() || destino.get() == EstadoEnvio.ASIGNADO || !claveValida(claveIdempotencia)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(envioService.cambiarEstado(id, destino.get(), claveIdempotencia), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // Otra transición del mismo envío a la vez
+        }
+    }
+
+    @GetMapping("/{id}/eventos") // Transiciones del envío en orden
+    public ResponseEntity<List<EventoEnvioDTO>> obtenerEventos(@PathVariable Long id) {
+        if (!envioService.existeEnvio(id)) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        return new ResponseEntity<>(envioService.obtenerEventos(id), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -57,57 +228,255 @@ public class EnvioController {
     }
 
     @PostMapping("/asignar/{pedidoId}")
-    public ResponseEntity<Envio> asignarEnvio(@PathVariable Long pedidoId) {
+    public ResponseEntity<EnvioDTO> asignarEnvio(
+            @PathVariable Long pedidoId,
+            @RequestParam(value = "latitudOrigen", required = false) Double latitudOrigen,
+            @RequestParam(value = "longitudOrigen", required = false) Double longitudOrigen,
+            @RequestParam(value = "latitudDestino", required = false) Double latitudDestino,
+            @RequestParam(value = "longitudDestino", required = false) Double longitudDestino) {
+        if (!destinoValido(latitudDestino, longitudDestino)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         try {
-            Envio envioAsignado = envioService.asignarEnvio(pedidoId);
+            EnvioDTO envioAsignado = envioService.asignarEnvio(pedidoId, latitudOrigen, longitudOrigen, latitudDestino, longitudDestino);
             return new ResponseEntity<>(envioAsignado, HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } catch (IllegalStateException e) {
             return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // Conductor ocupado por otra instancia o edición
+        }
+    }
+
+    @PostMapping("/asignar-lote") // Cuerpo: [{"pedidoId": 1, "latitudOrigen": -0.18, "longitudOrigen": -78.48, "latitudDestino": ..., "longitudDestino": ...}, ...]
+    public ResponseEntity<ResultadoAsignacionLoteDTO> asignarLote(@RequestBody List<PedidoPorAsignarDTO> pedidos) {
+        if (!loteValido(pedidos)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(asignacionLoteService.asignarLote(pedidos), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // Conductor ocupado por otra instancia o edición
         }
     }
 
+    @PostMapping("/asignar-rutas") // Mismo cuerpo que asignar-lote; varios pedidos por conductor, con las paradas ordenadas
+    public ResponseEntity<ResultadoAsignacionRutasDTO> asignarEnRutas(@RequestBody List<PedidoPorAsignarDTO> pedidos) {
+        if (!loteValido(pedidos)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(asignacionLoteService.asignarEnRutas(pedidos), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    // Sin cuerpo o multipart/form-data con las partes "firma" y "foto" (PNG, JPEG o WebP, opcionales). Las
+    // evidencias se guardan en el almacén antes de abrir la transacción y el envío recibe sólo sus referencias
     @PostMapping("/registrar-entrega/{envioId}")
-    public ResponseEntity<Envio> registrarEntrega(
+    public ResponseEntity<EnvioDTO> registrarEntrega(
             @PathVariable Long envioId,
             @RequestParam(value = "codigoQrEntrega", required = false) String codigoQrEntrega,
-            @RequestParam(value = "firmaDigitalEntrega", required = false) String firmaDigitalEntrega) {
+            @RequestParam(value = "firma", required = false) MultipartFile firma,
+            @RequestParam(value = "foto", required = false) MultipartFile foto,
+            @RequestHeader(value = CABECERA_IDEMPOTENCIA, required = false) String claveIdempotencia) throws IOException {
+        if (!claveValida(claveIdempotencia)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String firmaEntrega;
+        String fotoEntrega;
         try {
-            Envio envioEntregado = envioService.registrarEntrega(envioId, codigoQrEntrega, firmaDigitalEntrega);
+            firmaEntrega = guardarEvidencia(firma);
+            fotoEntrega = guardarEvidencia(foto);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // No es una imagen admitida o supera el tamaño máximo
+        }
+        try {
+            EnvioDTO envioEntregado = envioService.registrarEntrega(envioId, codigoQrEntrega, firmaEntrega, fotoEntrega, claveIdempotencia);
             return new ResponseEntity<>(envioEntregado, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // Envío cancelado
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    // Imagen de la firma; el JSON del envío sólo trae esta URL. Las entregas anteriores a V6 no tienen imagen:
+    // se responde, como texto, lo que guardó entonces la app
+    @GetMapping("/{id}/firma")
+    public ResponseEntity<StreamingResponseBody> obtenerFirma(@PathVariable Long id, HttpServletRequest peticion) throws IOException {
+        Optional<String> referencia = envioService.obtenerFirmaEntrega(id);
+        if (referencia.isPresent()) {
+            return descargarEvidencia(referencia, peticion);
         }
+        return envioService.obtenerFirmaAnterior(id)
+                .map(texto -> {
+                    byte[] contenido = texto.getBytes(StandardCharsets.UTF_8);
+                    HttpHeaders cabeceras = new HttpHeaders();
+                    cabeceras.setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+                    cabeceras.setContentLength(contenido.length);
+                    return new ResponseEntity<StreamingResponseBody>(salida -> salida.write(contenido), cabeceras, HttpStatus.OK);
+                })
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/{id}/foto")
+    public ResponseEntity<StreamingResponseBody> obtenerFoto(@PathVariable Long id, HttpServletRequest peticion) throws IOException {
+        return descargarEvidencia(envioService.obtenerFotoEntrega(id), peticion);
     }
 
+    // Historiales paginados por cursor: ?cursor=<valor de X-Siguiente-Cursor>&limite=<n>, del más reciente al más antiguo
     @GetMapping("/historial/conductor/{conductorId}")
-    public ResponseEntity<List<Envio>> obtenerHistorialEnviosPorConductor(@PathVariable Long conductorId) {
-        return new ResponseEntity<>(envioService.obtenerHistorialEnviosPorConductor(conductorId), HttpStatus.OK);
+    public ResponseEntity<List<EnvioDTO>> obtenerHistorialEnviosPorConductor(
+            @PathVariable Long conductorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        Optional<CursorHistorial> posicion = parsearCursor(cursor);
+        if (posicion.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<EnvioDTO> pagina = envioService.obtenerHistorialEnviosPorConductor(conductorId, posicion.get(), limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, EnvioController::cursorDe), HttpStatus.OK);
     }
 
     @GetMapping("/historial/cliente/{clienteId}")
-    public ResponseEntity<List<Envio>> obtenerHistorialEnviosPorCliente(@PathVariable Long clienteId) {
-        return new ResponseEntity<>(envioService.obtenerHistorialEnviosPorCliente(clienteId), HttpStatus.OK);
+    public ResponseEntity<List<EnvioDTO>> obtenerHistorialEnviosPorCliente(
+            @PathVariable Long clienteId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        Optional<CursorHistorial> posicion = parsearCursor(cursor);
+        if (posicion.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<EnvioDTO> pagina = envioService.obtenerHistorialEnviosPorCliente(clienteId, posicion.get(), limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, EnvioController::cursorDe), HttpStatus.OK);
     }
 
-    @GetMapping("/historial/fechas")
-    public ResponseEntity<List<Envio>> obtenerHistorialEnviosPorRangoFechas(
+    @GetMapping("/historial/fechas") // ?estado= opcional, nombre o etiqueta, p. ej. "Entregado"
+    public ResponseEntity<List<EnvioDTO>> obtenerHistorialEnviosPorRangoFechas(
             @RequestParam("inicio") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
-            @RequestParam("fin") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
-        return new ResponseEntity<>(envioService.obtenerHistorialEnviosPorRangoFechas(inicio, fin), HttpStatus.OK);
+            @RequestParam("fin") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        Optional<CursorHistorial> posicion = parsearCursor(cursor);
+        Optional<EstadoEnvio> filtro = EstadoEnvio.buscar(estado);
+        if (posicion.isEmpty() || inicio.isAfter(fin) || (estado != null && !estado.isBlank() && filtro.isEmpty())) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<EnvioDTO> pagina = envioService.obtenerHistorialEnviosPorRangoFechas(inicio, fin, filtro.orElse(null), posicion.get(), limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, EnvioController::cursorDe), HttpStatus.OK);
     }
 
     @PostMapping("/{envioId}/ubicacion") // Endpoint para actualizar la ubicación del conductor asociado a un envío
-    public ResponseEntity<Envio> actualizarUbicacionEnvio( // Renombrado para evitar confusión con ConductorController
+    public ResponseEntity<EnvioDTO> actualizarUbicacionEnvio( // Renombrado para evitar confusión con ConductorController
                                                            @PathVariable Long envioId,
                                                            @RequestParam Double latitud,
                                                            @RequestParam Double longitud) {
+        if (!GeoUtils.coordenadasValidas(latitud, longitud)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         try {
-            Envio envioActualizado = envioService.actualizarUbicacionConductor(envioId, latitud, longitud);
-            return new ResponseEntity<>(envioActualizado, HttpStatus.OK);
+            EnvioDTO envioActualizado = envioService.actualizarUbicacionConductor(envioId, latitud, longitud);
+            return new ResponseEntity<>(envioActualizado, HttpStatus.ACCEPTED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS); // Cola de ubicaciones llena
+        }
+    }
+
+    // El destino es opcional, pero si llega debe estar completo
+    private static boolean loteValido(List<PedidoPorAsignarDTO> pedidos) {
+        if (pedidos == null || pedidos.isEmpty() || pedidos.size() > AsignacionLoteService.MAX_PEDIDOS_POR_LOTE) {
+            return false;
+        }
+        for (PedidoPorAsignarDTO pedido : pedidos) {
+            boolean conOrigen = pedido.getLatitudOrigen() != null || pedido.getLongitudOrigen() != null;
+            if (pedido.getPedidoId() == null
+                    || (conOrigen && !GeoUtils.coordenadasValidas(pedido.getLatitudOrigen(), pedido.getLongitudOrigen()))
+                    || !destinoValido(pedido.getLatitudDestino(), pedido.getLongitudDestino())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean destinoValido(Double latitud, Double longitud) {
+        return (latitud == null && longitud == null) || GeoUtils.coordenadasValidas(latitud, longitud);
+    }
+
+    private String guardarEvidencia(MultipartFile archivo) throws IOException {
+        if (archivo == null || archivo.isEmpty()) {
+            return null;
+        }
+        try (InputStream contenido = archivo.getInputStream()) {
+            return almacenEvidencias.guardar(contenido);
+        }
+    }
+
+    // El nombre del archivo es su hash, así que el contenido nunca cambia y se puede cachear sin caducidad.
+    // Con el conector NIO de Tomcat el archivo va del disco al socket por sendfile, sin copiarse a la JVM.
+    // Sin sendfile (otro conector, HTTPS con JSSE) se copia por la JVM: ver AlmacenEvidencias.enviar
+    private ResponseEntity<StreamingResponseBody> descargarEvidencia(Optional<String> referencia, HttpServletRequest peticion)
+            throws IOException {
+        Optional<ArchivoEvidencia> archivo = referencia.isPresent() ? almacenEvidencias.abrir(referencia.get()) : Optional.empty();
+        if (archivo.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        ArchivoEvidencia evidencia = archivo.get();
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setContentType(MediaType.parseMediaType(evidencia.tipoContenido()));
+        cabeceras.setContentLength(evidencia.tamano());
+        cabeceras.setETag("\"" + evidencia.hash() + "\"");
+        cabeceras.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable());
+        if (Boolean.TRUE.equals(peticion.getAttribute(SENDFILE_ADMITIDO))) {
+            peticion.setAttribute(SENDFILE_ARCHIVO, evidencia.ruta().toString());
+            peticion.setAttribute(SENDFILE_INICIO, 0L);
+            peticion.setAttribute(SENDFILE_FIN, evidencia.tamano());
+            return new ResponseEntity<>(cabeceras, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(almacenEvidencias.enviar(evidencia), cabeceras, HttpStatus.OK); // Copia en bloques
+    }
+
+    // Sin clave se admite (la transición sigue siendo idempotente por estado); vacía o demasiado larga, no
+    private static boolean claveValida(String claveIdempotencia) {
+        return claveIdempotencia == null
+                || (!claveIdempotencia.isBlank() && claveIdempotencia.length() <= MAX_LARGO_CLAVE_IDEMPOTENCIA);
+    }
+
+    private static boolean verticesValidos(List<double[]> vertices) {
+        if (vertices == null || vertices.size() < 3 || vertices.size() > MotorGeocercas.MAX_VERTICES) {
+            return false;
         }
+        return vertices.stream().allMatch(vertice -> vertice != null && vertice.length == 2
+                && GeoUtils.coordenadasValidas(vertice[0], vertice[1]));
+    }
+
+    private static Optional<CursorHistorial> parsearCursor(String cursor) {
+        try {
+            return Optional.of(CursorHistorial.parsear(cursor));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static CursorHistorial cursorDe(EnvioDTO envio) {
+        return new CursorHistorial(envio.getFechaCreacion(), envio.getId());
     }
-}
\ No newline at end of file
+}
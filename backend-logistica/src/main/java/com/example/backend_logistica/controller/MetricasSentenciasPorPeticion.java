@@ -0,0 +1,62 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.services.ContadorSentenciasSql;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Sentencias SQL (Hibernate) por petición, con las mismas etiquetas method/uri que http.server.requests:
+// un endpoint cuyo conteo crece con los datos es un N+1. Por encima del umbral se deja un aviso en el log.
+@Component
+@ConditionalOnProperty(name = "observabilidad.sentencias-por-peticion", havingValue = "true", matchIfMissing = true)
+public class MetricasSentenciasPorPeticion extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricasSentenciasPorPeticion.class);
+
+    private final ContadorSentenciasSql contadorSentencias;
+    private final MeterRegistry meterRegistry;
+    private final int umbralAviso;
+
+    @Autowired
+    public MetricasSentenciasPorPeticion(ContadorSentenciasSql contadorSentencias, MeterRegistry meterRegistry,
+                                         @Value("${observabilidad.umbral-sentencias-por-peticion:20}") int umbralAviso) {
+        this.contadorSentencias = contadorSentencias;
+        this.meterRegistry = meterRegistry;
+        this.umbralAviso = umbralAviso;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest peticion, HttpServletResponse respuesta, FilterChain cadena)
+            throws ServletException, IOException {
+        contadorSentencias.iniciar();
+        try {
+            cadena.doFilter(peticion, respuesta);
+        } finally {
+            int sentencias = contadorSentencias.terminar();
+            Object patron = peticion.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = patron != null ? patron.toString() : "UNKNOWN";
+            DistributionSummary.builder("http.server.requests.sentencias")
+                    .description("Sentencias SQL preparadas por Hibernate en cada petición")
+                    .tag("method", peticion.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(sentencias);
+            if (sentencias > umbralAviso) {
+                logger.warn("{} {} ejecutó {} sentencias SQL (umbral {})", peticion.getMethod(), uri, sentencias, umbralAviso);
+            }
+        }
+    }
+}
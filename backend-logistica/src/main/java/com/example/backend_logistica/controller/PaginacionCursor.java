@@ -0,0 +1,30 @@
+package com.example.backend_logistica.controller;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Paginación por cursor (keyset): el cliente envía el último ID recibido en ?cursor= y la
+// respuesta indica el siguiente en la cabecera X-Siguiente-Cursor (ausente en la última página).
+final class PaginacionCursor {
+
+    static final String CABECERA_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+    static final String LIMITE_POR_DEFECTO = "100";
+    static final int LIMITE_MAXIMO = 1000;
+
+    private PaginacionCursor() {
+    }
+
+    static int normalizarLimite(int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    static <T> HttpHeaders cabeceras(List<T> pagina, int limite, Function<T, ?> cursorDe) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        if (!pagina.isEmpty() && pagina.size() >= limite) {
+            cabeceras.add(CABECERA_SIGUIENTE_CURSOR, String.valueOf(cursorDe.apply(pagina.get(pagina.size() - 1))));
+        }
+        return cabeceras;
+    }
+}
@@ -1,49 +1,85 @@
 package com.example.backend_logistica.controller;
 
+import com.example.backend_logistica.dto.PedidoDTO;
+import com.example.backend_logistica.dto.ResultadoImportacionDTO;
 import com.example.backend_logistica.model.Pedido;
+import com.example.backend_logistica.services.ExportadorNdjson;
+import com.example.backend_logistica.services.ImportacionMasivaService;
 import com.example.backend_logistica.services.PedidoService;
+import com.example.backend_logistica.services.TipoImportacion;
+import com.example.backend_logistica.util.LectorRegistros;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/pedidos")
 public class PedidoController {
 
     private final PedidoService pedidoService;
+    private final ExportadorNdjson exportadorNdjson;
+    private final ImportacionMasivaService importacionMasivaService;
 
     @Autowired
-    public PedidoController(PedidoService pedidoService) {
+    public PedidoController(PedidoService pedidoService, ExportadorNdjson exportadorNdjson,
+                            ImportacionMasivaService importacionMasivaService) {
         this.pedidoService = pedidoService;
+        this.exportadorNdjson = exportadorNdjson;
+        this.importacionMasivaService = importacionMasivaService;
     }
 
-    @GetMapping
-    public ResponseEntity<List<Pedido>> obtenerTodosPedidos() {
-        return new ResponseEntity<>(pedidoService.obtenerTodosPedidos(), HttpStatus.OK);
+    @GetMapping // Paginado por cursor: ?cursor=<último id recibido>&limite=<n>
+    public ResponseEntity<List<PedidoDTO>> obtenerTodosPedidos(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<PedidoDTO> pagina = pedidoService.obtenerPaginaPedidos(cursor, limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, PedidoDTO::getId), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson") // Exportación completa en streaming
+    public ResponseEntity<StreamingResponseBody> exportarPedidos() {
+        return new ResponseEntity<>(exportadorNdjson.exportar(pedidoService::streamTodosPedidos), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/importar", consumes = {LectorRegistros.TIPO_CSV, LectorRegistros.TIPO_NDJSON}) // Carga masiva en streaming
+    public ResponseEntity<ResultadoImportacionDTO> importarPedidos(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoContenido,
+                                                                   InputStream cuerpo) throws IOException {
+        try {
+            return new ResponseEntity<>(importacionMasivaService.importar(TipoImportacion.PEDIDOS, tipoContenido, cuerpo), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Formato no reconocido o CSV sin cabecera
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS); // Hay importacion.max-simultaneas en curso
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Pedido> obtenerPedidoPorId(@PathVariable Long id) {
-        Optional<Pedido> pedido = pedidoService.obtenerPedidoPorId(id);
+    public ResponseEntity<PedidoDTO> obtenerPedidoPorId(@PathVariable Long id) {
+        Optional<PedidoDTO> pedido = pedidoService.obtenerPedidoPorId(id);
         return pedido.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PostMapping
-    public ResponseEntity<Pedido> crearPedido(@RequestBody Pedido pedido) {
-        Pedido nuevoPedido = pedidoService.guardarPedido(pedido);
+    public ResponseEntity<PedidoDTO> crearPedido(@RequestBody Pedido pedido) {
+        PedidoDTO nuevoPedido = pedidoService.guardarPedido(pedido);
         return new ResponseEntity<>(nuevoPedido, HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Pedido> actualizarPedido(@PathVariable Long id, @RequestBody Pedido pedidoActualizado) {
-        Optional<Pedido> pedidoExistente = pedidoService.obtenerPedidoPorId(id);
-        if (pedidoExistente.isPresent()) {
+    public ResponseEntity<PedidoDTO> actualizarPedido(@PathVariable Long id, @RequestBody Pedido pedidoActualizado) {
+        if (pedidoService.existePedido(id)) {
             pedidoActualizado.setId(id);
-            Pedido pedidoGuardado = pedidoService.guardarPedido(pedidoActualizado);
+            PedidoDTO pedidoGuardado = pedidoService.guardarPedido(pedidoActualizado);
             return new ResponseEntity<>(pedidoGuardado, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
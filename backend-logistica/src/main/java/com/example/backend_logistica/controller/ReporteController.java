@@ -0,0 +1,87 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.dto.ResumenEnviosDTO;
+import com.example.backend_logistica.services.AgregadorResumenEnvios;
+import com.example.backend_logistica.services.DimensionResumen;
+import com.example.backend_logistica.services.GranularidadResumen;
+import com.example.backend_logistica.services.ReporteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// KPIs de entregas por conductor, vehículo, cliente o estado (dimensiones: conductores, vehiculos,
+// clientes, estados), por hora o por día, leídos de los agregados precalculados
+@RestController
+@RequestMapping("/api/reportes")
+public class ReporteController {
+
+    private static final int MAX_PERIODOS = 2000; // ~83 días por hora o ~5 años por día
+    private static final int MAX_DIAS_RECONSTRUCCION = 366;
+
+    private final ReporteService reporteService;
+    private final AgregadorResumenEnvios agregadorResumenEnvios;
+
+    @Autowired
+    public ReporteController(ReporteService reporteService, AgregadorResumenEnvios agregadorResumenEnvios) {
+        this.reporteService = reporteService;
+        this.agregadorResumenEnvios = agregadorResumenEnvios;
+    }
+
+    @GetMapping("/{dimension}/{clave}") // Serie por periodo, p. ej. /api/reportes/conductores/7?granularidad=dia&desde=...&hasta=...
+    public ResponseEntity<List<ResumenEnviosDTO>> obtenerSerie(
+            @PathVariable String dimension,
+            @PathVariable String clave,
+            @RequestParam(defaultValue = "dia") String granularidad,
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        Optional<DimensionResumen> dimensionResumen = DimensionResumen.desdeRuta(dimension);
+        Optional<GranularidadResumen> granularidadResumen = GranularidadResumen.desdeParametro(granularidad);
+        if (dimensionResumen.isEmpty() || granularidadResumen.isEmpty() || !rangoValido(granularidadResumen.get(), desde, hasta)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(reporteService.obtenerSerie(dimensionResumen.get(), clave, granularidadResumen.get(), desde, hasta),
+                HttpStatus.OK);
+    }
+
+    @GetMapping("/{dimension}") // Totales del rango por clave, de más a menos entregas
+    public ResponseEntity<List<ResumenEnviosDTO>> obtenerTotales(
+            @PathVariable String dimension,
+            @RequestParam(defaultValue = "dia") String granularidad,
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        Optional<DimensionResumen> dimensionResumen = DimensionResumen.desdeRuta(dimension);
+        Optional<GranularidadResumen> granularidadResumen = GranularidadResumen.desdeParametro(granularidad);
+        if (dimensionResumen.isEmpty() || granularidadResumen.isEmpty() || !rangoValido(granularidadResumen.get(), desde, hasta)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(reporteService.obtenerTotales(dimensionResumen.get(), granularidadResumen.get(), desde, hasta,
+                PaginacionCursor.normalizarLimite(limite)), HttpStatus.OK);
+    }
+
+    // Recalcula los agregados de días cerrados desde la tabla de envíos (carga inicial o reparación)
+    @PostMapping("/reconstruir")
+    public ResponseEntity<Integer> reconstruir(
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        if (desde.isAfter(hasta) || desde.plusDays(MAX_DIAS_RECONSTRUCCION).isBefore(hasta)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(agregadorResumenEnvios.reconstruir(desde, hasta), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    private static boolean rangoValido(GranularidadResumen granularidad, LocalDateTime desde, LocalDateTime hasta) {
+        return !desde.isAfter(hasta) && granularidad.periodosEntre(desde, hasta) <= MAX_PERIODOS;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.services.DifusorSeguimiento;
+import com.example.backend_logistica.services.SeguimientoService;
+import com.example.backend_logistica.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+// Seguimiento en vivo por Server-Sent Events (sustituye al sondeo de /api/envios/{id} y /api/conductores).
+// Eventos: "ubicacion" (UbicacionEnVivoDTO) y, en el seguimiento de un envío, "estado" (EstadoEnvioEnVivoDTO);
+// la conexión se cierra cuando el envío se entrega.
+@RestController
+@RequestMapping("/api/seguimiento")
+public class SeguimientoController {
+
+    private final SeguimientoService seguimientoService;
+
+    @Autowired
+    public SeguimientoController(SeguimientoService seguimientoService) {
+        this.seguimientoService = seguimientoService;
+    }
+
+    @GetMapping(value = "/envios/{envioId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> seguirEnvio(@PathVariable Long envioId) {
+        try {
+            Optional<SseEmitter> emisor = seguimientoService.seguirEnvio(envioId);
+            return emisor.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    @GetMapping(value = "/region", produces = MediaType.TEXT_EVENT_STREAM_VALUE) // Lado máximo: 1 grado (~110 km)
+    public ResponseEntity<SseEmitter> seguirRegion(
+            @RequestParam Double latitudMin,
+            @RequestParam Double latitudMax,
+            @RequestParam Double longitudMin,
+            @RequestParam Double longitudMax) {
+        if (!GeoUtils.coordenadasValidas(latitudMin, longitudMin) || !GeoUtils.coordenadasValidas(latitudMax, longitudMax)
+                || latitudMin > latitudMax || longitudMin > longitudMax
+                || latitudMax - latitudMin > DifusorSeguimiento.MAX_LADO_REGION_GRADOS
+                || longitudMax - longitudMin > DifusorSeguimiento.MAX_LADO_REGION_GRADOS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Optional<SseEmitter> emisor = seguimientoService.seguirRegion(latitudMin, latitudMax, longitudMin, longitudMax);
+        return emisor.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+}
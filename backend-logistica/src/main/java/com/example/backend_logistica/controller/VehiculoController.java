@@ -1,11 +1,14 @@
 package com.example.backend_logistica.controller;
 
+import com.example.backend_logistica.dto.VehiculoDTO;
 import com.example.backend_logistica.model.Vehiculo;
+import com.example.backend_logistica.services.ExportadorNdjson;
 import com.example.backend_logistica.services.VehiculoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,36 +17,46 @@ import java.util.Optional;
 public class VehiculoController {
 
     private final VehiculoService vehiculoService;
+    private final ExportadorNdjson exportadorNdjson;
 
     @Autowired
-    public VehiculoController(VehiculoService vehiculoService) {
+    public VehiculoController(VehiculoService vehiculoService, ExportadorNdjson exportadorNdjson) {
         this.vehiculoService = vehiculoService;
+        this.exportadorNdjson = exportadorNdjson;
     }
 
-    @GetMapping
-    public ResponseEntity<List<Vehiculo>> obtenerTodosVehiculos() {
-        return new ResponseEntity<>(vehiculoService.obtenerTodosVehiculos(), HttpStatus.OK);
+    @GetMapping // Paginado por cursor: ?cursor=<último id recibido>&limite=<n>
+    public ResponseEntity<List<VehiculoDTO>> obtenerTodosVehiculos(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = PaginacionCursor.LIMITE_POR_DEFECTO) int limite) {
+        int limiteNormalizado = PaginacionCursor.normalizarLimite(limite);
+        List<VehiculoDTO> pagina = vehiculoService.obtenerPaginaVehiculos(cursor, limiteNormalizado);
+        return new ResponseEntity<>(pagina, PaginacionCursor.cabeceras(pagina, limiteNormalizado, VehiculoDTO::getId), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson") // Exportación completa en streaming
+    public ResponseEntity<StreamingResponseBody> exportarVehiculos() {
+        return new ResponseEntity<>(exportadorNdjson.exportar(vehiculoService::streamTodosVehiculos), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Vehiculo> obtenerVehiculoPorId(@PathVariable Long id) {
-        Optional<Vehiculo> vehiculo = vehiculoService.obtenerVehiculoPorId(id);
+    public ResponseEntity<VehiculoDTO> obtenerVehiculoPorId(@PathVariable Long id) {
+        Optional<VehiculoDTO> vehiculo = vehiculoService.obtenerVehiculoPorId(id);
         return vehiculo.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PostMapping
-    public ResponseEntity<Vehiculo> crearVehiculo(@RequestBody Vehiculo vehiculo) {
-        Vehiculo nuevoVehiculo = vehiculoService.guardarVehiculo(vehiculo);
+    public ResponseEntity<VehiculoDTO> crearVehiculo(@RequestBody Vehiculo vehiculo) {
+        VehiculoDTO nuevoVehiculo = vehiculoService.guardarVehiculo(vehiculo);
         return new ResponseEntity<>(nuevoVehiculo, HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Vehiculo> actualizarVehiculo(@PathVariable Long id, @RequestBody Vehiculo vehiculoActualizado) {
-        Optional<Vehiculo> vehiculoExistente = vehiculoService.obtenerVehiculoPorId(id);
-        if (vehiculoExistente.isPresent()) {
+    public ResponseEntity<VehiculoDTO> actualizarVehiculo(@PathVariable Long id, @RequestBody Vehiculo vehiculoActualizado) {
+        if (vehiculoService.existeVehiculo(id)) {
             vehiculoActualizado.setId(id);
-            Vehiculo vehiculoGuardado = vehiculoService.guardarVehiculo(vehiculoActualizado);
+            VehiculoDTO vehiculoGuardado = vehiculoService.guardarVehiculo(vehiculoActualizado);
             return new ResponseEntity<>(vehiculoGuardado, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
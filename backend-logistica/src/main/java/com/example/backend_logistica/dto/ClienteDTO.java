@@ -0,0 +1,26 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.model.Cliente;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClienteDTO {
+
+    private Long id;
+    private String nombre;
+    private String direccion;
+    private String telefono;
+    private String email;
+
+    // Sin la lista de pedidos: recorrerla arrastraba pedidos -> envíos -> conductor -> vehículo
+    public static ClienteDTO desde(Cliente cliente) {
+        if (cliente == null) {
+            return null;
+        }
+        return new ClienteDTO(cliente.getId(), cliente.getNombre(), cliente.getDireccion(), cliente.getTelefono(), cliente.getEmail());
+    }
+}
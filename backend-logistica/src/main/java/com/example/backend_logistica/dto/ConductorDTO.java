@@ -0,0 +1,31 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.model.Conductor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConductorDTO {
+
+    private Long id;
+    private String nombre;
+    private String apellido;
+    private boolean disponible;
+    private VehiculoDTO vehiculo;
+    private Double ubicacionActualLatitud;
+    private Double ubicacionActualLongitud;
+    private Long version; // Se devuelve en el PUT para detectar ediciones concurrentes
+
+    // Requiere el vehículo ya cargado (entity graph "vehiculo") para no disparar una consulta por fila
+    public static ConductorDTO desde(Conductor conductor) {
+        if (conductor == null) {
+            return null;
+        }
+        return new ConductorDTO(conductor.getId(), conductor.getNombre(), conductor.getApellido(), conductor.isDisponible(),
+                VehiculoDTO.desde(conductor.getVehiculo()),
+                conductor.getUbicacionActualLatitud(), conductor.getUbicacionActualLongitud(), conductor.getVersion());
+    }
+}
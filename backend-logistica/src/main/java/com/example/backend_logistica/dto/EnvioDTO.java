@@ -0,0 +1,51 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.model.EnvioBase;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvioDTO {
+
+    private Long id;
+    private PedidoDTO pedido;
+    private ConductorDTO conductor;
+    private VehiculoDTO vehiculo;
+    private LocalDateTime fechaEntregaEstimada;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaEntregaReal;
+    private String estadoEnvio; // Etiqueta de EstadoEnvio
+    private Double ubicacionOrigenLatitud;
+    private Double ubicacionOrigenLongitud;
+    private Double ubicacionDestinoLatitud;
+    private Double ubicacionDestinoLongitud;
+    private String codigoQrEntrega;
+    private String firmaDigitalEntrega; // URL de la firma (GET /api/envios/{id}/firma), no su contenido
+    private String fotoEntrega;
+    private Long version; // Para PUT: con ella, una edición sobre datos ya modificados da 409
+
+    // Requiere pedido, pedido.cliente, conductor, conductor.vehiculo y vehiculo ya cargados
+    // (ver EnvioRepository.GRAFO_DETALLE y EnvioArchivadoRepository.GRAFO_DETALLE)
+    public static EnvioDTO desde(EnvioBase envio) {
+        if (envio == null) {
+            return null;
+        }
+        return new EnvioDTO(envio.getId(),
+                PedidoDTO.desde(envio.getPedido()),
+                ConductorDTO.desde(envio.getConductor()),
+                VehiculoDTO.desde(envio.getVehiculo()),
+                envio.getFechaEntregaEstimada(), envio.getFechaCreacion(), envio.getFechaEntregaReal(),
+                envio.getEstadoEnvio() != null ? envio.getEstadoEnvio().getEtiqueta() : null,
+                envio.getUbicacionOrigenLatitud(), envio.getUbicacionOrigenLongitud(),
+                envio.getUbicacionDestinoLatitud(), envio.getUbicacionDestinoLongitud(),
+                envio.getCodigoQrEntrega(),
+                envio.getFirmaEntrega() != null || envio.getFirmaDigitalEntrega() != null ? "/api/envios/" + envio.getId() + "/firma" : null,
+                envio.getFotoEntrega() != null ? "/api/envios/" + envio.getId() + "/foto" : null,
+                envio.getVersion());
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErrorImportacionDTO {
+
+    private long linea; // Línea del archivo donde empieza el registro (la cabecera del CSV es la 1)
+    private String mensaje;
+}
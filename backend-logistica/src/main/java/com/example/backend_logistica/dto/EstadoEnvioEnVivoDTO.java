@@ -0,0 +1,18 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Evento "estado" del canal de seguimiento de un envío
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadoEnvioEnVivoDTO {
+
+    private Long envioId;
+    private String estado;
+    private LocalDateTime fechaCambio;
+}
@@ -0,0 +1,22 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EtaEnvioDTO {
+
+    private Long envioId;
+    private Long conductorId;
+    private String perfilVelocidad;
+    private boolean recogido; // false: la estimación incluye el viaje del conductor hasta el origen
+    private LocalDateTime fechaEntregaEstimada; // Recalculada con la última posición del conductor
+    private long segundosRestantes;
+    private double distanciaRestanteKm;
+    private LocalDateTime calculadaEn;
+}
@@ -0,0 +1,17 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoEnvioDTO {
+
+    private String estado;
+    private LocalDateTime fecha;
+    private String claveIdempotencia; // Null en transiciones sin clave (asignaciones, historia anterior al registro)
+}
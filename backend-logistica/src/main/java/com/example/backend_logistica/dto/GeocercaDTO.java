@@ -0,0 +1,20 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeocercaDTO {
+
+    private String tipo; // ORIGEN o DESTINO
+    private String forma; // CIRCULO o POLIGONO
+    private Double latitud; // Centro del círculo
+    private Double longitud;
+    private Double radioMetros;
+    private List<double[]> vertices; // [latitud, longitud] del polígono
+}
@@ -0,0 +1,24 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParadaRutaDTO {
+
+    public static final String RECOLECCION = "RECOLECCION";
+    public static final String ENTREGA = "ENTREGA";
+
+    private int orden; // Desde 1
+    private Long envioId;
+    private String tipo; // RECOLECCION o ENTREGA
+    private double latitud;
+    private double longitud;
+    private double distanciaAcumuladaKm; // En línea recta desde la posición del conductor
+    private LocalDateTime llegadaEstimada;
+}
@@ -0,0 +1,30 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.model.Pedido;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoDTO {
+
+    private Long id;
+    private String numeroPedido;
+    private String estado;
+    private LocalDateTime fechaEntregaEstimada;
+    private LocalDateTime fechaCreacion;
+    private ClienteDTO cliente;
+
+    // Requiere el cliente ya cargado (entity graph "cliente")
+    public static PedidoDTO desde(Pedido pedido) {
+        if (pedido == null) {
+            return null;
+        }
+        return new PedidoDTO(pedido.getId(), pedido.getNumeroPedido(), pedido.getEstado(),
+                pedido.getFechaEntregaEstimada(), pedido.getFechaCreacion(), ClienteDTO.desde(pedido.getCliente()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Elemento del cuerpo de POST /api/envios/asignar-lote (origen y destino son opcionales, como en /asignar/{pedidoId})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoPorAsignarDTO {
+
+    private Long pedidoId;
+    private Double latitudOrigen;
+    private Double longitudOrigen;
+    private Double latitudDestino; // Sin destino la entrega estimada es el plazo fijo (eta.horas-sin-destino)
+    private Double longitudDestino;
+}
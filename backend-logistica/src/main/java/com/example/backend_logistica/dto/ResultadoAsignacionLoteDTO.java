@@ -0,0 +1,16 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAsignacionLoteDTO {
+
+    private List<EnvioDTO> envios;
+    private List<Long> pedidosSinAsignar; // Pedidos que quedaron fuera por falta de conductores disponibles
+}
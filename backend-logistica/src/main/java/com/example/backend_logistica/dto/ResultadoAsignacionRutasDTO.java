@@ -0,0 +1,17 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAsignacionRutasDTO {
+
+    private List<EnvioDTO> envios;
+    private List<RutaConductorDTO> rutas; // Una por conductor que recibió envíos, con las paradas ya ordenadas
+    private List<Long> pedidosSinAsignar; // Pedidos que no cupieron en la capacidad de los conductores disponibles
+}
@@ -0,0 +1,20 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacionDTO {
+
+    private String tipo;
+    private long registrosLeidos;
+    private long registrosInsertados;
+    private long registrosConError;
+    private List<ErrorImportacionDTO> errores; // Los primeros, ordenados por línea; el total está en registrosConError
+    private long duracionMs;
+}
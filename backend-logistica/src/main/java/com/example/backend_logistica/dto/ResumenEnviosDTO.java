@@ -0,0 +1,30 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenEnviosDTO {
+
+    private String clave; // ID del conductor/vehículo/cliente o nombre del estado
+    private LocalDateTime periodo; // Inicio de la hora o del día; null en los totales de un rango
+    private long enviosAsignados;
+    private long enviosEntregados;
+    private long entregasATiempo;
+    private Double tasaEntregaATiempo; // null sin entregas en el periodo
+    private Double minutosPromedioEntrega; // Desde la creación del envío hasta la entrega real
+    private long cambiosEstado;
+
+    public static ResumenEnviosDTO desde(String clave, LocalDateTime periodo, long asignados, long entregados,
+                                         long entregasATiempo, long segundosEntrega, long cambiosEstado) {
+        return new ResumenEnviosDTO(clave, periodo, asignados, entregados, entregasATiempo,
+                entregados > 0 ? (double) entregasATiempo / entregados : null,
+                entregados > 0 ? segundosEntrega / 60.0 / entregados : null,
+                cambiosEstado);
+    }
+}
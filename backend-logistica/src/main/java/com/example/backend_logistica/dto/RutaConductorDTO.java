@@ -0,0 +1,19 @@
+package com.example.backend_logistica.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RutaConductorDTO {
+
+    private Long conductorId;
+    private List<ParadaRutaDTO> paradas;
+    private double distanciaTotalKm;
+    private boolean optimoLocal; // false si el plazo de optimización se agotó antes de converger
+    private List<Long> enviosSinDestino; // Envíos del conductor que no pueden ubicarse en la ruta
+}
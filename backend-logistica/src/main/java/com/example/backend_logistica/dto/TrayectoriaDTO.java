@@ -0,0 +1,23 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.util.PuntoTrayectoria;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrayectoriaDTO {
+
+    private Long conductorId;
+    private Long envioId; // null en la trayectoria de un conductor
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private int puntosRegistrados; // Antes de simplificar con la tolerancia pedida
+    private double distanciaKm; // Recorrida según los puntos devueltos
+    private List<PuntoTrayectoria> puntos;
+}
@@ -0,0 +1,23 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.services.PosicionConductor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Evento "ubicacion" del canal de seguimiento en vivo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UbicacionEnVivoDTO {
+
+    private Long envioId; // null en las suscripciones por región
+    private Long conductorId;
+    private double latitud;
+    private double longitud;
+    private long marcaTiempo; // Milisegundos epoch del ping
+
+    public static UbicacionEnVivoDTO desde(PosicionConductor posicion, Long envioId) {
+        return new UbicacionEnVivoDTO(envioId, posicion.conductorId(), posicion.latitud(), posicion.longitud(), posicion.marcaTiempo());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.backend_logistica.dto;
+
+import com.example.backend_logistica.model.Vehiculo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehiculoDTO {
+
+    private Long id;
+    private String matricula;
+    private String tipo;
+    private String modelo;
+    private String marca;
+
+    // No incluye conductores ni envíos: son colecciones sin límite
+    public static VehiculoDTO desde(Vehiculo vehiculo) {
+        if (vehiculo == null) {
+            return null;
+        }
+        return new VehiculoDTO(vehiculo.getId(), vehiculo.getMatricula(), vehiculo.getTipo(), vehiculo.getModelo(), vehiculo.getMarca());
+    }
+}
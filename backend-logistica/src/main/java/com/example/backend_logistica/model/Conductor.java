@@ -1,12 +1,14 @@
 package com.example.backend_logistica.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -26,10 +28,13 @@ public class Conductor {
     private String apellido;
     private boolean disponible;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY) // Se carga sólo cuando la consulta lo pide (entity graph)
     @JoinColumn(name = "vehiculo_id")
     private Vehiculo vehiculo;
 
     private Double ubicacionActualLatitud;
     private Double ubicacionActualLongitud;
+
+    @Version // Bloqueo optimista: dos asignaciones no pueden ocupar al mismo conductor
+    private Long version;
 }
\ No newline at end of file
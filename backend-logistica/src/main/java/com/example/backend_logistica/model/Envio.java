@@ -1,45 +1,35 @@
 package com.example.backend_logistica.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.ManyToOne;
-import jakarta.persistence.OneToOne;
-import jakarta.persistence.JoinColumn;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-
-import java.time.LocalDateTime;
+import lombok.ToString;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
 @Entity // Marca la clase como entidad JPA
-public class Envio {
+@NamedEntityGraph(name = "Envio.detalle", // Todo lo que serializa EnvioDTO, para cargarlo en un único SELECT
+        attributeNodes = {
+                @NamedAttributeNode(value = "pedido", subgraph = "pedido"),
+                @NamedAttributeNode(value = "conductor", subgraph = "conductor"),
+                @NamedAttributeNode("vehiculo")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "pedido", attributeNodes = @NamedAttributeNode("cliente")),
+                @NamedSubgraph(name = "conductor", attributeNodes = @NamedAttributeNode("vehiculo"))
+        })
+public class Envio extends EnvioBase { // Columnas en EnvioBase, compartidas con EnvioArchivado
 
     @Id // Marca el campo 'id' como la clave primaria
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // Sin generador, asignarEnvio no podía insertar envíos nuevos
     private Long id;
-
-    @ManyToOne // Relación con Pedido (muchos envíos pueden tener un único pedido)
-    @JoinColumn(name = "pedido_id") // Establece el nombre de la columna para la relación
-    private Pedido pedido;
-
-    @ManyToOne // Relación con Conductor (muchos envíos pueden tener un único conductor)
-    @JoinColumn(name = "conductor_id") // Establece el nombre de la columna para la relación
-    private Conductor conductor;
-
-    @ManyToOne // Relación con Vehiculo (muchos envíos pueden tener un único vehículo)
-    @JoinColumn(name = "vehiculo_id") // Establece el nombre de la columna para la relación
-    private Vehiculo vehiculo;
-
-    private LocalDateTime fechaEntregaEstimada;
-    private LocalDateTime fechaCreacion;
-    private LocalDateTime fechaEntregaReal;
-    private String estadoEnvio;
-    private Double ubicacionOrigenLatitud;
-    private Double ubicacionOrigenLongitud;
-    private Double ubicacionDestinoLatitud;
-    private Double ubicacionDestinoLongitud;
-    private String codigoQrEntrega;
-    private String firmaDigitalEntrega;
 }
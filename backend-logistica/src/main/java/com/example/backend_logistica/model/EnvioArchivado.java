@@ -0,0 +1,42 @@
+package com.example.backend_logistica.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Envío entregado o cancelado que ArchivoEnvios movió a envio_archivo. Sólo lectura: las filas llegan con
+// INSERT ... SELECT desde envio y conservan su id
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@Entity
+@Immutable
+@Table(name = "envio_archivo")
+@NamedEntityGraph(name = "EnvioArchivado.detalle", // El mismo grafo que Envio.detalle
+        attributeNodes = {
+                @NamedAttributeNode(value = "pedido", subgraph = "pedido"),
+                @NamedAttributeNode(value = "conductor", subgraph = "conductor"),
+                @NamedAttributeNode("vehiculo")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "pedido", attributeNodes = @NamedAttributeNode("cliente")),
+                @NamedSubgraph(name = "conductor", attributeNodes = @NamedAttributeNode("vehiculo"))
+        })
+public class EnvioArchivado extends EnvioBase {
+
+    @Id // La clave de la tabla es (id, fecha_creacion) por el particionado; el id sigue siendo único
+    private Long id;
+
+    private LocalDateTime fechaArchivo;
+}
@@ -0,0 +1,57 @@
+package com.example.backend_logistica.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Version;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Columnas comunes a envio (Envio, conjunto vivo) y envio_archivo (EnvioArchivado, entregados y cancelados
+// antiguos que mueve ArchivoEnvios). EnvioDTO se arma igual desde cualquiera de las dos
+@Data
+@NoArgsConstructor
+@MappedSuperclass
+public abstract class EnvioBase {
+
+    @ManyToOne(fetch = FetchType.LAZY) // Relación con Pedido (muchos envíos pueden tener un único pedido)
+    @JoinColumn(name = "pedido_id") // Establece el nombre de la columna para la relación
+    private Pedido pedido;
+
+    @ManyToOne(fetch = FetchType.LAZY) // Relación con Conductor (muchos envíos pueden tener un único conductor)
+    @JoinColumn(name = "conductor_id") // Establece el nombre de la columna para la relación
+    private Conductor conductor;
+
+    @ManyToOne(fetch = FetchType.LAZY) // Relación con Vehiculo (muchos envíos pueden tener un único vehículo)
+    @JoinColumn(name = "vehiculo_id") // Establece el nombre de la columna para la relación
+    private Vehiculo vehiculo;
+
+    private LocalDateTime fechaEntregaEstimada;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaEntregaReal;
+    private EstadoEnvio estadoEnvio; // Sólo cambia por EnvioService (transiciones registradas en evento_envio)
+    private Double ubicacionOrigenLatitud;
+    private Double ubicacionOrigenLongitud;
+    private Double ubicacionDestinoLatitud;
+    private Double ubicacionDestinoLongitud;
+    private String codigoQrEntrega;
+    private String firmaEntrega; // Referencias de AlmacenEvidencias; el contenido se sirve aparte
+    private String fotoEntrega;
+
+    // Lo que guardaba la app antes de V6 (un texto, en la práctica la ruta de la imagen en el dispositivo).
+    // Sólo se lee: es la firma de las entregas que no tienen firmaEntrega
+    @Column(insertable = false, updatable = false)
+    private String firmaDigitalEntrega;
+
+    // Clave de la última transición aplicada: el reintento más común se resuelve con la fila del envío
+    private String ultimaClaveIdempotencia;
+
+    @Version // Bloqueo optimista: una transición o edición concurrente no pisa a la otra
+    private Long version;
+
+    public abstract Long getId();
+}
@@ -0,0 +1,93 @@
+package com.example.backend_logistica.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Optional;
+
+// Estados de un envío. En la columna estado_envio y en el JSON se guarda la etiqueta de siempre, así los
+// datos existentes y la app no cambian; en evento_envio, el código (una fila de pocos bytes por transición).
+// Las transiciones sólo avanzan en el orden de declaración y se pueden saltar estados (la app del conductor
+// puede registrar la entrega sin haber informado la recolección); ENTREGADO y CANCELADO son finales.
+public enum EstadoEnvio {
+
+    ASIGNADO(1, "Pendiente de Recolección"),
+    RECOGIDO(2, "Recogido"),
+    EN_TRANSITO(3, "En Tránsito"),
+    ENTREGADO(4, "Entregado"),
+    CANCELADO(5, "Cancelado");
+
+    private final int codigo;
+    private final String etiqueta;
+
+    EstadoEnvio(int codigo, String etiqueta) {
+        this.codigo = codigo;
+        this.etiqueta = etiqueta;
+    }
+
+    public int getCodigo() {
+        return codigo;
+    }
+
+    @JsonValue
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    public boolean esFinal() {
+        return this == ENTREGADO || this == CANCELADO;
+    }
+
+    public boolean puedePasarA(EstadoEnvio destino) {
+        return !esFinal() && destino.ordinal() > ordinal();
+    }
+
+    // Valores leídos de la base de datos: la etiqueta exacta o una variante en mayúsculas o tildes. V5 reescribe
+    // las variantes conocidas, pero en MySQL, que compara sin distinguirlas, otra variante puede no reescribirse
+    public static EstadoEnvio desdeEtiqueta(String etiqueta) {
+        for (EstadoEnvio estado : values()) {
+            if (estado.etiqueta.equals(etiqueta)) {
+                return estado;
+            }
+        }
+        return buscar(etiqueta).orElseThrow(() -> new IllegalArgumentException("Estado de envío desconocido: " + etiqueta));
+    }
+
+    public static EstadoEnvio desdeCodigo(int codigo) {
+        for (EstadoEnvio estado : values()) {
+            if (estado.codigo == codigo) {
+                return estado;
+            }
+        }
+        throw new IllegalArgumentException("Código de estado de envío desconocido: " + codigo);
+    }
+
+    // Valores recibidos de clientes: nombre o etiqueta, sin distinguir mayúsculas, tildes ni espacios/guiones bajos
+    public static Optional<EstadoEnvio> buscar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return Optional.empty();
+        }
+        String buscado = normalizar(texto);
+        for (EstadoEnvio estado : values()) {
+            if (normalizar(estado.name()).equals(buscado) || normalizar(estado.etiqueta).equals(buscado)) {
+                return Optional.of(estado);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @JsonCreator
+    static EstadoEnvio desdeJson(String texto) {
+        return texto == null ? null : buscar(texto)
+                .orElseThrow(() -> new IllegalArgumentException("Estado de envío desconocido: " + texto));
+    }
+
+    private static String normalizar(String texto) {
+        return Normalizer.normalize(texto.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replace('_', ' ')
+                .toLowerCase(Locale.ROOT);
+    }
+}
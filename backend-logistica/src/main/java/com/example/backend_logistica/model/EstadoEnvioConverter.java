@@ -0,0 +1,19 @@
+package com.example.backend_logistica.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// estado_envio sigue guardando la etiqueta (índice idx_envio_estado_fecha, consultas JDBC y datos existentes)
+@Converter(autoApply = true)
+public class EstadoEnvioConverter implements AttributeConverter<EstadoEnvio, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EstadoEnvio estado) {
+        return estado != null ? estado.getEtiqueta() : null;
+    }
+
+    @Override
+    public EstadoEnvio convertToEntityAttribute(String etiqueta) {
+        return etiqueta != null ? EstadoEnvio.desdeEtiqueta(etiqueta) : null;
+    }
+}
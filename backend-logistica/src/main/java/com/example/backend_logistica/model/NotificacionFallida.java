@@ -0,0 +1,38 @@
+package com.example.backend_logistica.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notificacion_fallida") // Dead-letter de notificaciones push que agotaron los reintentos
+public class NotificacionFallida {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String deviceToken;
+    private String titulo;
+
+    @Column(length = 1000)
+    private String cuerpo;
+
+    private int intentos;
+
+    @Column(length = 1000)
+    private String ultimoError;
+
+    private LocalDateTime fechaFallo;
+}
@@ -1,11 +1,30 @@
 package com.example.backend_logistica.repository;
 
 import com.example.backend_logistica.model.Cliente;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface ClienteRepository extends JpaRepository<Cliente, Long> {
+    // Paginación por cursor (keyset) sobre la clave primaria
+    List<Cliente> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    // Exportación en streaming: el driver entrega las filas por bloques en lugar de cargar la tabla entera
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Cliente c order by c.id")
+    Stream<Cliente> streamTodosOrdenadosPorId();
+
     // Puedes añadir métodos query personalizados si los necesitas en el futuro,
     // pero para operaciones CRUD básicas, JpaRepository ya proporciona todo.
 }
\ No newline at end of file
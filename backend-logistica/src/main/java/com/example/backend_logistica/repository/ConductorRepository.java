@@ -1,13 +1,43 @@
 package com.example.backend_logistica.repository;
 
 import com.example.backend_logistica.model.Conductor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ConductorRepository extends JpaRepository<Conductor, Long> {
+    // Las consultas que alimentan respuestas JSON cargan el vehículo en el mismo SELECT (ConductorDTO lo incluye)
+    @EntityGraph(attributePaths = "vehiculo")
+    Optional<Conductor> findConVehiculoById(Long id);
+
+    @EntityGraph(attributePaths = "vehiculo")
+    List<Conductor> findConVehiculoByIdIn(Collection<Long> ids);
+
+    // Paginación por cursor (keyset) sobre la clave primaria
+    @EntityGraph(attributePaths = "vehiculo")
+    List<Conductor> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    // Exportación en streaming: el driver entrega las filas por bloques en lugar de cargar la tabla entera
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @EntityGraph(attributePaths = "vehiculo")
+    @Query("select c from Conductor c order by c.id")
+    Stream<Conductor> streamTodosOrdenadosPorId();
+
+    @EntityGraph(attributePaths = "vehiculo")
     List<Conductor> findByDisponibleTrue(); // Método para encontrar conductores disponibles (disponible = true)
 
     // Puedes añadir métodos query personalizados adicionales, por ejemplo:
@@ -0,0 +1,68 @@
+package com.example.backend_logistica.repository;
+
+import com.example.backend_logistica.model.EnvioArchivado;
+import com.example.backend_logistica.model.EstadoEnvio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.example.backend_logistica.repository.EnvioRepository.ANTES_DEL_CURSOR;
+
+// Envíos archivados (envio_archivo). Las mismas consultas que EnvioRepository; EnvioService decide, con el
+// límite que publica ArchivoEnvios, cuándo hace falta consultar aquí
+@Repository
+public interface EnvioArchivadoRepository extends JpaRepository<EnvioArchivado, Long> {
+    String GRAFO_DETALLE = "EnvioArchivado.detalle";
+
+    @EntityGraph(GRAFO_DETALLE)
+    Optional<EnvioArchivado> findConDetalleById(Long id);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from EnvioArchivado e order by e.id")
+    Stream<EnvioArchivado> streamTodosOrdenadosPorId();
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from EnvioArchivado e where e.conductor.id = :conductorId" + ANTES_DEL_CURSOR) // idx_archivo_conductor_fecha
+    List<EnvioArchivado> findHistorialPorConductor(@Param("conductorId") Long conductorId, @Param("fechaCursor") LocalDateTime fechaCursor,
+                                                   @Param("idCursor") Long idCursor, Limit limite);
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from EnvioArchivado e where e.pedido.cliente.id = :clienteId" + ANTES_DEL_CURSOR) // idx_pedido_cliente + idx_archivo_pedido_fecha
+    List<EnvioArchivado> findHistorialPorCliente(@Param("clienteId") Long clienteId, @Param("fechaCursor") LocalDateTime fechaCursor,
+                                                 @Param("idCursor") Long idCursor, Limit limite);
+
+    // Con el rango sobre fecha_creacion, MySQL sólo abre las particiones mensuales que lo cubren
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from EnvioArchivado e where e.fechaCreacion between :inicio and :fin" + ANTES_DEL_CURSOR) // idx_archivo_fecha
+    List<EnvioArchivado> findHistorialPorFechas(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin,
+                                                @Param("fechaCursor") LocalDateTime fechaCursor, @Param("idCursor") Long idCursor, Limit limite);
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from EnvioArchivado e where e.estadoEnvio = :estado and e.fechaCreacion between :inicio and :fin" + ANTES_DEL_CURSOR) // idx_archivo_estado_fecha
+    List<EnvioArchivado> findHistorialPorEstadoYFechas(@Param("estado") EstadoEnvio estado, @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin,
+                                                       @Param("fechaCursor") LocalDateTime fechaCursor, @Param("idCursor") Long idCursor, Limit limite);
+
+    @Query("select e.firmaEntrega from EnvioArchivado e where e.id = :id")
+    Optional<String> findFirmaEntregaById(@Param("id") Long id);
+
+    @Query("select e.fotoEntrega from EnvioArchivado e where e.id = :id")
+    Optional<String> findFotoEntregaById(@Param("id") Long id);
+
+    @Query("select e.firmaDigitalEntrega from EnvioArchivado e where e.id = :id")
+    Optional<String> findFirmaDigitalEntregaById(@Param("id") Long id);
+}
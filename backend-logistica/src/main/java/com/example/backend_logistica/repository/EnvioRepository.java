@@ -1,19 +1,88 @@
 package com.example.backend_logistica.repository;
 
 import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface EnvioRepository extends JpaRepository<Envio, Long> {
-    List<Envio> findByConductorId(Long conductorId); // Encontrar envíos por ID de conductor
-    List<Envio> findByPedidoClienteId(Long clienteId); // Encontrar envíos por ID de cliente (a través del Pedido)
+    // Grafo definido en Envio: pedido + cliente, conductor + vehículo y vehículo, todo en un único SELECT
+    String GRAFO_DETALLE = "Envio.detalle";
 
-    // Métodos para reportes por rango de fechas (ejemplos, puedes ajustarlos según necesidad):
-    List<Envio> findByFechaCreacionBetween(LocalDateTime inicio, LocalDateTime fin);
+    @EntityGraph(GRAFO_DETALLE)
+    Optional<Envio> findConDetalleById(Long id);
+
+    // Paginación por cursor (keyset) sobre la clave primaria
+    @EntityGraph(GRAFO_DETALLE)
+    List<Envio> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    // Exportación en streaming: el driver entrega las filas por bloques en lugar de cargar la tabla entera
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from Envio e order by e.id")
+    Stream<Envio> streamTodosOrdenadosPorId();
+
+    // Historiales paginados por cursor (keyset) del más reciente al más antiguo: cada consulta recorre
+    // hacia atrás uno de los índices compuestos de V2__indices_historial_envios.sql y se detiene en el límite
+    String ANTES_DEL_CURSOR = " and (e.fechaCreacion < :fechaCursor or (e.fechaCreacion = :fechaCursor and e.id < :idCursor))"
+            + " order by e.fechaCreacion desc, e.id desc";
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from Envio e where e.conductor.id = :conductorId" + ANTES_DEL_CURSOR) // idx_envio_conductor_fecha
+    List<Envio> findHistorialPorConductor(@Param("conductorId") Long conductorId, @Param("fechaCursor") LocalDateTime fechaCursor,
+                                          @Param("idCursor") Long idCursor, Limit limite);
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from Envio e where e.pedido.cliente.id = :clienteId" + ANTES_DEL_CURSOR) // idx_pedido_cliente + idx_envio_pedido_fecha
+    List<Envio> findHistorialPorCliente(@Param("clienteId") Long clienteId, @Param("fechaCursor") LocalDateTime fechaCursor,
+                                        @Param("idCursor") Long idCursor, Limit limite);
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from Envio e where e.fechaCreacion between :inicio and :fin" + ANTES_DEL_CURSOR) // idx_envio_fecha
+    List<Envio> findHistorialPorFechas(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin,
+                                       @Param("fechaCursor") LocalDateTime fechaCursor, @Param("idCursor") Long idCursor, Limit limite);
+
+    @EntityGraph(GRAFO_DETALLE)
+    @Query("select e from Envio e where e.estadoEnvio = :estado and e.fechaCreacion between :inicio and :fin" + ANTES_DEL_CURSOR) // idx_envio_estado_fecha
+    List<Envio> findHistorialPorEstadoYFechas(@Param("estado") EstadoEnvio estado, @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin,
+                                              @Param("fechaCursor") LocalDateTime fechaCursor, @Param("idCursor") Long idCursor, Limit limite);
+
+    // Sólo la referencia de la evidencia, sin cargar el envío
+    @Query("select e.firmaEntrega from Envio e where e.id = :id")
+    Optional<String> findFirmaEntregaById(@Param("id") Long id);
+
+    @Query("select e.fotoEntrega from Envio e where e.id = :id")
+    Optional<String> findFotoEntregaById(@Param("id") Long id);
+
+    @Query("select e.firmaDigitalEntrega from Envio e where e.id = :id")
+    Optional<String> findFirmaDigitalEntregaById(@Param("id") Long id);
+
+    // Otros envíos sin entregar del conductor (rutas de varias paradas): el conductor sigue ocupado hasta la última
+    // entrega; los cancelados no cuentan. Sin límite de antigüedad: un envío viejo sin cerrar también lo ocupa.
+    // idx_envio_conductor_fecha por su prefijo conductor_id (pocas filas por conductor)
+    @Query("select count(e) > 0 from Envio e where e.conductor.id = :conductorId and e.id <> :envioId"
+            + " and e.fechaEntregaReal is null and e.estadoEnvio <> :cancelado")
+    boolean existenOtrosSinEntregar(@Param("conductorId") Long conductorId, @Param("envioId") Long envioId,
+                                    @Param("cancelado") EstadoEnvio cancelado);
+
+    // Reporte de entregas por rango de fechas
+    @EntityGraph(GRAFO_DETALLE)
     List<Envio> findByFechaEntregaRealBetween(LocalDateTime inicio, LocalDateTime fin);
 
     // Puedes añadir más métodos query personalizados para reportes o búsquedas específicas, como:
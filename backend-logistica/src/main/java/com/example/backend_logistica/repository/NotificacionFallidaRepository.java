@@ -0,0 +1,9 @@
+package com.example.backend_logistica.repository;
+
+import com.example.backend_logistica.model.NotificacionFallida;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificacionFallidaRepository extends JpaRepository<NotificacionFallida, Long> {
+}
@@ -1,11 +1,42 @@
 package com.example.backend_logistica.repository;
 
 import com.example.backend_logistica.model.Pedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+    // Las consultas que alimentan respuestas JSON cargan el cliente en el mismo SELECT (PedidoDTO lo incluye)
+    @EntityGraph(attributePaths = "cliente")
+    Optional<Pedido> findConClienteById(Long id);
+
+    @EntityGraph(attributePaths = "cliente")
+    List<Pedido> findConClienteByIdIn(Collection<Long> ids);
+
+    // Paginación por cursor (keyset) sobre la clave primaria
+    @EntityGraph(attributePaths = "cliente")
+    List<Pedido> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    // Exportación en streaming: el driver entrega las filas por bloques en lugar de cargar la tabla entera
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @EntityGraph(attributePaths = "cliente")
+    @Query("select p from Pedido p order by p.id")
+    Stream<Pedido> streamTodosOrdenadosPorId();
+
     // Puedes añadir métodos query personalizados si los necesitas en el futuro,
     // por ejemplo, para buscar pedidos por estado, número de pedido, cliente, rango de fechas, etc.
     // List<Pedido> findByEstado(String estado);
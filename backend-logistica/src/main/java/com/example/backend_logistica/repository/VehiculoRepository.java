@@ -1,11 +1,30 @@
 package com.example.backend_logistica.repository;
 
 import com.example.backend_logistica.model.Vehiculo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
+    // Paginación por cursor (keyset) sobre la clave primaria
+    List<Vehiculo> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    // Exportación en streaming: el driver entrega las filas por bloques en lugar de cargar la tabla entera
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select v from Vehiculo v order by v.id")
+    Stream<Vehiculo> streamTodosOrdenadosPorId();
+
     // Puedes añadir métodos query personalizados si los necesitas en el futuro,
     // por ejemplo, para buscar vehículos por tipo, marca, modelo, etc.
     // List<Vehiculo> findByTipo(String tipo);
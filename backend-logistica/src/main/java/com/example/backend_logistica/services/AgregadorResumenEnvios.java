@@ -0,0 +1,239 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.EstadoEnvio;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Mantiene la tabla resumen_envios de forma incremental: cada cambio de estado confirmado suma sus
+// contadores en memoria (por hora y por día, en cada dimensión) y los acumulados se vuelcan a intervalos
+// fijos con un upsert por lotes. Así una fila caliente (p. ej. el estado "Entregado" de la hora en curso)
+// se escribe una vez por intervalo en lugar de bloquearse en cada transacción de asignación o entrega.
+// reconstruir() recalcula días cerrados desde la tabla envio (carga inicial o reparación tras una caída).
+@Service
+public class AgregadorResumenEnvios {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgregadorResumenEnvios.class);
+
+    private static final String SQL_SUMAR = "INSERT INTO resumen_envios (granularidad, dimension, clave, periodo, "
+            + "envios_asignados, envios_entregados, entregas_a_tiempo, segundos_entrega_total, cambios_estado) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "envios_asignados = envios_asignados + ?, envios_entregados = envios_entregados + ?, "
+            + "entregas_a_tiempo = entregas_a_tiempo + ?, segundos_entrega_total = segundos_entrega_total + ?, "
+            + "cambios_estado = cambios_estado + ?";
+    private static final String SQL_BORRAR_PERIODOS =
+            "DELETE FROM resumen_envios WHERE granularidad = ? AND dimension = ? AND periodo >= ? AND periodo < ?";
+    // Días cerrados: los envíos pueden estar ya en envio_archivo (ArchivoEnvios), se leen las dos tablas
+    private static final String SQL_ASIGNACIONES_DEL_DIA = "SELECT e.conductor_id, e.vehiculo_id, p.cliente_id, "
+            + "e.fecha_creacion, e.fecha_entrega_estimada FROM envio e LEFT JOIN pedido p ON p.id = e.pedido_id "
+            + "WHERE e.fecha_creacion >= ? AND e.fecha_creacion < ? "
+            + "UNION ALL SELECT a.conductor_id, a.vehiculo_id, p.cliente_id, "
+            + "a.fecha_creacion, a.fecha_entrega_estimada FROM envio_archivo a LEFT JOIN pedido p ON p.id = a.pedido_id "
+            + "WHERE a.fecha_creacion >= ? AND a.fecha_creacion < ?";
+    private static final String SQL_ENTREGAS_DEL_DIA = "SELECT e.conductor_id, e.vehiculo_id, p.cliente_id, "
+            + "e.fecha_creacion, e.fecha_entrega_estimada, e.fecha_entrega_real FROM envio e LEFT JOIN pedido p ON p.id = e.pedido_id "
+            + "WHERE e.fecha_entrega_real >= ? AND e.fecha_entrega_real < ? "
+            + "UNION ALL SELECT a.conductor_id, a.vehiculo_id, p.cliente_id, "
+            + "a.fecha_creacion, a.fecha_entrega_estimada, a.fecha_entrega_real FROM envio_archivo a LEFT JOIN pedido p ON p.id = a.pedido_id "
+            + "WHERE a.fecha_entrega_real >= ? AND a.fecha_entrega_real < ?";
+
+    private static final Comparator<ClaveResumen> ORDEN_CLAVES = Comparator
+            .comparing(ClaveResumen::granularidad)
+            .thenComparing(ClaveResumen::dimension)
+            .thenComparing(ClaveResumen::clave)
+            .thenComparing(ClaveResumen::periodo);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final int tamanoLoteJdbc;
+
+    private final ConcurrentHashMap<ClaveResumen, Delta> pendientes = new ConcurrentHashMap<>();
+
+    private final Timer tiempoFlush;
+
+    @Autowired
+    public AgregadorResumenEnvios(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${reportes.resumen.tamano-lote-jdbc:500}") int tamanoLoteJdbc) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.tamanoLoteJdbc = tamanoLoteJdbc;
+
+        Gauge.builder("reportes.resumen.pendientes", pendientes, ConcurrentHashMap::size)
+                .description("Filas de resumen con contadores pendientes de escribir")
+                .register(meterRegistry);
+        this.tiempoFlush = Timer.builder("reportes.resumen.flush")
+                .description("Duración de cada escritura por lotes de los agregados de envíos")
+                .register(meterRegistry);
+    }
+
+    // Sólo después del commit: un envío cuya transacción se revierte no debe contar
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrar(EnvioEstadoCambiadoEvent evento) {
+        acumular(evento, pendientes);
+    }
+
+    @Scheduled(fixedDelayString = "${reportes.resumen.intervalo-flush-ms:5000}")
+    public void escribirPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        // remove() es atómico frente a merge(): lo que llegue mientras tanto queda para el siguiente flush.
+        // El orden fijo de las claves hace que dos instancias bloqueen las filas en el mismo orden.
+        TreeMap<ClaveResumen, Delta> lote = new TreeMap<>(ORDEN_CLAVES);
+        for (ClaveResumen clave : pendientes.keySet()) {
+            Delta delta = pendientes.remove(clave);
+            if (delta != null) {
+                lote.put(clave, delta);
+            }
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            tiempoFlush.record(() -> sumar(lote));
+        } catch (RuntimeException e) {
+            // Los contadores vuelven a la cola en memoria y se reintentan en el siguiente intervalo
+            logger.error("Error al escribir {} filas de resumen de envíos: ", lote.size(), e);
+            lote.forEach((clave, delta) -> pendientes.merge(clave, delta, Delta::sumar));
+        }
+    }
+
+    @PreDestroy
+    public void escribirAntesDeApagar() {
+        escribirPendientes();
+    }
+
+    // Recalcula los días [desde, hasta] desde la tabla envio, un día por transacción. Sólo días cerrados:
+    // el día en curso sigue recibiendo eventos y se contaría dos veces. Los estados intermedios no quedan
+    // registrados en envio, así que la reconstrucción sólo cuenta asignaciones y entregas.
+    public int reconstruir(LocalDate desde, LocalDate hasta) {
+        if (!hasta.isBefore(LocalDate.now())) {
+            throw new IllegalStateException("Sólo se pueden reconstruir días cerrados (hasta antes de hoy)");
+        }
+        escribirPendientes();
+        int filas = 0;
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            LocalDate diaReconstruido = dia;
+            filas += transaccion.execute(estado -> reconstruirDia(diaReconstruido));
+        }
+        return filas;
+    }
+
+    private int reconstruirDia(LocalDate dia) {
+        Timestamp inicio = Timestamp.valueOf(dia.atStartOfDay());
+        Timestamp fin = Timestamp.valueOf(dia.plusDays(1).atStartOfDay());
+        Map<ClaveResumen, Delta> agregados = new TreeMap<>(ORDEN_CLAVES);
+
+        jdbcTemplate.query(SQL_ASIGNACIONES_DEL_DIA, (RowCallbackHandler) rs -> {
+            LocalDateTime creacion = rs.getTimestamp(4).toLocalDateTime();
+            acumular(new EnvioEstadoCambiadoEvent(null, rs.getObject(1, Long.class), rs.getObject(2, Long.class),
+                    rs.getObject(3, Long.class), EstadoEnvio.ASIGNADO, creacion, creacion, fecha(rs.getTimestamp(5)), null), agregados);
+        }, inicio, fin, inicio, fin);
+        jdbcTemplate.query(SQL_ENTREGAS_DEL_DIA, (RowCallbackHandler) rs -> {
+            LocalDateTime entrega = rs.getTimestamp(6).toLocalDateTime();
+            acumular(new EnvioEstadoCambiadoEvent(null, rs.getObject(1, Long.class), rs.getObject(2, Long.class),
+                    rs.getObject(3, Long.class), EstadoEnvio.ENTREGADO, entrega, fecha(rs.getTimestamp(4)), fecha(rs.getTimestamp(5)), entrega), agregados);
+        }, inicio, fin, inicio, fin);
+
+        for (GranularidadResumen granularidad : GranularidadResumen.values()) {
+            for (DimensionResumen dimension : DimensionResumen.values()) {
+                jdbcTemplate.update(SQL_BORRAR_PERIODOS, granularidad.name(), dimension.name(), inicio, fin);
+            }
+        }
+        sumar(agregados);
+        return agregados.size();
+    }
+
+    private void sumar(Map<ClaveResumen, Delta> filas) {
+        List<Map.Entry<ClaveResumen, Delta>> lote = new ArrayList<>(filas.entrySet());
+        jdbcTemplate.batchUpdate(SQL_SUMAR, lote, tamanoLoteJdbc, (ps, fila) -> {
+            ClaveResumen clave = fila.getKey();
+            Delta delta = fila.getValue();
+            ps.setString(1, clave.granularidad().name());
+            ps.setString(2, clave.dimension().name());
+            ps.setString(3, clave.clave());
+            ps.setTimestamp(4, Timestamp.valueOf(clave.periodo()));
+            for (int repeticion = 0; repeticion < 2; repeticion++) { // Valores del INSERT y del UPDATE
+                int base = 5 + repeticion * 5;
+                ps.setLong(base, delta.asignados());
+                ps.setLong(base + 1, delta.entregados());
+                ps.setLong(base + 2, delta.entregasATiempo());
+                ps.setLong(base + 3, delta.segundosEntrega());
+                ps.setLong(base + 4, delta.cambiosEstado());
+            }
+        });
+    }
+
+    private static void acumular(EnvioEstadoCambiadoEvent evento, Map<ClaveResumen, Delta> destino) {
+        if (evento.fechaCambio() == null) {
+            return;
+        }
+        Delta delta = Delta.de(evento);
+        for (GranularidadResumen granularidad : GranularidadResumen.values()) {
+            LocalDateTime periodo = granularidad.inicioPeriodo(evento.fechaCambio());
+            sumarEn(destino, granularidad, DimensionResumen.CONDUCTOR, evento.conductorId(), periodo, delta);
+            sumarEn(destino, granularidad, DimensionResumen.VEHICULO, evento.vehiculoId(), periodo, delta);
+            sumarEn(destino, granularidad, DimensionResumen.CLIENTE, evento.clienteId(), periodo, delta);
+            sumarEn(destino, granularidad, DimensionResumen.ESTADO, evento.estadoNuevo().getEtiqueta(), periodo, delta);
+        }
+    }
+
+    private static void sumarEn(Map<ClaveResumen, Delta> destino, GranularidadResumen granularidad, DimensionResumen dimension,
+                                Object clave, LocalDateTime periodo, Delta delta) {
+        if (clave != null) {
+            destino.merge(new ClaveResumen(granularidad, dimension, clave.toString(), periodo), delta, Delta::sumar);
+        }
+    }
+
+    private static LocalDateTime fecha(Timestamp marca) {
+        return marca != null ? marca.toLocalDateTime() : null;
+    }
+
+    record ClaveResumen(GranularidadResumen granularidad, DimensionResumen dimension, String clave, LocalDateTime periodo) {
+    }
+
+    record Delta(long asignados, long entregados, long entregasATiempo, long segundosEntrega, long cambiosEstado) {
+
+        static Delta de(EnvioEstadoCambiadoEvent evento) {
+            if (evento.estadoNuevo() == EstadoEnvio.ENTREGADO) {
+                boolean aTiempo = evento.fechaEntregaReal() != null && evento.fechaEntregaEstimada() != null
+                        && !evento.fechaEntregaReal().isAfter(evento.fechaEntregaEstimada());
+                long segundos = evento.fechaCreacion() != null && evento.fechaEntregaReal() != null
+                        ? Math.max(0, Duration.between(evento.fechaCreacion(), evento.fechaEntregaReal()).getSeconds())
+                        : 0;
+                return new Delta(0, 1, aTiempo ? 1 : 0, segundos, 1);
+            }
+            return new Delta(evento.estadoNuevo() == EstadoEnvio.ASIGNADO ? 1 : 0, 0, 0, 0, 1);
+        }
+
+        Delta sumar(Delta otro) {
+            return new Delta(asignados + otro.asignados, entregados + otro.entregados, entregasATiempo + otro.entregasATiempo,
+                    segundosEntrega + otro.segundosEntrega, cambiosEstado + otro.cambiosEstado);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.backend_logistica.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Evidencias de entrega (firmas y fotos) fuera de la base de datos. Cada archivo se guarda con su SHA-256
+// como nombre (ab/ab12...ef.png): la fila del envío sólo lleva esa referencia, dos subidas iguales ocupan un
+// único archivo y un reintento de la app no duplica nada. La subida se copia en bloques a un temporal
+// mientras se calcula el hash y se mueve al final. La descarga sólo evita copiar el archivo a la JVM cuando
+// Tomcat la envía con sendfile (EnvioController); si no, enviar la copia en bloques a la respuesta.
+@Service
+public class AlmacenEvidencias {
+
+    private static final int TAMANO_BLOQUE = 64 * 1024;
+    private static final Pattern REFERENCIA = Pattern.compile("[0-9a-f]{64}\\.(png|jpg|webp)");
+
+    private final Path directorio;
+    private final long tamanoMaximoBytes;
+    private final Counter bytesGuardados;
+    private final Counter subidasRepetidas;
+
+    @Autowired
+    public AlmacenEvidencias(MeterRegistry meterRegistry,
+                             @Value("${evidencias.directorio:evidencias}") String directorio,
+                             @Value("${evidencias.tamano-maximo-bytes:5242880}") long tamanoMaximoBytes) throws IOException {
+        this.directorio = Files.createDirectories(Path.of(directorio).toAbsolutePath());
+        this.tamanoMaximoBytes = tamanoMaximoBytes;
+        this.bytesGuardados = Counter.builder("evidencias.bytes").tag("resultado", "guardado").register(meterRegistry);
+        this.subidasRepetidas = Counter.builder("evidencias.subidas").tag("resultado", "repetida").register(meterRegistry);
+    }
+
+    // Devuelve la referencia a guardar en el envío. IllegalArgumentException si el contenido no es una
+    // imagen PNG, JPEG o WebP o supera el tamaño máximo
+    public String guardar(InputStream contenido) throws IOException {
+        Path temporal = Files.createTempFile(directorio, "subida-", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            byte[] bloque = new byte[TAMANO_BLOQUE];
+            byte[] cabecera = new byte[12];
+            int leidosCabecera = 0;
+            long total = 0;
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                int leidos;
+                while ((leidos = contenido.read(bloque)) != -1) {
+                    total += leidos;
+                    if (total > tamanoMaximoBytes) {
+                        throw new IllegalArgumentException("La evidencia supera " + tamanoMaximoBytes + " bytes");
+                    }
+                    if (leidosCabecera < cabecera.length) {
+                        int copiar = Math.min(leidos, cabecera.length - leidosCabecera);
+                        System.arraycopy(bloque, 0, cabecera, leidosCabecera, copiar);
+                        leidosCabecera += copiar;
+                    }
+                    sha256.update(bloque, 0, leidos);
+                    ByteBuffer buffer = ByteBuffer.wrap(bloque, 0, leidos);
+                    while (buffer.hasRemaining()) {
+                        canal.write(buffer);
+                    }
+                }
+            }
+            String extension = extension(cabecera, leidosCabecera)
+                    .orElseThrow(() -> new IllegalArgumentException("La evidencia debe ser una imagen PNG, JPEG o WebP"));
+            String referencia = HexFormat.of().formatHex(sha256.digest()) + "." + extension;
+            Path destino = ruta(referencia);
+            if (Files.exists(destino)) {
+                subidasRepetidas.increment();
+                return referencia;
+            }
+            Files.createDirectories(destino.getParent());
+            try {
+                Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                bytesGuardados.increment(total);
+            } catch (FileAlreadyExistsException e) {
+                subidasRepetidas.increment(); // La misma evidencia llegó a la vez por otra petición
+            }
+            return referencia;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    // Vacío si la referencia no tiene el formato esperado o el archivo ya no existe
+    public Optional<ArchivoEvidencia> abrir(String referencia) throws IOException {
+        if (referencia == null || !REFERENCIA.matcher(referencia).matches()) {
+            return Optional.empty();
+        }
+        Path ruta = ruta(referencia);
+        if (!Files.isRegularFile(ruta)) {
+            return Optional.empty();
+        }
+        return Optional.of(new ArchivoEvidencia(ruta, Files.size(ruta), tipoContenido(referencia), referencia.substring(0, 64)));
+    }
+
+    // Respaldo sin sendfile. La respuesta es un OutputStream, no un canal de archivo ni de socket, así que
+    // transferTo no puede delegar en el sistema operativo: lee el archivo a un búfer del heap y lo escribe en
+    // bloques. No es copia cero; sólo evita tener el archivo entero en memoria
+    public StreamingResponseBody enviar(ArchivoEvidencia archivo) {
+        return salida -> {
+            try (FileChannel canal = FileChannel.open(archivo.ruta(), StandardOpenOption.READ)) {
+                WritableByteChannel destino = Channels.newChannel(salida);
+                long posicion = 0;
+                while (posicion < archivo.tamano()) {
+                    posicion += canal.transferTo(posicion, archivo.tamano() - posicion, destino);
+                }
+            }
+        };
+    }
+
+    private Path ruta(String referencia) {
+        return directorio.resolve(referencia.substring(0, 2)).resolve(referencia);
+    }
+
+    private static Optional<String> extension(byte[] cabecera, int largo) {
+        if (largo >= 8 && (cabecera[0] & 0xFF) == 0x89 && cabecera[1] == 'P' && cabecera[2] == 'N' && cabecera[3] == 'G') {
+            return Optional.of("png");
+        }
+        if (largo >= 3 && (cabecera[0] & 0xFF) == 0xFF && (cabecera[1] & 0xFF) == 0xD8 && (cabecera[2] & 0xFF) == 0xFF) {
+            return Optional.of("jpg");
+        }
+        if (largo >= 12 && cabecera[0] == 'R' && cabecera[1] == 'I' && cabecera[2] == 'F' && cabecera[3] == 'F'
+                && cabecera[8] == 'W' && cabecera[9] == 'E' && cabecera[10] == 'B' && cabecera[11] == 'P') {
+            return Optional.of("webp");
+        }
+        return Optional.empty();
+    }
+
+    private static String tipoContenido(String referencia) {
+        if (referencia.endsWith(".png")) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        return referencia.endsWith(".jpg") ? MediaType.IMAGE_JPEG_VALUE : "image/webp";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todas las JVM lo incluyen
+        }
+    }
+
+    public record ArchivoEvidencia(Path ruta, long tamano, String tipoContenido, String hash) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.EstadoEnvio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.TreeSet;
+
+// Compactación de envíos en frío: cada noche los entregados y cancelados creados hace más de N días pasan de
+// envio a envio_archivo, por bloques y cada bloque en una transacción (INSERT ... SELECT y DELETE). envio se
+// queda con el conjunto vivo que usan asignaciones, rutas, seguimiento y ETAs. En MySQL el archivo está
+// particionado por mes (db/vendor/mysql) y aquí se crea la partición de cada mes antes de llenarla.
+// Las lecturas (EnvioService) consultan envio primero y el archivo sólo si puede aportar filas: todo envío
+// archivado fue creado antes de limiteArchivo()
+@Service
+public class ArchivoEnvios {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoEnvios.class);
+
+    private static final String COLUMNAS = "id, pedido_id, conductor_id, vehiculo_id, fecha_entrega_estimada, fecha_creacion, "
+            + "fecha_entrega_real, estado_envio, ubicacion_origen_latitud, ubicacion_origen_longitud, ubicacion_destino_latitud, "
+            + "ubicacion_destino_longitud, codigo_qr_entrega, firma_digital_entrega, firma_entrega, foto_entrega, "
+            + "ultima_clave_idempotencia, version";
+    // Del más antiguo al más reciente por idx_envio_estado_fecha, un estado final cada vez
+    private static final String SQL_CANDIDATOS = "SELECT id, fecha_creacion FROM envio "
+            + "WHERE estado_envio = ? AND fecha_creacion < ? ORDER BY fecha_creacion, id LIMIT ?";
+    private static final String SQL_COPIAR = "INSERT INTO envio_archivo (" + COLUMNAS + ", fecha_archivo) SELECT "
+            + COLUMNAS + ", ? FROM envio WHERE id IN (%s)";
+    private static final String SQL_BORRAR = "DELETE FROM envio WHERE id IN (%s)";
+    private static final String SQL_FECHA_MAXIMA = "SELECT MAX(fecha_creacion) FROM envio_archivo";
+    private static final String SQL_PARTICIONES = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'envio_archivo' AND PARTITION_NAME IS NOT NULL";
+    private static final String SQL_NUEVA_PARTICION = "ALTER TABLE envio_archivo REORGANIZE PARTITION p_futuro INTO ("
+            + "PARTITION %s VALUES LESS THAN ('%s'), PARTITION p_futuro VALUES LESS THAN (MAXVALUE))";
+    private static final String PARTICION_ABIERTA = "p_futuro";
+    private static final DateTimeFormatter NOMBRE_PARTICION = DateTimeFormatter.ofPattern("'p'yyyyMM", Locale.ROOT);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final int diasEnCaliente;
+    private final int tamanoBloque;
+    private final Counter enviosArchivados;
+
+    // Fecha de creación más reciente del archivo (null: vacío). La leen los hilos de las peticiones
+    private volatile LocalDateTime fechaMaximaArchivada;
+    private volatile boolean mysql;
+
+    @Autowired
+    public ArchivoEnvios(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${envios.archivo.dias-en-caliente:90}") int diasEnCaliente,
+                         @Value("${envios.archivo.tamano-bloque:1000}") int tamanoBloque) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.diasEnCaliente = diasEnCaliente;
+        this.tamanoBloque = tamanoBloque;
+        this.enviosArchivados = Counter.builder("envios.archivados").register(meterRegistry);
+    }
+
+    // Vacío si el archivo no tiene filas: las lecturas no necesitan consultarlo. Si no, ningún envío archivado
+    // se creó después de la fecha devuelta. El horizonte de días cubre también lo que otra instancia haya
+    // archivado desde la última lectura de la fecha máxima
+    public Optional<LocalDateTime> limiteArchivo() {
+        LocalDateTime maxima = fechaMaximaArchivada;
+        if (maxima == null) {
+            return Optional.empty();
+        }
+        LocalDateTime horizonte = LocalDateTime.now().minusDays(diasEnCaliente);
+        return Optional.of(maxima.isAfter(horizonte) ? maxima : horizonte);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) conexion ->
+                conexion.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql"));
+        refrescarLimite();
+    }
+
+    // Sólo cambia de vacío a con filas por el archivado de otra instancia; después lo cubre el horizonte
+    @Scheduled(fixedDelayString = "${envios.archivo.intervalo-refresco-ms:300000}")
+    public void refrescarLimite() {
+        Timestamp maxima = jdbcTemplate.queryForObject(SQL_FECHA_MAXIMA, Timestamp.class);
+        fechaMaximaArchivada = maxima != null ? maxima.toLocalDateTime() : null;
+    }
+
+    @Scheduled(cron = "${envios.archivo.cron:0 15 4 * * *}")
+    public void compactar() {
+        LocalDateTime horizonte = LocalDateTime.now().minusDays(diasEnCaliente);
+        TreeSet<YearMonth> particiones = mysql ? particionesExistentes() : null;
+        int total = 0;
+        for (EstadoEnvio estado : EstadoEnvio.values()) {
+            if (!estado.esFinal()) {
+                continue;
+            }
+            List<Long> ids;
+            do {
+                ids = new ArrayList<>(tamanoBloque);
+                List<LocalDateTime> fechas = new ArrayList<>(tamanoBloque);
+                List<Long> bloque = ids;
+                jdbcTemplate.query(SQL_CANDIDATOS, rs -> {
+                    bloque.add(rs.getLong(1));
+                    fechas.add(rs.getTimestamp(2).toLocalDateTime());
+                }, estado.getEtiqueta(), Timestamp.valueOf(horizonte), tamanoBloque);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                LocalDateTime masReciente = fechas.get(fechas.size() - 1);
+                if (particiones != null) {
+                    // El DDL confirma la transacción en curso en MySQL: va antes y fuera de la del bloque
+                    crearParticiones(particiones, YearMonth.from(fechas.get(0)), YearMonth.from(masReciente));
+                }
+                archivarBloque(bloque);
+                total += bloque.size();
+                enviosArchivados.increment(bloque.size());
+                LocalDateTime maxima = fechaMaximaArchivada;
+                if (maxima == null || masReciente.isAfter(maxima)) {
+                    fechaMaximaArchivada = masReciente;
+                }
+            } while (ids.size() == tamanoBloque);
+        }
+        if (total > 0) {
+            logger.info("Archivados {} envíos entregados o cancelados anteriores a {} días", total, diasEnCaliente);
+        }
+    }
+
+    // Copia y borrado en la misma transacción: el INSERT ... SELECT bloquea las filas leídas, así que una
+    // edición concurrente del envío espera y después falla por versión (409) en lugar de perderse
+    private void archivarBloque(List<Long> ids) {
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> parametrosCopia = new ArrayList<>(ids.size() + 1);
+        parametrosCopia.add(Timestamp.valueOf(LocalDateTime.now()));
+        parametrosCopia.addAll(ids);
+        transaccion.executeWithoutResult(estado -> {
+            jdbcTemplate.update(String.format(SQL_COPIAR, marcadores), parametrosCopia.toArray());
+            jdbcTemplate.update(String.format(SQL_BORRAR, marcadores), ids.toArray());
+        });
+    }
+
+    // Meses con partición propia; null si la tabla no está particionada
+    private TreeSet<YearMonth> particionesExistentes() {
+        List<String> nombres = jdbcTemplate.queryForList(SQL_PARTICIONES, String.class);
+        if (!nombres.contains(PARTICION_ABIERTA)) {
+            return null;
+        }
+        TreeSet<YearMonth> meses = new TreeSet<>();
+        for (String nombre : nombres) {
+            if (!nombre.equals(PARTICION_ABIERTA)) {
+                meses.add(YearMonth.parse(nombre, NOMBRE_PARTICION));
+            }
+        }
+        return meses;
+    }
+
+    // Divide p_futuro mes a mes hasta 'hasta'. Las filas anteriores a la primera partición creada caen en ella
+    // (RANGE acepta todo lo menor que su límite), así que los candidatos no tienen que llegar en orden
+    private void crearParticiones(TreeSet<YearMonth> particiones, YearMonth desde, YearMonth hasta) {
+        YearMonth mes = particiones.isEmpty() ? desde : particiones.last().plusMonths(1);
+        for (; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            jdbcTemplate.execute(String.format(SQL_NUEVA_PARTICION, mes.format(NOMBRE_PARTICION), mes.plusMonths(1).atDay(1)));
+            particiones.add(mes);
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.ConductorDTO;
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.dto.ParadaRutaDTO;
+import com.example.backend_logistica.dto.PedidoPorAsignarDTO;
+import com.example.backend_logistica.dto.ResultadoAsignacionLoteDTO;
+import com.example.backend_logistica.dto.ResultadoAsignacionRutasDTO;
+import com.example.backend_logistica.dto.RutaConductorDTO;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.model.Pedido;
+import com.example.backend_logistica.repository.ConductorRepository;
+import com.example.backend_logistica.repository.PedidoRepository;
+import com.example.backend_logistica.util.AlgoritmoHungaro;
+import com.example.backend_logistica.util.GeoUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Asignación conjunta de pedidos a conductores: en lugar de dar a cada pedido el primer conductor
+// libre, se resuelve el emparejamiento de coste mínimo (distancia conductor-origen) con el método
+// húngaro y se persiste todo el lote con dos sentencias JDBC por lotes en una única transacción.
+// asignarEnRutas da varios pedidos a un mismo conductor (hasta una capacidad) y ordena sus paradas.
+@Service
+public class AsignacionLoteService {
+
+    public static final int MAX_PEDIDOS_POR_LOTE = 1000;
+
+    private static final int CANDIDATOS_POR_PEDIDO = 8;
+    private static final int FACTOR_COLUMNAS = 2; // Columnas de la matriz: hasta 2 conductores candidatos por pedido
+    private static final double COSTO_SIN_UBICACION_KM = 50_000; // Mayor que cualquier distancia real sobre la Tierra
+
+    private static final String SQL_OCUPAR_CONDUCTOR =
+            "UPDATE conductor SET disponible = false, version = COALESCE(version, 0) + 1 WHERE id = ? AND disponible = true";
+    private static final String SQL_INSERTAR_ENVIO =
+            "INSERT INTO envio (pedido_id, conductor_id, vehiculo_id, estado_envio, fecha_creacion, fecha_entrega_estimada, "
+                    + "ubicacion_origen_latitud, ubicacion_origen_longitud, ubicacion_destino_latitud, ubicacion_destino_longitud) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final PedidoRepository pedidoRepository;
+    private final ConductorRepository conductorRepository;
+    private final IndiceGeoespacialConductores indiceGeoespacial;
+    private final IngestaUbicacionesService ingestaUbicaciones;
+    private final ReservasConductores reservasConductores;
+    private final MotorEta motorEta;
+    private final PlanificadorRutas planificadorRutas;
+    private final RegistroEventosEnvio registroEventos;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final BusEventos busEventos;
+    private final int maxEnviosPorConductor;
+    private final double costoConductorAdicionalKm;
+    private final Timer tiempoOptimizacion;
+    private final Timer tiempoAgrupacion;
+
+    @Autowired
+    public AsignacionLoteService(PedidoRepository pedidoRepository, ConductorRepository conductorRepository,
+                                 IndiceGeoespacialConductores indiceGeoespacial, IngestaUbicacionesService ingestaUbicaciones,
+                                 BusEventos busEventos, ReservasConductores reservasConductores,
+                                 MotorEta motorEta, PlanificadorRutas planificadorRutas, RegistroEventosEnvio registroEventos,
+                                 JdbcTemplate jdbcTemplate,
+                                 ApplicationEventPublisher eventos, MeterRegistry meterRegistry,
+                                 @Value("${rutas.max-envios-por-conductor:8}") int maxEnviosPorConductor,
+                                 @Value("${rutas.costo-conductor-adicional-km:5}") double costoConductorAdicionalKm) {
+        this.pedidoRepository = pedidoRepository;
+        this.conductorRepository = conductorRepository;
+        this.indiceGeoespacial = indiceGeoespacial;
+        this.ingestaUbicaciones = ingestaUbicaciones;
+        this.busEventos = busEventos;
+        this.reservasConductores = reservasConductores;
+        this.motorEta = motorEta;
+        this.planificadorRutas = planificadorRutas;
+        this.registroEventos = registroEventos;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventos = eventos;
+        this.maxEnviosPorConductor = maxEnviosPorConductor;
+        this.costoConductorAdicionalKm = costoConductorAdicionalKm;
+        this.tiempoOptimizacion = Timer.builder("envios.asignacion.lote.optimizacion")
+                .description("Duración del cálculo de la asignación óptima de un lote")
+                .register(meterRegistry);
+        this.tiempoAgrupacion = Timer.builder("envios.asignacion.rutas.agrupacion")
+                .description("Duración del reparto de un lote entre las rutas de los conductores")
+                .register(meterRegistry);
+    }
+
+    @Transactional
+    public ResultadoAsignacionLoteDTO asignarLote(List<PedidoPorAsignarDTO> solicitudes) {
+        List<PedidoPorAsignarDTO> filas = unicosPorPedido(solicitudes);
+        Map<Long, Pedido> pedidos = cargarPedidos(filas);
+        List<Conductor> columnas = buscarConductoresCandidatos(filas);
+        if (columnas.isEmpty()) {
+            throw new IllegalStateException("No hay conductores disponibles para asignar el lote.");
+        }
+
+        int n = filas.size();
+        int m = columnas.size();
+        PosicionesConductores posiciones = ubicar(columnas);
+        double[] latitudesConductor = posiciones.latitudes();
+        double[] longitudesConductor = posiciones.longitudes();
+        boolean[] conductorConUbicacion = posiciones.conUbicacion();
+
+        long inicio = System.nanoTime();
+        double[] costos = new double[n * m];
+        for (int i = 0; i < n; i++) {
+            PedidoPorAsignarDTO fila = filas.get(i);
+            boolean conOrigen = GeoUtils.coordenadasValidas(fila.getLatitudOrigen(), fila.getLongitudOrigen());
+            int base = i * m;
+            for (int j = 0; j < m; j++) {
+                costos[base + j] = conOrigen && conductorConUbicacion[j]
+                        ? GeoUtils.distanciaKm(fila.getLatitudOrigen(), fila.getLongitudOrigen(), latitudesConductor[j], longitudesConductor[j])
+                        : COSTO_SIN_UBICACION_KM;
+            }
+        }
+        int[] asignacion = AlgoritmoHungaro.resolver(costos, n, m);
+        tiempoOptimizacion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        List<Envio> nuevosEnvios = new ArrayList<>(Math.min(n, m));
+        List<Long> pedidosSinAsignar = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < n; i++) {
+            PedidoPorAsignarDTO fila = filas.get(i);
+            if (asignacion[i] == AlgoritmoHungaro.SIN_ASIGNAR) {
+                pedidosSinAsignar.add(fila.getPedidoId());
+                continue;
+            }
+            Conductor conductor = columnas.get(asignacion[i]);
+            Envio envio = new Envio();
+            envio.setPedido(pedidos.get(fila.getPedidoId()));
+            envio.setConductor(conductor);
+            envio.setVehiculo(conductor.getVehiculo());
+            envio.setEstadoEnvio(EstadoEnvio.ASIGNADO);
+            envio.setFechaCreacion(ahora);
+            envio.setUbicacionOrigenLatitud(fila.getLatitudOrigen());
+            envio.setUbicacionOrigenLongitud(fila.getLongitudOrigen());
+            envio.setUbicacionDestinoLatitud(fila.getLatitudDestino());
+            envio.setUbicacionDestinoLongitud(fila.getLongitudDestino());
+            int j = asignacion[i];
+            envio.setFechaEntregaEstimada(motorEta.estimarEntrega(tipoVehiculo(conductor),
+                    conductorConUbicacion[j] ? latitudesConductor[j] : null, conductorConUbicacion[j] ? longitudesConductor[j] : null,
+                    fila.getLatitudOrigen(), fila.getLongitudOrigen(), fila.getLatitudDestino(), fila.getLongitudDestino(), ahora));
+            nuevosEnvios.add(envio);
+        }
+
+        ocuparConductores(nuevosEnvios.stream().map(envio -> envio.getConductor().getId()).toList());
+        insertarEnvios(nuevosEnvios);
+        return new ResultadoAsignacionLoteDTO(publicarAsignados(nuevosEnvios, ahora), pedidosSinAsignar);
+    }
+
+    // Reparto voraz por inserción más barata: cada pedido va al conductor cuya ruta ya pasa más cerca de
+    // su origen (o destino), y abrir la ruta de un conductor más cuesta costoConductorAdicionalKm, de modo
+    // que los pedidos cercanos se agrupan en lugar de ocupar un conductor cada uno. Las paradas de cada
+    // conductor se ordenan después con PlanificadorRutas, en paralelo entre conductores.
+    @Transactional
+    public ResultadoAsignacionRutasDTO asignarEnRutas(List<PedidoPorAsignarDTO> solicitudes) {
+        List<PedidoPorAsignarDTO> filas = unicosPorPedido(solicitudes);
+        Map<Long, Pedido> pedidos = cargarPedidos(filas);
+        List<Conductor> columnas = buscarConductoresCandidatos(filas);
+        if (columnas.isEmpty()) {
+            throw new IllegalStateException("No hay conductores disponibles para asignar el lote.");
+        }
+
+        int n = filas.size();
+        int m = columnas.size();
+        PosicionesConductores posiciones = ubicar(columnas);
+        long inicio = System.nanoTime();
+        int[] carga = new int[m];
+        int[] conductorDePedido = new int[n];
+        // Puntos por los que ya pasa cada ruta (posición del conductor, orígenes y destinos asignados)
+        List<List<double[]>> puntosPorConductor = new ArrayList<>(m);
+        for (int j = 0; j < m; j++) {
+            List<double[]> puntos = new ArrayList<>();
+            if (posiciones.conUbicacion()[j]) {
+                puntos.add(new double[]{posiciones.latitudes()[j], posiciones.longitudes()[j]});
+            }
+            puntosPorConductor.add(puntos);
+        }
+        for (int i = 0; i < n; i++) {
+            PedidoPorAsignarDTO fila = filas.get(i);
+            double[] referencia = GeoUtils.coordenadasValidas(fila.getLatitudOrigen(), fila.getLongitudOrigen())
+                    ? new double[]{fila.getLatitudOrigen(), fila.getLongitudOrigen()}
+                    : GeoUtils.coordenadasValidas(fila.getLatitudDestino(), fila.getLongitudDestino())
+                    ? new double[]{fila.getLatitudDestino(), fila.getLongitudDestino()}
+                    : null;
+            int mejor = AlgoritmoHungaro.SIN_ASIGNAR;
+            double mejorCosto = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < m; j++) {
+                if (carga[j] >= maxEnviosPorConductor) {
+                    continue;
+                }
+                double costo = carga[j] == 0 ? costoConductorAdicionalKm : 0;
+                if (referencia != null) {
+                    costo += distanciaMinimaKm(puntosPorConductor.get(j), referencia);
+                }
+                if (costo < mejorCosto) {
+                    mejorCosto = costo;
+                    mejor = j;
+                }
+            }
+            conductorDePedido[i] = mejor;
+            if (mejor != AlgoritmoHungaro.SIN_ASIGNAR) {
+                carga[mejor]++;
+                if (GeoUtils.coordenadasValidas(fila.getLatitudOrigen(), fila.getLongitudOrigen())) {
+                    puntosPorConductor.get(mejor).add(new double[]{fila.getLatitudOrigen(), fila.getLongitudOrigen()});
+                }
+                if (GeoUtils.coordenadasValidas(fila.getLatitudDestino(), fila.getLongitudDestino())) {
+                    puntosPorConductor.get(mejor).add(new double[]{fila.getLatitudDestino(), fila.getLongitudDestino()});
+                }
+            }
+        }
+        tiempoAgrupacion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        List<Envio> nuevosEnvios = new ArrayList<>(n);
+        List<Long> pedidosSinAsignar = new ArrayList<>();
+        Map<Integer, List<Integer>> enviosPorColumna = new LinkedHashMap<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < n; i++) {
+            PedidoPorAsignarDTO fila = filas.get(i);
+            int j = conductorDePedido[i];
+            if (j == AlgoritmoHungaro.SIN_ASIGNAR) {
+                pedidosSinAsignar.add(fila.getPedidoId());
+                continue;
+            }
+            Conductor conductor = columnas.get(j);
+            Envio envio = new Envio();
+            envio.setPedido(pedidos.get(fila.getPedidoId()));
+            envio.setConductor(conductor);
+            envio.setVehiculo(conductor.getVehiculo());
+            envio.setEstadoEnvio(EstadoEnvio.ASIGNADO);
+            envio.setFechaCreacion(ahora);
+            envio.setUbicacionOrigenLatitud(fila.getLatitudOrigen());
+            envio.setUbicacionOrigenLongitud(fila.getLongitudOrigen());
+            envio.setUbicacionDestinoLatitud(fila.getLatitudDestino());
+            envio.setUbicacionDestinoLongitud(fila.getLongitudDestino());
+            // Sin destino no hay parada de entrega en la ruta: se mantiene el plazo fijo
+            envio.setFechaEntregaEstimada(motorEta.estimarEntrega(tipoVehiculo(conductor), null, null,
+                    null, null, null, null, ahora));
+            enviosPorColumna.computeIfAbsent(j, columna -> new ArrayList<>()).add(nuevosEnvios.size());
+            nuevosEnvios.add(envio);
+        }
+
+        // Las rutas se ordenan antes de insertar porque de ellas sale la entrega estimada: mientras tanto
+        // las paradas identifican a su envío por la posición en nuevosEnvios
+        List<ProblemaRuta> problemas = new ArrayList<>(enviosPorColumna.size());
+        for (Map.Entry<Integer, List<Integer>> entrada : enviosPorColumna.entrySet()) {
+            int j = entrada.getKey();
+            List<ParadaPendiente> paradas = new ArrayList<>();
+            List<Long> sinDestino = new ArrayList<>();
+            for (int indice : entrada.getValue()) {
+                Envio envio = nuevosEnvios.get(indice);
+                PlanificadorRutas.agregarParadas(paradas, sinDestino, (long) indice, false,
+                        envio.getUbicacionOrigenLatitud(), envio.getUbicacionOrigenLongitud(),
+                        envio.getUbicacionDestinoLatitud(), envio.getUbicacionDestinoLongitud());
+            }
+            Conductor conductor = columnas.get(j);
+            problemas.add(new ProblemaRuta(conductor.getId(), tipoVehiculo(conductor),
+                    posiciones.conUbicacion()[j] ? posiciones.latitudes()[j] : null,
+                    posiciones.conUbicacion()[j] ? posiciones.longitudes()[j] : null, paradas, sinDestino));
+        }
+        List<RutaConductorDTO> rutas = planificadorRutas.planificar(problemas, ahora);
+        for (RutaConductorDTO ruta : rutas) {
+            for (ParadaRutaDTO parada : ruta.getParadas()) {
+                if (ParadaRutaDTO.ENTREGA.equals(parada.getTipo())) {
+                    nuevosEnvios.get(parada.getEnvioId().intValue()).setFechaEntregaEstimada(parada.getLlegadaEstimada());
+                }
+            }
+        }
+
+        ocuparConductores(problemas.stream().map(ProblemaRuta::conductorId).toList());
+        insertarEnvios(nuevosEnvios);
+        for (RutaConductorDTO ruta : rutas) {
+            ruta.getParadas().forEach(parada -> parada.setEnvioId(nuevosEnvios.get(parada.getEnvioId().intValue()).getId()));
+            ruta.setEnviosSinDestino(ruta.getEnviosSinDestino().stream()
+                    .map(indice -> nuevosEnvios.get(indice.intValue()).getId()).toList());
+        }
+        return new ResultadoAsignacionRutasDTO(publicarAsignados(nuevosEnvios, ahora), rutas, pedidosSinAsignar);
+    }
+
+    // Un pedido repetido en el cuerpo se asigna una sola vez (gana la última aparición)
+    private static List<PedidoPorAsignarDTO> unicosPorPedido(List<PedidoPorAsignarDTO> solicitudes) {
+        Map<Long, PedidoPorAsignarDTO> porPedido = new LinkedHashMap<>();
+        for (PedidoPorAsignarDTO solicitud : solicitudes) {
+            if (solicitud.getPedidoId() == null) {
+                throw new IllegalArgumentException("Falta el ID de pedido en el lote.");
+            }
+            porPedido.put(solicitud.getPedidoId(), solicitud);
+        }
+        if (porPedido.size() > MAX_PEDIDOS_POR_LOTE) {
+            throw new IllegalArgumentException("El lote supera " + MAX_PEDIDOS_POR_LOTE + " pedidos.");
+        }
+        return new ArrayList<>(porPedido.values());
+    }
+
+    private Map<Long, Pedido> cargarPedidos(List<PedidoPorAsignarDTO> filas) {
+        Map<Long, Pedido> pedidos = pedidoRepository.findConClienteByIdIn(filas.stream().map(PedidoPorAsignarDTO::getPedidoId).toList())
+                .stream()
+                .collect(Collectors.toMap(Pedido::getId, Function.identity()));
+        for (PedidoPorAsignarDTO fila : filas) {
+            if (!pedidos.containsKey(fila.getPedidoId())) {
+                throw new IllegalArgumentException("Pedido no encontrado con ID: " + fila.getPedidoId());
+            }
+        }
+        return pedidos;
+    }
+
+    // Posiciones en arrays primitivos: los costos se calculan sin boxing
+    private PosicionesConductores ubicar(List<Conductor> columnas) {
+        int m = columnas.size();
+        double[] latitudes = new double[m];
+        double[] longitudes = new double[m];
+        boolean[] conUbicacion = new boolean[m];
+        for (int j = 0; j < m; j++) {
+            Conductor conductor = columnas.get(j);
+            Optional<PosicionConductor> posicion = ingestaUbicaciones.obtenerUltimaPosicion(conductor.getId());
+            Double latitud = posicion.map(PosicionConductor::latitud).orElse(conductor.getUbicacionActualLatitud());
+            Double longitud = posicion.map(PosicionConductor::longitud).orElse(conductor.getUbicacionActualLongitud());
+            conUbicacion[j] = GeoUtils.coordenadasValidas(latitud, longitud);
+            if (conUbicacion[j]) {
+                latitudes[j] = latitud;
+                longitudes[j] = longitud;
+            }
+        }
+        return new PosicionesConductores(latitudes, longitudes, conUbicacion);
+    }
+
+    private static double distanciaMinimaKm(List<double[]> puntos, double[] referencia) {
+        double minima = COSTO_SIN_UBICACION_KM;
+        for (double[] punto : puntos) {
+            minima = Math.min(minima, GeoUtils.distanciaKm(punto[0], punto[1], referencia[0], referencia[1]));
+        }
+        return minima;
+    }
+
+    private static String tipoVehiculo(Conductor conductor) {
+        return conductor.getVehiculo() != null ? conductor.getVehiculo().getTipo() : null;
+    }
+
+    private List<EnvioDTO> publicarAsignados(List<Envio> envios, LocalDateTime ahora) {
+        List<EnvioDTO> enviosAsignados = new ArrayList<>(envios.size());
+        List<EnvioAsignadoEvent> asignados = new ArrayList<>(envios.size());
+        Set<Long> conductoresMarcados = new HashSet<>();
+        for (Envio envio : envios) {
+            Long conductorId = envio.getConductor().getId();
+            if (conductoresMarcados.add(conductorId)) {
+                indiceGeoespacial.marcarDisponibilidad(conductorId, false);
+                eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CONDUCTORES, conductorId));
+            }
+            eventos.publishEvent(EnvioEstadoCambiadoEvent.desde(envio, ahora));
+            asignados.add(EnvioAsignadoEvent.desde(envio, ahora));
+            enviosAsignados.add(aDTO(envio));
+        }
+        busEventos.publicarTodos(asignados); // Un batch JDBC para todo el lote; los avisos salen de AvisosPushEnvios
+        return enviosAsignados;
+    }
+
+    // Candidatos: los conductores disponibles más cercanos a cada origen, tomados por rondas (el más cercano
+    // de cada pedido, luego el segundo...) hasta FACTOR_COLUMNAS por pedido. Si no alcanza para cubrir el
+    // lote (pedidos sin origen, conductores sin posición) se completa con la lista de disponibles.
+    private List<Conductor> buscarConductoresCandidatos(List<PedidoPorAsignarDTO> filas) {
+        int maxColumnas = filas.size() * FACTOR_COLUMNAS;
+        List<List<Long>> cercanosPorPedido = new ArrayList<>(filas.size());
+        for (PedidoPorAsignarDTO fila : filas) {
+            if (GeoUtils.coordenadasValidas(fila.getLatitudOrigen(), fila.getLongitudOrigen())) {
+                cercanosPorPedido.add(indiceGeoespacial.buscarCercanos(fila.getLatitudOrigen(), fila.getLongitudOrigen(), CANDIDATOS_POR_PEDIDO));
+            }
+        }
+        Set<Long> candidatos = new LinkedHashSet<>();
+        for (int ronda = 0; ronda < CANDIDATOS_POR_PEDIDO && candidatos.size() < maxColumnas; ronda++) {
+            for (List<Long> cercanos : cercanosPorPedido) {
+                if (ronda < cercanos.size() && candidatos.size() < maxColumnas) {
+                    candidatos.add(cercanos.get(ronda));
+                }
+            }
+        }
+
+        List<Conductor> conductores = new ArrayList<>(candidatos.size());
+        if (!candidatos.isEmpty()) {
+            // El índice puede ir un paso por detrás de la base de datos: manda la columna disponible
+            for (Conductor conductor : conductorRepository.findConVehiculoByIdIn(candidatos)) {
+                if (conductor.isDisponible() && reservar(conductor)) {
+                    conductores.add(conductor);
+                }
+            }
+        }
+        if (conductores.size() < filas.size()) {
+            Set<Long> incluidos = conductores.stream().map(Conductor::getId).collect(Collectors.toSet());
+            for (Conductor conductor : conductorRepository.findByDisponibleTrue()) {
+                if (conductores.size() >= filas.size()) {
+                    break;
+                }
+                if (incluidos.add(conductor.getId()) && reservar(conductor)) {
+                    conductores.add(conductor);
+                }
+            }
+        }
+        return conductores;
+    }
+
+    // Las columnas de la matriz quedan reservadas hasta el fin de la transacción: un asignarEnvio
+    // concurrente salta a otro conductor en lugar de chocar con este lote
+    private boolean reservar(Conductor conductor) {
+        if (!reservasConductores.reservar(conductor.getId())) {
+            return false;
+        }
+        reservasConductores.liberarAlTerminarTransaccion(conductor.getId());
+        return true;
+    }
+
+    // La condición disponible = true hace de control optimista: si otra asignación tomó al conductor
+    // entre la lectura y esta escritura, el lote completo se revierte. Un ID por conductor, sin repetir
+    private void ocuparConductores(List<Long> conductorIds) {
+        int[] filasActualizadas = jdbcTemplate.batchUpdate(SQL_OCUPAR_CONDUCTOR, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, conductorIds.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return conductorIds.size();
+            }
+        });
+        for (int i = 0; i < filasActualizadas.length; i++) {
+            if (filasActualizadas[i] == 0) {
+                throw new IllegalStateException("El conductor " + conductorIds.get(i)
+                        + " fue asignado por otra operación; reintente el lote.");
+            }
+        }
+    }
+
+    // IDENTITY impide a Hibernate agrupar los INSERT; con JDBC el lote va en un único batch
+    // (una sola sentencia multi-fila con rewriteBatchedStatements) y se recuperan las claves generadas
+    private void insertarEnvios(List<Envio> envios) {
+        KeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(SQL_INSERTAR_ENVIO, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Envio envio = envios.get(i);
+                        ps.setLong(1, envio.getPedido().getId());
+                        ps.setLong(2, envio.getConductor().getId());
+                        if (envio.getVehiculo() != null) {
+                            ps.setLong(3, envio.getVehiculo().getId());
+                        } else {
+                            ps.setNull(3, Types.BIGINT);
+                        }
+                        ps.setString(4, envio.getEstadoEnvio().getEtiqueta());
+                        ps.setTimestamp(5, Timestamp.valueOf(envio.getFechaCreacion()));
+                        ps.setTimestamp(6, Timestamp.valueOf(envio.getFechaEntregaEstimada()));
+                        ps.setObject(7, envio.getUbicacionOrigenLatitud(), Types.DOUBLE);
+                        ps.setObject(8, envio.getUbicacionOrigenLongitud(), Types.DOUBLE);
+                        ps.setObject(9, envio.getUbicacionDestinoLatitud(), Types.DOUBLE);
+                        ps.setObject(10, envio.getUbicacionDestinoLongitud(), Types.DOUBLE);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return envios.size();
+                    }
+                }, claves);
+
+        List<Map<String, Object>> generadas = claves.getKeyList();
+        for (int i = 0; i < envios.size(); i++) {
+            envios.get(i).setId(((Number) generadas.get(i).values().iterator().next()).longValue());
+            envios.get(i).setVersion(0L); // Valor por defecto de la columna
+        }
+        registroEventos.registrarAltas(envios);
+    }
+
+    private EnvioDTO aDTO(Envio envio) {
+        EnvioDTO dto = EnvioDTO.desde(envio);
+        // Las entidades de conductor no se modifican (la escritura fue por JDBC): se ajusta la vista
+        ConductorDTO conductor = dto.getConductor();
+        conductor.setDisponible(false);
+        ingestaUbicaciones.obtenerUltimaPosicion(conductor.getId()).ifPresent(posicion -> {
+            conductor.setUbicacionActualLatitud(posicion.latitud());
+            conductor.setUbicacionActualLongitud(posicion.longitud());
+        });
+        return dto;
+    }
+
+    private record PosicionesConductores(double[] latitudes, double[] longitudes, boolean[] conUbicacion) {
+    }
+}
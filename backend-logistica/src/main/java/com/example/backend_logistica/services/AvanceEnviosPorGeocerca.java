@@ -0,0 +1,44 @@
+package com.example.backend_logistica.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+// Aplica a cada envío el estado de su detección de geocerca con la máquina de estados de EnvioService. La
+// clave de idempotencia por envío y estado hace que una detección repetida (otra instancia, un conductor que
+// vuelve a entrar) no registre la transición dos veces. Aparte de MotorGeocercas, que no depende de EnvioService
+@Service
+public class AvanceEnviosPorGeocerca {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvanceEnviosPorGeocerca.class);
+
+    private final EnvioService envioService;
+    private final MotorGeocercas motorGeocercas;
+
+    @Autowired
+    public AvanceEnviosPorGeocerca(EnvioService envioService, MotorGeocercas motorGeocercas) {
+        this.envioService = envioService;
+        this.motorGeocercas = motorGeocercas;
+    }
+
+    @EventListener
+    public void avanzar(EnvioEnGeocercaEvent evento) {
+        if (evento.avanzarA() == null) {
+            return;
+        }
+        try {
+            envioService.cambiarEstado(evento.envioId(), evento.avanzarA(),
+                    "geocerca-" + evento.envioId() + "-" + evento.avanzarA().getCodigo());
+        } catch (IllegalArgumentException e) {
+            motorGeocercas.olvidar(evento.envioId()); // Envío borrado
+        } catch (IllegalStateException e) {
+            // El conductor ya informó un estado posterior desde la app
+            logger.debug("Envío {}: {}", evento.envioId(), e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            logger.debug("Envío {} modificado a la vez; la transición por geocerca queda para el conductor", evento.envioId());
+        }
+    }
+}
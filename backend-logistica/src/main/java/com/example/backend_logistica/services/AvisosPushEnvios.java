@@ -0,0 +1,32 @@
+package com.example.backend_logistica.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+// Notificaciones push de asignación (al conductor) y entrega (al cliente), fuera de la transacción de la
+// petición. Un evento repetido repite el aviso, como un reintento del propio despachador
+@Service
+public class AvisosPushEnvios implements ConsumidorEventos {
+
+    private final NotificacionService notificacionService;
+
+    @Autowired
+    public AvisosPushEnvios(NotificacionService notificacionService) {
+        this.notificacionService = notificacionService;
+    }
+
+    @Override
+    public void consumir(EventoDominio evento) {
+        if (evento instanceof EnvioAsignadoEvent asignado) {
+            String conductorDeviceToken = "TU_DEVICE_TOKEN_CONDUCTOR"; // **TODO: Obtener el device token del conductor (desde la BD o algún servicio de registro)**
+            notificacionService.enviarNotificacionPush(conductorDeviceToken,
+                    "Nuevo Envío Asignado",
+                    "Se te ha asignado el envío para el pedido: " + asignado.numeroPedido());
+        } else if (evento instanceof EnvioEntregadoEvent entregado) {
+            String clienteDeviceToken = "TU_DEVICE_TOKEN_CLIENTE"; // **TODO: Obtener el device token del cliente (desde la BD o algún servicio de registro)**
+            notificacionService.enviarNotificacionPush(clienteDeviceToken,
+                    "Envío Entregado",
+                    "Tu envío para el pedido " + entregado.numeroPedido() + " ha sido entregado.");
+        }
+    }
+}
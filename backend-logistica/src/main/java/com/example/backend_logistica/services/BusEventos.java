@@ -0,0 +1,76 @@
+package com.example.backend_logistica.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Publicación de eventos de dominio en la bandeja de salida (evento_salida): una fila por evento con JDBC dentro
+// de la transacción de quien publica, así el evento existe si y sólo si el cambio se confirmó. El coste para el
+// llamador es ese INSERT, haya los consumidores que haya; la entrega la hace RepartidorEventos
+@Service
+public class BusEventos {
+
+    private static final String SQL_INSERTAR = "INSERT INTO evento_salida (tipo, agregado_id, carga, fecha) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int tamanoLoteJdbc;
+    private final Counter eventosPublicados;
+
+    @Autowired
+    public BusEventos(JdbcTemplate jdbcTemplate,
+                      ObjectMapper objectMapper,
+                      MeterRegistry meterRegistry,
+                      @Value("${eventos.salida.tamano-lote-jdbc:500}") int tamanoLoteJdbc) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.tamanoLoteJdbc = tamanoLoteJdbc;
+        this.eventosPublicados = Counter.builder("eventos.salida").tag("resultado", "publicado").register(meterRegistry);
+    }
+
+    // Fuera de una transacción lanza IllegalTransactionStateException: el evento podría quedar sin su cambio
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publicar(EventoDominio evento) {
+        Object[] fila = fila(evento, Timestamp.valueOf(LocalDateTime.now()));
+        jdbcTemplate.update(SQL_INSERTAR, fila);
+        eventosPublicados.increment();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publicarTodos(List<? extends EventoDominio> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>(eventos.size());
+        for (EventoDominio evento : eventos) {
+            filas.add(fila(evento, ahora));
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, filas, tamanoLoteJdbc, (ps, fila) -> {
+            for (int i = 0; i < fila.length; i++) {
+                ps.setObject(i + 1, fila[i]);
+            }
+        });
+        eventosPublicados.increment(eventos.size());
+    }
+
+    private Object[] fila(EventoDominio evento, Timestamp fecha) {
+        try {
+            return new Object[]{evento.getClass().getSimpleName(), evento.agregadoId(), objectMapper.writeValueAsString(evento), fecha};
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar " + evento, e); // Los eventos son records simples
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.backend_logistica.services;
+
+// Nombres de las cachés de entidades de referencia (ver spring.cache.* en application.properties)
+public final class CachesReferencia {
+
+    public static final String VEHICULOS = "vehiculos";
+    public static final String CLIENTES = "clientes";
+    public static final String CONDUCTORES = "conductores";
+
+    private CachesReferencia() {
+    }
+}
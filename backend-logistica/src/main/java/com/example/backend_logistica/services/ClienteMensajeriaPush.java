@@ -0,0 +1,12 @@
+package com.example.backend_logistica.services;
+
+import java.util.List;
+
+// Abstracción del proveedor de notificaciones push (Firebase en producción, stub local en pruebas y benchmarks).
+// Devuelve un resultado por notificación, en el mismo orden que la lista recibida.
+public interface ClienteMensajeriaPush {
+
+    int MAX_LOTE = 500; // Límite de mensajes por llamada a sendEach de FCM
+
+    List<ResultadoEnvioPush> enviarLote(List<NotificacionPush> notificaciones);
+}
@@ -0,0 +1,31 @@
+package com.example.backend_logistica.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stub sin red para desarrollo local, pruebas y benchmarks (notificaciones.push.proveedor=local)
+@Service
+@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "local")
+public class ClienteMensajeriaPushLocal implements ClienteMensajeriaPush {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClienteMensajeriaPushLocal.class);
+
+    private final AtomicLong enviadas = new AtomicLong();
+
+    @Override
+    public List<ResultadoEnvioPush> enviarLote(List<NotificacionPush> notificaciones) {
+        enviadas.addAndGet(notificaciones.size());
+        logger.debug("Stub push: {} notificaciones descartadas", notificaciones.size());
+        return Collections.nCopies(notificaciones.size(), ResultadoEnvioPush.ok());
+    }
+
+    public long obtenerTotalEnviadas() {
+        return enviadas.get();
+    }
+}
@@ -1,36 +1,70 @@
 package com.example.backend_logistica.services;
 
+import com.example.backend_logistica.dto.ClienteDTO;
 import com.example.backend_logistica.model.Cliente;
 import com.example.backend_logistica.repository.ClienteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class ClienteService {
 
     private final ClienteRepository clienteRepository;
+    private final ApplicationEventPublisher eventos;
+    private final Cache cacheClientes;
 
     @Autowired
-    public ClienteService(ClienteRepository clienteRepository) {
+    public ClienteService(ClienteRepository clienteRepository, ApplicationEventPublisher eventos, CacheManager cacheManager) {
         this.clienteRepository = clienteRepository;
+        this.eventos = eventos;
+        this.cacheClientes = cacheManager.getCache(CachesReferencia.CLIENTES);
     }
 
-    public List<Cliente> obtenerTodosClientes() {
-        return clienteRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ClienteDTO> obtenerPaginaClientes(Long cursor, int limite) {
+        return clienteRepository.findByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, Limit.of(limite)).stream()
+                .map(ClienteDTO::desde)
+                .toList();
     }
 
-    public Optional<Cliente> obtenerClientePorId(Long id) {
-        return clienteRepository.findById(id);
+    // Debe consumirse dentro de una transacción y cerrarse al terminar
+    public Stream<ClienteDTO> streamTodosClientes() {
+        return clienteRepository.streamTodosOrdenadosPorId().map(ClienteDTO::desde);
     }
 
-    public Cliente guardarCliente(Cliente cliente) {
+    // Lectura a través de caché (sin transacción: un acierto no debe pedir conexión al pool)
+    public Optional<ClienteDTO> obtenerClientePorId(Long id) {
+        ClienteDTO enCache = cacheClientes.get(id, ClienteDTO.class);
+        if (enCache != null) {
+            return Optional.of(enCache);
+        }
+        Optional<ClienteDTO> cliente = clienteRepository.findById(id).map(ClienteDTO::desde);
+        cliente.ifPresent(dto -> cacheClientes.put(id, dto));
+        return cliente;
+    }
+
+    public boolean existeCliente(Long id) {
+        return cacheClientes.get(id) != null || clienteRepository.existsById(id);
+    }
+
+    @Transactional
+    public ClienteDTO guardarCliente(Cliente cliente) {
         // Aquí podrías añadir validaciones de negocio específicas para el Cliente antes de guardar
-        return clienteRepository.save(cliente);
+        ClienteDTO clienteGuardado = ClienteDTO.desde(clienteRepository.save(cliente));
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CLIENTES, clienteGuardado.getId()));
+        return clienteGuardado;
     }
 
     public void eliminarCliente(Long id) {
         clienteRepository.deleteById(id);
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CLIENTES, id));
     }
 }
\ No newline at end of file
@@ -1,52 +1,164 @@
 package com.example.backend_logistica.services;
 
+import com.example.backend_logistica.dto.ConductorDTO;
 import com.example.backend_logistica.model.Conductor;
 import com.example.backend_logistica.repository.ConductorRepository;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.LoteUbicacionesBinario;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ConductorService {
 
     private final ConductorRepository conductorRepository;
+    private final IndiceGeoespacialConductores indiceGeoespacial;
+    private final IngestaUbicacionesService ingestaUbicaciones;
+    private final ApplicationEventPublisher eventos;
+    private final Cache cacheConductores;
 
     @Autowired
-    public ConductorService(ConductorRepository conductorRepository) {
+    public ConductorService(ConductorRepository conductorRepository, IndiceGeoespacialConductores indiceGeoespacial, IngestaUbicacionesService ingestaUbicaciones,
+                            ApplicationEventPublisher eventos, CacheManager cacheManager) {
         this.conductorRepository = conductorRepository;
+        this.indiceGeoespacial = indiceGeoespacial;
+        this.ingestaUbicaciones = ingestaUbicaciones;
+        this.eventos = eventos;
+        this.cacheConductores = cacheManager.getCache(CachesReferencia.CONDUCTORES);
     }
 
-    public List<Conductor> obtenerTodosConductores() {
-        return conductorRepository.findAll();
+    // Las posiciones se sirven desde la ingesta en memoria (la tabla puede ir hasta un flush por detrás)
+    @Transactional(readOnly = true)
+    public List<ConductorDTO> obtenerPaginaConductores(Long cursor, int limite) {
+        return conductorRepository.findByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, Limit.of(limite)).stream()
+                .map(this::aDTO)
+                .toList();
     }
 
-    public Optional<Conductor> obtenerConductorPorId(Long id) {
-        return conductorRepository.findById(id);
+    // Debe consumirse dentro de una transacción y cerrarse al terminar
+    public Stream<ConductorDTO> streamTodosConductores() {
+        return conductorRepository.streamTodosOrdenadosPorId().map(this::aDTO);
     }
 
-    public Conductor guardarConductor(Conductor conductor) {
+    // Lectura a través de caché. La entrada cacheada no es la fuente de la posición: al servirla
+    // se sustituye por la última recibida en la ingesta, así nunca se devuelve una posición vieja.
+    public Optional<ConductorDTO> obtenerConductorPorId(Long id) {
+        ConductorDTO enCache = cacheConductores.get(id, ConductorDTO.class);
+        if (enCache == null) {
+            Optional<ConductorDTO> conductor = conductorRepository.findConVehiculoById(id).map(ConductorDTO::desde);
+            if (conductor.isEmpty()) {
+                return Optional.empty();
+            }
+            enCache = conductor.get();
+            cacheConductores.put(id, enCache);
+        }
+        return Optional.of(conPosicionVigente(enCache));
+    }
+
+    public boolean existeConductor(Long id) {
+        return cacheConductores.get(id) != null || conductorRepository.existsById(id);
+    }
+
+    @Transactional
+    public ConductorDTO guardarConductor(Conductor conductor) {
         // Aquí podrías añadir validaciones de negocio específicas para el Conductor antes de guardar
-        return conductorRepository.save(conductor);
+        ingestaUbicaciones.aplicarUltimaPosicion(conductor); // Evita pisar una posición aún no escrita
+        if (conductor.getId() != null && conductor.getVersion() == null) {
+            // Sin la versión leída no hay bloqueo optimista: tomar la vigente pisaría en silencio cambios ajenos
+            throw new IllegalArgumentException("Actualizar el conductor " + conductor.getId() + " requiere su version");
+        }
+        Conductor conductorGuardado = conductorRepository.save(conductor);
+        indiceGeoespacial.actualizar(conductorGuardado);
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CONDUCTORES, conductorGuardado.getId()));
+        return ConductorDTO.desde(conductorGuardado);
     }
 
     public void eliminarConductor(Long id) {
         conductorRepository.deleteById(id);
+        indiceGeoespacial.eliminar(id);
+        ingestaUbicaciones.olvidarConductor(id);
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CONDUCTORES, id));
     }
 
-    public List<Conductor> obtenerConductoresDisponibles() {
-        return conductorRepository.findByDisponibleTrue();
+    @Transactional(readOnly = true)
+    public List<ConductorDTO> obtenerConductoresDisponibles() {
+        return conductorRepository.findByDisponibleTrue().stream()
+                .map(this::aDTO)
+                .toList();
     }
 
-    public Conductor actualizarUbicacionConductor(Long conductorId, Double latitud, Double longitud) {
-        Optional<Conductor> conductorOptional = conductorRepository.findById(conductorId);
-        if (conductorOptional.isPresent()) {
-            Conductor conductor = conductorOptional.get();
-            conductor.setUbicacionActualLatitud(latitud);
-            conductor.setUbicacionActualLongitud(longitud);
-            return conductorRepository.save(conductor);
-        } else {
+    // Encola el ping; la tabla conductor se actualiza en el siguiente flush por lotes.
+    // Devuelve false si la cola de ingesta está llena.
+    public boolean actualizarUbicacionConductor(Long conductorId, Double latitud, Double longitud) {
+        if (!ingestaUbicaciones.existeConductor(conductorId)) {
             throw new IllegalArgumentException("Conductor no encontrado con ID: " + conductorId);
         }
+        return ingestaUbicaciones.registrarPing(conductorId, latitud, longitud);
+    }
+
+    // Lote binario ya validado (ver LoteUbicacionesBinario): se procesa en orden hasta que la cola se llena
+    public ResultadoLoteUbicaciones registrarLoteUbicaciones(ByteBuffer lote, int registros) {
+        long ahora = System.currentTimeMillis();
+        int aceptados = 0;
+        int descartados = 0;
+        for (int i = 0; i < registros; i++) {
+            long conductorId = LoteUbicacionesBinario.conductorId(lote, i);
+            double latitud = LoteUbicacionesBinario.latitud(lote, i);
+            double longitud = LoteUbicacionesBinario.longitud(lote, i);
+            if (!GeoUtils.coordenadasValidas(latitud, longitud) || !ingestaUbicaciones.existeConductor(conductorId)) {
+                descartados++;
+                continue;
+            }
+            // Una marca en el futuro (reloj del móvil adelantado) haría ignorar los pings siguientes del conductor
+            long marcaTiempo = Math.min(LoteUbicacionesBinario.marcaTiempo(lote, i), ahora);
+            if (!ingestaUbicaciones.registrarPing(conductorId, latitud, longitud, marcaTiempo)) {
+                return new ResultadoLoteUbicaciones(aceptados, descartados, registros - i);
+            }
+            aceptados++;
+        }
+        return new ResultadoLoteUbicaciones(aceptados, descartados, 0);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ConductorDTO> obtenerConductoresCercanos(Double latitud, Double longitud, int cantidad) {
+        List<Long> idsCercanos = indiceGeoespacial.buscarCercanos(latitud, longitud, cantidad);
+        // La consulta IN no garantiza el orden, así que se reordena según la distancia calculada por el índice
+        Map<Long, Conductor> conductoresPorId = conductorRepository.findConVehiculoByIdIn(idsCercanos).stream()
+                .collect(Collectors.toMap(Conductor::getId, Function.identity()));
+        List<ConductorDTO> cercanos = new ArrayList<>(idsCercanos.size());
+        for (Long id : idsCercanos) {
+            Conductor conductor = conductoresPorId.get(id);
+            if (conductor != null && conductor.isDisponible()) {
+                cercanos.add(aDTO(conductor));
+            }
+        }
+        return cercanos;
+    }
+
+    private ConductorDTO aDTO(Conductor conductor) {
+        return ConductorDTO.desde(ingestaUbicaciones.aplicarUltimaPosicion(conductor));
+    }
+
+    // Copia (la instancia cacheada es compartida entre hilos) con la posición de la ingesta en memoria
+    private ConductorDTO conPosicionVigente(ConductorDTO cacheado) {
+        Optional<PosicionConductor> posicion = ingestaUbicaciones.obtenerUltimaPosicion(cacheado.getId());
+        if (posicion.isEmpty()) {
+            return cacheado;
+        }
+        return new ConductorDTO(cacheado.getId(), cacheado.getNombre(), cacheado.getApellido(), cacheado.isDisponible(),
+                cacheado.getVehiculo(), posicion.get().latitud(), posicion.get().longitud(), cacheado.getVersion());
     }
-}
\ No newline at end of file
+}
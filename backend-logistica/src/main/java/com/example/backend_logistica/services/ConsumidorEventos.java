@@ -0,0 +1,8 @@
+package com.example.backend_logistica.services;
+
+// Consumidor asíncrono de la bandeja de salida (cualquier bean que lo implemente). Recibe todos los eventos y
+// atiende los que le interesan; debe tolerar recibir el mismo evento dos veces
+public interface ConsumidorEventos {
+
+    void consumir(EventoDominio evento);
+}
@@ -0,0 +1,41 @@
+package com.example.backend_logistica.services;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Cuenta las sentencias que Hibernate prepara en el hilo actual entre iniciar() y terminar(). A diferencia
+// de hibernate.generate_statistics (global y con coste en cada operación), sólo suma un entero por
+// sentencia, así que puede quedar activo en producción. Las consultas con JdbcTemplate no pasan por aquí.
+@Component
+public class ContadorSentenciasSql implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> enCurso = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> propiedades) {
+        propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] contador = enCurso.get();
+        if (contador != null) {
+            contador[0]++;
+        }
+        return sql;
+    }
+
+    public void iniciar() {
+        enCurso.set(new int[1]);
+    }
+
+    public int terminar() {
+        int[] contador = enCurso.get();
+        enCurso.remove();
+        return contador != null ? contador[0] : 0;
+    }
+}
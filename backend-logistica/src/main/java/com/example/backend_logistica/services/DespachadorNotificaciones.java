@@ -0,0 +1,216 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.NotificacionFallida;
+import com.example.backend_logistica.repository.NotificacionFallidaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Despacha las notificaciones push fuera del hilo de la petición: las agrupa en lotes de hasta
+// 500 (sendEach de FCM), reintenta los fallos transitorios con backoff exponencial y guarda en
+// notificacion_fallida las que agotan los reintentos. Al detenerse, los reintentos que esperaban su backoff
+// tienen un último intento y, si vuelven a fallar, también van a notificacion_fallida.
+@Service
+public class DespachadorNotificaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(DespachadorNotificaciones.class);
+
+    private final ClienteMensajeriaPush clienteMensajeriaPush;
+    private final NotificacionFallidaRepository notificacionFallidaRepository;
+
+    private final int tamanoLote;
+    private final long intervaloMs;
+    private final int maxIntentos;
+    private final long backoffInicialMs;
+    private final long backoffMaximoMs;
+
+    private final BlockingQueue<NotificacionPendiente> cola;
+    private final ScheduledExecutorService ejecutor;
+    // Reintentos esperando su backoff en el ejecutor: shutdownNow los descarta, así que se siguen aparte
+    private final Map<Long, NotificacionPendiente> reintentosProgramados = new ConcurrentHashMap<>();
+    private final AtomicLong secuenciaReintentos = new AtomicLong();
+
+    private final Counter notificacionesEnviadas;
+    private final Counter notificacionesReintentadas;
+    private final Counter notificacionesFallidas;
+    private final Timer tiempoEnvioLote;
+
+    @Autowired
+    public DespachadorNotificaciones(ClienteMensajeriaPush clienteMensajeriaPush,
+                                     NotificacionFallidaRepository notificacionFallidaRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${notificaciones.push.tamano-lote:500}") int tamanoLote,
+                                     @Value("${notificaciones.push.intervalo-ms:200}") long intervaloMs,
+                                     @Value("${notificaciones.push.max-intentos:5}") int maxIntentos,
+                                     @Value("${notificaciones.push.backoff-inicial-ms:1000}") long backoffInicialMs,
+                                     @Value("${notificaciones.push.backoff-maximo-ms:60000}") long backoffMaximoMs,
+                                     @Value("${notificaciones.push.capacidad-cola:100000}") int capacidadCola,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean hilosVirtuales) {
+        this.clienteMensajeriaPush = clienteMensajeriaPush;
+        this.notificacionFallidaRepository = notificacionFallidaRepository;
+        this.tamanoLote = Math.min(tamanoLote, ClienteMensajeriaPush.MAX_LOTE);
+        this.intervaloMs = intervaloMs;
+        this.maxIntentos = maxIntentos;
+        this.backoffInicialMs = backoffInicialMs;
+        this.backoffMaximoMs = backoffMaximoMs;
+        this.cola = new LinkedBlockingQueue<>(capacidadCola);
+        // La llamada a FCM bloquea: en modo hilos virtuales el despachador tampoco ocupa un hilo de plataforma
+        ThreadFactory fabricaHilos = hilosVirtuales
+                ? Thread.ofVirtual().name("despachador-push").factory()
+                : Thread.ofPlatform().name("despachador-push").daemon(true).factory();
+        this.ejecutor = Executors.newSingleThreadScheduledExecutor(fabricaHilos);
+
+        Gauge.builder("notificaciones.push.cola", cola, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("notificaciones.push.reintentos", reintentosProgramados, Map::size).register(meterRegistry);
+        this.notificacionesEnviadas = Counter.builder("notificaciones.push").tag("resultado", "enviada").register(meterRegistry);
+        this.notificacionesReintentadas = Counter.builder("notificaciones.push").tag("resultado", "reintento").register(meterRegistry);
+        this.notificacionesFallidas = Counter.builder("notificaciones.push").tag("resultado", "fallida").register(meterRegistry);
+        this.tiempoEnvioLote = Timer.builder("notificaciones.push.lote")
+                .description("Duración de cada llamada al proveedor push")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        ejecutor.scheduleWithFixedDelay(this::despacharPendientes, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void encolar(NotificacionPush notificacion) {
+        NotificacionPendiente pendiente = new NotificacionPendiente(notificacion, 0);
+        if (!cola.offer(pendiente)) {
+            guardarFallida(pendiente, "Cola de notificaciones llena");
+        }
+    }
+
+    public int obtenerTamanoCola() {
+        return cola.size();
+    }
+
+    void despacharPendientes() {
+        // Cualquier excepción que escape cancelaría la tarea periódica
+        try {
+            List<NotificacionPendiente> lote = new ArrayList<>(tamanoLote);
+            while (cola.drainTo(lote, tamanoLote) > 0) {
+                enviar(lote);
+                lote.clear();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error inesperado despachando notificaciones push: ", e);
+        }
+    }
+
+    private void enviar(List<NotificacionPendiente> lote) {
+        List<NotificacionPush> notificaciones = new ArrayList<>(lote.size());
+        for (NotificacionPendiente pendiente : lote) {
+            notificaciones.add(pendiente.notificacion());
+        }
+
+        List<ResultadoEnvioPush> resultados;
+        long inicio = System.nanoTime();
+        try {
+            resultados = clienteMensajeriaPush.enviarLote(notificaciones);
+        } catch (RuntimeException e) {
+            logger.warn("Error al enviar un lote de {} notificaciones push: {}", lote.size(), e.getMessage());
+            resultados = Collections.nCopies(lote.size(), ResultadoEnvioPush.fallo(true, e.getMessage()));
+        } finally {
+            tiempoEnvioLote.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            NotificacionPendiente pendiente = lote.get(i);
+            ResultadoEnvioPush resultado = resultados.get(i);
+            if (resultado.exitoso()) {
+                notificacionesEnviadas.increment();
+            } else if (resultado.reintentable() && pendiente.intentos() + 1 < maxIntentos) {
+                programarReintento(pendiente.siguienteIntento());
+            } else {
+                guardarFallida(pendiente.siguienteIntento(), resultado.error());
+            }
+        }
+    }
+
+    private void programarReintento(NotificacionPendiente pendiente) {
+        // Backoff exponencial con jitter para no reintentar todo el lote a la vez
+        long espera = Math.min(backoffMaximoMs, backoffInicialMs << Math.min(pendiente.intentos() - 1, 20));
+        espera += ThreadLocalRandom.current().nextLong(espera / 2 + 1);
+        long id = secuenciaReintentos.incrementAndGet();
+        reintentosProgramados.put(id, pendiente);
+        try {
+            ejecutor.schedule(() -> {
+                NotificacionPendiente reintento = reintentosProgramados.remove(id);
+                if (reintento != null && !cola.offer(reintento)) {
+                    guardarFallida(reintento, "Cola de notificaciones llena");
+                }
+            }, espera, TimeUnit.MILLISECONDS);
+            notificacionesReintentadas.increment();
+        } catch (RejectedExecutionException e) {
+            // Fallo durante el último intento al detenerse: ya no habrá reintento
+            reintentosProgramados.remove(id);
+            guardarFallida(pendiente, "Aplicación detenida antes del reintento");
+        }
+    }
+
+    private void guardarFallida(NotificacionPendiente pendiente, String error) {
+        notificacionesFallidas.increment();
+        NotificacionPush notificacion = pendiente.notificacion();
+        logger.error("Notificación push descartada tras {} intentos: {}", pendiente.intentos(), error);
+        try {
+            NotificacionFallida fallida = new NotificacionFallida();
+            fallida.setDeviceToken(notificacion.deviceToken());
+            fallida.setTitulo(notificacion.titulo());
+            fallida.setCuerpo(notificacion.cuerpo());
+            fallida.setIntentos(pendiente.intentos());
+            fallida.setUltimoError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            fallida.setFechaFallo(LocalDateTime.now());
+            notificacionFallidaRepository.save(fallida);
+        } catch (RuntimeException e) {
+            logger.error("No se pudo guardar la notificación fallida: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        ejecutor.shutdownNow();
+        ejecutor.awaitTermination(10, TimeUnit.SECONDS); // Un lote en curso puede programar más reintentos
+        // Los reintentos que esperaban su backoff vuelven a la cola sin esperar: el último intento es ahora
+        for (Long id : reintentosProgramados.keySet()) {
+            NotificacionPendiente reintento = reintentosProgramados.remove(id);
+            if (reintento != null && !cola.offer(reintento)) {
+                guardarFallida(reintento, "Cola de notificaciones llena");
+            }
+        }
+        // Último intento con lo que quede en cola; lo que vuelva a fallar se guarda (programarReintento)
+        despacharPendientes();
+    }
+
+    private record NotificacionPendiente(NotificacionPush notificacion, int intentos) {
+
+        NotificacionPendiente siguienteIntento() {
+            return new NotificacionPendiente(notificacion, intentos + 1);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.EstadoEnvioEnVivoDTO;
+import com.example.backend_logistica.dto.UbicacionEnVivoDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Canal de seguimiento en vivo (Server-Sent Events): reparte cada posición aceptada por la ingesta a
+// los suscriptores del envío del conductor o de la región que la contiene, sin pasar por la base de datos.
+// Cada suscriptor guarda sólo la última posición pendiente de cada conductor (coalescencia) y tiene a lo
+// sumo un envío en curso; si un cliente no consume durante plazo-envio-ms se le desconecta, y si acumula
+// más de max-pendientes conductores distintos se descartan los nuevos hasta que se ponga al día.
+@Service
+public class DifusorSeguimiento {
+
+    static final String EVENTO_UBICACION = "ubicacion";
+    static final String EVENTO_ESTADO = "estado";
+
+    public static final double MAX_LADO_REGION_GRADOS = 1.0;
+    private static final double TAMANO_CELDA_GRADOS = 0.05; // ~5,5 km: una región máxima ocupa 20 x 20 celdas
+    private static final long CELDAS_POR_FILA = 100_000L;
+
+    private final int maxSuscriptores;
+    private final long timeoutMs;
+    private final long plazoEnvioNanos;
+    private final long intervaloLatidoMs;
+    private final int maxPendientesPorSuscriptor;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Long, Set<Suscriptor>> porConductor = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Suscriptor>> porEnvio = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Suscriptor>> porCelda = new ConcurrentHashMap<>();
+
+    private final ExecutorService ejecutorEnvios;
+    private final ScheduledExecutorService vigilante;
+    private long ultimoLatidoNanos = System.nanoTime(); // Sólo lo usa el hilo del vigilante
+
+    private final Counter eventosEnviados;
+    private final Counter eventosCoalescidos;
+    private final Counter eventosDescartados;
+    private final Counter desconexionesLentas;
+
+    @Autowired
+    public DifusorSeguimiento(MeterRegistry meterRegistry,
+                              @Value("${seguimiento.max-suscriptores:20000}") int maxSuscriptores,
+                              @Value("${seguimiento.timeout-ms:1800000}") long timeoutMs,
+                              @Value("${seguimiento.plazo-envio-ms:5000}") long plazoEnvioMs,
+                              @Value("${seguimiento.intervalo-latido-ms:15000}") long intervaloLatidoMs,
+                              @Value("${seguimiento.max-pendientes-por-suscriptor:500}") int maxPendientesPorSuscriptor,
+                              @Value("${seguimiento.hilos-envio:16}") int hilosEnvio,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean hilosVirtuales) {
+        this.maxSuscriptores = maxSuscriptores;
+        this.timeoutMs = timeoutMs;
+        this.plazoEnvioNanos = TimeUnit.MILLISECONDS.toNanos(plazoEnvioMs);
+        this.intervaloLatidoMs = intervaloLatidoMs;
+        this.maxPendientesPorSuscriptor = maxPendientesPorSuscriptor;
+        // Escribir en la respuesta bloquea mientras el cliente no lee: con hilos virtuales cada envío tiene
+        // su hilo; con hilos de plataforma un cliente lento ocupa uno del pool hasta que el vigilante lo corta
+        this.ejecutorEnvios = hilosVirtuales
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("seguimiento-sse-", 0).factory())
+                : Executors.newFixedThreadPool(hilosEnvio, Thread.ofPlatform().name("seguimiento-sse-", 0).daemon(true).factory());
+        this.vigilante = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("seguimiento-vigilante").daemon(true).factory());
+
+        Gauge.builder("seguimiento.suscriptores", suscriptores, Set::size)
+                .description("Conexiones SSE de seguimiento abiertas")
+                .register(meterRegistry);
+        this.eventosEnviados = Counter.builder("seguimiento.eventos").tag("resultado", "enviado").register(meterRegistry);
+        this.eventosCoalescidos = Counter.builder("seguimiento.eventos").tag("resultado", "coalescido").register(meterRegistry);
+        this.eventosDescartados = Counter.builder("seguimiento.eventos").tag("resultado", "descartado").register(meterRegistry);
+        this.desconexionesLentas = Counter.builder("seguimiento.desconexiones").tag("motivo", "cliente-lento").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        vigilante.scheduleWithFixedDelay(this::vigilar, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        vigilante.shutdownNow();
+        for (Suscriptor suscriptor : suscriptores) {
+            cerrar(suscriptor);
+            suscriptor.emisor.complete();
+        }
+        ejecutorEnvios.shutdownNow();
+    }
+
+    // Vacío si se alcanzó el máximo de conexiones (el llamador debe responder 503)
+    public Optional<SseEmitter> suscribirEnvio(Long envioId, Long conductorId, PosicionConductor posicionInicial) {
+        Suscriptor suscriptor = new Suscriptor(crearEmisor(), envioId, conductorId, null);
+        if (!registrar(suscriptor)) {
+            return Optional.empty();
+        }
+        agregar(porEnvio, envioId, suscriptor);
+        agregar(porConductor, conductorId, suscriptor);
+        if (posicionInicial != null) {
+            encolar(suscriptor, posicionInicial); // El mapa se pinta sin esperar al siguiente ping
+        }
+        return Optional.of(suscriptor.emisor);
+    }
+
+    public Optional<SseEmitter> suscribirRegion(double latitudMin, double latitudMax, double longitudMin, double longitudMax) {
+        Region region = new Region(latitudMin, latitudMax, longitudMin, longitudMax);
+        Suscriptor suscriptor = new Suscriptor(crearEmisor(), null, null, region);
+        if (!registrar(suscriptor)) {
+            return Optional.empty();
+        }
+        for (Long celda : region.celdas()) {
+            agregar(porCelda, celda, suscriptor);
+        }
+        return Optional.of(suscriptor.emisor);
+    }
+
+    // Se llama desde la ingesta por cada posición vigente: debe costar sólo un par de búsquedas en mapas
+    public void publicar(PosicionConductor posicion) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        Set<Suscriptor> delConductor = porConductor.get(posicion.conductorId());
+        if (delConductor != null) {
+            for (Suscriptor suscriptor : delConductor) {
+                encolar(suscriptor, posicion);
+            }
+        }
+        Set<Suscriptor> deLaCelda = porCelda.get(celda(posicion.latitud(), posicion.longitud()));
+        if (deLaCelda != null) {
+            for (Suscriptor suscriptor : deLaCelda) {
+                if (suscriptor.region.contiene(posicion.latitud(), posicion.longitud())) {
+                    encolar(suscriptor, posicion);
+                }
+            }
+        }
+    }
+
+    // Tras el commit: el cliente recibe el nuevo estado y, si el envío se entregó o canceló, se cierra la conexión
+    @TransactionalEventListener(fallbackExecution = true)
+    public void notificarEstado(EnvioEstadoCambiadoEvent evento) {
+        Set<Suscriptor> delEnvio = porEnvio.get(evento.envioId());
+        if (delEnvio == null) {
+            return;
+        }
+        EstadoEnvioEnVivoDTO estado = new EstadoEnvioEnVivoDTO(evento.envioId(), evento.estadoNuevo().getEtiqueta(), evento.fechaCambio());
+        boolean finalizado = evento.estadoNuevo().esFinal();
+        for (Suscriptor suscriptor : delEnvio) {
+            suscriptor.estadoPendiente.set(estado);
+            if (finalizado) {
+                suscriptor.finalizar = true;
+            }
+            programar(suscriptor);
+        }
+    }
+
+    // Las pruebas lo sustituyen por un emisor que registra lo enviado o simula un cliente lento
+    SseEmitter crearEmisor() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private boolean registrar(Suscriptor suscriptor) {
+        if (suscriptores.size() >= maxSuscriptores) {
+            return false;
+        }
+        suscriptores.add(suscriptor);
+        suscriptor.emisor.onCompletion(() -> cerrar(suscriptor));
+        suscriptor.emisor.onTimeout(() -> cerrar(suscriptor));
+        suscriptor.emisor.onError(error -> cerrar(suscriptor));
+        return true;
+    }
+
+    private void encolar(Suscriptor suscriptor, PosicionConductor posicion) {
+        if (suscriptor.pendientes.size() >= maxPendientesPorSuscriptor && !suscriptor.pendientes.containsKey(posicion.conductorId())) {
+            eventosDescartados.increment();
+            return;
+        }
+        if (suscriptor.pendientes.put(posicion.conductorId(), posicion) != null) {
+            eventosCoalescidos.increment();
+        }
+        programar(suscriptor);
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (suscriptor.cerrado || !suscriptor.enVuelo.compareAndSet(false, true)) {
+            return; // El envío en curso recogerá lo pendiente al terminar
+        }
+        try {
+            ejecutorEnvios.execute(() -> drenar(suscriptor));
+        } catch (RejectedExecutionException e) {
+            suscriptor.enVuelo.set(false); // Apagando
+        }
+    }
+
+    private void drenar(Suscriptor suscriptor) {
+        try {
+            do {
+                suscriptor.inicioEnvioNanos = System.nanoTime();
+                for (Long conductorId : suscriptor.pendientes.keySet()) {
+                    PosicionConductor posicion = suscriptor.pendientes.remove(conductorId);
+                    if (posicion != null) {
+                        suscriptor.emisor.send(SseEmitter.event()
+                                .name(EVENTO_UBICACION)
+                                .id(String.valueOf(posicion.marcaTiempo()))
+                                .data(UbicacionEnVivoDTO.desde(posicion, suscriptor.envioId), MediaType.APPLICATION_JSON));
+                        eventosEnviados.increment();
+                    }
+                }
+                EstadoEnvioEnVivoDTO estado = suscriptor.estadoPendiente.getAndSet(null);
+                if (estado != null) {
+                    suscriptor.emisor.send(SseEmitter.event().name(EVENTO_ESTADO).data(estado, MediaType.APPLICATION_JSON));
+                    eventosEnviados.increment();
+                }
+                if (suscriptor.finalizar) {
+                    cerrar(suscriptor);
+                    suscriptor.emisor.complete();
+                    return;
+                }
+                if (suscriptor.latidoPendiente) {
+                    suscriptor.latidoPendiente = false;
+                    suscriptor.emisor.send(SseEmitter.event().comment("latido"));
+                }
+                suscriptor.inicioEnvioNanos = 0;
+                suscriptor.enVuelo.set(false);
+                // Lo que llegó después de vaciar y antes de soltar el turno se envía ahora
+            } while (suscriptor.tienePendientes() && suscriptor.enVuelo.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            // El cliente se desconectó o el emisor ya estaba completado
+            cerrar(suscriptor);
+        }
+    }
+
+    // Corta a los clientes que llevan más de plazo-envio-ms sin aceptar datos y envía latidos a los inactivos
+    // para que proxies y balanceadores no cierren la conexión y se detecten los clientes caídos
+    void vigilar() {
+        long ahora = System.nanoTime();
+        boolean tocaLatido = ahora - ultimoLatidoNanos >= TimeUnit.MILLISECONDS.toNanos(intervaloLatidoMs);
+        if (tocaLatido) {
+            ultimoLatidoNanos = ahora;
+        }
+        List<Suscriptor> lentos = new ArrayList<>();
+        for (Suscriptor suscriptor : suscriptores) {
+            long inicio = suscriptor.inicioEnvioNanos;
+            if (inicio != 0 && ahora - inicio > plazoEnvioNanos) {
+                lentos.add(suscriptor);
+            } else if (tocaLatido) {
+                suscriptor.latidoPendiente = true;
+                programar(suscriptor);
+            }
+        }
+        for (Suscriptor lento : lentos) {
+            desconexionesLentas.increment();
+            cerrar(lento);
+            lento.emisor.complete();
+        }
+    }
+
+    private void cerrar(Suscriptor suscriptor) {
+        if (suscriptor.cerrado) {
+            return;
+        }
+        suscriptor.cerrado = true;
+        suscriptores.remove(suscriptor);
+        if (suscriptor.envioId != null) {
+            quitar(porEnvio, suscriptor.envioId, suscriptor);
+        }
+        if (suscriptor.conductorId != null) {
+            quitar(porConductor, suscriptor.conductorId, suscriptor);
+        }
+        if (suscriptor.region != null) {
+            for (Long celda : suscriptor.region.celdas()) {
+                quitar(porCelda, celda, suscriptor);
+            }
+        }
+        suscriptor.pendientes.clear();
+    }
+
+    // compute() en ambos sentidos: un alta nunca cae en un conjunto que se está retirando por vacío
+    private static void agregar(ConcurrentHashMap<Long, Set<Suscriptor>> indice, Long clave, Suscriptor suscriptor) {
+        indice.compute(clave, (k, conjunto) -> {
+            Set<Suscriptor> destino = conjunto != null ? conjunto : ConcurrentHashMap.newKeySet();
+            destino.add(suscriptor);
+            return destino;
+        });
+    }
+
+    private static void quitar(ConcurrentHashMap<Long, Set<Suscriptor>> indice, Long clave, Suscriptor suscriptor) {
+        indice.computeIfPresent(clave, (k, conjunto) -> {
+            conjunto.remove(suscriptor);
+            return conjunto.isEmpty() ? null : conjunto;
+        });
+    }
+
+    private static long celda(double latitud, double longitud) {
+        long fila = (long) Math.floor((latitud + 90) / TAMANO_CELDA_GRADOS);
+        long columna = (long) Math.floor((longitud + 180) / TAMANO_CELDA_GRADOS);
+        return fila * CELDAS_POR_FILA + columna;
+    }
+
+    private record Region(double latitudMin, double latitudMax, double longitudMin, double longitudMax) {
+
+        boolean contiene(double latitud, double longitud) {
+            return latitud >= latitudMin && latitud <= latitudMax && longitud >= longitudMin && longitud <= longitudMax;
+        }
+
+        List<Long> celdas() {
+            long filaMin = (long) Math.floor((latitudMin + 90) / TAMANO_CELDA_GRADOS);
+            long filaMax = (long) Math.floor((latitudMax + 90) / TAMANO_CELDA_GRADOS);
+            long columnaMin = (long) Math.floor((longitudMin + 180) / TAMANO_CELDA_GRADOS);
+            long columnaMax = (long) Math.floor((longitudMax + 180) / TAMANO_CELDA_GRADOS);
+            List<Long> celdas = new ArrayList<>();
+            for (long fila = filaMin; fila <= filaMax; fila++) {
+                for (long columna = columnaMin; columna <= columnaMax; columna++) {
+                    celdas.add(fila * CELDAS_POR_FILA + columna);
+                }
+            }
+            return celdas;
+        }
+    }
+
+    private static final class Suscriptor {
+
+        final SseEmitter emisor;
+        final Long envioId;
+        final Long conductorId;
+        final Region region;
+
+        final ConcurrentHashMap<Long, PosicionConductor> pendientes = new ConcurrentHashMap<>();
+        final AtomicReference<EstadoEnvioEnVivoDTO> estadoPendiente = new AtomicReference<>();
+        final AtomicBoolean enVuelo = new AtomicBoolean();
+        volatile long inicioEnvioNanos;
+        volatile boolean latidoPendiente;
+        volatile boolean finalizar;
+        volatile boolean cerrado;
+
+        Suscriptor(SseEmitter emisor, Long envioId, Long conductorId, Region region) {
+            this.emisor = emisor;
+            this.envioId = envioId;
+            this.conductorId = conductorId;
+            this.region = region;
+        }
+
+        boolean tienePendientes() {
+            return !pendientes.isEmpty() || estadoPendiente.get() != null || finalizar || latidoPendiente;
+        }
+    }
+}
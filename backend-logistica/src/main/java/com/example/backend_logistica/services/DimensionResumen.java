@@ -0,0 +1,30 @@
+package com.example.backend_logistica.services;
+
+import java.util.Optional;
+
+// Dimensiones de los agregados de envíos; la ruta es el segmento de /api/reportes/{dimension}
+public enum DimensionResumen {
+    CONDUCTOR("conductores"),
+    VEHICULO("vehiculos"),
+    CLIENTE("clientes"),
+    ESTADO("estados");
+
+    private final String ruta;
+
+    DimensionResumen(String ruta) {
+        this.ruta = ruta;
+    }
+
+    public String getRuta() {
+        return ruta;
+    }
+
+    public static Optional<DimensionResumen> desdeRuta(String ruta) {
+        for (DimensionResumen dimension : values()) {
+            if (dimension.ruta.equalsIgnoreCase(ruta)) {
+                return Optional.of(dimension);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.Envio;
+
+import java.time.LocalDateTime;
+
+// Agregado: el envío
+public record EnvioAsignadoEvent(Long envioId, Long pedidoId, String numeroPedido, Long conductorId, Long clienteId,
+                                 LocalDateTime fechaEntregaEstimada, LocalDateTime fecha) implements EventoDominio {
+
+    @Override
+    public Long agregadoId() {
+        return envioId;
+    }
+
+    // Requiere pedido y conductor asociados
+    public static EnvioAsignadoEvent desde(Envio envio, LocalDateTime fecha) {
+        return new EnvioAsignadoEvent(envio.getId(), envio.getPedido().getId(), envio.getPedido().getNumeroPedido(),
+                envio.getConductor().getId(),
+                envio.getPedido().getCliente() != null ? envio.getPedido().getCliente().getId() : null,
+                envio.getFechaEntregaEstimada(), fecha);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.backend_logistica.services;
+
+import java.time.LocalDateTime;
+
+// Agregado: el envío
+public record EnvioCanceladoEvent(Long envioId, Long conductorId, LocalDateTime fecha) implements EventoDominio {
+
+    @Override
+    public Long agregadoId() {
+        return envioId;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.util.TipoGeocerca;
+
+import java.time.LocalDateTime;
+
+// El conductor de un envío llegó (llegada = true) o salió de la geocerca del origen o del destino.
+// avanzarA es el estado al que pasa el envío por esta detección; null si no cambia
+public record EnvioEnGeocercaEvent(Long envioId, Long conductorId, TipoGeocerca geocerca, boolean llegada,
+                                   EstadoEnvio avanzarA, LocalDateTime fecha) {
+}
@@ -0,0 +1,24 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.Envio;
+
+import java.time.LocalDateTime;
+
+// Agregado: el envío
+public record EnvioEntregadoEvent(Long envioId, Long pedidoId, String numeroPedido, Long conductorId, Long clienteId,
+                                  LocalDateTime fecha) implements EventoDominio {
+
+    @Override
+    public Long agregadoId() {
+        return envioId;
+    }
+
+    public static EnvioEntregadoEvent desde(Envio envio) {
+        return new EnvioEntregadoEvent(envio.getId(),
+                envio.getPedido() != null ? envio.getPedido().getId() : null,
+                envio.getPedido() != null ? envio.getPedido().getNumeroPedido() : null,
+                envio.getConductor() != null ? envio.getConductor().getId() : null,
+                envio.getPedido() != null && envio.getPedido().getCliente() != null ? envio.getPedido().getCliente().getId() : null,
+                envio.getFechaEntregaReal());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+
+import java.time.LocalDateTime;
+
+// Se publica cada vez que un envío entra en un estado (asignación, entrega...). Lleva sólo
+// identificadores y fechas para que los oyentes no dependan de entidades ya desconectadas
+public record EnvioEstadoCambiadoEvent(Long envioId, Long conductorId, Long vehiculoId, Long clienteId,
+                                       EstadoEnvio estadoNuevo, LocalDateTime fechaCambio,
+                                       LocalDateTime fechaCreacion, LocalDateTime fechaEntregaEstimada,
+                                       LocalDateTime fechaEntregaReal) {
+
+    // Requiere pedido y conductor asociados (basta con proxies: sólo se leen los IDs)
+    public static EnvioEstadoCambiadoEvent desde(Envio envio, LocalDateTime fechaCambio) {
+        return new EnvioEstadoCambiadoEvent(envio.getId(),
+                envio.getConductor() != null ? envio.getConductor().getId() : null,
+                envio.getVehiculo() != null ? envio.getVehiculo().getId() : null,
+                envio.getPedido() != null && envio.getPedido().getCliente() != null ? envio.getPedido().getCliente().getId() : null,
+                envio.getEstadoEnvio(), fechaCambio,
+                envio.getFechaCreacion(), envio.getFechaEntregaEstimada(), envio.getFechaEntregaReal());
+    }
+}
@@ -1,139 +1,347 @@
 package com.example.backend_logistica.services;
 
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.dto.EventoEnvioDTO;
 import com.example.backend_logistica.model.Conductor;
 import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EnvioArchivado;
+import com.example.backend_logistica.model.EnvioBase;
+import com.example.backend_logistica.model.EstadoEnvio;
 import com.example.backend_logistica.model.Pedido;
 import com.example.backend_logistica.model.Vehiculo;
 import com.example.backend_logistica.repository.ConductorRepository;
+import com.example.backend_logistica.repository.EnvioArchivadoRepository;
 import com.example.backend_logistica.repository.EnvioRepository;
 import com.example.backend_logistica.repository.PedidoRepository;
 import com.example.backend_logistica.repository.VehiculoRepository;
+import com.example.backend_logistica.util.CursorHistorial;
+import com.example.backend_logistica.util.GeoUtils;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// Cada método público es una observación: temporizador envios.servicio (etiquetas class y method) y,
+// con el muestreo de trazas, un span hijo del de la petición HTTP
 @Service
+@Observed(name = "envios.servicio")
 public class EnvioService {
 
     private final EnvioRepository envioRepository;
+    private final EnvioArchivadoRepository envioArchivadoRepository;
+    private final ArchivoEnvios archivoEnvios;
     private final PedidoRepository pedidoRepository;
     private final ConductorRepository conductorRepository;
     private final VehiculoRepository vehiculoRepository;
-    private final NotificacionService notificacionService; // Inject NotificacionService
+    private final IndiceGeoespacialConductores indiceGeoespacial;
+    private final IngestaUbicacionesService ingestaUbicaciones;
+    private final ReservasConductores reservasConductores;
+    private final MotorEta motorEta;
+    private final RegistroEventosEnvio registroEventos;
+    private final ApplicationEventPublisher eventos;
+    private final BusEventos busEventos;
+
+    private static final int CANDIDATOS_CERCANOS = 8; // Conductores cercanos a evaluar antes de recurrir a la lista completa
+    // Orden de los historiales (CursorHistorial): fecha de creación y id, del más reciente al más antiguo
+    private static final Comparator<EnvioBase> ORDEN_HISTORIAL = Comparator
+            .comparing(EnvioBase::getFechaCreacion, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(EnvioBase::getId)
+            .reversed();
 
     @Autowired
-    public EnvioService(EnvioRepository envioRepository, PedidoRepository pedidoRepository, ConductorRepository conductorRepository, VehiculoRepository vehiculoRepository, NotificacionService notificacionService) {
+    public EnvioService(EnvioRepository envioRepository, EnvioArchivadoRepository envioArchivadoRepository, ArchivoEnvios archivoEnvios, PedidoRepository pedidoRepository, ConductorRepository conductorRepository, VehiculoRepository vehiculoRepository, IndiceGeoespacialConductores indiceGeoespacial, IngestaUbicacionesService ingestaUbicaciones, ReservasConductores reservasConductores, MotorEta motorEta, RegistroEventosEnvio registroEventos, ApplicationEventPublisher eventos, BusEventos busEventos) {
         this.envioRepository = envioRepository;
+        this.envioArchivadoRepository = envioArchivadoRepository;
+        this.archivoEnvios = archivoEnvios;
         this.pedidoRepository = pedidoRepository;
         this.conductorRepository = conductorRepository;
         this.vehiculoRepository = vehiculoRepository;
-        this.notificacionService = notificacionService;
+        this.indiceGeoespacial = indiceGeoespacial;
+        this.ingestaUbicaciones = ingestaUbicaciones;
+        this.reservasConductores = reservasConductores;
+        this.motorEta = motorEta;
+        this.registroEventos = registroEventos;
+        this.eventos = eventos;
+        this.busEventos = busEventos;
+    }
+
+    // Listado general: sólo el conjunto vivo (envio). Los archivados se consultan por id, historial o exportación
+    @Transactional(readOnly = true)
+    public List<EnvioDTO> obtenerPaginaEnvios(Long cursor, int limite) {
+        return aDTOs(envioRepository.findByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, Limit.of(limite)));
+    }
+
+    // Debe consumirse dentro de una transacción y cerrarse al terminar. Primero el conjunto vivo y después
+    // el archivo, cada uno ordenado por id
+    public Stream<EnvioDTO> streamTodosEnvios() {
+        Stream<EnvioDTO> envios = envioRepository.streamTodosOrdenadosPorId().map(EnvioDTO::desde);
+        if (archivoEnvios.limiteArchivo().isEmpty()) {
+            return envios;
+        }
+        return Stream.concat(envios, envioArchivadoRepository.streamTodosOrdenadosPorId().map(EnvioDTO::desde));
     }
 
-    public List<Envio> obtenerTodosEnvios() {
-        return envioRepository.findAll();
+    // Por id: envio y, si no está y el archivo tiene filas, envio_archivo
+    @Transactional(readOnly = true)
+    public Optional<EnvioDTO> obtenerEnvioPorId(Long id) {
+        return envioRepository.findConDetalleById(id).map(EnvioDTO::desde)
+                .or(() -> enArchivo(() -> envioArchivadoRepository.findConDetalleById(id).map(EnvioDTO::desde)));
     }
 
-    public Optional<Envio> obtenerEnvioPorId(Long id) {
-        return envioRepository.findById(id);
+    public boolean existeEnvio(Long id) {
+        return envioRepository.existsById(id)
+                || (archivoEnvios.limiteArchivo().isPresent() && envioArchivadoRepository.existsById(id));
     }
 
-    public Envio guardarEnvio(Envio envio) {
+    // Alta directa: el envío empieza siempre en el estado inicial; los demás sólo se alcanzan con transiciones
+    @Transactional
+    public EnvioDTO guardarEnvio(Envio envio) {
         // Aquí podrías añadir validaciones de negocio específicas para el Envio antes de guardar
-        return envioRepository.save(envio);
+        if (envio.getFechaCreacion() == null) {
+            envio.setFechaCreacion(LocalDateTime.now()); // Sin fecha, el envío no aparecería en los historiales
+        }
+        envio.setId(null);
+        envio.setVersion(null);
+        envio.setEstadoEnvio(EstadoEnvio.ASIGNADO);
+        envio.setFechaEntregaReal(null);
+        envio.setUltimaClaveIdempotencia(null);
+        Envio envioGuardado = envioRepository.save(envio);
+        registroEventos.registrar(envioGuardado.getId(), EstadoEnvio.ASIGNADO, envioGuardado.getFechaCreacion(), null);
+        return EnvioDTO.desde(envioGuardado);
+    }
+
+    // Edición (PUT): se copian los datos editables sobre la fila actual; el estado y los datos de la entrega
+    // sólo cambian con transiciones. Si el cuerpo trae "version", una edición hecha sobre datos ya
+    // modificados por otro da conflicto en lugar de pisarlos
+    @Transactional
+    public EnvioDTO actualizarEnvio(Long id, Envio datos) {
+        Envio envio = buscarConDetalle(id);
+        if (datos.getVersion() != null && !datos.getVersion().equals(envio.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Envio.class, id);
+        }
+        envio.setPedido(datos.getPedido() != null && datos.getPedido().getId() != null
+                ? pedidoRepository.findConClienteById(datos.getPedido().getId())
+                        .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + datos.getPedido().getId()))
+                : null);
+        envio.setConductor(datos.getConductor() != null && datos.getConductor().getId() != null
+                ? conductorRepository.findConVehiculoById(datos.getConductor().getId())
+                        .orElseThrow(() -> new IllegalArgumentException("Conductor no encontrado con ID: " + datos.getConductor().getId()))
+                : null);
+        envio.setVehiculo(datos.getVehiculo() != null && datos.getVehiculo().getId() != null
+                ? vehiculoRepository.findById(datos.getVehiculo().getId())
+                        .orElseThrow(() -> new IllegalArgumentException("Vehículo no encontrado con ID: " + datos.getVehiculo().getId()))
+                : null);
+        envio.setFechaEntregaEstimada(datos.getFechaEntregaEstimada());
+        envio.setUbicacionOrigenLatitud(datos.getUbicacionOrigenLatitud());
+        envio.setUbicacionOrigenLongitud(datos.getUbicacionOrigenLongitud());
+        envio.setUbicacionDestinoLatitud(datos.getUbicacionDestinoLatitud());
+        envio.setUbicacionDestinoLongitud(datos.getUbicacionDestinoLongitud());
+        return EnvioDTO.desde(envioRepository.saveAndFlush(envio));
+    }
+
+    // Transición a cualquier estado; la entrega pasa por registrarEntrega (publica EnvioEntregadoEvent).
+    // Un reintento (misma clave de idempotencia o envío ya en ese estado) devuelve el envío sin escribir
+    @Transactional
+    public EnvioDTO cambiarEstado(Long envioId, EstadoEnvio destino, String claveIdempotencia) {
+        if (destino == EstadoEnvio.ENTREGADO) {
+            return registrarEntrega(envioId, null, null, null, claveIdempotencia);
+        }
+        Envio envio = buscarConDetalle(envioId);
+        LocalDateTime ahora = LocalDateTime.now();
+        if (!aplicarTransicion(envio, destino, claveIdempotencia, ahora)) {
+            return EnvioDTO.desde(envio);
+        }
+        Envio envioActualizado = envioRepository.saveAndFlush(envio);
+        eventos.publishEvent(EnvioEstadoCambiadoEvent.desde(envioActualizado, ahora));
+        if (destino == EstadoEnvio.CANCELADO) {
+            busEventos.publicar(new EnvioCanceladoEvent(envioActualizado.getId(),
+                    envioActualizado.getConductor() != null ? envioActualizado.getConductor().getId() : null, ahora));
+        }
+        return EnvioDTO.desde(envioActualizado);
+    }
+
+    // Referencias de las evidencias, con una consulta de una sola columna; vacío si no hay
+    public Optional<String> obtenerFirmaEntrega(Long envioId) {
+        return envioRepository.findFirmaEntregaById(envioId)
+                .or(() -> enArchivo(() -> envioArchivadoRepository.findFirmaEntregaById(envioId)));
+    }
+
+    // Firma de una entrega anterior a V6, que no pasó por el almacén: el texto que envió la app
+    public Optional<String> obtenerFirmaAnterior(Long envioId) {
+        return envioRepository.findFirmaDigitalEntregaById(envioId)
+                .or(() -> enArchivo(() -> envioArchivadoRepository.findFirmaDigitalEntregaById(envioId)));
+    }
+
+    public Optional<String> obtenerFotoEntrega(Long envioId) {
+        return envioRepository.findFotoEntregaById(envioId)
+                .or(() -> enArchivo(() -> envioArchivadoRepository.findFotoEntregaById(envioId)));
+    }
+
+    public List<EventoEnvioDTO> obtenerEventos(Long envioId) {
+        return registroEventos.obtenerEventos(envioId);
     }
 
+    @Transactional
     public void eliminarEnvio(Long id) {
-        envioRepository.deleteById(id);
+        if (envioRepository.existsById(id)) {
+            envioRepository.deleteById(id);
+        } else if (archivoEnvios.limiteArchivo().isPresent()) {
+            envioArchivadoRepository.deleteById(id);
+        }
     }
 
-    public Envio asignarEnvio(Long pedidoId) {
-        Optional<Pedido> pedidoOptional = pedidoRepository.findById(pedidoId);
+    @Transactional
+    public EnvioDTO asignarEnvio(Long pedidoId) {
+        return asignarEnvio(pedidoId, null, null);
+    }
+
+    @Transactional // Las llamadas internas no pasan por el proxy: la transacción se abre aquí
+    public EnvioDTO asignarEnvio(Long pedidoId, Double latitudOrigen, Double longitudOrigen) {
+        return asignarEnvio(pedidoId, latitudOrigen, longitudOrigen, null, null);
+    }
+
+    @Transactional
+    public EnvioDTO asignarEnvio(Long pedidoId, Double latitudOrigen, Double longitudOrigen, Double latitudDestino, Double longitudDestino) {
+        Optional<Pedido> pedidoOptional = pedidoRepository.findConClienteById(pedidoId);
         if (!pedidoOptional.isPresent()) {
             throw new IllegalArgumentException("Pedido no encontrado con ID: " + pedidoId);
         }
         Pedido pedido = pedidoOptional.get();
 
-        List<Conductor> conductoresDisponibles = conductorRepository.findByDisponibleTrue();
-        if (conductoresDisponibles.isEmpty()) {
-            throw new IllegalStateException("No hay conductores disponibles para asignar el pedido.");
-        }
-        Conductor conductorAsignado = conductoresDisponibles.get(0); // Simplemente asignamos el primer conductor disponible
+        Conductor conductorAsignado = reservarConductorMasCercano(latitudOrigen, longitudOrigen);
 
         Envio nuevoEnvio = new Envio();
         nuevoEnvio.setPedido(pedido);
         nuevoEnvio.setConductor(conductorAsignado);
         nuevoEnvio.setVehiculo(conductorAsignado.getVehiculo());
-        nuevoEnvio.setEstadoEnvio("Pendiente de Recolección");
-        nuevoEnvio.setFechaEntregaEstimada(LocalDateTime.now().plusHours(3));
+        LocalDateTime ahora = LocalDateTime.now();
+        nuevoEnvio.setEstadoEnvio(EstadoEnvio.ASIGNADO);
+        nuevoEnvio.setFechaCreacion(ahora); // Clave de orden de los historiales paginados
+        nuevoEnvio.setUbicacionOrigenLatitud(latitudOrigen);
+        nuevoEnvio.setUbicacionOrigenLongitud(longitudOrigen);
+        nuevoEnvio.setUbicacionDestinoLatitud(latitudDestino);
+        nuevoEnvio.setUbicacionDestinoLongitud(longitudDestino);
 
         conductorAsignado.setDisponible(false);
+        ingestaUbicaciones.aplicarUltimaPosicion(conductorAsignado); // No pisar una posición pendiente de escribir
+        nuevoEnvio.setFechaEntregaEstimada(motorEta.estimarEntrega(
+                conductorAsignado.getVehiculo() != null ? conductorAsignado.getVehiculo().getTipo() : null,
+                conductorAsignado.getUbicacionActualLatitud(), conductorAsignado.getUbicacionActualLongitud(),
+                latitudOrigen, longitudOrigen, latitudDestino, longitudDestino, ahora));
         conductorRepository.save(conductorAsignado);
+        indiceGeoespacial.marcarDisponibilidad(conductorAsignado.getId(), false);
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CONDUCTORES, conductorAsignado.getId()));
         Envio envioGuardado = envioRepository.save(nuevoEnvio);
+        registroEventos.registrar(envioGuardado.getId(), EstadoEnvio.ASIGNADO, ahora, null);
+        eventos.publishEvent(EnvioEstadoCambiadoEvent.desde(envioGuardado, ahora));
+        busEventos.publicar(EnvioAsignadoEvent.desde(envioGuardado, ahora)); // Aviso push al conductor (AvisosPushEnvios)
 
-        // --- Enviar Notificación Push al Conductor ---
-        String conductorDeviceToken = "TU_DEVICE_TOKEN_CONDUCTOR"; // **TODO: Obtener el device token del conductor (desde la BD o algún servicio de registro)**
-        if (conductorDeviceToken != null && !conductorDeviceToken.isEmpty()) {
-            notificacionService.enviarNotificacionPush(conductorDeviceToken,
-                    "Nuevo Envío Asignado",
-                    "Se te ha asignado el envío para el pedido: " + pedido.getNumeroPedido());
-        }
-        // --- Fin Notificación ---
+        return EnvioDTO.desde(envioGuardado);
+    }
 
-        return envioGuardado;
+    @Transactional
+    public EnvioDTO registrarEntrega(Long envioId, String codigoQrEntrega, String firmaEntrega) {
+        return registrarEntrega(envioId, codigoQrEntrega, firmaEntrega, null, null);
     }
 
-    public Envio registrarEntrega(Long envioId, String codigoQrEntrega, String firmaDigitalEntrega) {
-        Optional<Envio> envioOptional = envioRepository.findById(envioId);
-        if (!envioOptional.isPresent()) {
-            throw new IllegalArgumentException("Envío no encontrado con ID: " + envioId);
+    // Una entrega repetida (reintento de la app) devuelve el envío tal cual: no vuelve a publicar el cambio de
+    // estado ni EnvioEntregadoEvent (liberar al conductor y avisar al cliente). firmaEntrega y fotoEntrega son
+    // referencias de AlmacenEvidencias (la subida ya terminó antes de abrir la transacción)
+    @Transactional
+    public EnvioDTO registrarEntrega(Long envioId, String codigoQrEntrega, String firmaEntrega, String fotoEntrega,
+                                     String claveIdempotencia) {
+        Envio envio = buscarConDetalle(envioId);
+        LocalDateTime ahora = LocalDateTime.now();
+        if (!aplicarTransicion(envio, EstadoEnvio.ENTREGADO, claveIdempotencia, ahora)) {
+            return EnvioDTO.desde(envio);
         }
-        Envio envio = envioOptional.get();
 
-        envio.setEstadoEnvio("Entregado");
-        envio.setFechaEntregaReal(LocalDateTime.now());
+        envio.setFechaEntregaReal(ahora);
         envio.setCodigoQrEntrega(codigoQrEntrega);
-        envio.setFirmaDigitalEntrega(firmaDigitalEntrega);
+        envio.setFirmaEntrega(firmaEntrega);
+        envio.setFotoEntrega(fotoEntrega);
 
-        Conductor conductorAsignado = envio.getConductor();
-        if (conductorAsignado != null) {
-            conductorAsignado.setDisponible(true);
-            conductorRepository.save(conductorAsignado);
-        }
+        Envio envioEntregado = envioRepository.saveAndFlush(envio);
+        eventos.publishEvent(EnvioEstadoCambiadoEvent.desde(envioEntregado, envioEntregado.getFechaEntregaReal()));
+        busEventos.publicar(EnvioEntregadoEvent.desde(envioEntregado));
 
-        Envio envioEntregado = envioRepository.save(envio);
+        return EnvioDTO.desde(envioEntregado);
+    }
 
-        // --- Enviar Notificación Push al Cliente ---
-        String clienteDeviceToken = "TU_DEVICE_TOKEN_CLIENTE"; // **TODO: Obtener el device token del cliente (desde la BD o algún servicio de registro)**
-        if (clienteDeviceToken != null && !clienteDeviceToken.isEmpty()) {
-            notificacionService.enviarNotificacionPush(clienteDeviceToken,
-                    "Envío Entregado",
-                    "Tu envío para el pedido " + envio.getPedido().getNumeroPedido() + " ha sido entregado.");
-        }
-        // --- Fin Notificación ---
+    // --- Historial de Envíos y Reportes ---
+    @Transactional(readOnly = true)
+    public List<EnvioDTO> obtenerHistorialEnviosPorConductor(Long conductorId, CursorHistorial cursor, int limite) {
+        return historial(envioRepository.findHistorialPorConductor(conductorId, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)),
+                null, limite,
+                () -> envioArchivadoRepository.findHistorialPorConductor(conductorId, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)));
+    }
 
-        return envioEntregado;
+    @Transactional(readOnly = true)
+    public List<EnvioDTO> obtenerHistorialEnviosPorCliente(Long clienteId, CursorHistorial cursor, int limite) {
+        return historial(envioRepository.findHistorialPorCliente(clienteId, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)),
+                null, limite,
+                () -> envioArchivadoRepository.findHistorialPorCliente(clienteId, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)));
     }
 
-    // --- Historial de Envíos y Reportes ---
-    public List<Envio> obtenerHistorialEnviosPorConductor(Long conductorId) {
-        return envioRepository.findByConductorId(conductorId);
+    // Con estado, la consulta usa el índice (estado_envio, fecha_creacion); sin él, el de fecha_creacion
+    @Transactional(readOnly = true)
+    public List<EnvioDTO> obtenerHistorialEnviosPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin, EstadoEnvio estado,
+                                                               CursorHistorial cursor, int limite) {
+        if (estado != null) {
+            return historial(envioRepository.findHistorialPorEstadoYFechas(estado, fechaInicio, fechaFin, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)),
+                    fechaInicio, limite,
+                    () -> envioArchivadoRepository.findHistorialPorEstadoYFechas(estado, fechaInicio, fechaFin, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)));
+        }
+        return historial(envioRepository.findHistorialPorFechas(fechaInicio, fechaFin, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)),
+                fechaInicio, limite,
+                () -> envioArchivadoRepository.findHistorialPorFechas(fechaInicio, fechaFin, cursor.fechaCreacion(), cursor.id(), Limit.of(limite)));
     }
 
-    public List<Envio> obtenerHistorialEnviosPorCliente(Long clienteId) {
-        return envioRepository.findByPedidoClienteId(clienteId);
+    // Página de historial sobre envio y envio_archivo. El archivo sólo se consulta si puede aportar filas a la
+    // página: tiene envíos, el rango no empieza después de su límite y la página de envio no se llenó antes
+    // de llegar a él. Las dos partes vienen ya en el orden del cursor y se mezclan quedándose con 'limite'
+    private List<EnvioDTO> historial(List<Envio> calientes, LocalDateTime desde, int limite,
+                                     Supplier<List<EnvioArchivado>> archivados) {
+        Optional<LocalDateTime> limiteArchivo = archivoEnvios.limiteArchivo();
+        if (limiteArchivo.isEmpty() || (desde != null && desde.isAfter(limiteArchivo.get()))) {
+            return aDTOs(calientes);
+        }
+        if (calientes.size() == limite) {
+            LocalDateTime ultima = calientes.get(limite - 1).getFechaCreacion();
+            if (ultima != null && ultima.isAfter(limiteArchivo.get())) {
+                return aDTOs(calientes);
+            }
+        }
+        List<EnvioBase> pagina = new ArrayList<>(calientes);
+        pagina.addAll(archivados.get());
+        pagina.sort(ORDEN_HISTORIAL);
+        return pagina.stream().limit(limite).map(EnvioDTO::desde).toList();
     }
 
-    public List<Envio> obtenerHistorialEnviosPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        return envioRepository.findByFechaCreacionBetween(fechaInicio, fechaFin);
+    private <T> Optional<T> enArchivo(Supplier<Optional<T>> consulta) {
+        return archivoEnvios.limiteArchivo().isPresent() ? consulta.get() : Optional.empty();
     }
     // --- Fin Historial y Reportes ---
 
-    public Envio actualizarUbicacionConductor(Long envioId, Double latitud, Double longitud) {
-        Optional<Envio> envioOptional = envioRepository.findById(envioId);
+    // Transacción de escritura aunque sólo lea: un envío recién creado en la primaria puede no estar aún en la réplica
+    @Transactional
+    public EnvioDTO actualizarUbicacionConductor(Long envioId, Double latitud, Double longitud) {
+        Optional<Envio> envioOptional = envioRepository.findConDetalleById(envioId);
         if (!envioOptional.isPresent()) {
             throw new IllegalArgumentException("Envío no encontrado con ID: " + envioId);
         }
@@ -141,10 +349,99 @@ public class EnvioService {
         Conductor conductor = envio.getConductor();
 
         if (conductor != null) {
-            conductor.setUbicacionActualLatitud(latitud);
-            conductor.setUbicacionActualLongitud(longitud);
-            conductorRepository.save(conductor);
+            // El ping se encola para la escritura por lotes; aquí no se actualiza la fila del conductor
+            if (!ingestaUbicaciones.registrarPing(conductor.getId(), latitud, longitud)) {
+                throw new IllegalStateException("Cola de ubicaciones llena, reintente más tarde.");
+            }
+            ingestaUbicaciones.aplicarUltimaPosicion(conductor);
+        }
+        return EnvioDTO.desde(envio);
+    }
+
+    // Con origen conocido se consulta el índice geoespacial; si no hay candidatos con posición
+    // se mantiene el comportamiento anterior (primer conductor disponible). Los candidatos se leen con una
+    // sola consulta y se recorren por distancia; cada uno se reserva en memoria antes de elegirlo, así dos
+    // asignaciones concurrentes nunca toman al mismo conductor. Una lectura anterior a la asignación de otra
+    // transacción no basta para tomarlo: al confirmarse, esa asignación marca el conductor como ocupado en
+    // el índice antes de soltar su reserva, y reservar() lo comprueba. La reserva se libera cuando termina
+    // la transacción.
+    private Conductor reservarConductorMasCercano(Double latitudOrigen, Double longitudOrigen) {
+        if (GeoUtils.coordenadasValidas(latitudOrigen, longitudOrigen)) {
+            List<Long> idsCercanos = indiceGeoespacial.buscarCercanos(latitudOrigen, longitudOrigen, CANDIDATOS_CERCANOS);
+            Map<Long, Conductor> candidatos = idsCercanos.isEmpty() ? Map.of()
+                    : conductorRepository.findConVehiculoByIdIn(idsCercanos).stream()
+                            .collect(Collectors.toMap(Conductor::getId, Function.identity()));
+            for (Long conductorId : idsCercanos) {
+                Conductor candidato = candidatos.get(conductorId);
+                if (candidato == null || !candidato.isDisponible() || !reservasConductores.reservar(conductorId)) {
+                    continue;
+                }
+                reservasConductores.liberarAlTerminarTransaccion(conductorId);
+                return candidato;
+            }
+        }
+
+        for (Conductor conductor : conductorRepository.findByDisponibleTrue()) {
+            if (reservasConductores.reservar(conductor.getId())) {
+                reservasConductores.liberarAlTerminarTransaccion(conductor.getId());
+                return conductor;
+            }
         }
-        return envio;
+        throw new IllegalStateException("No hay conductores disponibles para asignar el pedido.");
+    }
+
+    private Envio buscarConDetalle(Long envioId) {
+        return envioRepository.findConDetalleById(envioId)
+                .orElseThrow(() -> new IllegalArgumentException("Envío no encontrado con ID: " + envioId));
+    }
+
+    // Falso si no hay nada que escribir: la clave es la de la última transición (basta la fila del envío),
+    // el envío ya está en el estado pedido o la clave es de una transición anterior. Si la transición no
+    // está permitida lanza IllegalStateException. El evento se inserta antes de tocar la entidad: si el
+    // mismo reintento llega en paralelo, el índice único lo rechaza y se trata como ya aplicado
+    private boolean aplicarTransicion(Envio envio, EstadoEnvio destino, String claveIdempotencia, LocalDateTime fecha) {
+        if (claveIdempotencia != null && claveIdempotencia.equals(envio.getUltimaClaveIdempotencia())) {
+            return false;
+        }
+        if (envio.getEstadoEnvio() == destino) {
+            return false;
+        }
+        if (claveIdempotencia != null && registroEventos.claveAplicada(envio.getId(), claveIdempotencia)) {
+            return false;
+        }
+        if (envio.getEstadoEnvio() != null && !envio.getEstadoEnvio().puedePasarA(destino)) {
+            throw new IllegalStateException("El envío " + envio.getId() + " está en estado \"" + envio.getEstadoEnvio().getEtiqueta()
+                    + "\" y no puede pasar a \"" + destino.getEtiqueta() + "\"");
+        }
+        try {
+            registroEventos.registrar(envio.getId(), destino, fecha, claveIdempotencia);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        envio.setEstadoEnvio(destino);
+        envio.setUltimaClaveIdempotencia(claveIdempotencia);
+        return true;
+    }
+
+    // Con una ruta de varias paradas el conductor queda libre al cerrar (entregar o cancelar) su último envío.
+    // Lo llama LiberacionConductores con el evento de la entrega o la cancelación ya confirmada
+    @Transactional
+    public void liberarConductorSiNoLlevaOtros(Long conductorId, Long envioId) {
+        if (envioRepository.existenOtrosSinEntregar(conductorId, envioId, EstadoEnvio.CANCELADO)) {
+            return;
+        }
+        Optional<Conductor> conductor = conductorRepository.findById(conductorId);
+        if (conductor.isEmpty() || conductor.get().isDisponible()) {
+            return;
+        }
+        conductor.get().setDisponible(true);
+        ingestaUbicaciones.aplicarUltimaPosicion(conductor.get());
+        conductorRepository.save(conductor.get());
+        indiceGeoespacial.marcarDisponibilidad(conductorId, true);
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.CONDUCTORES, conductorId));
+    }
+
+    private static List<EnvioDTO> aDTOs(List<Envio> envios) {
+        return envios.stream().map(EnvioDTO::desde).toList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package com.example.backend_logistica.services;
+
+// Eventos que salen por la bandeja de salida (BusEventos) hacia consumidores asíncronos. A diferencia de
+// EnvioEstadoCambiadoEvent (oyentes en memoria al confirmar), quedan guardados con la transacción que los
+// origina: se entregan aunque la instancia caiga justo después. Los de un mismo agregado (agregadoId) llegan
+// a cada consumidor en el orden en que se publicaron; un evento puede llegar más de una vez
+public sealed interface EventoDominio
+        permits EnvioAsignadoEvent, EnvioEntregadoEvent, EnvioCanceladoEvent, UbicacionActualizadaEvent {
+
+    Long agregadoId();
+}
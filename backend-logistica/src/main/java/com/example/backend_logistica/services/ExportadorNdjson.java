@@ -0,0 +1,63 @@
+package com.example.backend_logistica.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Vuelca un Stream de entidades como NDJSON (un objeto JSON por línea) en memoria constante:
+// el cursor JDBC se lee por bloques y el contexto de persistencia se vacía periódicamente.
+@Service
+public class ExportadorNdjson {
+
+    private static final int FILAS_POR_BLOQUE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transaccionLectura;
+    private final ObjectWriter escritorJson;
+
+    @Autowired
+    public ExportadorNdjson(PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.escritorJson = objectMapper.writer();
+    }
+
+    // El Stream debe abrirse dentro de la transacción, por eso se recibe un Supplier
+    public <T> StreamingResponseBody exportar(Supplier<Stream<T>> origen) {
+        return salida -> transaccionLectura.executeWithoutResult(estado -> {
+            try (Stream<T> filas = origen.get()) {
+                escribir(filas.iterator(), salida);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private <T> void escribir(Iterator<T> filas, OutputStream salida) throws IOException {
+        int escritas = 0;
+        while (filas.hasNext()) {
+            salida.write(escritorJson.writeValueAsBytes(filas.next()));
+            salida.write('\n');
+            if (++escritas % FILAS_POR_BLOQUE == 0) {
+                entityManager.clear(); // Libera las entidades ya serializadas
+                salida.flush();
+            }
+        }
+        salida.flush();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.backend_logistica.services;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "notificaciones.push.proveedor", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseClienteMensajeriaPush implements ClienteMensajeriaPush {
+
+    private final FirebaseMessaging firebaseMessaging;
+
+    public FirebaseClienteMensajeriaPush(FirebaseMessaging firebaseMessaging) {
+        this.firebaseMessaging = firebaseMessaging;
+    }
+
+    @Override
+    public List<ResultadoEnvioPush> enviarLote(List<NotificacionPush> notificaciones) {
+        List<Message> mensajes = new ArrayList<>(notificaciones.size());
+        for (NotificacionPush notificacion : notificaciones) {
+            mensajes.add(Message.builder()
+                    .setToken(notificacion.deviceToken()) // Token del dispositivo al que enviar la notificación
+                    .setNotification(Notification.builder()
+                            .setTitle(notificacion.titulo())
+                            .setBody(notificacion.cuerpo())
+                            .build())
+                    .build());
+        }
+
+        try {
+            BatchResponse respuesta = firebaseMessaging.sendEach(mensajes);
+            List<ResultadoEnvioPush> resultados = new ArrayList<>(mensajes.size());
+            for (SendResponse envio : respuesta.getResponses()) {
+                if (envio.isSuccessful()) {
+                    resultados.add(ResultadoEnvioPush.ok());
+                } else {
+                    FirebaseMessagingException error = envio.getException();
+                    resultados.add(ResultadoEnvioPush.fallo(esReintentable(error), error.getMessage()));
+                }
+            }
+            return resultados;
+        } catch (FirebaseMessagingException e) {
+            // Falló la llamada completa (red, credenciales, cuota): todo el lote se reintenta
+            return Collections.nCopies(mensajes.size(), ResultadoEnvioPush.fallo(true, e.getMessage()));
+        }
+    }
+
+    private static boolean esReintentable(FirebaseMessagingException error) {
+        MessagingErrorCode codigo = error.getMessagingErrorCode();
+        // Sin código específico (errores HTTP 5xx o de transporte) también se reintenta
+        return codigo == null
+                || codigo == MessagingErrorCode.UNAVAILABLE
+                || codigo == MessagingErrorCode.INTERNAL
+                || codigo == MessagingErrorCode.QUOTA_EXCEEDED;
+    }
+}
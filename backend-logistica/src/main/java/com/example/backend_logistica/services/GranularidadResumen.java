@@ -0,0 +1,34 @@
+package com.example.backend_logistica.services;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+public enum GranularidadResumen {
+    HORA(ChronoUnit.HOURS),
+    DIA(ChronoUnit.DAYS);
+
+    private final ChronoUnit unidad;
+
+    GranularidadResumen(ChronoUnit unidad) {
+        this.unidad = unidad;
+    }
+
+    public LocalDateTime inicioPeriodo(LocalDateTime fecha) {
+        return fecha.truncatedTo(unidad);
+    }
+
+    // Número de periodos completos o parciales entre dos fechas (para acotar las consultas)
+    public long periodosEntre(LocalDateTime desde, LocalDateTime hasta) {
+        return unidad.between(inicioPeriodo(desde), inicioPeriodo(hasta)) + 1;
+    }
+
+    public static Optional<GranularidadResumen> desdeParametro(String valor) {
+        for (GranularidadResumen granularidad : values()) {
+            if (granularidad.name().equalsIgnoreCase(valor)) {
+                return Optional.of(granularidad);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.util.CodificacionTrayectoria;
+import com.example.backend_logistica.util.DouglasPeucker;
+import com.example.backend_logistica.util.PuntoTrayectoria;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Historial de posiciones de los conductores (solo inserción). Los pings que drena la ingesta se
+// acumulan en memoria por conductor; cada tramo se sella al llenarse o al cumplir su duración máxima,
+// se simplifica con Douglas–Peucker y se guarda codificado en una sola fila de tramo_trayectoria.
+// La base de datos crece con los kilómetros recorridos, no con la frecuencia de los pings, y la
+// retención se aplica con una purga diaria.
+@Service
+public class HistorialUbicacionesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistorialUbicacionesService.class);
+
+    private static final String SQL_INSERTAR_TRAMO =
+            "INSERT INTO tramo_trayectoria (conductor_id, inicio_ms, fin_ms, puntos, datos) VALUES (?, ?, ?, ?, ?)";
+    // Un tramo nunca dura más que duracionMaxTramoMs: con el límite inferior de inicio_ms la consulta
+    // recorre solo el rango del índice que corresponde a la ventana
+    private static final String SQL_TRAMOS = "SELECT datos FROM tramo_trayectoria "
+            + "WHERE conductor_id = ? AND inicio_ms >= ? AND inicio_ms <= ? AND fin_ms >= ? ORDER BY inicio_ms";
+    private static final String SQL_PURGAR = "DELETE FROM tramo_trayectoria WHERE fin_ms < ? LIMIT ?";
+    private static final int FILAS_POR_PURGA = 10000;
+    private static final int FACTOR_MAX_EN_MEMORIA = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final int puntosPorTramo;
+    private final long duracionMaxTramoMs;
+    private final double toleranciaMetros;
+    private final long maxIntervaloMs;
+    private final int retencionDias;
+    private final int tamanoLoteJdbc;
+
+    // Tramos abiertos por conductor; los usan el hilo de la ingesta, el sellado y las consultas
+    private final Map<Long, TramoEnCurso> enCurso = new HashMap<>();
+
+    private final Counter puntosRecibidos;
+    private final Counter puntosGuardados;
+    private final Counter puntosDescartados;
+    private final DistributionSummary bytesPorTramo;
+
+    @Autowired
+    public HistorialUbicacionesService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${ubicaciones.historial.puntos-por-tramo:720}") int puntosPorTramo,
+                                       @Value("${ubicaciones.historial.duracion-max-tramo-ms:600000}") long duracionMaxTramoMs,
+                                       @Value("${ubicaciones.historial.tolerancia-metros:5}") double toleranciaMetros,
+                                       @Value("${ubicaciones.historial.max-intervalo-ms:60000}") long maxIntervaloMs,
+                                       @Value("${ubicaciones.historial.retencion-dias:180}") int retencionDias,
+                                       @Value("${ubicaciones.historial.tamano-lote-jdbc:200}") int tamanoLoteJdbc) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.puntosPorTramo = puntosPorTramo;
+        this.duracionMaxTramoMs = duracionMaxTramoMs;
+        this.toleranciaMetros = toleranciaMetros;
+        this.maxIntervaloMs = maxIntervaloMs;
+        this.retencionDias = retencionDias;
+        this.tamanoLoteJdbc = tamanoLoteJdbc;
+
+        this.puntosRecibidos = Counter.builder("ubicaciones.historial.puntos").tag("resultado", "recibido").register(meterRegistry);
+        this.puntosGuardados = Counter.builder("ubicaciones.historial.puntos").tag("resultado", "guardado").register(meterRegistry);
+        this.puntosDescartados = Counter.builder("ubicaciones.historial.puntos").tag("resultado", "descartado").register(meterRegistry);
+        this.bytesPorTramo = DistributionSummary.builder("ubicaciones.historial.tramo.bytes")
+                .description("Tamaño codificado de cada tramo de trayectoria guardado")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Pings drenados por la ingesta, antes de la coalescencia (el historial guarda todos, no solo el último)
+    public void registrar(List<PosicionConductor> posiciones) {
+        List<TramoEnCurso> llenos = new ArrayList<>();
+        synchronized (enCurso) {
+            for (PosicionConductor posicion : posiciones) {
+                TramoEnCurso tramo = enCurso.computeIfAbsent(posicion.conductorId(), TramoEnCurso::new);
+                tramo.puntos.add(new PuntoTrayectoria(posicion.marcaTiempo(), posicion.latitud(), posicion.longitud()));
+                if (tramo.puntos.size() >= puntosPorTramo) {
+                    llenos.add(enCurso.remove(posicion.conductorId()));
+                }
+            }
+        }
+        puntosRecibidos.increment(posiciones.size());
+        guardar(llenos);
+    }
+
+    @Scheduled(fixedDelayString = "${ubicaciones.historial.intervalo-sellado-ms:30000}")
+    public void sellarVencidos() {
+        long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(duracionMaxTramoMs);
+        List<TramoEnCurso> vencidos = new ArrayList<>();
+        synchronized (enCurso) {
+            Iterator<TramoEnCurso> tramos = enCurso.values().iterator();
+            while (tramos.hasNext()) {
+                TramoEnCurso tramo = tramos.next();
+                if (tramo.abiertoNanos - limite <= 0) {
+                    vencidos.add(tramo);
+                    tramos.remove();
+                }
+            }
+        }
+        guardar(vencidos);
+    }
+
+    // Puntos guardados y aún en memoria dentro de [desdeMs, hastaMs], ordenados por tiempo
+    public List<PuntoTrayectoria> obtenerPuntos(Long conductorId, long desdeMs, long hastaMs) {
+        List<PuntoTrayectoria> puntos = new ArrayList<>();
+        jdbcTemplate.query(SQL_TRAMOS, rs -> {
+            for (PuntoTrayectoria punto : CodificacionTrayectoria.decodificar(rs.getBytes(1))) {
+                if (punto.marcaTiempo() >= desdeMs && punto.marcaTiempo() <= hastaMs) {
+                    puntos.add(punto);
+                }
+            }
+        }, conductorId, desdeMs - duracionMaxTramoMs, hastaMs, desdeMs);
+        synchronized (enCurso) {
+            TramoEnCurso tramo = enCurso.get(conductorId);
+            if (tramo != null) {
+                for (PuntoTrayectoria punto : tramo.puntos) {
+                    if (punto.marcaTiempo() >= desdeMs && punto.marcaTiempo() <= hastaMs) {
+                        puntos.add(punto);
+                    }
+                }
+            }
+        }
+        // Los tramos pueden solaparse en el tiempo si llegaron pings atrasados
+        puntos.sort(Comparator.comparingLong(PuntoTrayectoria::marcaTiempo));
+        return puntos;
+    }
+
+    @Scheduled(cron = "${ubicaciones.historial.cron-purga:0 30 3 * * *}")
+    public void purgarAntiguos() {
+        long limite = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retencionDias);
+        int borradas;
+        int total = 0;
+        // Borrado por bloques para no mantener un bloqueo largo sobre la tabla mientras entra la ingesta
+        do {
+            borradas = jdbcTemplate.update(SQL_PURGAR, limite, FILAS_POR_PURGA);
+            total += borradas;
+        } while (borradas == FILAS_POR_PURGA);
+        if (total > 0) {
+            logger.info("Purgados {} tramos de trayectoria anteriores a {} días", total, retencionDias);
+        }
+    }
+
+    @PreDestroy
+    public void sellarAntesDeApagar() {
+        List<TramoEnCurso> abiertos;
+        synchronized (enCurso) {
+            abiertos = new ArrayList<>(enCurso.values());
+            enCurso.clear();
+        }
+        guardar(abiertos);
+    }
+
+    private void guardar(List<TramoEnCurso> tramos) {
+        if (tramos.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas = new ArrayList<>();
+        for (TramoEnCurso tramo : tramos) {
+            tramo.puntos.sort(Comparator.comparingLong(PuntoTrayectoria::marcaTiempo));
+            List<PuntoTrayectoria> simplificados = DouglasPeucker.simplificar(tramo.puntos, toleranciaMetros, maxIntervaloMs);
+            // Con pings atrasados un tramo puede abarcar más que la duración máxima: se parte para que
+            // la consulta por ventana (SQL_TRAMOS) lo encuentre
+            int inicio = 0;
+            for (int i = 1; i <= simplificados.size(); i++) {
+                if (i == simplificados.size()
+                        || simplificados.get(i).marcaTiempo() - simplificados.get(inicio).marcaTiempo() > duracionMaxTramoMs) {
+                    List<PuntoTrayectoria> parte = simplificados.subList(inicio, i);
+                    byte[] datos = CodificacionTrayectoria.codificar(parte);
+                    filas.add(new Object[]{tramo.conductorId, parte.get(0).marcaTiempo(), parte.get(parte.size() - 1).marcaTiempo(),
+                            parte.size(), datos});
+                    bytesPorTramo.record(datos.length);
+                    inicio = i;
+                }
+            }
+        }
+        try {
+            // En una transacción: si falla a mitad, el reintento no duplica los tramos ya insertados
+            transaccion.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(SQL_INSERTAR_TRAMO, filas, tamanoLoteJdbc,
+                    (ps, fila) -> {
+                        ps.setLong(1, (Long) fila[0]);
+                        ps.setLong(2, (Long) fila[1]);
+                        ps.setLong(3, (Long) fila[2]);
+                        ps.setInt(4, (Integer) fila[3]);
+                        ps.setBytes(5, (byte[]) fila[4]);
+                    }));
+            filas.forEach(fila -> puntosGuardados.increment((Integer) fila[3]));
+        } catch (RuntimeException e) {
+            logger.error("Error al guardar {} tramos de trayectoria; se reintentan en el siguiente sellado: ", tramos.size(), e);
+            devolver(tramos);
+        }
+    }
+
+    // Tras un fallo de escritura los puntos vuelven a memoria, con un límite para no agotar el heap
+    // si la base de datos sigue caída
+    private void devolver(List<TramoEnCurso> tramos) {
+        synchronized (enCurso) {
+            for (TramoEnCurso tramo : tramos) {
+                TramoEnCurso actual = enCurso.get(tramo.conductorId);
+                if (actual != null) {
+                    tramo.puntos.addAll(actual.puntos);
+                }
+                if (tramo.puntos.size() > puntosPorTramo * FACTOR_MAX_EN_MEMORIA) {
+                    puntosDescartados.increment(tramo.puntos.size());
+                    enCurso.remove(tramo.conductorId);
+                } else {
+                    enCurso.put(tramo.conductorId, tramo);
+                }
+            }
+        }
+    }
+
+    private static final class TramoEnCurso {
+        final Long conductorId;
+        final long abiertoNanos = System.nanoTime();
+        final List<PuntoTrayectoria> puntos = new ArrayList<>();
+
+        TramoEnCurso(Long conductorId) {
+            this.conductorId = conductorId;
+        }
+    }
+}
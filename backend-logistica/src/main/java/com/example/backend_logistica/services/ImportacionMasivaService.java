@@ -0,0 +1,263 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.ErrorImportacionDTO;
+import com.example.backend_logistica.dto.ResultadoImportacionDTO;
+import com.example.backend_logistica.util.LectorRegistros;
+import com.example.backend_logistica.util.RegistroImportacion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Importación masiva de clientes, pedidos y envíos desde CSV o NDJSON, en streaming y en dos etapas:
+// el hilo de la petición lee y valida registros y arma bloques; un hilo escritor comprueba las claves
+// foráneas de cada bloque con una consulta y lo inserta con un único batch JDBC en su propia transacción
+// (rewriteBatchedStatements lo convierte en un INSERT multi-fila; sin Hibernate, IDENTITY no impide
+// agrupar porque no hace falta leer las claves generadas). La cola entre etapas es corta: si la base
+// de datos va lenta, la lectura espera en lugar de acumular el archivo en memoria.
+// Los bloques confirmados quedan guardados aunque otros fallen; el resultado informa cada registro rechazado.
+@Service
+public class ImportacionMasivaService {
+
+    private static final int IDS_POR_CONSULTA = 500;
+    private static final int MAX_LARGO_MENSAJE = 300;
+    private static final List<FilaImportacion> FIN = List.of();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final ObjectMapper objectMapper;
+    private final int registrosPorBloque;
+    private final int bloquesEnCola;
+    private final int maxErroresReportados;
+    private final Semaphore importacionesActivas;
+    private final ExecutorService escritores;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ImportacionMasivaService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${importacion.registros-por-bloque:1000}") int registrosPorBloque,
+                                    @Value("${importacion.bloques-en-cola:4}") int bloquesEnCola,
+                                    @Value("${importacion.max-errores-reportados:1000}") int maxErroresReportados,
+                                    @Value("${importacion.max-simultaneas:2}") int maxSimultaneas,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean hilosVirtuales) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.registrosPorBloque = registrosPorBloque;
+        this.bloquesEnCola = bloquesEnCola;
+        this.maxErroresReportados = maxErroresReportados;
+        this.importacionesActivas = new Semaphore(maxSimultaneas);
+        ThreadFactory fabricaHilos = hilosVirtuales
+                ? Thread.ofVirtual().name("importacion-", 0).factory()
+                : Thread.ofPlatform().name("importacion-", 0).daemon(true).factory();
+        this.escritores = Executors.newFixedThreadPool(maxSimultaneas, fabricaHilos);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // IllegalArgumentException si el formato no se reconoce; RejectedExecutionException si ya hay
+    // max-simultaneas importaciones en curso
+    public ResultadoImportacionDTO importar(TipoImportacion tipo, String tipoContenido, InputStream entrada) throws IOException {
+        if (!importacionesActivas.tryAcquire()) {
+            throw new RejectedExecutionException("Demasiadas importaciones en curso");
+        }
+        try {
+            return ejecutar(tipo, LectorRegistros.abrir(tipoContenido, entrada, objectMapper));
+        } finally {
+            importacionesActivas.release();
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        escritores.shutdownNow();
+    }
+
+    private ResultadoImportacionDTO ejecutar(TipoImportacion tipo, LectorRegistros lector) throws IOException {
+        long inicio = System.nanoTime();
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        Acumulado acumulado = new Acumulado();
+        BlockingQueue<List<FilaImportacion>> cola = new ArrayBlockingQueue<>(bloquesEnCola);
+        Future<?> escritor = escritores.submit(() -> escribir(tipo, cola, acumulado));
+        long leidos = 0;
+        try {
+            List<FilaImportacion> bloque = new ArrayList<>(registrosPorBloque);
+            RegistroImportacion registro;
+            while ((registro = lector.siguiente()) != null && !escritor.isDone()) {
+                leidos++;
+                if (registro.error() != null) {
+                    acumulado.rechazar(registro.linea(), registro.error());
+                    continue;
+                }
+                try {
+                    bloque.add(new FilaImportacion(registro.linea(), tipo.convertir(registro, ahora)));
+                } catch (IllegalArgumentException e) {
+                    acumulado.rechazar(registro.linea(), e.getMessage());
+                    continue;
+                }
+                if (bloque.size() == registrosPorBloque) {
+                    encolar(cola, bloque, escritor);
+                    bloque = new ArrayList<>(registrosPorBloque);
+                }
+            }
+            if (!bloque.isEmpty()) {
+                encolar(cola, bloque, escritor);
+            }
+            encolar(cola, FIN, escritor);
+            escritor.get();
+        } catch (InterruptedException e) {
+            escritor.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación interrumpida", e);
+        } catch (ExecutionException e) {
+            // Fallo de la base de datos distinto de una fila inválida: lo ya confirmado se queda
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al escribir la importación", e.getCause());
+        } finally {
+            escritor.cancel(true); // Si la lectura falló, el escritor no debe quedar esperando bloques
+        }
+
+        String etiqueta = tipo.name().toLowerCase();
+        Counter.builder("importacion.registros").tag("tipo", etiqueta).tag("resultado", "insertado")
+                .register(meterRegistry).increment(acumulado.insertados);
+        Counter.builder("importacion.registros").tag("tipo", etiqueta).tag("resultado", "rechazado")
+                .register(meterRegistry).increment(acumulado.rechazados);
+        return acumulado.resultado(etiqueta, leidos, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    private static void encolar(BlockingQueue<List<FilaImportacion>> cola, List<FilaImportacion> bloque, Future<?> escritor)
+            throws InterruptedException {
+        // Con espera acotada: si el escritor terminó con error nadie vaciará la cola
+        while (!cola.offer(bloque, 100, TimeUnit.MILLISECONDS)) {
+            if (escritor.isDone()) {
+                return;
+            }
+        }
+    }
+
+    private void escribir(TipoImportacion tipo, BlockingQueue<List<FilaImportacion>> cola, Acumulado acumulado)
+            throws InterruptedException {
+        List<FilaImportacion> bloque;
+        while ((bloque = cola.take()) != FIN) {
+            insertar(tipo, descartarReferenciasInexistentes(tipo, bloque, acumulado), acumulado);
+        }
+    }
+
+    private List<FilaImportacion> descartarReferenciasInexistentes(TipoImportacion tipo, List<FilaImportacion> bloque, Acumulado acumulado) {
+        List<FilaImportacion> validas = bloque;
+        for (TipoImportacion.Referencia referencia : tipo.getReferencias()) {
+            Set<Long> buscados = new HashSet<>();
+            for (FilaImportacion fila : validas) {
+                if (fila.valores()[referencia.parametro()] != null) {
+                    buscados.add((Long) fila.valores()[referencia.parametro()]);
+                }
+            }
+            Set<Long> existentes = existentes(referencia.tabla(), new ArrayList<>(buscados));
+            if (existentes.size() == buscados.size()) {
+                continue;
+            }
+            List<FilaImportacion> filtradas = new ArrayList<>(validas.size());
+            for (FilaImportacion fila : validas) {
+                Object id = fila.valores()[referencia.parametro()];
+                if (id == null || existentes.contains(id)) {
+                    filtradas.add(fila);
+                } else {
+                    acumulado.rechazar(fila.linea(), "No existe " + referencia.campo() + " " + id);
+                }
+            }
+            validas = filtradas;
+        }
+        return validas;
+    }
+
+    // La tabla viene de TipoImportacion, nunca de la entrada
+    private Set<Long> existentes(String tabla, List<Long> ids) {
+        Set<Long> existentes = new HashSet<>(ids.size() * 2);
+        for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+            List<Long> parte = ids.subList(desde, Math.min(ids.size(), desde + IDS_POR_CONSULTA));
+            existentes.addAll(jdbcTemplate.queryForList("SELECT id FROM " + tabla + " WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(parte.size(), "?")) + ")", Long.class, parte.toArray()));
+        }
+        return existentes;
+    }
+
+    private void insertar(TipoImportacion tipo, List<FilaImportacion> filas, Acumulado acumulado) {
+        if (filas.isEmpty()) {
+            return;
+        }
+        List<Object[]> valores = filas.stream().map(FilaImportacion::valores).toList();
+        try {
+            transaccion.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(tipo.getSqlInsertar(), valores, tipo.getTiposSql()));
+            acumulado.insertar(filas.size());
+        } catch (DataIntegrityViolationException e) {
+            // El bloque se revirtió entero: se repite fila a fila para aislar las que violan una restricción
+            for (FilaImportacion fila : filas) {
+                try {
+                    transaccion.executeWithoutResult(estado -> jdbcTemplate.update(tipo.getSqlInsertar(), fila.valores(), tipo.getTiposSql()));
+                    acumulado.insertar(1);
+                } catch (DataIntegrityViolationException violacion) {
+                    String mensaje = violacion.getMostSpecificCause().getMessage();
+                    acumulado.rechazar(fila.linea(), mensaje.length() > MAX_LARGO_MENSAJE ? mensaje.substring(0, MAX_LARGO_MENSAJE) : mensaje);
+                }
+            }
+        }
+    }
+
+    private record FilaImportacion(long linea, Object[] valores) {
+    }
+
+    // Lo usan el hilo lector y el escritor
+    private final class Acumulado {
+        private final List<ErrorImportacionDTO> errores = new ArrayList<>();
+        private long insertados;
+        private long rechazados;
+
+        synchronized void insertar(int registros) {
+            insertados += registros;
+        }
+
+        synchronized void rechazar(long linea, String mensaje) {
+            rechazados++;
+            if (errores.size() < maxErroresReportados) {
+                errores.add(new ErrorImportacionDTO(linea, mensaje));
+            }
+        }
+
+        synchronized ResultadoImportacionDTO resultado(String tipo, long leidos, long duracionMs) {
+            // Los rechazos del lector y del escritor llegan intercalados
+            errores.sort(Comparator.comparingLong(ErrorImportacionDTO::getLinea));
+            return new ResultadoImportacionDTO(tipo, leidos, insertados, rechazados, errores, duracionMs);
+        }
+    }
+}
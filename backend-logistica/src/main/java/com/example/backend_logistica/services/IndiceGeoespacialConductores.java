@@ -0,0 +1,258 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.repository.ConductorRepository;
+import com.example.backend_logistica.util.GeoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Índice en memoria (rejilla de celdas lat/lon) con la posición de los conductores disponibles.
+// Permite responder "k conductores disponibles más cercanos" sin recorrer la tabla conductor.
+// Qué conductores están ocupados se guarda aparte, tengan o no posición: ReservasConductores lo consulta
+// también para los que se asignan sin haber enviado nunca su ubicación.
+@Service
+public class IndiceGeoespacialConductores {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceGeoespacialConductores.class);
+
+    private static final double TAMANO_CELDA_GRADOS = 0.01; // ~1.1 km de lado en el ecuador
+    private static final int MAX_ANILLOS = 64; // Más allá de ~70 km se recurre a un recorrido completo
+
+    private final ConductorRepository conductorRepository;
+
+    // celda -> conductores disponibles dentro de ella
+    private final ConcurrentHashMap<Long, Set<Long>> celdas = new ConcurrentHashMap<>();
+    // conductor -> última posición conocida (disponible o no)
+    private final ConcurrentHashMap<Long, PosicionIndexada> posiciones = new ConcurrentHashMap<>();
+    // conductores no disponibles, con o sin posición
+    private final Set<Long> ocupados = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger disponiblesIndexados = new AtomicInteger();
+
+    @Autowired
+    public IndiceGeoespacialConductores(ConductorRepository conductorRepository) {
+        this.conductorRepository = conductorRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarIndice() {
+        int cargados = 0;
+        for (Conductor conductor : conductorRepository.findAll()) {
+            actualizar(conductor); // También los que no tienen posición, para saber si están ocupados
+            if (GeoUtils.coordenadasValidas(conductor.getUbicacionActualLatitud(), conductor.getUbicacionActualLongitud())) {
+                cargados++;
+            }
+        }
+        logger.info("Índice geoespacial cargado con {} conductores ({} disponibles)", cargados, disponiblesIndexados.get());
+    }
+
+    public void actualizar(Conductor conductor) {
+        if (conductor == null || conductor.getId() == null) {
+            return;
+        }
+        actualizarPosicion(conductor.getId(), conductor.getUbicacionActualLatitud(),
+                conductor.getUbicacionActualLongitud(), conductor.isDisponible());
+    }
+
+    // Ping de ubicación: conserva la disponibilidad conocida (un conductor ocupado sin posición sigue ocupado)
+    public void actualizarPosicion(Long conductorId, Double latitud, Double longitud) {
+        if (!GeoUtils.coordenadasValidas(latitud, longitud)) {
+            quitarPosicion(conductorId);
+            return;
+        }
+        long celda = claveCelda(latitud, longitud);
+        posiciones.compute(conductorId, (id, anterior) -> {
+            PosicionIndexada nueva = new PosicionIndexada(latitud, longitud, celda, !ocupados.contains(id));
+            sacarDeCelda(id, anterior);
+            meterEnCelda(id, nueva);
+            return nueva;
+        });
+    }
+
+    public void actualizarPosicion(Long conductorId, Double latitud, Double longitud, boolean disponible) {
+        marcarOcupado(conductorId, !disponible);
+        if (!GeoUtils.coordenadasValidas(latitud, longitud)) {
+            quitarPosicion(conductorId);
+            return;
+        }
+        PosicionIndexada nueva = new PosicionIndexada(latitud, longitud, claveCelda(latitud, longitud), disponible);
+        // compute() serializa las actualizaciones de un mismo conductor (cambio de celda atómico)
+        posiciones.compute(conductorId, (id, anterior) -> {
+            sacarDeCelda(id, anterior);
+            meterEnCelda(id, nueva);
+            return nueva;
+        });
+    }
+
+    public void marcarDisponibilidad(Long conductorId, boolean disponible) {
+        marcarOcupado(conductorId, !disponible);
+        posiciones.computeIfPresent(conductorId, (id, anterior) -> {
+            if (anterior.disponible() == disponible) {
+                return anterior;
+            }
+            PosicionIndexada nueva = new PosicionIndexada(anterior.latitud(), anterior.longitud(), anterior.celda(), disponible);
+            sacarDeCelda(id, anterior);
+            meterEnCelda(id, nueva);
+            return nueva;
+        });
+    }
+
+    // El conductor se borró: se olvida su posición y su disponibilidad
+    public void eliminar(Long conductorId) {
+        quitarPosicion(conductorId);
+        ocupados.remove(conductorId);
+    }
+
+    // Con o sin posición: la asignación lo marca antes de confirmarse, aunque nunca haya enviado su ubicación
+    public boolean figuraComoOcupado(Long conductorId) {
+        return ocupados.contains(conductorId);
+    }
+
+    // Devuelve los IDs de los k conductores disponibles más cercanos, ordenados por distancia
+    public List<Long> buscarCercanos(double latitud, double longitud, int k) {
+        if (k <= 0 || disponiblesIndexados.get() == 0) {
+            return Collections.emptyList();
+        }
+        int celdaLat = indiceCelda(latitud);
+        int celdaLon = indiceCelda(longitud);
+        // Lado mínimo de una celda en km a esta latitud (cota inferior para descartar anillos lejanos). El grado
+        // es el de la esfera de distanciaKm (~111,19 km): con KM_POR_GRADO_LATITUD (111,32) la cota quedaba por
+        // encima de la distancia real y un conductor justo al otro lado del borde se quedaba fuera
+        double ladoCeldaKm = TAMANO_CELDA_GRADOS * Math.toRadians(GeoUtils.RADIO_TIERRA_KM)
+                * Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitud) + TAMANO_CELDA_GRADOS * MAX_ANILLOS))));
+
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(k, Comparator.comparingDouble(Candidato::distanciaKm).reversed());
+        int visitados = 0;
+        for (int anillo = 0; anillo <= MAX_ANILLOS; anillo++) {
+            visitados += visitarAnillo(celdaLat, celdaLon, anillo, latitud, longitud, k, mejores);
+            if (mejores.size() == k && mejores.peek().distanciaKm() <= anillo * ladoCeldaKm) {
+                return ordenar(mejores);
+            }
+            if (visitados >= disponiblesIndexados.get()) {
+                return ordenar(mejores);
+            }
+        }
+        // Conductores muy dispersos: se completa con un recorrido del índice (sin tocar la base de datos)
+        mejores.clear();
+        posiciones.forEach((id, posicion) -> {
+            if (posicion.disponible()) {
+                ofrecer(mejores, k, new Candidato(id, GeoUtils.distanciaKm(latitud, longitud, posicion.latitud(), posicion.longitud())));
+            }
+        });
+        return ordenar(mejores);
+    }
+
+    private int visitarAnillo(int celdaLat, int celdaLon, int anillo, double latitud, double longitud,
+                              int k, PriorityQueue<Candidato> mejores) {
+        int visitados = 0;
+        for (int dLat = -anillo; dLat <= anillo; dLat++) {
+            boolean borde = dLat == -anillo || dLat == anillo;
+            // En las filas interiores del anillo sólo se visitan las dos celdas de los extremos
+            int paso = borde ? 1 : Math.max(1, 2 * anillo);
+            for (int dLon = -anillo; dLon <= anillo; dLon += paso) {
+                Set<Long> conductores = celdas.get(clave(celdaLat + dLat, celdaLon + dLon));
+                if (conductores == null) {
+                    continue;
+                }
+                for (Long id : conductores) {
+                    PosicionIndexada posicion = posiciones.get(id);
+                    if (posicion == null || !posicion.disponible()) {
+                        continue;
+                    }
+                    visitados++;
+                    ofrecer(mejores, k, new Candidato(id, GeoUtils.distanciaKm(latitud, longitud, posicion.latitud(), posicion.longitud())));
+                }
+            }
+        }
+        return visitados;
+    }
+
+    private static void ofrecer(PriorityQueue<Candidato> mejores, int k, Candidato candidato) {
+        if (mejores.size() < k) {
+            mejores.add(candidato);
+        } else if (candidato.distanciaKm() < mejores.peek().distanciaKm()) {
+            mejores.poll();
+            mejores.add(candidato);
+        }
+    }
+
+    private static List<Long> ordenar(PriorityQueue<Candidato> mejores) {
+        List<Candidato> candidatos = new ArrayList<>(mejores);
+        candidatos.sort(Comparator.comparingDouble(Candidato::distanciaKm));
+        List<Long> ids = new ArrayList<>(candidatos.size());
+        for (Candidato candidato : candidatos) {
+            ids.add(candidato.conductorId());
+        }
+        return ids;
+    }
+
+    private void quitarPosicion(Long conductorId) {
+        posiciones.computeIfPresent(conductorId, (id, anterior) -> {
+            sacarDeCelda(id, anterior);
+            return null;
+        });
+    }
+
+    private void marcarOcupado(Long conductorId, boolean ocupado) {
+        if (ocupado) {
+            ocupados.add(conductorId);
+        } else {
+            ocupados.remove(conductorId);
+        }
+    }
+
+    private void sacarDeCelda(Long conductorId, PosicionIndexada posicion) {
+        if (posicion == null || !posicion.disponible()) {
+            return;
+        }
+        celdas.computeIfPresent(posicion.celda(), (celda, conductores) -> {
+            if (conductores.remove(conductorId)) {
+                disponiblesIndexados.decrementAndGet();
+            }
+            return conductores.isEmpty() ? null : conductores;
+        });
+    }
+
+    private void meterEnCelda(Long conductorId, PosicionIndexada posicion) {
+        if (!posicion.disponible()) {
+            return;
+        }
+        celdas.compute(posicion.celda(), (celda, conductores) -> {
+            Set<Long> destino = conductores != null ? conductores : ConcurrentHashMap.newKeySet();
+            if (destino.add(conductorId)) {
+                disponiblesIndexados.incrementAndGet();
+            }
+            return destino;
+        });
+    }
+
+    private static int indiceCelda(double grados) {
+        return (int) Math.floor(grados / TAMANO_CELDA_GRADOS);
+    }
+
+    private static long claveCelda(double latitud, double longitud) {
+        return clave(indiceCelda(latitud), indiceCelda(longitud));
+    }
+
+    private static long clave(int celdaLat, int celdaLon) {
+        return ((long) celdaLat << 32) | (celdaLon & 0xffffffffL);
+    }
+
+    private record PosicionIndexada(double latitud, double longitud, long celda, boolean disponible) {
+    }
+
+    private record Candidato(Long conductorId, double distanciaKm) {
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.repository.ConductorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ingesta write-behind de las ubicaciones de los conductores: los pings se aceptan en una cola
+// acotada sin bloqueos, la última posición de cada conductor se sirve desde memoria y las
+// posiciones se escriben a la tabla conductor en lotes JDBC a intervalos fijos. Todos los pings
+// drenados (no solo el último de cada conductor) pasan al historial de trayectorias y a las geocercas. Con
+// eventos.salida.ubicaciones, cada escritura publica en la misma transacción un UbicacionActualizadaEvent por
+// conductor escrito (BusEventos). Si una escritura falla, sus posiciones se guardan aparte y el siguiente flush
+// las vuelve a escribir, salvo las de conductores que ya enviaron una más reciente.
+@Service
+public class IngestaUbicacionesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestaUbicacionesService.class);
+
+    private static final String SQL_ACTUALIZAR_UBICACION =
+            "UPDATE conductor SET ubicacion_actual_latitud = ?, ubicacion_actual_longitud = ? WHERE id = ?";
+
+    private final ConductorRepository conductorRepository;
+    private final IndiceGeoespacialConductores indiceGeoespacial;
+    private final DifusorSeguimiento difusorSeguimiento;
+    private final HistorialUbicacionesService historialUbicaciones;
+    private final MotorEta motorEta;
+    private final MotorGeocercas motorGeocercas;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final BusEventos busEventos;
+
+    private final int capacidadCola;
+    private final int tamanoLoteJdbc;
+    private final boolean publicarUbicaciones;
+
+    private final ConcurrentLinkedQueue<PosicionConductor> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tamanoCola = new AtomicInteger();
+    private final ConcurrentHashMap<Long, PosicionConductor> ultimasPosiciones = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, PosicionConductor> pendientesDeReintento = new ConcurrentHashMap<>();
+    private final Set<Long> conductoresConocidos = ConcurrentHashMap.newKeySet();
+
+    private final Counter pingsAceptados;
+    private final Counter pingsRechazados;
+    private final Counter filasReintentadas;
+    private final Timer tiempoFlush;
+    private final DistributionSummary filasPorFlush;
+
+    @Autowired
+    public IngestaUbicacionesService(ConductorRepository conductorRepository,
+                                     IndiceGeoespacialConductores indiceGeoespacial,
+                                     DifusorSeguimiento difusorSeguimiento,
+                                     HistorialUbicacionesService historialUbicaciones,
+                                     MotorEta motorEta,
+                                     MotorGeocercas motorGeocercas,
+                                     JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     BusEventos busEventos,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${ubicaciones.ingesta.capacidad-cola:50000}") int capacidadCola,
+                                     @Value("${ubicaciones.ingesta.tamano-lote-jdbc:500}") int tamanoLoteJdbc,
+                                     @Value("${eventos.salida.ubicaciones:false}") boolean publicarUbicaciones) {
+        this.conductorRepository = conductorRepository;
+        this.indiceGeoespacial = indiceGeoespacial;
+        this.difusorSeguimiento = difusorSeguimiento;
+        this.historialUbicaciones = historialUbicaciones;
+        this.motorEta = motorEta;
+        this.motorGeocercas = motorGeocercas;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.busEventos = busEventos;
+        this.capacidadCola = capacidadCola;
+        this.tamanoLoteJdbc = tamanoLoteJdbc;
+        this.publicarUbicaciones = publicarUbicaciones;
+
+        Gauge.builder("ubicaciones.ingesta.cola", tamanoCola, AtomicInteger::get)
+                .description("Pings de ubicación pendientes de escribir")
+                .register(meterRegistry);
+        Gauge.builder("ubicaciones.ingesta.conductores", ultimasPosiciones, ConcurrentHashMap::size)
+                .description("Conductores con posición en memoria")
+                .register(meterRegistry);
+        this.pingsAceptados = Counter.builder("ubicaciones.ingesta.pings").tag("resultado", "aceptado").register(meterRegistry);
+        this.pingsRechazados = Counter.builder("ubicaciones.ingesta.pings").tag("resultado", "rechazado").register(meterRegistry);
+        Gauge.builder("ubicaciones.ingesta.reintentos", pendientesDeReintento, ConcurrentHashMap::size)
+                .description("Conductores cuya última escritura falló, pendientes del siguiente flush")
+                .register(meterRegistry);
+        this.filasReintentadas = Counter.builder("ubicaciones.ingesta.flush.reintentadas")
+                .description("Posiciones de escrituras fallidas devueltas al siguiente flush")
+                .register(meterRegistry);
+        this.tiempoFlush = Timer.builder("ubicaciones.ingesta.flush")
+                .description("Duración de cada escritura por lotes de ubicaciones")
+                .register(meterRegistry);
+        this.filasPorFlush = DistributionSummary.builder("ubicaciones.ingesta.flush.filas")
+                .description("Conductores actualizados por cada escritura por lotes")
+                .register(meterRegistry);
+    }
+
+    public boolean existeConductor(Long conductorId) {
+        if (conductoresConocidos.contains(conductorId)) {
+            return true;
+        }
+        // Sólo el primer ping de cada conductor consulta la base de datos
+        if (conductorRepository.existsById(conductorId)) {
+            conductoresConocidos.add(conductorId);
+            return true;
+        }
+        return false;
+    }
+
+    public void olvidarConductor(Long conductorId) {
+        conductoresConocidos.remove(conductorId);
+        ultimasPosiciones.remove(conductorId);
+        pendientesDeReintento.remove(conductorId);
+    }
+
+    // Devuelve false si la cola está llena (el llamador debe responder 429)
+    public boolean registrarPing(Long conductorId, double latitud, double longitud) {
+        return registrarPing(conductorId, latitud, longitud, System.currentTimeMillis());
+    }
+
+    public boolean registrarPing(Long conductorId, double latitud, double longitud, long marcaTiempo) {
+        if (tamanoCola.incrementAndGet() > capacidadCola) {
+            tamanoCola.decrementAndGet();
+            pingsRechazados.increment();
+            return false;
+        }
+        PosicionConductor posicion = new PosicionConductor(conductorId, latitud, longitud, marcaTiempo);
+        cola.offer(posicion);
+        pingsAceptados.increment();
+
+        // Los pings que llegan desordenados no sobrescriben una posición más reciente
+        PosicionConductor vigente = ultimasPosiciones.merge(conductorId, posicion,
+                (anterior, nueva) -> nueva.esMasRecienteQue(anterior) ? nueva : anterior);
+        if (vigente == posicion) {
+            indiceGeoespacial.actualizarPosicion(conductorId, latitud, longitud);
+            difusorSeguimiento.publicar(posicion); // Seguimiento en vivo: sale de memoria, sin esperar al flush
+            motorEta.actualizarPosicion(posicion);
+        }
+        return true;
+    }
+
+    public Optional<PosicionConductor> obtenerUltimaPosicion(Long conductorId) {
+        return Optional.ofNullable(ultimasPosiciones.get(conductorId));
+    }
+
+    // Sobrescribe la posición del conductor con la última recibida (la de memoria siempre es la más reciente)
+    public Conductor aplicarUltimaPosicion(Conductor conductor) {
+        if (conductor != null && conductor.getId() != null) {
+            PosicionConductor posicion = ultimasPosiciones.get(conductor.getId());
+            if (posicion != null) {
+                conductor.setUbicacionActualLatitud(posicion.latitud());
+                conductor.setUbicacionActualLongitud(posicion.longitud());
+            }
+        }
+        return conductor;
+    }
+
+    public int obtenerTamanoCola() {
+        return tamanoCola.get();
+    }
+
+    @Scheduled(fixedDelayString = "${ubicaciones.ingesta.intervalo-flush-ms:1000}")
+    public void escribirPendientes() {
+        // Se drena sólo lo que había al empezar para que un flujo continuo de pings no alargue el flush
+        int pendientes = tamanoCola.get();
+        if (pendientes == 0 && pendientesDeReintento.isEmpty()) {
+            return;
+        }
+        // Coalescencia: sólo la posición más reciente de cada conductor llega a la base de datos.
+        // Ordenar por ID hace que todos los lotes bloqueen las filas en el mismo orden.
+        TreeMap<Long, PosicionConductor> coalescidas = new TreeMap<>();
+        List<PosicionConductor> recibidas = new ArrayList<>(pendientes);
+        for (int i = 0; i < pendientes; i++) {
+            PosicionConductor posicion = cola.poll();
+            if (posicion == null) {
+                break;
+            }
+            tamanoCola.decrementAndGet();
+            recibidas.add(posicion);
+            coalescidas.merge(posicion.conductorId(), posicion,
+                    (anterior, nueva) -> nueva.esMasRecienteQue(anterior) ? nueva : anterior);
+        }
+        if (!recibidas.isEmpty()) {
+            historialUbicaciones.registrar(recibidas);
+            motorGeocercas.evaluar(recibidas);
+        }
+        // Lo que falló en el flush anterior sólo se vuelve a escribir (historial y geocercas ya lo recibieron)
+        for (Long conductorId : pendientesDeReintento.keySet()) {
+            PosicionConductor fallida = pendientesDeReintento.remove(conductorId);
+            if (fallida != null) {
+                coalescidas.merge(conductorId, fallida,
+                        (recibida, anterior) -> recibida.esMasRecienteQue(anterior) ? recibida : anterior);
+            }
+        }
+        if (coalescidas.isEmpty()) {
+            return;
+        }
+
+        List<PosicionConductor> lote = new ArrayList<>(coalescidas.values());
+        try {
+            tiempoFlush.record(() -> transaccion.executeWithoutResult(estado -> {
+                jdbcTemplate.batchUpdate(SQL_ACTUALIZAR_UBICACION, lote, tamanoLoteJdbc,
+                        (ps, posicion) -> {
+                            ps.setDouble(1, posicion.latitud());
+                            ps.setDouble(2, posicion.longitud());
+                            ps.setLong(3, posicion.conductorId());
+                        });
+                if (publicarUbicaciones) {
+                    busEventos.publicarTodos(lote.stream().map(UbicacionActualizadaEvent::desde).toList());
+                }
+            }));
+            filasPorFlush.record(lote.size());
+        } catch (RuntimeException e) {
+            // La cola ya se drenó: el lote se guarda para el siguiente flush, que descarta la posición fallida de
+            // los conductores que hayan enviado entretanto un ping más reciente
+            for (PosicionConductor posicion : lote) {
+                pendientesDeReintento.put(posicion.conductorId(), posicion);
+            }
+            filasReintentadas.increment(lote.size());
+            logger.error("Error al escribir {} ubicaciones de conductores, se reintentarán en el siguiente flush",
+                    lote.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void escribirAntesDeApagar() {
+        escribirPendientes();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.backend_logistica.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Invalida las cachés de referencia cuando la transacción que modificó la entidad confirma: si se
+// invalidara antes, una lectura concurrente podría volver a cachear el valor anterior al commit.
+// Sin transacción activa (fallbackExecution) se invalida en el acto.
+@Component
+public class InvalidadorCachesReferencia {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public InvalidadorCachesReferencia(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void invalidar(ReferenciaModificadaEvent evento) {
+        Cache cache = cacheManager.getCache(evento.cache());
+        if (cache == null) {
+            return;
+        }
+        if (evento.id() == null) {
+            cache.clear();
+        } else {
+            cache.evict(evento.id());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.backend_logistica.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+// Deja disponible al conductor cuando se entrega o cancela su último envío. Va por la bandeja de salida: la
+// entrega confirma sin esperar a la fila del conductor, que queda libre unos cientos de milisegundos después.
+// Repetir el evento no cambia nada (el conductor ya está libre o tiene otro envío)
+@Service
+public class LiberacionConductores implements ConsumidorEventos {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiberacionConductores.class);
+    private static final int MAX_INTENTOS = 3;
+
+    private final EnvioService envioService;
+
+    @Autowired
+    public LiberacionConductores(EnvioService envioService) {
+        this.envioService = envioService;
+    }
+
+    @Override
+    public void consumir(EventoDominio evento) {
+        if (evento instanceof EnvioEntregadoEvent entregado) {
+            liberar(entregado.envioId(), entregado.conductorId());
+        } else if (evento instanceof EnvioCanceladoEvent cancelado) {
+            liberar(cancelado.envioId(), cancelado.conductorId());
+        }
+    }
+
+    // La fila del conductor puede cambiar a la vez (edición, ubicación): se reintenta con la versión nueva
+    private void liberar(Long envioId, Long conductorId) {
+        if (conductorId == null) {
+            return;
+        }
+        for (int intento = 1; ; intento++) {
+            try {
+                envioService.liberarConductorSiNoLlevaOtros(conductorId, envioId);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (intento == MAX_INTENTOS) {
+                    logger.error("No se pudo liberar al conductor {} tras el envío {}", conductorId, envioId, e);
+                    return;
+                }
+            }
+        }
+    }
+}
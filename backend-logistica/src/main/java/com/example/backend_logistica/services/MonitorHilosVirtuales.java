@@ -0,0 +1,76 @@
+package com.example.backend_logistica.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// Detección de fijación (pinning) de hilos virtuales: un hilo virtual que bloquea dentro de un bloque
+// synchronized (p. ej. en un driver JDBC antiguo) retiene su hilo portador y anula la ventaja del modo.
+// Escucha el evento JFR jdk.VirtualThreadPinned en proceso, lo publica como métrica y registra el
+// primer marco de aplicación/driver implicado. Para la traza completa: -Djdk.tracePinnedThreads=full.
+@Service
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class MonitorHilosVirtuales {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitorHilosVirtuales.class);
+
+    private static final String EVENTO_FIJACION = "jdk.VirtualThreadPinned";
+
+    private final Duration umbral;
+    private final Timer fijaciones;
+    private final RecordingStream grabacion = new RecordingStream();
+
+    @Autowired
+    public MonitorHilosVirtuales(MeterRegistry meterRegistry,
+                                 @Value("${hilos.virtuales.umbral-fijacion-ms:20}") long umbralMs) {
+        this.umbral = Duration.ofMillis(umbralMs);
+        this.fijaciones = Timer.builder("hilos.virtuales.fijaciones")
+                .description("Bloqueos de hilos virtuales fijados a su hilo portador por encima del umbral")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        grabacion.enable(EVENTO_FIJACION).withThreshold(umbral).withStackTrace();
+        grabacion.onEvent(EVENTO_FIJACION, this::registrarFijacion);
+        grabacion.startAsync();
+        logger.info("Modo hilos virtuales activo; se registran fijaciones de más de {} ms", umbral.toMillis());
+    }
+
+    private void registrarFijacion(RecordedEvent evento) {
+        fijaciones.record(evento.getDuration());
+        logger.warn("Hilo virtual fijado {} ms en {}", evento.getDuration().toMillis(), primerMarcoRelevante(evento.getStackTrace()));
+    }
+
+    // Se omiten los marcos del JDK para señalar el código (propio o de una librería) que sostiene el monitor
+    private static String primerMarcoRelevante(RecordedStackTrace traza) {
+        if (traza == null) {
+            return "(sin traza)";
+        }
+        for (RecordedFrame marco : traza.getFrames()) {
+            String clase = marco.getMethod().getType().getName();
+            if (!clase.startsWith("java.") && !clase.startsWith("jdk.") && !clase.startsWith("sun.")) {
+                return clase + "." + marco.getMethod().getName() + ":" + marco.getLineNumber();
+            }
+        }
+        return traza.getFrames().isEmpty() ? "(sin marcos)" : traza.getFrames().get(0).getMethod().getName();
+    }
+
+    @PreDestroy
+    public void detener() {
+        grabacion.close();
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.EtaEnvioDTO;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.util.GeoUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Estimación de la hora de entrega: distancia por carretera aproximada (haversine por un factor de desvío)
+// entre la posición del conductor, el origen y el destino, a la velocidad del perfil del vehículo, más
+// los tiempos de recolección y de entrega. Las distancias se guardan por par de celdas (origen, destino),
+// así que el coste de cada estimación no depende de cómo se calcule la distancia (hoy haversine; un grafo
+// de carreteras encajaría en distanciaKmEntreCeldas). Los envíos en curso se siguen en memoria: cada ping
+// marca a su conductor y cada pocos segundos se recalculan solo los envíos de los conductores marcados.
+@Service
+public class MotorEta {
+
+    private static final String SQL_ENVIOS_EN_CURSO = "SELECT e.id, e.conductor_id, e.estado_envio, "
+            + "e.ubicacion_origen_latitud, e.ubicacion_origen_longitud, e.ubicacion_destino_latitud, e.ubicacion_destino_longitud, "
+            + "v.tipo, c.ubicacion_actual_latitud, c.ubicacion_actual_longitud "
+            + "FROM envio e JOIN conductor c ON c.id = e.conductor_id LEFT JOIN vehiculo v ON v.id = e.vehiculo_id ";
+    // Arranque: envíos recientes sin entregar ni cancelar (idx_envio_fecha); los más antiguos se dan por abandonados
+    private static final String SQL_RECIENTES = SQL_ENVIOS_EN_CURSO
+            + "WHERE e.fecha_creacion >= ? AND e.estado_envio NOT IN (?, ?) AND e.ubicacion_destino_latitud IS NOT NULL";
+    private static final String SQL_POR_ID = SQL_ENVIOS_EN_CURSO + "WHERE e.estado_envio NOT IN (?, ?) AND e.id IN ";
+    private static final int IDS_POR_CONSULTA = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double factorDesvio;
+    private final long segundosRecoleccion;
+    private final long segundosEntrega;
+    private final long horasSinDestino;
+    private final double ladoCeldaGrados;
+    private final long horasVentanaCarga;
+
+    private final Cache<ParCeldas, Double> kmEntreCeldas;
+
+    private final ConcurrentHashMap<Long, EnvioEnCurso> enCurso = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> enviosPorConductor = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, double[]> posiciones = new ConcurrentHashMap<>(); // Solo conductores con envíos en curso
+    private final Set<Long> conductoresPendientes = ConcurrentHashMap.newKeySet();
+    private final Set<Long> enviosPorCargar = ConcurrentHashMap.newKeySet();
+
+    private final Timer tiempoRecalculo;
+
+    @Autowired
+    public MotorEta(JdbcTemplate jdbcTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${eta.factor-desvio:1.35}") double factorDesvio,
+                    @Value("${eta.minutos-recoleccion:10}") long minutosRecoleccion,
+                    @Value("${eta.minutos-entrega:5}") long minutosEntrega,
+                    @Value("${eta.horas-sin-destino:3}") long horasSinDestino,
+                    @Value("${eta.lado-celda-grados:0.0025}") double ladoCeldaGrados,
+                    @Value("${eta.tamano-cache:200000}") long tamanoCache,
+                    @Value("${eta.horas-ventana-carga:48}") long horasVentanaCarga) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.factorDesvio = factorDesvio;
+        this.segundosRecoleccion = minutosRecoleccion * 60;
+        this.segundosEntrega = minutosEntrega * 60;
+        this.horasSinDestino = horasSinDestino;
+        this.ladoCeldaGrados = ladoCeldaGrados;
+        this.horasVentanaCarga = horasVentanaCarga;
+
+        this.kmEntreCeldas = Caffeine.newBuilder().maximumSize(tamanoCache).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, kmEntreCeldas, "eta.trayectos");
+        Gauge.builder("eta.envios.en_curso", enCurso, ConcurrentHashMap::size)
+                .description("Envíos con ETA recalculada a partir de las posiciones en vivo")
+                .register(meterRegistry);
+        this.tiempoRecalculo = Timer.builder("eta.recalculo")
+                .description("Duración de cada pasada de recálculo de ETAs")
+                .register(meterRegistry);
+    }
+
+    // Estimación inicial al asignar (el envío aún no está recogido). Sin destino conocido se mantiene
+    // el plazo fijo de siempre
+    public LocalDateTime estimarEntrega(String tipoVehiculo, Double latitudConductor, Double longitudConductor,
+                                        Double latitudOrigen, Double longitudOrigen,
+                                        Double latitudDestino, Double longitudDestino, LocalDateTime desde) {
+        Estimacion estimacion = estimar(PerfilVelocidad.desdeTipoVehiculo(tipoVehiculo), latitudConductor, longitudConductor,
+                latitudOrigen, longitudOrigen, latitudDestino, longitudDestino, false);
+        return estimacion != null ? desde.plusSeconds(estimacion.segundos()) : desde.plusHours(horasSinDestino);
+    }
+
+    // Rutas de varias paradas (PlanificadorRutas): llegada a cada parada con los km en línea recta acumulados
+    // desde la salida, por el factor de desvío, más el tiempo fijo de cada parada anterior
+    public LocalDateTime[] estimarLlegadas(String tipoVehiculo, double[] kmAcumulados, boolean[] recolecciones, LocalDateTime desde) {
+        PerfilVelocidad perfil = PerfilVelocidad.desdeTipoVehiculo(tipoVehiculo);
+        LocalDateTime[] llegadas = new LocalDateTime[kmAcumulados.length];
+        long segundosFijos = 0;
+        for (int i = 0; i < kmAcumulados.length; i++) {
+            long segundosViaje = Math.round(kmAcumulados[i] * factorDesvio / perfil.getKmPorHora() * 3600);
+            llegadas[i] = desde.plusSeconds(segundosViaje + segundosFijos);
+            segundosFijos += recolecciones[i] ? segundosRecoleccion : segundosEntrega;
+        }
+        return llegadas;
+    }
+
+    // Vacío si el envío no existe, ya se entregó o no tiene destino
+    public Optional<EtaEnvioDTO> obtenerEta(Long envioId) {
+        EnvioEnCurso envio = enCurso.get(envioId);
+        if (envio == null) {
+            // Asignado hace un instante (aún no cargado) o anterior a la ventana de arranque
+            cargar(List.of(envioId));
+            envio = enCurso.get(envioId);
+            if (envio == null) {
+                return Optional.empty();
+            }
+            recalcular(envio);
+        }
+        return Optional.ofNullable(envio.eta);
+    }
+
+    // Desde la ingesta, por cada posición vigente: solo se anota si el conductor lleva envíos
+    public void actualizarPosicion(PosicionConductor posicion) {
+        if (enviosPorConductor.containsKey(posicion.conductorId())) {
+            posiciones.put(posicion.conductorId(), new double[]{posicion.latitud(), posicion.longitud()});
+            conductoresPendientes.add(posicion.conductorId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrarCambioEstado(EnvioEstadoCambiadoEvent evento) {
+        if (evento.estadoNuevo().esFinal()) {
+            olvidar(evento.envioId());
+        } else if (evento.estadoNuevo() == EstadoEnvio.ASIGNADO) {
+            enviosPorCargar.add(evento.envioId()); // Se cargan juntos en la siguiente pasada (una consulta por lote)
+        } else {
+            EnvioEnCurso envio = enCurso.get(evento.envioId());
+            if (envio != null) {
+                envio.recogido = true;
+                conductoresPendientes.add(envio.conductorId);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarEnCurso() {
+        jdbcTemplate.query(SQL_RECIENTES, (RowCallbackHandler) this::seguir,
+                Timestamp.valueOf(LocalDateTime.now().minusHours(horasVentanaCarga)),
+                EstadoEnvio.ENTREGADO.getEtiqueta(), EstadoEnvio.CANCELADO.getEtiqueta());
+        enCurso.values().forEach(this::recalcular);
+    }
+
+    @Scheduled(fixedDelayString = "${eta.intervalo-recalculo-ms:2000}")
+    public void recalcularPendientes() {
+        if (enviosPorCargar.isEmpty() && conductoresPendientes.isEmpty()) {
+            return;
+        }
+        tiempoRecalculo.record(() -> {
+            List<Long> nuevos = drenar(enviosPorCargar);
+            cargar(nuevos);
+            for (Long envioId : nuevos) {
+                EnvioEnCurso envio = enCurso.get(envioId);
+                if (envio != null) {
+                    conductoresPendientes.add(envio.conductorId);
+                }
+            }
+            for (Long conductorId : drenar(conductoresPendientes)) {
+                for (Long envioId : enviosPorConductor.getOrDefault(conductorId, Set.of())) {
+                    EnvioEnCurso envio = enCurso.get(envioId);
+                    if (envio != null) {
+                        recalcular(envio);
+                    }
+                }
+            }
+        });
+    }
+
+    private void cargar(List<Long> envioIds) {
+        for (int desde = 0; desde < envioIds.size(); desde += IDS_POR_CONSULTA) {
+            List<Long> bloque = envioIds.subList(desde, Math.min(envioIds.size(), desde + IDS_POR_CONSULTA));
+            Object[] parametros = new Object[bloque.size() + 2];
+            parametros[0] = EstadoEnvio.ENTREGADO.getEtiqueta();
+            parametros[1] = EstadoEnvio.CANCELADO.getEtiqueta();
+            for (int i = 0; i < bloque.size(); i++) {
+                parametros[i + 2] = bloque.get(i);
+            }
+            jdbcTemplate.query(SQL_POR_ID + "(" + String.join(", ", Collections.nCopies(bloque.size(), "?")) + ")",
+                    (RowCallbackHandler) this::seguir, parametros);
+        }
+    }
+
+    private void seguir(ResultSet rs) throws SQLException {
+        EnvioEnCurso envio = new EnvioEnCurso(rs.getLong(1), rs.getLong(2),
+                PerfilVelocidad.desdeTipoVehiculo(rs.getString(8)),
+                rs.getObject(4, Double.class), rs.getObject(5, Double.class),
+                rs.getObject(6, Double.class), rs.getObject(7, Double.class));
+        if (!GeoUtils.coordenadasValidas(envio.latitudDestino, envio.longitudDestino)) {
+            return;
+        }
+        envio.recogido = EstadoEnvio.desdeEtiqueta(rs.getString(3)) != EstadoEnvio.ASIGNADO;
+        Double latitud = rs.getObject(9, Double.class);
+        Double longitud = rs.getObject(10, Double.class);
+        if (GeoUtils.coordenadasValidas(latitud, longitud)) {
+            posiciones.putIfAbsent(envio.conductorId, new double[]{latitud, longitud}); // La de memoria es más reciente
+        }
+        enCurso.put(envio.envioId, envio);
+        enviosPorConductor.compute(envio.conductorId, (id, envios) -> {
+            Set<Long> resultado = envios != null ? envios : ConcurrentHashMap.newKeySet();
+            resultado.add(envio.envioId);
+            return resultado;
+        });
+    }
+
+    private void olvidar(Long envioId) {
+        enviosPorCargar.remove(envioId);
+        EnvioEnCurso envio = enCurso.remove(envioId);
+        if (envio == null) {
+            return;
+        }
+        enviosPorConductor.computeIfPresent(envio.conductorId, (id, envios) -> {
+            envios.remove(envioId);
+            if (envios.isEmpty()) {
+                posiciones.remove(id);
+                return null;
+            }
+            return envios;
+        });
+    }
+
+    private void recalcular(EnvioEnCurso envio) {
+        double[] posicion = posiciones.get(envio.conductorId);
+        Estimacion estimacion = estimar(envio.perfil,
+                posicion != null ? posicion[0] : null, posicion != null ? posicion[1] : null,
+                envio.latitudOrigen, envio.longitudOrigen, envio.latitudDestino, envio.longitudDestino, envio.recogido);
+        if (estimacion == null) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        envio.eta = new EtaEnvioDTO(envio.envioId, envio.conductorId, envio.perfil.name(), envio.recogido,
+                ahora.plusSeconds(estimacion.segundos()), estimacion.segundos(), estimacion.distanciaKm(), ahora);
+    }
+
+    // Sin recoger: conductor → origen, recolección, origen → destino, entrega. Recogido: conductor → destino,
+    // entrega. Los tramos cuyo extremo no se conoce se omiten; null si no hay destino
+    private Estimacion estimar(PerfilVelocidad perfil, Double latitudConductor, Double longitudConductor,
+                               Double latitudOrigen, Double longitudOrigen,
+                               Double latitudDestino, Double longitudDestino, boolean recogido) {
+        if (!GeoUtils.coordenadasValidas(latitudDestino, longitudDestino)) {
+            return null;
+        }
+        boolean conConductor = GeoUtils.coordenadasValidas(latitudConductor, longitudConductor);
+        boolean conOrigen = GeoUtils.coordenadasValidas(latitudOrigen, longitudOrigen);
+        double km = 0;
+        long segundosFijos = segundosEntrega;
+        if (recogido) {
+            if (conConductor) {
+                km += distanciaKm(latitudConductor, longitudConductor, latitudDestino, longitudDestino);
+            } else if (conOrigen) {
+                km += distanciaKm(latitudOrigen, longitudOrigen, latitudDestino, longitudDestino);
+            }
+        } else {
+            segundosFijos += segundosRecoleccion;
+            if (conOrigen) {
+                if (conConductor) {
+                    km += distanciaKm(latitudConductor, longitudConductor, latitudOrigen, longitudOrigen);
+                }
+                km += distanciaKm(latitudOrigen, longitudOrigen, latitudDestino, longitudDestino);
+            } else if (conConductor) {
+                km += distanciaKm(latitudConductor, longitudConductor, latitudDestino, longitudDestino);
+            }
+        }
+        long segundosViaje = Math.round(km / perfil.getKmPorHora() * 3600);
+        return new Estimacion(segundosViaje + segundosFijos, km);
+    }
+
+    private double distanciaKm(double latitud1, double longitud1, double latitud2, double longitud2) {
+        int filaOrigen = (int) Math.floor(latitud1 / ladoCeldaGrados);
+        int columnaOrigen = (int) Math.floor(longitud1 / ladoCeldaGrados);
+        int filaDestino = (int) Math.floor(latitud2 / ladoCeldaGrados);
+        int columnaDestino = (int) Math.floor(longitud2 / ladoCeldaGrados);
+        return kmEntreCeldas.get(new ParCeldas(filaOrigen, columnaOrigen, filaDestino, columnaDestino), this::distanciaKmEntreCeldas);
+    }
+
+    // Entre los centros de las celdas: con celdas de ~280 m el error es de unos cientos de metros
+    private double distanciaKmEntreCeldas(ParCeldas par) {
+        return factorDesvio * GeoUtils.distanciaKm(
+                (par.filaOrigen() + 0.5) * ladoCeldaGrados, (par.columnaOrigen() + 0.5) * ladoCeldaGrados,
+                (par.filaDestino() + 0.5) * ladoCeldaGrados, (par.columnaDestino() + 0.5) * ladoCeldaGrados);
+    }
+
+    private static List<Long> drenar(Set<Long> conjunto) {
+        List<Long> ids = new ArrayList<>(conjunto.size());
+        Iterator<Long> iterador = conjunto.iterator();
+        while (iterador.hasNext()) {
+            ids.add(iterador.next());
+            iterador.remove();
+        }
+        return ids;
+    }
+
+    private record Estimacion(long segundos, double distanciaKm) {
+    }
+
+    private record ParCeldas(int filaOrigen, int columnaOrigen, int filaDestino, int columnaDestino) {
+    }
+
+    private static final class EnvioEnCurso {
+        final long envioId;
+        final long conductorId;
+        final PerfilVelocidad perfil;
+        final Double latitudOrigen;
+        final Double longitudOrigen;
+        final Double latitudDestino;
+        final Double longitudDestino;
+        volatile boolean recogido;
+        volatile EtaEnvioDTO eta;
+
+        EnvioEnCurso(long envioId, long conductorId, PerfilVelocidad perfil, Double latitudOrigen, Double longitudOrigen,
+                     Double latitudDestino, Double longitudDestino) {
+            this.envioId = envioId;
+            this.conductorId = conductorId;
+            this.perfil = perfil;
+            this.latitudOrigen = latitudOrigen;
+            this.longitudOrigen = longitudOrigen;
+            this.latitudDestino = latitudDestino;
+            this.longitudDestino = longitudDestino;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.GeocercaDTO;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.Geocerca;
+import com.example.backend_logistica.util.IndiceGeocercas;
+import com.example.backend_logistica.util.IndiceGeocercas.Deteccion;
+import com.example.backend_logistica.util.TipoGeocerca;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Detección automática de llegadas y salidas: cada envío en curso con conductor tiene una geocerca en el
+// origen (hasta que sale hacia el destino) y otra en el destino; un círculo alrededor de las coordenadas o un
+// polígono definido para el envío (geocerca_envio). Todos los pings drenados por la ingesta se evalúan contra
+// las geocercas de su conductor (IndiceGeocercas) y las detecciones se publican como EnvioEnGeocercaEvent en
+// la pasada siguiente, fuera del hilo de la ingesta. Cada detección lleva el estado al que avanza el envío:
+// llegada al origen → Recogido, salida del origen o llegada al destino → En Tránsito y, sólo si se activa,
+// salida del destino → Entregado (sin firma ni foto; por defecto la entrega la registra el conductor)
+@Service
+public class MotorGeocercas {
+
+    private static final String SQL_ENVIOS_VIGILADOS = "SELECT id, conductor_id, estado_envio, ubicacion_origen_latitud, "
+            + "ubicacion_origen_longitud, ubicacion_destino_latitud, ubicacion_destino_longitud FROM envio ";
+    // Arranque: envíos recientes sin entregar ni cancelar (idx_envio_fecha), como MotorEta
+    private static final String SQL_RECIENTES = SQL_ENVIOS_VIGILADOS
+            + "WHERE fecha_creacion >= ? AND estado_envio NOT IN (?, ?) AND conductor_id IS NOT NULL";
+    private static final String SQL_POR_ID = SQL_ENVIOS_VIGILADOS
+            + "WHERE estado_envio NOT IN (?, ?) AND conductor_id IS NOT NULL AND id IN ";
+    private static final String SQL_POLIGONOS = "SELECT envio_id, tipo, vertices FROM geocerca_envio WHERE envio_id IN ";
+    private static final String SQL_EXISTE_ENVIO = "SELECT COUNT(*) FROM envio WHERE id = ?";
+    private static final String SQL_BORRAR_POLIGONO = "DELETE FROM geocerca_envio WHERE envio_id = ? AND tipo = ?";
+    private static final String SQL_INSERTAR_POLIGONO = "INSERT INTO geocerca_envio (envio_id, tipo, vertices) VALUES (?, ?, ?)";
+    private static final int IDS_POR_CONSULTA = 500;
+    public static final int MAX_VERTICES = 200; // Caben en geocerca_envio.vertices
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final ApplicationEventPublisher eventos;
+    private final IndiceGeocercas indice;
+    private final double radioMetros;
+    private final boolean entregaAlSalirDeDestino;
+    private final long horasVentanaCarga;
+
+    private final Set<Long> enviosPorCargar = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Deteccion> detecciones = new ConcurrentLinkedQueue<>();
+
+    private final Timer tiempoEvaluacion;
+    private final Map<TipoGeocerca, Counter[]> contadoresDetecciones = new EnumMap<>(TipoGeocerca.class);
+
+    @Autowired
+    public MotorGeocercas(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventos,
+                          MeterRegistry meterRegistry,
+                          @Value("${geocercas.radio-metros:150}") double radioMetros,
+                          @Value("${geocercas.margen-salida-metros:50}") double margenSalidaMetros,
+                          @Value("${geocercas.entrega-al-salir-de-destino:false}") boolean entregaAlSalirDeDestino,
+                          @Value("${geocercas.horas-ventana-carga:48}") long horasVentanaCarga) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.indice = new IndiceGeocercas(margenSalidaMetros);
+        this.radioMetros = radioMetros;
+        this.entregaAlSalirDeDestino = entregaAlSalirDeDestino;
+        this.horasVentanaCarga = horasVentanaCarga;
+
+        Gauge.builder("geocercas.activas", indice, IndiceGeocercas::cantidadGeocercas)
+                .description("Geocercas de origen y destino vigiladas")
+                .register(meterRegistry);
+        this.tiempoEvaluacion = Timer.builder("geocercas.evaluacion")
+                .description("Duración de la evaluación de cada lote de pings contra las geocercas")
+                .register(meterRegistry);
+        for (TipoGeocerca tipo : TipoGeocerca.values()) {
+            contadoresDetecciones.put(tipo, new Counter[]{
+                    Counter.builder("geocercas.detecciones").tag("geocerca", tipo.name()).tag("evento", "salida").register(meterRegistry),
+                    Counter.builder("geocercas.detecciones").tag("geocerca", tipo.name()).tag("evento", "llegada").register(meterRegistry)});
+        }
+    }
+
+    // Desde la ingesta con todos los pings drenados en orden de llegada; no toca la base de datos
+    public void evaluar(List<PosicionConductor> posiciones) {
+        tiempoEvaluacion.record(() -> {
+            for (PosicionConductor posicion : posiciones) {
+                indice.evaluar(posicion.conductorId(), posicion.latitud(), posicion.longitud(), posicion.marcaTiempo(), detecciones::offer);
+            }
+        });
+    }
+
+    // Vacío si el envío no está en curso con un conductor asignado
+    public Optional<List<GeocercaDTO>> obtenerGeocercas(Long envioId) {
+        if (!indice.vigila(envioId)) {
+            cargar(List.of(envioId)); // Asignado hace un instante o anterior a la ventana de arranque
+            if (!indice.vigila(envioId)) {
+                return Optional.empty();
+            }
+        }
+        List<GeocercaDTO> geocercas = new ArrayList<>(2);
+        for (TipoGeocerca tipo : TipoGeocerca.values()) {
+            Geocerca geocerca = indice.geocerca(envioId, tipo);
+            if (geocerca instanceof Geocerca.Circulo circulo) {
+                geocercas.add(new GeocercaDTO(tipo.name(), "CIRCULO", circulo.latitud(), circulo.longitud(), circulo.radioMetros(), null));
+            } else if (geocerca instanceof Geocerca.Poligono poligono) {
+                List<double[]> vertices = new ArrayList<>(poligono.vertices());
+                for (int i = 0; i < poligono.vertices(); i++) {
+                    vertices.add(new double[]{poligono.latitud(i), poligono.longitud(i)});
+                }
+                geocercas.add(new GeocercaDTO(tipo.name(), "POLIGONO", null, null, null, vertices));
+            }
+        }
+        return Optional.of(geocercas);
+    }
+
+    // Sustituye el círculo por el polígono [latitud, longitud]. IllegalArgumentException si el envío no existe
+    // o los vértices no forman un polígono válido
+    public void definirPoligono(Long envioId, TipoGeocerca tipo, List<double[]> vertices) {
+        Geocerca.Poligono poligono = poligono(vertices);
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < poligono.vertices(); i++) {
+            if (i > 0) {
+                texto.append(';');
+            }
+            texto.append(poligono.latitud(i)).append(' ').append(poligono.longitud(i));
+        }
+        comprobarEnvio(envioId);
+        transaccion.executeWithoutResult(estado -> {
+            jdbcTemplate.update(SQL_BORRAR_POLIGONO, envioId, tipo.getCodigo());
+            jdbcTemplate.update(SQL_INSERTAR_POLIGONO, envioId, tipo.getCodigo(), texto.toString());
+        });
+        recargar(envioId);
+    }
+
+    // Vuelve al círculo alrededor de las coordenadas del envío
+    public void eliminarPoligono(Long envioId, TipoGeocerca tipo) {
+        comprobarEnvio(envioId);
+        jdbcTemplate.update(SQL_BORRAR_POLIGONO, envioId, tipo.getCodigo());
+        recargar(envioId);
+    }
+
+    public void olvidar(Long envioId) {
+        enviosPorCargar.remove(envioId);
+        indice.olvidar(envioId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void registrarCambioEstado(EnvioEstadoCambiadoEvent evento) {
+        if (evento.estadoNuevo().esFinal()) {
+            olvidar(evento.envioId());
+        } else if (evento.estadoNuevo() == EstadoEnvio.ASIGNADO) {
+            enviosPorCargar.add(evento.envioId()); // Se cargan juntos en la siguiente pasada
+        } else if (evento.estadoNuevo() == EstadoEnvio.EN_TRANSITO) {
+            indice.dejarDeVigilar(evento.envioId(), TipoGeocerca.ORIGEN);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarEnCurso() {
+        List<FilaEnvio> filas = jdbcTemplate.query(SQL_RECIENTES, (rs, fila) -> leer(rs),
+                Timestamp.valueOf(LocalDateTime.now().minusHours(horasVentanaCarga)),
+                EstadoEnvio.ENTREGADO.getEtiqueta(), EstadoEnvio.CANCELADO.getEtiqueta());
+        for (int desde = 0; desde < filas.size(); desde += IDS_POR_CONSULTA) {
+            vigilar(filas.subList(desde, Math.min(filas.size(), desde + IDS_POR_CONSULTA)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${geocercas.intervalo-ms:1000}")
+    public void procesarPendientes() {
+        if (!enviosPorCargar.isEmpty()) {
+            cargar(drenar(enviosPorCargar));
+        }
+        Deteccion deteccion;
+        while ((deteccion = detecciones.poll()) != null) {
+            contadoresDetecciones.get(deteccion.tipo())[deteccion.llegada() ? 1 : 0].increment();
+            if (deteccion.tipo() == TipoGeocerca.ORIGEN && !deteccion.llegada()) {
+                indice.dejarDeVigilar(deteccion.envioId(), TipoGeocerca.ORIGEN); // No se vuelve a recoger
+            }
+            eventos.publishEvent(new EnvioEnGeocercaEvent(deteccion.envioId(), deteccion.conductorId(), deteccion.tipo(),
+                    deteccion.llegada(), avanzarA(deteccion),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(deteccion.marcaTiempo()), ZoneId.systemDefault())));
+        }
+    }
+
+    private EstadoEnvio avanzarA(Deteccion deteccion) {
+        if (deteccion.tipo() == TipoGeocerca.ORIGEN) {
+            return deteccion.llegada() ? EstadoEnvio.RECOGIDO : EstadoEnvio.EN_TRANSITO;
+        }
+        if (deteccion.llegada()) {
+            return EstadoEnvio.EN_TRANSITO; // Por si no se detectó la salida del origen
+        }
+        return entregaAlSalirDeDestino ? EstadoEnvio.ENTREGADO : null;
+    }
+
+    private void comprobarEnvio(Long envioId) {
+        Integer cantidad = jdbcTemplate.queryForObject(SQL_EXISTE_ENVIO, Integer.class, envioId);
+        if (cantidad == null || cantidad == 0) {
+            throw new IllegalArgumentException("Envío no encontrado con ID: " + envioId);
+        }
+    }
+
+    // Vuelve a leer el envío y sus polígonos; el estado dentro/fuera se pierde y se recalcula con el siguiente ping
+    private void recargar(Long envioId) {
+        indice.olvidar(envioId);
+        cargar(List.of(envioId));
+    }
+
+    private void cargar(List<Long> envioIds) {
+        for (int desde = 0; desde < envioIds.size(); desde += IDS_POR_CONSULTA) {
+            List<Long> bloque = envioIds.subList(desde, Math.min(envioIds.size(), desde + IDS_POR_CONSULTA));
+            Object[] parametros = new Object[bloque.size() + 2];
+            parametros[0] = EstadoEnvio.ENTREGADO.getEtiqueta();
+            parametros[1] = EstadoEnvio.CANCELADO.getEtiqueta();
+            for (int i = 0; i < bloque.size(); i++) {
+                parametros[i + 2] = bloque.get(i);
+            }
+            vigilar(jdbcTemplate.query(SQL_POR_ID + marcadores(bloque.size()), (rs, fila) -> leer(rs), parametros));
+        }
+    }
+
+    // Como mucho IDS_POR_CONSULTA filas: una consulta para sus polígonos
+    private void vigilar(List<FilaEnvio> filas) {
+        if (filas.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<TipoGeocerca, Geocerca>> poligonos = new HashMap<>();
+        jdbcTemplate.query(SQL_POLIGONOS + marcadores(filas.size()), rs -> {
+            try {
+                poligonos.computeIfAbsent(rs.getLong(1), id -> new EnumMap<>(TipoGeocerca.class))
+                        .put(TipoGeocerca.desdeCodigo(rs.getInt(2)), poligono(leerVertices(rs.getString(3))));
+            } catch (IllegalArgumentException e) {
+                // Fila inválida: se mantiene el círculo
+            }
+        }, filas.stream().map(FilaEnvio::envioId).toArray());
+        for (FilaEnvio fila : filas) {
+            Map<TipoGeocerca, Geocerca> definidas = poligonos.getOrDefault(fila.envioId(), Map.of());
+            // El origen sólo interesa hasta que el envío sale hacia el destino
+            Geocerca origen = fila.estado().ordinal() < EstadoEnvio.EN_TRANSITO.ordinal()
+                    ? definidas.getOrDefault(TipoGeocerca.ORIGEN, circulo(fila.latitudOrigen(), fila.longitudOrigen())) : null;
+            Geocerca destino = definidas.getOrDefault(TipoGeocerca.DESTINO, circulo(fila.latitudDestino(), fila.longitudDestino()));
+            indice.registrar(fila.envioId(), fila.conductorId(), origen, destino);
+        }
+    }
+
+    private Geocerca circulo(Double latitud, Double longitud) {
+        return GeoUtils.coordenadasValidas(latitud, longitud) ? new Geocerca.Circulo(latitud, longitud, radioMetros) : null;
+    }
+
+    private static Geocerca.Poligono poligono(List<double[]> vertices) {
+        if (vertices == null || vertices.size() < 3 || vertices.size() > MAX_VERTICES) {
+            throw new IllegalArgumentException("Un polígono necesita entre 3 y " + MAX_VERTICES + " vértices");
+        }
+        double[] latitudes = new double[vertices.size()];
+        double[] longitudes = new double[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            double[] vertice = vertices.get(i);
+            if (vertice == null || vertice.length != 2 || !GeoUtils.coordenadasValidas(vertice[0], vertice[1])) {
+                throw new IllegalArgumentException("Vértice inválido en la posición " + i);
+            }
+            latitudes[i] = vertice[0];
+            longitudes[i] = vertice[1];
+        }
+        return new Geocerca.Poligono(latitudes, longitudes);
+    }
+
+    private static List<double[]> leerVertices(String texto) {
+        List<double[]> vertices = new ArrayList<>();
+        for (String par : texto.split(";")) {
+            String[] partes = par.trim().split(" ");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Vértice inválido: " + par);
+            }
+            vertices.add(new double[]{Double.parseDouble(partes[0]), Double.parseDouble(partes[1])});
+        }
+        return vertices;
+    }
+
+    private static FilaEnvio leer(ResultSet rs) throws SQLException {
+        return new FilaEnvio(rs.getLong(1), rs.getLong(2), EstadoEnvio.desdeEtiqueta(rs.getString(3)),
+                rs.getObject(4, Double.class), rs.getObject(5, Double.class),
+                rs.getObject(6, Double.class), rs.getObject(7, Double.class));
+    }
+
+    private static String marcadores(int cantidad) {
+        return "(" + String.join(", ", Collections.nCopies(cantidad, "?")) + ")";
+    }
+
+    private static List<Long> drenar(Set<Long> conjunto) {
+        List<Long> ids = new ArrayList<>(conjunto.size());
+        Iterator<Long> iterador = conjunto.iterator();
+        while (iterador.hasNext()) {
+            ids.add(iterador.next());
+            iterador.remove();
+        }
+        return ids;
+    }
+
+    private record FilaEnvio(long envioId, long conductorId, EstadoEnvio estado, Double latitudOrigen, Double longitudOrigen,
+                             Double latitudDestino, Double longitudDestino) {
+    }
+}
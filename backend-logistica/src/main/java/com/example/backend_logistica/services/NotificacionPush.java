@@ -0,0 +1,4 @@
+package com.example.backend_logistica.services;
+
+public record NotificacionPush(String deviceToken, String titulo, String cuerpo) {
+}
@@ -1,41 +1,31 @@
 package com.example.backend_logistica.services;
 
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class NotificacionService {
 
-    private static final Logger logger = LoggerFactory.getLogger(NotificacionService.class);
+    private final DespachadorNotificaciones despachadorNotificaciones;
 
-    private final FirebaseMessaging firebaseMessaging;
-
-    public NotificacionService(FirebaseMessaging firebaseMessaging) {
-        this.firebaseMessaging = firebaseMessaging;
+    public NotificacionService(DespachadorNotificaciones despachadorNotificaciones) {
+        this.despachadorNotificaciones = despachadorNotificaciones;
     }
 
+    // No bloquea: la notificación se entrega al despachador asíncrono. Dentro de una transacción
+    // sólo se encola cuando ésta confirma, así un rollback no avisa de una asignación inexistente.
     public void enviarNotificacionPush(String deviceToken, String titulo, String cuerpo) {
-        Notification notification = Notification.builder()
-                .setTitle(titulo)
-                .setBody(cuerpo)
-                .build();
-
-        Message message = Message.builder()
-                .setToken(deviceToken) // Token del dispositivo al que enviar la notificación
-                .setNotification(notification)
-                .build();
-
-        try {
-            String response = firebaseMessaging.send(message);
-            logger.info("Notificación push enviada exitosamente. Firebase response: {}", response);
-        } catch (FirebaseMessagingException e) {
-            logger.error("Error al enviar la notificación push: ", e);
-            // Aquí podrías implementar lógica de reintento o manejo de errores más robusto
+        NotificacionPush notificacion = new NotificacionPush(deviceToken, titulo, cuerpo);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despachadorNotificaciones.encolar(notificacion);
+                }
+            });
+        } else {
+            despachadorNotificaciones.encolar(notificacion);
         }
     }
-}
\ No newline at end of file
+}
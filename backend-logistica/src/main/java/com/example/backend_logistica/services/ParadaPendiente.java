@@ -0,0 +1,5 @@
+package com.example.backend_logistica.services;
+
+// Parada por visitar de un envío: su recolección (en el origen) o su entrega (en el destino)
+public record ParadaPendiente(Long envioId, boolean recoleccion, double latitud, double longitud) {
+}
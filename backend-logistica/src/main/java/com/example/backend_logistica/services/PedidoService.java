@@ -1,11 +1,15 @@
 package com.example.backend_logistica.services;
 
+import com.example.backend_logistica.dto.PedidoDTO;
 import com.example.backend_logistica.model.Pedido;
 import com.example.backend_logistica.repository.PedidoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class PedidoService {
@@ -17,17 +21,31 @@ public class PedidoService {
         this.pedidoRepository = pedidoRepository;
     }
 
-    public List<Pedido> obtenerTodosPedidos() {
-        return pedidoRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<PedidoDTO> obtenerPaginaPedidos(Long cursor, int limite) {
+        return pedidoRepository.findByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, Limit.of(limite)).stream()
+                .map(PedidoDTO::desde)
+                .toList();
     }
 
-    public Optional<Pedido> obtenerPedidoPorId(Long id) {
-        return pedidoRepository.findById(id);
+    // Debe consumirse dentro de una transacción y cerrarse al terminar
+    public Stream<PedidoDTO> streamTodosPedidos() {
+        return pedidoRepository.streamTodosOrdenadosPorId().map(PedidoDTO::desde);
     }
 
-    public Pedido guardarPedido(Pedido pedido) {
+    @Transactional(readOnly = true)
+    public Optional<PedidoDTO> obtenerPedidoPorId(Long id) {
+        return pedidoRepository.findConClienteById(id).map(PedidoDTO::desde);
+    }
+
+    public boolean existePedido(Long id) {
+        return pedidoRepository.existsById(id);
+    }
+
+    @Transactional
+    public PedidoDTO guardarPedido(Pedido pedido) {
         // Aquí podrías añadir validaciones de negocio específicas para el Pedido antes de guardar
-        return pedidoRepository.save(pedido);
+        return PedidoDTO.desde(pedidoRepository.save(pedido));
     }
 
     public void eliminarPedido(Long id) {
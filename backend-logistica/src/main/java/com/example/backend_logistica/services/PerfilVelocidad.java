@@ -0,0 +1,47 @@
+package com.example.backend_logistica.services;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+// Velocidad media urbana por tipo de vehículo, ya descontados semáforos y tráfico. Vehiculo.tipo es
+// texto libre ("Moto", "Camión", "furgoneta"...): se clasifica por palabras clave y, si no se
+// reconoce, se usa el perfil de auto.
+public enum PerfilVelocidad {
+    MOTO(30),
+    AUTO(25),
+    FURGONETA(22),
+    CAMION(18),
+    BICICLETA(15);
+
+    private final double kmPorHora;
+
+    PerfilVelocidad(double kmPorHora) {
+        this.kmPorHora = kmPorHora;
+    }
+
+    public double getKmPorHora() {
+        return kmPorHora;
+    }
+
+    public static PerfilVelocidad desdeTipoVehiculo(String tipo) {
+        if (tipo == null) {
+            return AUTO;
+        }
+        String normalizado = Normalizer.normalize(tipo, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        if (normalizado.contains("moto")) {
+            return MOTO;
+        }
+        if (normalizado.contains("bici")) {
+            return BICICLETA;
+        }
+        if (normalizado.contains("camion") || normalizado.contains("truck")) {
+            return CAMION;
+        }
+        if (normalizado.contains("furgon") || normalizado.contains("van")) {
+            return FURGONETA;
+        }
+        return AUTO;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.ParadaRutaDTO;
+import com.example.backend_logistica.dto.RutaConductorDTO;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.OptimizadorRuta;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Orden de las paradas de cada conductor con varios envíos (OptimizadorRuta). Cada ruta se ordena con un
+// plazo fijo y las de varios conductores se reparten en un ForkJoinPool propio, así que una asignación
+// por rutas no ocupa el pool común ni tarda más que el plazo de una ruta aunque incluya cientos.
+// Las rutas no se guardan: se calculan al asignar y al consultarlas, con la posición vigente del conductor.
+@Service
+public class PlanificadorRutas {
+
+    public static final long HORAS_RUTA_ACTIVA = 48; // Los envíos sin entregar más antiguos se dan por abandonados
+
+    private static final String SQL_CONDUCTOR = "SELECT c.ubicacion_actual_latitud, c.ubicacion_actual_longitud, v.tipo "
+            + "FROM conductor c LEFT JOIN vehiculo v ON v.id = c.vehiculo_id WHERE c.id = ?";
+    private static final String SQL_ENVIOS_SIN_ENTREGAR = "SELECT id, estado_envio, ubicacion_origen_latitud, ubicacion_origen_longitud, "
+            + "ubicacion_destino_latitud, ubicacion_destino_longitud FROM envio "
+            + "WHERE conductor_id = ? AND fecha_entrega_real IS NULL AND estado_envio <> ? AND fecha_creacion >= ? ORDER BY id"; // idx_envio_conductor_fecha
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestaUbicacionesService ingestaUbicaciones;
+    private final MotorEta motorEta;
+    private final ForkJoinPool pool;
+    private final long plazoNanos;
+    private final Timer tiempoOrdenamiento;
+
+    @Autowired
+    public PlanificadorRutas(JdbcTemplate jdbcTemplate,
+                             IngestaUbicacionesService ingestaUbicaciones,
+                             MotorEta motorEta,
+                             MeterRegistry meterRegistry,
+                             @Value("${rutas.paralelismo:0}") int paralelismo,
+                             @Value("${rutas.plazo-ms-por-conductor:200}") long plazoMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ingestaUbicaciones = ingestaUbicaciones;
+        this.motorEta = motorEta;
+        this.pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+        this.plazoNanos = TimeUnit.MILLISECONDS.toNanos(plazoMs);
+        this.tiempoOrdenamiento = Timer.builder("rutas.ordenamiento")
+                .description("Duración del ordenamiento de las paradas de una ruta")
+                .register(meterRegistry);
+    }
+
+    // Ruta vigente de un conductor: sus envíos sin entregar, desde su última posición
+    public RutaConductorDTO obtenerRuta(Long conductorId) {
+        List<Object[]> conductor = jdbcTemplate.query(SQL_CONDUCTOR, (rs, fila) -> new Object[]{
+                rs.getObject(1, Double.class), rs.getObject(2, Double.class), rs.getString(3)}, conductorId);
+        if (conductor.isEmpty()) {
+            throw new IllegalArgumentException("Conductor no encontrado con ID: " + conductorId);
+        }
+        Optional<PosicionConductor> posicion = ingestaUbicaciones.obtenerUltimaPosicion(conductorId);
+        Double latitud = posicion.map(PosicionConductor::latitud).orElse((Double) conductor.get(0)[0]);
+        Double longitud = posicion.map(PosicionConductor::longitud).orElse((Double) conductor.get(0)[1]);
+
+        List<ParadaPendiente> paradas = new ArrayList<>();
+        List<Long> sinDestino = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.query(SQL_ENVIOS_SIN_ENTREGAR, rs -> {
+            Long envioId = rs.getLong(1);
+            boolean recogido = EstadoEnvio.desdeEtiqueta(rs.getString(2)) != EstadoEnvio.ASIGNADO;
+            agregarParadas(paradas, sinDestino, envioId, recogido,
+                    rs.getObject(3, Double.class), rs.getObject(4, Double.class),
+                    rs.getObject(5, Double.class), rs.getObject(6, Double.class));
+        }, conductorId, EstadoEnvio.CANCELADO.getEtiqueta(), Timestamp.valueOf(ahora.minusHours(HORAS_RUTA_ACTIVA)));
+
+        return ordenar(new ProblemaRuta(conductorId, (String) conductor.get(0)[2], latitud, longitud, paradas, sinDestino), ahora);
+    }
+
+    // Recolección (si aún no se recogió y hay origen) y entrega; sin destino el envío queda fuera del orden
+    public static void agregarParadas(List<ParadaPendiente> paradas, List<Long> sinDestino, Long envioId, boolean recogido,
+                                      Double latitudOrigen, Double longitudOrigen, Double latitudDestino, Double longitudDestino) {
+        if (!recogido && GeoUtils.coordenadasValidas(latitudOrigen, longitudOrigen)) {
+            paradas.add(new ParadaPendiente(envioId, true, latitudOrigen, longitudOrigen));
+        }
+        if (GeoUtils.coordenadasValidas(latitudDestino, longitudDestino)) {
+            paradas.add(new ParadaPendiente(envioId, false, latitudDestino, longitudDestino));
+        } else {
+            sinDestino.add(envioId);
+        }
+    }
+
+    // Un problema por conductor; las rutas se ordenan en paralelo y vuelven en el mismo orden
+    public List<RutaConductorDTO> planificar(List<ProblemaRuta> problemas, LocalDateTime desde) {
+        if (problemas.size() <= 1) {
+            return problemas.stream().map(problema -> ordenar(problema, desde)).toList();
+        }
+        try {
+            return pool.submit(() -> problemas.parallelStream().map(problema -> ordenar(problema, desde)).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Planificación de rutas interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al planificar las rutas", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        pool.shutdownNow();
+    }
+
+    private RutaConductorDTO ordenar(ProblemaRuta problema, LocalDateTime desde) {
+        long inicio = System.nanoTime();
+        List<ParadaPendiente> paradas = problema.paradas();
+        int n = paradas.size();
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        int[] predecesores = new int[n];
+        Arrays.fill(predecesores, OptimizadorRuta.SIN_PREDECESOR);
+        Map<Long, Integer> recoleccionPorEnvio = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ParadaPendiente parada = paradas.get(i);
+            latitudes[i] = parada.latitud();
+            longitudes[i] = parada.longitud();
+            if (parada.recoleccion()) {
+                recoleccionPorEnvio.put(parada.envioId(), i);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            ParadaPendiente parada = paradas.get(i);
+            if (!parada.recoleccion()) {
+                predecesores[i] = recoleccionPorEnvio.getOrDefault(parada.envioId(), OptimizadorRuta.SIN_PREDECESOR);
+            }
+        }
+
+        // Sin posición conocida la ruta sale de la primera parada que no espera a otra
+        boolean conSalida = GeoUtils.coordenadasValidas(problema.latitudSalida(), problema.longitudSalida());
+        double latitudSalida = 0;
+        double longitudSalida = 0;
+        if (conSalida) {
+            latitudSalida = problema.latitudSalida();
+            longitudSalida = problema.longitudSalida();
+        } else {
+            for (int i = 0; i < n; i++) {
+                if (predecesores[i] == OptimizadorRuta.SIN_PREDECESOR) {
+                    latitudSalida = latitudes[i];
+                    longitudSalida = longitudes[i];
+                    break;
+                }
+            }
+        }
+        OptimizadorRuta.Resultado resultado = OptimizadorRuta.ordenar(latitudes, longitudes, predecesores,
+                latitudSalida, longitudSalida, plazoNanos);
+
+        // Distancias de la respuesta con haversine (el optimizador trabaja sobre una proyección plana)
+        int[] orden = resultado.orden();
+        double[] kmAcumulados = new double[n];
+        boolean[] recolecciones = new boolean[n];
+        double km = 0;
+        double latitudAnterior = latitudSalida;
+        double longitudAnterior = longitudSalida;
+        for (int k = 0; k < n; k++) {
+            int i = orden[k];
+            km += GeoUtils.distanciaKm(latitudAnterior, longitudAnterior, latitudes[i], longitudes[i]);
+            kmAcumulados[k] = km;
+            recolecciones[k] = paradas.get(i).recoleccion();
+            latitudAnterior = latitudes[i];
+            longitudAnterior = longitudes[i];
+        }
+        LocalDateTime[] llegadas = motorEta.estimarLlegadas(problema.tipoVehiculo(), kmAcumulados, recolecciones, desde);
+
+        List<ParadaRutaDTO> paradasOrdenadas = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            ParadaPendiente parada = paradas.get(orden[k]);
+            paradasOrdenadas.add(new ParadaRutaDTO(k + 1, parada.envioId(),
+                    parada.recoleccion() ? ParadaRutaDTO.RECOLECCION : ParadaRutaDTO.ENTREGA,
+                    parada.latitud(), parada.longitud(), kmAcumulados[k], llegadas[k]));
+        }
+        tiempoOrdenamiento.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        return new RutaConductorDTO(problema.conductorId(), paradasOrdenadas, km, resultado.optimoLocal(), problema.enviosSinDestino());
+    }
+}
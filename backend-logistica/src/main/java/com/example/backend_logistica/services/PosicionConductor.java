@@ -0,0 +1,9 @@
+package com.example.backend_logistica.services;
+
+// Última posición reportada por un conductor (marcaTiempo en milisegundos epoch)
+public record PosicionConductor(Long conductorId, double latitud, double longitud, long marcaTiempo) {
+
+    public boolean esMasRecienteQue(PosicionConductor otra) {
+        return otra == null || marcaTiempo >= otra.marcaTiempo();
+    }
+}
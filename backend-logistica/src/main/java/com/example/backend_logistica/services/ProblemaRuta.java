@@ -0,0 +1,8 @@
+package com.example.backend_logistica.services;
+
+import java.util.List;
+
+// Paradas de un conductor por ordenar. Sin posición de salida conocida la ruta empieza en la primera parada
+public record ProblemaRuta(Long conductorId, String tipoVehiculo, Double latitudSalida, Double longitudSalida,
+                           List<ParadaPendiente> paradas, List<Long> enviosSinDestino) {
+}
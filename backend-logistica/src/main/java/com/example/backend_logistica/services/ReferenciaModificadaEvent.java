@@ -0,0 +1,9 @@
+package com.example.backend_logistica.services;
+
+// Se publica cuando cambia una entidad cacheada; id null invalida la caché entera
+public record ReferenciaModificadaEvent(String cache, Long id) {
+
+    public static ReferenciaModificadaEvent todas(String cache) {
+        return new ReferenciaModificadaEvent(cache, null);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.EventoEnvioDTO;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Registro de transiciones de los envíos (evento_envio, solo inserción). Se escribe con JDBC dentro de la
+// transacción que cambia el estado, así el registro y la fila del envío nunca divergen. Una clave de
+// idempotencia repetida para el mismo envío choca con uk_evento_envio_clave (DuplicateKeyException).
+@Service
+public class RegistroEventosEnvio {
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO evento_envio (envio_id, estado, fecha, clave_idempotencia) VALUES (?, ?, ?, ?)";
+    private static final String SQL_CLAVE_APLICADA =
+            "SELECT COUNT(*) FROM evento_envio WHERE envio_id = ? AND clave_idempotencia = ?"; // uk_evento_envio_clave
+    private static final String SQL_EVENTOS =
+            "SELECT estado, fecha, clave_idempotencia FROM evento_envio WHERE envio_id = ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoLoteJdbc;
+
+    @Autowired
+    public RegistroEventosEnvio(JdbcTemplate jdbcTemplate,
+                                @Value("${envios.eventos.tamano-lote-jdbc:500}") int tamanoLoteJdbc) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoLoteJdbc = tamanoLoteJdbc;
+    }
+
+    public void registrar(Long envioId, EstadoEnvio estado, LocalDateTime fecha, String claveIdempotencia) {
+        jdbcTemplate.update(SQL_INSERTAR, envioId, estado.getCodigo(), Timestamp.valueOf(fecha), claveIdempotencia);
+    }
+
+    // Envíos recién insertados por lotes (ya con ID): su estado actual, en su fecha de creación
+    public void registrarAltas(List<Envio> envios) {
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, envios, tamanoLoteJdbc, (ps, envio) -> {
+            ps.setLong(1, envio.getId());
+            ps.setInt(2, envio.getEstadoEnvio().getCodigo());
+            ps.setTimestamp(3, Timestamp.valueOf(envio.getFechaCreacion()));
+            ps.setNull(4, Types.VARCHAR);
+        });
+    }
+
+    public boolean claveAplicada(Long envioId, String claveIdempotencia) {
+        Integer filas = jdbcTemplate.queryForObject(SQL_CLAVE_APLICADA, Integer.class, envioId, claveIdempotencia);
+        return filas != null && filas > 0;
+    }
+
+    public List<EventoEnvioDTO> obtenerEventos(Long envioId) {
+        return jdbcTemplate.query(SQL_EVENTOS, (rs, fila) -> new EventoEnvioDTO(
+                EstadoEnvio.desdeCodigo(rs.getInt(1)).getEtiqueta(), rs.getTimestamp(2).toLocalDateTime(), rs.getString(3)), envioId);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.backend_logistica.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Entrega de la bandeja de salida: lee los eventos pendientes por lotes en orden de id, los pasa al transporte
+// y los borra, todo en una transacción. El SELECT ... FOR UPDATE bloquea el lote, así con varias instancias
+// cada lote lo entrega una sola y los siguientes esperan a que termine. Si la transacción falla después de
+// pasar el lote al transporte, el lote se vuelve a entregar (al menos una vez)
+@Service
+public class RepartidorEventos {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepartidorEventos.class);
+
+    private static final String SQL_PENDIENTES = "SELECT id, tipo, carga, fecha FROM evento_salida ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String SQL_BORRAR = "DELETE FROM evento_salida WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final ObjectMapper objectMapper;
+    private final TransporteEventos transporte;
+    private final int tamanoLote;
+    private final Map<String, Class<? extends EventoDominio>> tipos = new HashMap<>();
+
+    private final Counter eventosEntregados;
+    private final Counter eventosDescartados;
+    private final Timer retrasoEntrega;
+    private final Timer tiempoLote;
+
+    @Autowired
+    public RepartidorEventos(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             TransporteEventos transporte,
+                             MeterRegistry meterRegistry,
+                             @Value("${eventos.salida.tamano-lote:500}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.transporte = transporte;
+        this.tamanoLote = tamanoLote;
+        for (Class<?> tipo : EventoDominio.class.getPermittedSubclasses()) {
+            tipos.put(tipo.getSimpleName(), tipo.asSubclass(EventoDominio.class)); // El nombre que guarda BusEventos
+        }
+
+        this.eventosEntregados = Counter.builder("eventos.salida").tag("resultado", "entregado").register(meterRegistry);
+        this.eventosDescartados = Counter.builder("eventos.salida").tag("resultado", "descartado").register(meterRegistry);
+        this.retrasoEntrega = Timer.builder("eventos.salida.retraso")
+                .description("Tiempo entre la publicación de un evento y su entrega al transporte")
+                .register(meterRegistry);
+        this.tiempoLote = Timer.builder("eventos.salida.lote")
+                .description("Duración de cada lote leído, entregado y borrado de la bandeja de salida")
+                .register(meterRegistry);
+    }
+
+    // Lotes seguidos mientras salgan llenos
+    @Scheduled(fixedDelayString = "${eventos.salida.intervalo-ms:200}")
+    public void repartir() {
+        int entregados;
+        do {
+            Integer resultado = tiempoLote.record(() -> transaccion.execute(estado -> repartirLote()));
+            entregados = resultado != null ? resultado : 0;
+        } while (entregados == tamanoLote);
+    }
+
+    private int repartirLote() {
+        List<Long> ids = new ArrayList<>(tamanoLote);
+        List<EventoDominio> lote = new ArrayList<>(tamanoLote);
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.query(SQL_PENDIENTES, rs -> {
+            ids.add(rs.getLong(1));
+            Class<? extends EventoDominio> tipo = tipos.get(rs.getString(2));
+            try {
+                if (tipo == null) {
+                    throw new IOException("tipo desconocido " + rs.getString(2));
+                }
+                lote.add(objectMapper.readValue(rs.getString(3), tipo));
+                retrasoEntrega.record(Duration.between(rs.getTimestamp(4).toLocalDateTime(), ahora));
+            } catch (IOException e) {
+                // Evento de una versión anterior que ya no se puede leer: no debe bloquear a los siguientes
+                eventosDescartados.increment();
+                logger.error("Evento {} descartado de la bandeja de salida: {}", rs.getLong(1), e.getMessage());
+            }
+        }, tamanoLote);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (!lote.isEmpty()) {
+            transporte.enviar(lote);
+            eventosEntregados.increment(lote.size());
+        }
+        jdbcTemplate.update(String.format(SQL_BORRAR, String.join(", ", Collections.nCopies(ids.size(), "?"))), ids.toArray());
+        return ids.size();
+    }
+}
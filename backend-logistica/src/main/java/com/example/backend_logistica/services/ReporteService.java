@@ -0,0 +1,56 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.ResumenEnviosDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Reportes de KPIs servidos desde resumen_envios: el coste depende del número de periodos pedidos
+// (y de claves, en los totales), no del tamaño del historial. Los contadores llegan con el retraso
+// del intervalo de escritura de AgregadorResumenEnvios. Las consultas son de solo lectura: van a las réplicas
+// cuando las hay (ReplicasLectura), cuyo retraso queda por debajo de ese intervalo.
+@Service
+public class ReporteService {
+
+    private static final String SQL_SERIE = "SELECT clave, periodo, envios_asignados, envios_entregados, entregas_a_tiempo, "
+            + "segundos_entrega_total, cambios_estado FROM resumen_envios "
+            + "WHERE granularidad = ? AND dimension = ? AND clave = ? AND periodo >= ? AND periodo <= ? ORDER BY periodo";
+    private static final String SQL_TOTALES = "SELECT clave, SUM(envios_asignados), SUM(envios_entregados), SUM(entregas_a_tiempo), "
+            + "SUM(segundos_entrega_total), SUM(cambios_estado) FROM resumen_envios "
+            + "WHERE granularidad = ? AND dimension = ? AND periodo >= ? AND periodo <= ? "
+            + "GROUP BY clave ORDER BY SUM(envios_entregados) DESC, clave LIMIT ?";
+
+    private static final RowMapper<ResumenEnviosDTO> FILA_SERIE = (rs, n) -> ResumenEnviosDTO.desde(rs.getString(1),
+            rs.getTimestamp(2).toLocalDateTime(), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7));
+    private static final RowMapper<ResumenEnviosDTO> FILA_TOTAL = (rs, n) -> ResumenEnviosDTO.desde(rs.getString(1),
+            null, rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ReporteService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Un elemento por periodo con actividad (los periodos sin envíos no tienen fila)
+    @Transactional(readOnly = true)
+    public List<ResumenEnviosDTO> obtenerSerie(DimensionResumen dimension, String clave, GranularidadResumen granularidad,
+                                               LocalDateTime desde, LocalDateTime hasta) {
+        return jdbcTemplate.query(SQL_SERIE, FILA_SERIE, granularidad.name(), dimension.name(), clave,
+                Timestamp.valueOf(granularidad.inicioPeriodo(desde)), Timestamp.valueOf(granularidad.inicioPeriodo(hasta)));
+    }
+
+    // Totales del rango por clave, de más a menos entregas
+    @Transactional(readOnly = true)
+    public List<ResumenEnviosDTO> obtenerTotales(DimensionResumen dimension, GranularidadResumen granularidad,
+                                                 LocalDateTime desde, LocalDateTime hasta, int limite) {
+        return jdbcTemplate.query(SQL_TOTALES, FILA_TOTAL, granularidad.name(), dimension.name(),
+                Timestamp.valueOf(granularidad.inicioPeriodo(desde)), Timestamp.valueOf(granularidad.inicioPeriodo(hasta)), limite);
+    }
+}
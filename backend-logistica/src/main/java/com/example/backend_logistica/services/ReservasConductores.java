@@ -0,0 +1,77 @@
+package com.example.backend_logistica.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tabla en memoria de conductores con una asignación en curso. reservar() es un único add atómico
+// sobre un ConcurrentHashMap (sin cerrojos globales): de varios asignadores concurrentes sólo uno
+// obtiene cada conductor y los demás pasan al siguiente candidato sin tocar la base de datos.
+// La reserva dura hasta que termina la transacción; @Version en Conductor cubre lo que quede fuera
+// de esta JVM (otras instancias, ediciones por PUT).
+@Service
+public class ReservasConductores {
+
+    private final IndiceGeoespacialConductores indiceGeoespacial;
+
+    private final Set<Long> reservados = ConcurrentHashMap.newKeySet();
+    private final Counter conflictos;
+
+    @Autowired
+    public ReservasConductores(IndiceGeoespacialConductores indiceGeoespacial, MeterRegistry meterRegistry) {
+        this.indiceGeoespacial = indiceGeoespacial;
+        Gauge.builder("conductores.reservas.activas", reservados, Set::size)
+                .description("Conductores con una asignación en curso")
+                .register(meterRegistry);
+        this.conflictos = Counter.builder("conductores.reservas.conflictos")
+                .description("Intentos de reservar un conductor ya reservado por otra asignación")
+                .register(meterRegistry);
+    }
+
+    // Sólo reserva si el índice no lo da ya por ocupado: una asignación confirmada marca el índice
+    // antes de liberar la reserva, así que nadie puede tomarlo con una lectura anterior al commit
+    public boolean reservar(Long conductorId) {
+        if (!reservados.add(conductorId)) {
+            conflictos.increment();
+            return false;
+        }
+        if (indiceGeoespacial.figuraComoOcupado(conductorId)) {
+            reservados.remove(conductorId);
+            return false;
+        }
+        return true;
+    }
+
+    public void liberar(Long conductorId) {
+        reservados.remove(conductorId);
+    }
+
+    // La reserva de un conductor ya ocupado se libera al terminar la transacción en curso. Si ésta
+    // se revierte, el conductor vuelve a figurar como disponible en el índice.
+    public void liberarAlTerminarTransaccion(Long conductorId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            liberar(conductorId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado != STATUS_COMMITTED) {
+                    indiceGeoespacial.marcarDisponibilidad(conductorId, true);
+                }
+                liberar(conductorId);
+            }
+        });
+    }
+
+    public int obtenerReservasActivas() {
+        return reservados.size();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.backend_logistica.services;
+
+// Resultado del envío de una notificación dentro de un lote
+public record ResultadoEnvioPush(boolean exitoso, boolean reintentable, String error) {
+
+    public static ResultadoEnvioPush ok() {
+        return new ResultadoEnvioPush(true, false, null);
+    }
+
+    public static ResultadoEnvioPush fallo(boolean reintentable, String error) {
+        return new ResultadoEnvioPush(false, reintentable, error);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.backend_logistica.services;
+
+// pendientes > 0 significa que la cola de ingesta se llenó: los últimos "pendientes" registros del lote
+// no se procesaron y el cliente debe reenviarlos
+public record ResultadoLoteUbicaciones(int aceptados, int descartados, int pendientes) {
+}
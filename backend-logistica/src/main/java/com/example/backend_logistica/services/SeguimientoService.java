@@ -0,0 +1,47 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.repository.EnvioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+// Altas en el canal de seguimiento en vivo. Sólo la suscripción a un envío consulta la base de datos
+// (una vez, para saber qué conductor seguir); las posiciones salen después de la ingesta en memoria.
+@Service
+public class SeguimientoService {
+
+    private final EnvioRepository envioRepository;
+    private final IngestaUbicacionesService ingestaUbicaciones;
+    private final DifusorSeguimiento difusorSeguimiento;
+
+    @Autowired
+    public SeguimientoService(EnvioRepository envioRepository, IngestaUbicacionesService ingestaUbicaciones, DifusorSeguimiento difusorSeguimiento) {
+        this.envioRepository = envioRepository;
+        this.ingestaUbicaciones = ingestaUbicaciones;
+        this.difusorSeguimiento = difusorSeguimiento;
+    }
+
+    // Vacío si el servidor no admite más conexiones de seguimiento. Se lee de la primaria (transacción de
+    // escritura): la app abre el seguimiento justo después de asignar y una réplica retrasada no vería el conductor
+    @Transactional
+    public Optional<SseEmitter> seguirEnvio(Long envioId) {
+        Envio envio = envioRepository.findById(envioId)
+                .orElseThrow(() -> new IllegalArgumentException("Envío no encontrado con ID: " + envioId));
+        if (envio.getConductor() == null) {
+            throw new IllegalArgumentException("El envío " + envioId + " no tiene conductor asignado");
+        }
+        if (envio.getEstadoEnvio() != null && envio.getEstadoEnvio().esFinal()) {
+            throw new IllegalStateException("El envío " + envioId + " ya fue " + envio.getEstadoEnvio().getEtiqueta().toLowerCase());
+        }
+        Long conductorId = envio.getConductor().getId(); // El proxy devuelve el ID sin consultar la tabla conductor
+        return difusorSeguimiento.suscribirEnvio(envioId, conductorId, ingestaUbicaciones.obtenerUltimaPosicion(conductorId).orElse(null));
+    }
+
+    public Optional<SseEmitter> seguirRegion(double latitudMin, double latitudMax, double longitudMin, double longitudMax) {
+        return difusorSeguimiento.suscribirRegion(latitudMin, latitudMax, longitudMin, longitudMax);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.RegistroImportacion;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+// Entidades admitidas en la importación masiva: sentencia INSERT, tipos SQL de sus parámetros, conversión
+// de cada registro a esos parámetros y claves foráneas que se comprueban por lote antes de insertar
+public enum TipoImportacion {
+    CLIENTES("INSERT INTO clientes (nombre, direccion, telefono, email) VALUES (?, ?, ?, ?)",
+            new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR},
+            List.of()) {
+        @Override
+        Object[] convertir(RegistroImportacion registro, Timestamp ahora) {
+            return new Object[]{registro.texto("nombre", true), registro.texto("direccion", false),
+                    registro.texto("telefono", false), registro.texto("email", false)};
+        }
+    },
+    PEDIDOS("INSERT INTO pedido (numero_pedido, estado, fecha_entrega_estimada, fecha_creacion, cliente_id) VALUES (?, ?, ?, ?, ?)",
+            new int[]{Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT},
+            List.of(new Referencia(4, "clienteId", "clientes"))) {
+        @Override
+        Object[] convertir(RegistroImportacion registro, Timestamp ahora) {
+            Timestamp creacion = registro.fecha("fechaCreacion", false);
+            return new Object[]{registro.texto("numeroPedido", true), registro.texto("estado", false),
+                    registro.fecha("fechaEntregaEstimada", false), creacion != null ? creacion : ahora,
+                    registro.entero("clienteId", true)};
+        }
+    },
+    ENVIOS("INSERT INTO envio (pedido_id, conductor_id, vehiculo_id, estado_envio, fecha_creacion, fecha_entrega_estimada, "
+            + "fecha_entrega_real, ubicacion_origen_latitud, ubicacion_origen_longitud, ubicacion_destino_latitud, "
+            + "ubicacion_destino_longitud, codigo_qr_entrega) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            new int[]{Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP,
+                    Types.TIMESTAMP, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.VARCHAR},
+            List.of(new Referencia(0, "pedidoId", "pedido"), new Referencia(1, "conductorId", "conductor"),
+                    new Referencia(2, "vehiculoId", "vehiculo"))) {
+        @Override
+        Object[] convertir(RegistroImportacion registro, Timestamp ahora) {
+            Timestamp creacion = registro.fecha("fechaCreacion", false);
+            String textoEstado = registro.texto("estadoEnvio", true);
+            EstadoEnvio estado = EstadoEnvio.buscar(textoEstado)
+                    .orElseThrow(() -> new IllegalArgumentException("Estado de envío desconocido: " + textoEstado));
+            Double latitudOrigen = registro.decimal("ubicacionOrigenLatitud", false);
+            Double longitudOrigen = registro.decimal("ubicacionOrigenLongitud", false);
+            Double latitudDestino = registro.decimal("ubicacionDestinoLatitud", false);
+            Double longitudDestino = registro.decimal("ubicacionDestinoLongitud", false);
+            if (!coordenadasOpcionales(latitudOrigen, longitudOrigen)) {
+                throw new IllegalArgumentException("Coordenadas de origen no válidas");
+            }
+            if (!coordenadasOpcionales(latitudDestino, longitudDestino)) {
+                throw new IllegalArgumentException("Coordenadas de destino no válidas");
+            }
+            return new Object[]{registro.entero("pedidoId", true), registro.entero("conductorId", false),
+                    registro.entero("vehiculoId", false), estado.getEtiqueta(),
+                    creacion != null ? creacion : ahora, registro.fecha("fechaEntregaEstimada", false),
+                    registro.fecha("fechaEntregaReal", false), latitudOrigen, longitudOrigen, latitudDestino, longitudDestino,
+                    registro.texto("codigoQrEntrega", false)}; // Las evidencias se suben por registrar-entrega
+        }
+    };
+
+    // Parámetro del INSERT que apunta a otra tabla; null se admite salvo que convertir lo exija
+    record Referencia(int parametro, String campo, String tabla) {
+    }
+
+    private final String sqlInsertar;
+    private final int[] tiposSql;
+    private final List<Referencia> referencias;
+
+    TipoImportacion(String sqlInsertar, int[] tiposSql, List<Referencia> referencias) {
+        this.sqlInsertar = sqlInsertar;
+        this.tiposSql = tiposSql;
+        this.referencias = referencias;
+    }
+
+    // IllegalArgumentException con el motivo si el registro no es válido
+    abstract Object[] convertir(RegistroImportacion registro, Timestamp ahora);
+
+    String getSqlInsertar() {
+        return sqlInsertar;
+    }
+
+    int[] getTiposSql() {
+        return tiposSql;
+    }
+
+    List<Referencia> getReferencias() {
+        return referencias;
+    }
+
+    private static boolean coordenadasOpcionales(Double latitud, Double longitud) {
+        return (latitud == null && longitud == null) || GeoUtils.coordenadasValidas(latitud, longitud);
+    }
+}
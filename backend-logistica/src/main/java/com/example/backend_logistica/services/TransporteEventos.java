@@ -0,0 +1,11 @@
+package com.example.backend_logistica.services;
+
+import java.util.List;
+
+// Lleva los eventos ya confirmados de la bandeja de salida a sus consumidores (eventos.transporte: memoria, o un
+// broker externo con otra implementación). Recibe los lotes en orden de publicación y debe conservar ese orden
+// por agregado. Puede bloquear si los consumidores van atrasados: el repartidor espera en lugar de acumular
+public interface TransporteEventos {
+
+    void enviar(List<EventoDominio> lote);
+}
@@ -0,0 +1,99 @@
+package com.example.backend_logistica.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Broker en memoria: los consumidores son los beans ConsumidorEventos de esta instancia. Cada agregado va
+// siempre a la misma partición (un hilo con su cola acotada), así sus eventos se consumen en orden y los de
+// agregados distintos en paralelo. Con la cola de una partición llena, enviar espera: el repartidor deja los
+// eventos en la bandeja de salida en lugar de acumularlos en memoria. Un consumidor que falla no frena a los
+// demás ni se reintenta (el error queda en el log y en eventos.consumidor.errores)
+@Service
+@ConditionalOnProperty(name = "eventos.transporte", havingValue = "memoria", matchIfMissing = true)
+public class TransporteEventosMemoria implements TransporteEventos {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransporteEventosMemoria.class);
+
+    private final List<ConsumidorEventos> consumidores;
+    private final ThreadPoolExecutor[] particiones;
+    private final Counter erroresConsumidor;
+
+    @Autowired
+    public TransporteEventosMemoria(List<ConsumidorEventos> consumidores,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${eventos.memoria.particiones:4}") int particiones,
+                                    @Value("${eventos.memoria.capacidad-cola:1000}") int capacidadCola) {
+        this.consumidores = List.copyOf(consumidores);
+        this.particiones = new ThreadPoolExecutor[particiones];
+        for (int i = 0; i < particiones; i++) {
+            this.particiones[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacidadCola),
+                    Thread.ofPlatform().name("eventos-" + i).daemon(true).factory(),
+                    (tarea, ejecutor) -> {
+                        if (ejecutor.isShutdown()) {
+                            throw new RejectedExecutionException("Transporte de eventos detenido");
+                        }
+                        try {
+                            ejecutor.getQueue().put(tarea); // Espera hueco en la cola de la partición
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+        }
+        this.erroresConsumidor = Counter.builder("eventos.consumidor.errores").register(meterRegistry);
+    }
+
+    // Una tarea por partición con sus eventos del lote, en el orden recibido
+    @Override
+    public void enviar(List<EventoDominio> lote) {
+        List<List<EventoDominio>> porParticion = new ArrayList<>(particiones.length);
+        for (int i = 0; i < particiones.length; i++) {
+            porParticion.add(new ArrayList<>());
+        }
+        for (EventoDominio evento : lote) {
+            porParticion.get(Math.floorMod(Long.hashCode(evento.agregadoId()), particiones.length)).add(evento);
+        }
+        for (int i = 0; i < particiones.length; i++) {
+            List<EventoDominio> eventos = porParticion.get(i);
+            if (!eventos.isEmpty()) {
+                particiones[i].execute(() -> eventos.forEach(this::repartir));
+            }
+        }
+    }
+
+    private void repartir(EventoDominio evento) {
+        for (ConsumidorEventos consumidor : consumidores) {
+            try {
+                consumidor.consumir(evento);
+            } catch (RuntimeException e) {
+                erroresConsumidor.increment();
+                logger.error("{} falló al consumir {}", consumidor.getClass().getSimpleName(), evento, e);
+            }
+        }
+    }
+
+    // Termina lo ya recibido: esos eventos ya no están en la bandeja de salida
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        for (ThreadPoolExecutor particion : particiones) {
+            particion.shutdown();
+        }
+        for (ThreadPoolExecutor particion : particiones) {
+            particion.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.TrayectoriaDTO;
+import com.example.backend_logistica.model.EnvioBase;
+import com.example.backend_logistica.repository.EnvioArchivadoRepository;
+import com.example.backend_logistica.repository.EnvioRepository;
+import com.example.backend_logistica.util.DouglasPeucker;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.PuntoTrayectoria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+// Reproducción de recorridos desde el historial de ubicaciones: la trayectoria de un envío es la de su
+// conductor entre la creación del envío y su entrega (o ahora, si sigue en curso)
+@Service
+public class TrayectoriaService {
+
+    private final EnvioRepository envioRepository;
+    private final EnvioArchivadoRepository envioArchivadoRepository;
+    private final IngestaUbicacionesService ingestaUbicaciones;
+    private final HistorialUbicacionesService historialUbicaciones;
+    private final long maxIntervaloMs;
+
+    @Autowired
+    public TrayectoriaService(EnvioRepository envioRepository,
+                              EnvioArchivadoRepository envioArchivadoRepository,
+                              IngestaUbicacionesService ingestaUbicaciones,
+                              HistorialUbicacionesService historialUbicaciones,
+                              @Value("${ubicaciones.historial.max-intervalo-ms:60000}") long maxIntervaloMs) {
+        this.envioRepository = envioRepository;
+        this.envioArchivadoRepository = envioArchivadoRepository;
+        this.ingestaUbicaciones = ingestaUbicaciones;
+        this.historialUbicaciones = historialUbicaciones;
+        this.maxIntervaloMs = maxIntervaloMs;
+    }
+
+    public TrayectoriaDTO obtenerTrayectoriaConductor(Long conductorId, LocalDateTime desde, LocalDateTime hasta, double toleranciaMetros) {
+        if (!ingestaUbicaciones.existeConductor(conductorId)) {
+            throw new IllegalArgumentException("Conductor no encontrado con ID: " + conductorId);
+        }
+        return construir(conductorId, null, desde, hasta, toleranciaMetros);
+    }
+
+    // desde y hasta son opcionales y solo pueden acotar la vida del envío. El historial de ubicaciones dura más
+    // que el envío en envio, así que también se reproducen envíos archivados
+    @Transactional(readOnly = true)
+    public TrayectoriaDTO obtenerTrayectoriaEnvio(Long envioId, LocalDateTime desde, LocalDateTime hasta, double toleranciaMetros) {
+        EnvioBase envio = envioRepository.findById(envioId).<EnvioBase>map(e -> e)
+                .or(() -> envioArchivadoRepository.findById(envioId))
+                .orElseThrow(() -> new IllegalArgumentException("Envío no encontrado con ID: " + envioId));
+        if (envio.getConductor() == null) {
+            throw new IllegalArgumentException("El envío " + envioId + " no tiene conductor asignado");
+        }
+        LocalDateTime fin = envio.getFechaEntregaReal() != null ? envio.getFechaEntregaReal() : LocalDateTime.now();
+        LocalDateTime inicio = envio.getFechaCreacion() != null ? envio.getFechaCreacion() : fin.minusDays(1);
+        if (desde != null && desde.isAfter(inicio)) {
+            inicio = desde;
+        }
+        if (hasta != null && hasta.isBefore(fin)) {
+            fin = hasta;
+        }
+        return construir(envio.getConductor().getId(), envioId, inicio, fin, toleranciaMetros);
+    }
+
+    private TrayectoriaDTO construir(Long conductorId, Long envioId, LocalDateTime desde, LocalDateTime hasta, double toleranciaMetros) {
+        List<PuntoTrayectoria> registrados = desde.isAfter(hasta)
+                ? List.of()
+                : historialUbicaciones.obtenerPuntos(conductorId, aMilisegundos(desde), aMilisegundos(hasta));
+        List<PuntoTrayectoria> puntos = DouglasPeucker.simplificar(registrados, toleranciaMetros, maxIntervaloMs);
+        double distanciaKm = 0;
+        for (int i = 1; i < puntos.size(); i++) {
+            PuntoTrayectoria anterior = puntos.get(i - 1);
+            PuntoTrayectoria actual = puntos.get(i);
+            distanciaKm += GeoUtils.distanciaKm(anterior.latitud(), anterior.longitud(), actual.latitud(), actual.longitud());
+        }
+        return new TrayectoriaDTO(conductorId, envioId, desde, hasta, registrados.size(), distanciaKm, puntos);
+    }
+
+    // Las fechas de los envíos se guardan en la zona del servidor; las marcas de los pings son epoch
+    private static long aMilisegundos(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.backend_logistica.services;
+
+// Última posición de un conductor escrita por la ingesta (una por conductor y escritura por lotes, no una por
+// ping). Agregado: el conductor
+public record UbicacionActualizadaEvent(Long conductorId, double latitud, double longitud, long marcaTiempo)
+        implements EventoDominio {
+
+    @Override
+    public Long agregadoId() {
+        return conductorId;
+    }
+
+    public static UbicacionActualizadaEvent desde(PosicionConductor posicion) {
+        return new UbicacionActualizadaEvent(posicion.conductorId(), posicion.latitud(), posicion.longitud(), posicion.marcaTiempo());
+    }
+}
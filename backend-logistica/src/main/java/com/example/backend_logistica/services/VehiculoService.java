@@ -1,36 +1,76 @@
 package com.example.backend_logistica.services;
 
+import com.example.backend_logistica.dto.VehiculoDTO;
 import com.example.backend_logistica.model.Vehiculo;
 import com.example.backend_logistica.repository.VehiculoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class VehiculoService {
 
     private final VehiculoRepository vehiculoRepository;
+    private final ApplicationEventPublisher eventos;
+    private final Cache cacheVehiculos;
 
     @Autowired
-    public VehiculoService(VehiculoRepository vehiculoRepository) {
+    public VehiculoService(VehiculoRepository vehiculoRepository, ApplicationEventPublisher eventos, CacheManager cacheManager) {
         this.vehiculoRepository = vehiculoRepository;
+        this.eventos = eventos;
+        this.cacheVehiculos = cacheManager.getCache(CachesReferencia.VEHICULOS);
     }
 
-    public List<Vehiculo> obtenerTodosVehiculos() {
-        return vehiculoRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<VehiculoDTO> obtenerPaginaVehiculos(Long cursor, int limite) {
+        return vehiculoRepository.findByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, Limit.of(limite)).stream()
+                .map(VehiculoDTO::desde)
+                .toList();
     }
 
-    public Optional<Vehiculo> obtenerVehiculoPorId(Long id) {
-        return vehiculoRepository.findById(id);
+    // Debe consumirse dentro de una transacción y cerrarse al terminar
+    public Stream<VehiculoDTO> streamTodosVehiculos() {
+        return vehiculoRepository.streamTodosOrdenadosPorId().map(VehiculoDTO::desde);
     }
 
-    public Vehiculo guardarVehiculo(Vehiculo vehiculo) {
+    // Lectura a través de caché (sin transacción: un acierto no debe pedir conexión al pool)
+    public Optional<VehiculoDTO> obtenerVehiculoPorId(Long id) {
+        VehiculoDTO enCache = cacheVehiculos.get(id, VehiculoDTO.class);
+        if (enCache != null) {
+            return Optional.of(enCache);
+        }
+        Optional<VehiculoDTO> vehiculo = vehiculoRepository.findById(id).map(VehiculoDTO::desde);
+        vehiculo.ifPresent(dto -> cacheVehiculos.put(id, dto));
+        return vehiculo;
+    }
+
+    public boolean existeVehiculo(Long id) {
+        return cacheVehiculos.get(id) != null || vehiculoRepository.existsById(id);
+    }
+
+    @Transactional
+    public VehiculoDTO guardarVehiculo(Vehiculo vehiculo) {
         // Aquí podrías añadir validaciones de negocio específicas para el Vehiculo antes de guardar
-        return vehiculoRepository.save(vehiculo);
+        VehiculoDTO vehiculoGuardado = VehiculoDTO.desde(vehiculoRepository.save(vehiculo));
+        publicarModificacion(vehiculoGuardado.getId());
+        return vehiculoGuardado;
     }
 
     public void eliminarVehiculo(Long id) {
         vehiculoRepository.deleteById(id);
+        publicarModificacion(id);
+    }
+
+    // ConductorDTO incluye su vehículo, así que también se invalida la caché de conductores
+    private void publicarModificacion(Long id) {
+        eventos.publishEvent(new ReferenciaModificadaEvent(CachesReferencia.VEHICULOS, id));
+        eventos.publishEvent(ReferenciaModificadaEvent.todas(CachesReferencia.CONDUCTORES));
     }
 }
\ No newline at end of file
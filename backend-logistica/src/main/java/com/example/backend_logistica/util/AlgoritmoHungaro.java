@@ -0,0 +1,103 @@
+package com.example.backend_logistica.util;
+
+import java.util.Arrays;
+
+// Asignación de coste mínimo (método húngaro con potenciales, O(n² · m)) sobre una matriz de costes
+// plana en orden por filas. Trabaja sólo con arrays primitivos para resolver matrices de 1000 x 1000
+// en milisegundos sin generar basura.
+public final class AlgoritmoHungaro {
+
+    public static final int SIN_ASIGNAR = -1;
+
+    private AlgoritmoHungaro() {
+    }
+
+    // Devuelve, para cada fila, la columna asignada (o SIN_ASIGNAR si hay más filas que columnas).
+    // costos[fila * columnas + columna] debe ser finito.
+    public static int[] resolver(double[] costos, int filas, int columnas) {
+        if (costos.length < (long) filas * columnas) {
+            throw new IllegalArgumentException("La matriz de costes no tiene " + filas + " x " + columnas + " elementos");
+        }
+        int[] asignacion = new int[filas];
+        Arrays.fill(asignacion, SIN_ASIGNAR);
+        if (filas == 0 || columnas == 0) {
+            return asignacion;
+        }
+        if (filas <= columnas) {
+            return resolverRectangular(costos, filas, columnas, false);
+        }
+        // El método exige filas <= columnas: se resuelve la traspuesta y se invierte el resultado
+        int[] asignacionTraspuesta = resolverRectangular(costos, columnas, filas, true);
+        for (int columna = 0; columna < columnas; columna++) {
+            asignacion[asignacionTraspuesta[columna]] = columna;
+        }
+        return asignacion;
+    }
+
+    // Índices desde 1 (la fila/columna 0 es un centinela), como en la formulación clásica con potenciales.
+    // Con traspuesta = true se lee costos como si fuera la matriz traspuesta, sin copiarla.
+    private static int[] resolverRectangular(double[] costos, int n, int m, boolean traspuesta) {
+        int anchoOriginal = traspuesta ? n : m;
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] filaDeColumna = new int[m + 1];
+        int[] camino = new int[m + 1];
+        double[] minimos = new double[m + 1];
+        boolean[] usada = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            filaDeColumna[0] = i;
+            int j0 = 0;
+            Arrays.fill(minimos, Double.POSITIVE_INFINITY);
+            Arrays.fill(usada, false);
+            do {
+                usada[j0] = true;
+                int i0 = filaDeColumna[j0];
+                double delta = Double.POSITIVE_INFINITY;
+                int j1 = 0;
+                double ui0 = u[i0];
+                for (int j = 1; j <= m; j++) {
+                    if (usada[j]) {
+                        continue;
+                    }
+                    double costo = traspuesta
+                            ? costos[(j - 1) * anchoOriginal + (i0 - 1)]
+                            : costos[(i0 - 1) * anchoOriginal + (j - 1)];
+                    double reducido = costo - ui0 - v[j];
+                    if (reducido < minimos[j]) {
+                        minimos[j] = reducido;
+                        camino[j] = j0;
+                    }
+                    if (minimos[j] < delta) {
+                        delta = minimos[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (usada[j]) {
+                        u[filaDeColumna[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minimos[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (filaDeColumna[j0] != 0);
+            // Se invierte el camino aumentante
+            do {
+                int j1 = camino[j0];
+                filaDeColumna[j0] = filaDeColumna[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] asignacion = new int[n];
+        Arrays.fill(asignacion, SIN_ASIGNAR);
+        for (int j = 1; j <= m; j++) {
+            if (filaDeColumna[j] != 0) {
+                asignacion[filaDeColumna[j] - 1] = j - 1;
+            }
+        }
+        return asignacion;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.backend_logistica.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Codificación compacta de un tramo de trayectoria ordenado por tiempo: número de puntos y, por cada
+// punto, las diferencias con el anterior (milisegundos, latitud y longitud en 1e-7 grados) como
+// varints zigzag. Con pings cada pocos segundos cada punto ocupa unos 6 bytes, frente a los ~40 de
+// una fila con tres columnas numéricas.
+public final class CodificacionTrayectoria {
+
+    private static final double ESCALA_GRADOS = 1e7;
+
+    private CodificacionTrayectoria() {
+    }
+
+    public static byte[] codificar(List<PuntoTrayectoria> puntos) {
+        Salida salida = new Salida(4 + puntos.size() * 8);
+        salida.escribirVarint(puntos.size());
+        long tiempoAnterior = 0;
+        long latitudAnterior = 0;
+        long longitudAnterior = 0;
+        for (PuntoTrayectoria punto : puntos) {
+            long latitud = Math.round(punto.latitud() * ESCALA_GRADOS);
+            long longitud = Math.round(punto.longitud() * ESCALA_GRADOS);
+            salida.escribirVarint(zigzag(punto.marcaTiempo() - tiempoAnterior));
+            salida.escribirVarint(zigzag(latitud - latitudAnterior));
+            salida.escribirVarint(zigzag(longitud - longitudAnterior));
+            tiempoAnterior = punto.marcaTiempo();
+            latitudAnterior = latitud;
+            longitudAnterior = longitud;
+        }
+        return salida.bytes();
+    }
+
+    public static List<PuntoTrayectoria> decodificar(byte[] datos) {
+        int[] posicion = {0};
+        int total = (int) leerVarint(datos, posicion);
+        List<PuntoTrayectoria> puntos = new ArrayList<>(total);
+        long tiempo = 0;
+        long latitud = 0;
+        long longitud = 0;
+        for (int i = 0; i < total; i++) {
+            tiempo += deshacerZigzag(leerVarint(datos, posicion));
+            latitud += deshacerZigzag(leerVarint(datos, posicion));
+            longitud += deshacerZigzag(leerVarint(datos, posicion));
+            puntos.add(new PuntoTrayectoria(tiempo, latitud / ESCALA_GRADOS, longitud / ESCALA_GRADOS));
+        }
+        return puntos;
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long deshacerZigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private static long leerVarint(byte[] datos, int[] posicion) {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            if (posicion[0] >= datos.length) {
+                throw new IllegalArgumentException("Tramo de trayectoria truncado");
+            }
+            byte b = datos[posicion[0]++];
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Varint demasiado largo en el tramo de trayectoria");
+    }
+
+    private static final class Salida {
+        private byte[] bytes;
+        private int tamano;
+
+        Salida(int capacidadInicial) {
+            bytes = new byte[capacidadInicial];
+        }
+
+        void escribirVarint(long valor) {
+            if (bytes.length - tamano < 10) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, tamano + 10));
+            }
+            while ((valor & ~0x7FL) != 0) {
+                bytes[tamano++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            bytes[tamano++] = (byte) valor;
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(bytes, tamano);
+        }
+    }
+}
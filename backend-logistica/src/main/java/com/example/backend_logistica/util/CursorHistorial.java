@@ -0,0 +1,34 @@
+package com.example.backend_logistica.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// Posición en un historial ordenado por fecha de creación descendente (desempate por id descendente).
+// Se intercambia con el cliente como "<fecha ISO>_<id>", p. ej. 2025-03-01T10:15:30.123456_4821
+public record CursorHistorial(LocalDateTime fechaCreacion, Long id) {
+
+    private static final char SEPARADOR = '_';
+
+    // Posterior a cualquier envío: la primera página empieza por el más reciente
+    public static final CursorHistorial PRIMERA_PAGINA = new CursorHistorial(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public static CursorHistorial parsear(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return PRIMERA_PAGINA;
+        }
+        int separador = cursor.lastIndexOf(SEPARADOR);
+        if (separador <= 0) {
+            throw new IllegalArgumentException("Cursor de historial inválido: " + cursor);
+        }
+        try {
+            return new CursorHistorial(LocalDateTime.parse(cursor.substring(0, separador)), Long.parseLong(cursor.substring(separador + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de historial inválido: " + cursor, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return fechaCreacion.toString() + SEPARADOR + id;
+    }
+}
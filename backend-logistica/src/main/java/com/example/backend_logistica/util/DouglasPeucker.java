@@ -0,0 +1,78 @@
+package com.example.backend_logistica.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Simplificación de trayectorias (Ramer–Douglas–Peucker): conserva los puntos que se separan más de
+// toleranciaMetros del segmento entre los puntos conservados vecinos. Un tramo más largo que
+// maxIntervaloMs se parte aunque sea recto, para que las paradas (muchos pings en el mismo sitio)
+// no desaparezcan: la hora de llegada y de salida son justo lo que se discute en una reclamación.
+public final class DouglasPeucker {
+
+    private static final double METROS_POR_GRADO = GeoUtils.KM_POR_GRADO_LATITUD * 1000;
+
+    private DouglasPeucker() {
+    }
+
+    // puntos ordenados por tiempo; toleranciaMetros <= 0 los devuelve todos; maxIntervaloMs <= 0 sin límite
+    public static List<PuntoTrayectoria> simplificar(List<PuntoTrayectoria> puntos, double toleranciaMetros, long maxIntervaloMs) {
+        int total = puntos.size();
+        if (toleranciaMetros <= 0 || total < 3) {
+            return new ArrayList<>(puntos);
+        }
+        boolean[] conservar = new boolean[total];
+        conservar[0] = true;
+        conservar[total - 1] = true;
+        // Pila explícita: una trayectoria larga y ruidosa desbordaría la pila con la versión recursiva
+        Deque<int[]> pendientes = new ArrayDeque<>();
+        pendientes.push(new int[]{0, total - 1});
+        while (!pendientes.isEmpty()) {
+            int[] tramo = pendientes.pop();
+            int inicio = tramo[0];
+            int fin = tramo[1];
+            if (fin - inicio < 2) {
+                continue;
+            }
+            int masLejano = -1;
+            double distanciaMaxima = toleranciaMetros;
+            for (int i = inicio + 1; i < fin; i++) {
+                double distancia = distanciaAlSegmentoMetros(puntos.get(i), puntos.get(inicio), puntos.get(fin));
+                if (distancia > distanciaMaxima) {
+                    distanciaMaxima = distancia;
+                    masLejano = i;
+                }
+            }
+            if (masLejano < 0 && maxIntervaloMs > 0
+                    && puntos.get(fin).marcaTiempo() - puntos.get(inicio).marcaTiempo() > maxIntervaloMs) {
+                masLejano = (inicio + fin) >>> 1;
+            }
+            if (masLejano >= 0) {
+                conservar[masLejano] = true;
+                pendientes.push(new int[]{inicio, masLejano});
+                pendientes.push(new int[]{masLejano, fin});
+            }
+        }
+        List<PuntoTrayectoria> resultado = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            if (conservar[i]) {
+                resultado.add(puntos.get(i));
+            }
+        }
+        return resultado;
+    }
+
+    // Proyección equirectangular local (precisa a la escala de una ruta urbana) y distancia al segmento,
+    // no a la recta: los puntos de un recorrido de ida y vuelta quedan lejos del segmento entre sus extremos
+    private static double distanciaAlSegmentoMetros(PuntoTrayectoria punto, PuntoTrayectoria a, PuntoTrayectoria b) {
+        double escalaLongitud = Math.cos(Math.toRadians(a.latitud())) * METROS_POR_GRADO;
+        double bx = (b.longitud() - a.longitud()) * escalaLongitud;
+        double by = (b.latitud() - a.latitud()) * METROS_POR_GRADO;
+        double px = (punto.longitud() - a.longitud()) * escalaLongitud;
+        double py = (punto.latitud() - a.latitud()) * METROS_POR_GRADO;
+        double longitudCuadrada = bx * bx + by * by;
+        double t = longitudCuadrada == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / longitudCuadrada));
+        return Math.hypot(px - t * bx, py - t * by);
+    }
+}
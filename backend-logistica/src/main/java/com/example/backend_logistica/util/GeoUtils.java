@@ -0,0 +1,26 @@
+package com.example.backend_logistica.util;
+
+public final class GeoUtils {
+
+    public static final double RADIO_TIERRA_KM = 6371.0088;
+    public static final double KM_POR_GRADO_LATITUD = 111.32;
+
+    private GeoUtils() {
+    }
+
+    // Distancia en kilómetros entre dos coordenadas (fórmula de haversine)
+    public static double distanciaKm(double latitud1, double longitud1, double latitud2, double longitud2) {
+        double dLat = Math.toRadians(latitud2 - latitud1);
+        double dLon = Math.toRadians(longitud2 - longitud1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitud1)) * Math.cos(Math.toRadians(latitud2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    public static boolean coordenadasValidas(Double latitud, Double longitud) {
+        return latitud != null && longitud != null
+                && latitud >= -90 && latitud <= 90
+                && longitud >= -180 && longitud <= 180;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend_logistica.util;
+
+import java.util.Arrays;
+
+// Zona alrededor de un punto de recolección o entrega. contiene() decide la llegada y estaFuera() la salida,
+// con un margen para que un conductor detenido en el borde no entre y salga con cada ping
+public sealed interface Geocerca permits Geocerca.Circulo, Geocerca.Poligono {
+
+    double METROS_POR_GRADO_LATITUD = GeoUtils.KM_POR_GRADO_LATITUD * 1000;
+
+    boolean contiene(double latitud, double longitud);
+
+    boolean estaFuera(double latitud, double longitud, double margenMetros);
+
+    record Circulo(double latitud, double longitud, double radioMetros) implements Geocerca {
+
+        @Override
+        public boolean contiene(double latitudPunto, double longitudPunto) {
+            return !masLejosQue(latitudPunto, longitudPunto, radioMetros);
+        }
+
+        @Override
+        public boolean estaFuera(double latitudPunto, double longitudPunto, double margenMetros) {
+            return masLejosQue(latitudPunto, longitudPunto, radioMetros + margenMetros);
+        }
+
+        // La diferencia de latitud descarta casi todos los pings sin trigonometría
+        private boolean masLejosQue(double latitudPunto, double longitudPunto, double metros) {
+            if (Math.abs(latitudPunto - latitud) * METROS_POR_GRADO_LATITUD > metros) {
+                return true;
+            }
+            return GeoUtils.distanciaKm(latitud, longitud, latitudPunto, longitudPunto) * 1000 > metros;
+        }
+    }
+
+    // Polígono simple en grados (sin repetir el primer vértice al final). A la escala de una geocerca
+    // (cientos de metros) se trata como plano: pertenencia por cruce de rayos y distancia al borde con
+    // una proyección equirectangular local
+    final class Poligono implements Geocerca {
+
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double latitudMin;
+        private final double latitudMax;
+        private final double longitudMin;
+        private final double longitudMax;
+
+        public Poligono(double[] latitudes, double[] longitudes) {
+            if (latitudes.length < 3 || latitudes.length != longitudes.length) {
+                throw new IllegalArgumentException("Un polígono necesita al menos 3 vértices");
+            }
+            this.latitudes = latitudes.clone();
+            this.longitudes = longitudes.clone();
+            this.latitudMin = Arrays.stream(latitudes).min().getAsDouble();
+            this.latitudMax = Arrays.stream(latitudes).max().getAsDouble();
+            this.longitudMin = Arrays.stream(longitudes).min().getAsDouble();
+            this.longitudMax = Arrays.stream(longitudes).max().getAsDouble();
+        }
+
+        public int vertices() {
+            return latitudes.length;
+        }
+
+        public double latitud(int vertice) {
+            return latitudes[vertice];
+        }
+
+        public double longitud(int vertice) {
+            return longitudes[vertice];
+        }
+
+        @Override
+        public boolean contiene(double latitud, double longitud) {
+            if (latitud < latitudMin || latitud > latitudMax || longitud < longitudMin || longitud > longitudMax) {
+                return false;
+            }
+            boolean dentro = false;
+            for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+                if ((latitudes[i] > latitud) != (latitudes[j] > latitud)
+                        && longitud < (longitudes[j] - longitudes[i]) * (latitud - latitudes[i]) / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                    dentro = !dentro;
+                }
+            }
+            return dentro;
+        }
+
+        @Override
+        public boolean estaFuera(double latitud, double longitud, double margenMetros) {
+            double margenGrados = margenMetros / METROS_POR_GRADO_LATITUD;
+            double margenGradosLongitud = margenGrados / Math.max(0.01, Math.cos(Math.toRadians(latitud)));
+            if (latitud < latitudMin - margenGrados || latitud > latitudMax + margenGrados
+                    || longitud < longitudMin - margenGradosLongitud || longitud > longitudMax + margenGradosLongitud) {
+                return true;
+            }
+            return !contiene(latitud, longitud) && distanciaAlBordeMetros(latitud, longitud) > margenMetros;
+        }
+
+        // Con el punto como origen: x hacia el este e y hacia el norte, en metros
+        private double distanciaAlBordeMetros(double latitud, double longitud) {
+            double metrosPorGradoLongitud = METROS_POR_GRADO_LATITUD * Math.cos(Math.toRadians(latitud));
+            double minima = Double.MAX_VALUE;
+            for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+                double x1 = (longitudes[j] - longitud) * metrosPorGradoLongitud;
+                double y1 = (latitudes[j] - latitud) * METROS_POR_GRADO_LATITUD;
+                double x2 = (longitudes[i] - longitud) * metrosPorGradoLongitud;
+                double y2 = (latitudes[i] - latitud) * METROS_POR_GRADO_LATITUD;
+                double dx = x2 - x1;
+                double dy = y2 - y1;
+                double largo2 = dx * dx + dy * dy;
+                double t = largo2 == 0 ? 0 : Math.max(0, Math.min(1, -(x1 * dx + y1 * dy) / largo2));
+                double px = x1 + t * dx;
+                double py = y1 + t * dy;
+                minima = Math.min(minima, Math.sqrt(px * px + py * py));
+            }
+            return minima;
+        }
+    }
+}
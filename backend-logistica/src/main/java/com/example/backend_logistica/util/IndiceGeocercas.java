@@ -0,0 +1,131 @@
+package com.example.backend_logistica.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Geocercas vigiladas (origen y destino de cada envío en curso) indexadas por el conductor asignado: un ping
+// sólo puede llegar o salir de las geocercas de los envíos de su conductor, así que cada ping se compara con
+// esas pocas y no con todas las activas. Por geocerca se guarda si el conductor está dentro; una detección
+// se emite sólo al cambiar (llegada al entrar, salida al alejarse más que el margen)
+public class IndiceGeocercas {
+
+    private final double margenSalidaMetros;
+
+    private final ConcurrentHashMap<Long, Vigilado> porEnvio = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Vigilado>> porConductor = new ConcurrentHashMap<>();
+
+    public IndiceGeocercas(double margenSalidaMetros) {
+        this.margenSalidaMetros = margenSalidaMetros;
+    }
+
+    // Sustituye lo que hubiera del envío (también si cambió de conductor); una geocerca null no se vigila
+    public void registrar(long envioId, long conductorId, Geocerca origen, Geocerca destino) {
+        olvidar(envioId);
+        if (origen == null && destino == null) {
+            return;
+        }
+        Vigilado vigilado = new Vigilado(envioId, conductorId, origen, destino);
+        porEnvio.put(envioId, vigilado);
+        porConductor.computeIfAbsent(conductorId, id -> ConcurrentHashMap.newKeySet()).add(vigilado);
+    }
+
+    public void dejarDeVigilar(long envioId, TipoGeocerca tipo) {
+        Vigilado vigilado = porEnvio.get(envioId);
+        if (vigilado == null) {
+            return;
+        }
+        boolean sinGeocercas;
+        synchronized (vigilado) {
+            vigilado.geocercas[tipo.ordinal()] = null;
+            sinGeocercas = vigilado.geocercas[0] == null && vigilado.geocercas[1] == null;
+        }
+        if (sinGeocercas) {
+            olvidar(envioId);
+        }
+    }
+
+    public void olvidar(long envioId) {
+        Vigilado vigilado = porEnvio.remove(envioId);
+        if (vigilado == null) {
+            return;
+        }
+        porConductor.computeIfPresent(vigilado.conductorId, (id, vigilados) -> {
+            vigilados.remove(vigilado);
+            return vigilados.isEmpty() ? null : vigilados;
+        });
+    }
+
+    public boolean vigila(long envioId) {
+        return porEnvio.containsKey(envioId);
+    }
+
+    // null si el envío no se vigila o esa geocerca ya no está activa
+    public Geocerca geocerca(long envioId, TipoGeocerca tipo) {
+        Vigilado vigilado = porEnvio.get(envioId);
+        if (vigilado == null) {
+            return null;
+        }
+        synchronized (vigilado) {
+            return vigilado.geocercas[tipo.ordinal()];
+        }
+    }
+
+    public int cantidadGeocercas() {
+        int total = 0;
+        for (Vigilado vigilado : porEnvio.values()) {
+            synchronized (vigilado) {
+                total += (vigilado.geocercas[0] != null ? 1 : 0) + (vigilado.geocercas[1] != null ? 1 : 0);
+            }
+        }
+        return total;
+    }
+
+    // Pings de un mismo envío más antiguos que el último evaluado se ignoran (llegan desordenados)
+    public void evaluar(long conductorId, double latitud, double longitud, long marcaTiempo, Consumer<Deteccion> detecciones) {
+        Set<Vigilado> vigilados = porConductor.get(conductorId);
+        if (vigilados == null) {
+            return;
+        }
+        for (Vigilado vigilado : vigilados) {
+            synchronized (vigilado) {
+                if (marcaTiempo < vigilado.ultimaMarca) {
+                    continue;
+                }
+                vigilado.ultimaMarca = marcaTiempo;
+                for (TipoGeocerca tipo : TipoGeocerca.values()) {
+                    int i = tipo.ordinal();
+                    Geocerca geocerca = vigilado.geocercas[i];
+                    if (geocerca == null) {
+                        continue;
+                    }
+                    if (!vigilado.dentro[i] && geocerca.contiene(latitud, longitud)) {
+                        vigilado.dentro[i] = true;
+                        detecciones.accept(new Deteccion(vigilado.envioId, conductorId, tipo, true, marcaTiempo));
+                    } else if (vigilado.dentro[i] && geocerca.estaFuera(latitud, longitud, margenSalidaMetros)) {
+                        vigilado.dentro[i] = false;
+                        detecciones.accept(new Deteccion(vigilado.envioId, conductorId, tipo, false, marcaTiempo));
+                    }
+                }
+            }
+        }
+    }
+
+    // llegada: true al entrar en la geocerca, false al salir
+    public record Deteccion(long envioId, long conductorId, TipoGeocerca tipo, boolean llegada, long marcaTiempo) {
+    }
+
+    private static final class Vigilado {
+        final long envioId;
+        final long conductorId;
+        final Geocerca[] geocercas; // Por ordinal de TipoGeocerca
+        final boolean[] dentro = new boolean[2];
+        long ultimaMarca = Long.MIN_VALUE;
+
+        Vigilado(long envioId, long conductorId, Geocerca origen, Geocerca destino) {
+            this.envioId = envioId;
+            this.conductorId = conductorId;
+            this.geocercas = new Geocerca[]{origen, destino};
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.backend_logistica.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Lee una carga masiva registro a registro, sin tenerla entera en memoria:
+//   text/csv: primera fila con los nombres de los campos; comillas dobles según RFC 4180 (un campo
+//             entre comillas puede contener comas, saltos de línea y "" como comilla literal)
+//   application/x-ndjson: un objeto JSON por línea; los objetos anidados se aplanan ("cliente.id")
+// Una línea mal formada se devuelve como registro con error y la lectura sigue con la siguiente.
+public final class LectorRegistros {
+
+    public static final String TIPO_CSV = "text/csv";
+    public static final String TIPO_NDJSON = "application/x-ndjson";
+
+    private final BufferedReader lector;
+    private final ObjectMapper objectMapper; // null para CSV
+    private final List<String> cabecera;
+    private long linea;
+
+    private LectorRegistros(BufferedReader lector, ObjectMapper objectMapper) throws IOException {
+        this.lector = lector;
+        this.objectMapper = objectMapper;
+        if (objectMapper == null) {
+            List<String> nombres = leerFilaCsv();
+            if (nombres == null) {
+                throw new IllegalArgumentException("El CSV no tiene fila de cabecera");
+            }
+            this.cabecera = nombres.stream().map(String::strip).toList();
+        } else {
+            this.cabecera = List.of();
+        }
+    }
+
+    // IllegalArgumentException si el tipo de contenido no es CSV ni NDJSON o si falta la cabecera del CSV
+    public static LectorRegistros abrir(String tipoContenido, InputStream entrada, ObjectMapper objectMapper) throws IOException {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), 64 * 1024);
+        String tipo = tipoContenido != null ? tipoContenido.split(";")[0].strip().toLowerCase() : "";
+        return switch (tipo) {
+            case TIPO_CSV -> new LectorRegistros(lector, null);
+            case TIPO_NDJSON -> new LectorRegistros(lector, objectMapper);
+            default -> throw new IllegalArgumentException("Tipo de contenido no admitido: " + tipoContenido);
+        };
+    }
+
+    // null al terminar la entrada
+    public RegistroImportacion siguiente() throws IOException {
+        return objectMapper == null ? siguienteCsv() : siguienteNdjson();
+    }
+
+    private RegistroImportacion siguienteCsv() throws IOException {
+        while (true) {
+            long inicio = linea + 1;
+            List<String> valores;
+            try {
+                valores = leerFilaCsv();
+            } catch (IllegalArgumentException e) {
+                return RegistroImportacion.conError(inicio, e.getMessage());
+            }
+            if (valores == null) {
+                return null;
+            }
+            if (valores.size() == 1 && valores.get(0).isBlank()) {
+                continue; // Línea vacía
+            }
+            if (valores.size() != cabecera.size()) {
+                return RegistroImportacion.conError(inicio, "Se esperaban " + cabecera.size() + " campos y hay " + valores.size());
+            }
+            Map<String, String> campos = new HashMap<>(cabecera.size() * 2);
+            for (int i = 0; i < valores.size(); i++) {
+                campos.put(cabecera.get(i), valores.get(i));
+            }
+            return new RegistroImportacion(inicio, campos, null);
+        }
+    }
+
+    // Campos de la siguiente fila o null al final; lanza IllegalArgumentException con comillas sin cerrar
+    private List<String> leerFilaCsv() throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean leido = false;
+        int c;
+        while ((c = lector.read()) != -1) {
+            leido = true;
+            if (entreComillas) {
+                if (c == '"') {
+                    lector.mark(1);
+                    int siguiente = lector.read();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        if (siguiente != -1) {
+                            lector.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        linea++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+        }
+        if (!leido) {
+            return null;
+        }
+        linea++;
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private RegistroImportacion siguienteNdjson() throws IOException {
+        String texto;
+        while ((texto = lector.readLine()) != null) {
+            linea++;
+            if (texto.isBlank()) {
+                continue;
+            }
+            JsonNode nodo;
+            try {
+                nodo = objectMapper.readTree(texto);
+            } catch (JsonProcessingException e) {
+                return RegistroImportacion.conError(linea, "JSON no válido: " + e.getOriginalMessage());
+            }
+            if (!nodo.isObject()) {
+                return RegistroImportacion.conError(linea, "Se esperaba un objeto JSON");
+            }
+            Map<String, String> campos = new HashMap<>();
+            aplanar(nodo, "", campos);
+            return new RegistroImportacion(linea, campos, null);
+        }
+        return null;
+    }
+
+    private static void aplanar(JsonNode objeto, String prefijo, Map<String, String> campos) {
+        Iterator<Map.Entry<String, JsonNode>> atributos = objeto.fields();
+        while (atributos.hasNext()) {
+            Map.Entry<String, JsonNode> atributo = atributos.next();
+            JsonNode valor = atributo.getValue();
+            if (valor.isObject()) {
+                aplanar(valor, prefijo + atributo.getKey() + ".", campos);
+            } else if (valor.isValueNode() && !valor.isNull()) {
+                campos.put(prefijo + atributo.getKey(), valor.asText());
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.backend_logistica.util;
+
+import java.nio.ByteBuffer;
+
+// Formato binario de los lotes de ubicaciones (application/vnd.logistica.ubicaciones), big-endian:
+//   cabecera (8 bytes): magia "UBL1" (int32) | número de registros (int32)
+//   registro (24 bytes): conductorId (int64) | latitud en 1e-7 grados (int32) | longitud en 1e-7 grados (int32)
+//                        | marca de tiempo en milisegundos epoch (int64)
+// Los campos se leen con accesos absolutos sobre el buffer recibido: no se copia ni se crea ningún
+// objeto por registro. 1e-7 grados son ~1 cm, más precisión de la que da un GPS.
+public final class LoteUbicacionesBinario {
+
+    public static final String TIPO_CONTENIDO = "application/vnd.logistica.ubicaciones";
+    public static final int MAGIA = 0x55424C31; // "UBL1"
+    public static final int TAMANO_CABECERA = 8;
+    public static final int TAMANO_REGISTRO = 24;
+    public static final int MAX_REGISTROS = 4096;
+
+    private static final double ESCALA_GRADOS = 1e7;
+
+    private LoteUbicacionesBinario() {
+    }
+
+    // Devuelve el número de registros o lanza IllegalArgumentException si el lote está mal formado
+    public static int validar(ByteBuffer lote) {
+        if (lote.remaining() < TAMANO_CABECERA || lote.getInt(lote.position()) != MAGIA) {
+            throw new IllegalArgumentException("Lote de ubicaciones sin cabecera válida");
+        }
+        int registros = lote.getInt(lote.position() + 4);
+        if (registros < 0 || registros > MAX_REGISTROS) {
+            throw new IllegalArgumentException("Número de registros fuera de rango: " + registros);
+        }
+        if (lote.remaining() != TAMANO_CABECERA + registros * TAMANO_REGISTRO) {
+            throw new IllegalArgumentException("El tamaño del lote no corresponde a " + registros + " registros");
+        }
+        return registros;
+    }
+
+    public static long conductorId(ByteBuffer lote, int registro) {
+        return lote.getLong(inicio(lote, registro));
+    }
+
+    public static double latitud(ByteBuffer lote, int registro) {
+        return lote.getInt(inicio(lote, registro) + 8) / ESCALA_GRADOS;
+    }
+
+    public static double longitud(ByteBuffer lote, int registro) {
+        return lote.getInt(inicio(lote, registro) + 12) / ESCALA_GRADOS;
+    }
+
+    public static long marcaTiempo(ByteBuffer lote, int registro) {
+        return lote.getLong(inicio(lote, registro) + 16);
+    }
+
+    // Acuse de recibo (12 bytes): aceptados | descartados (conductor inexistente o coordenadas inválidas)
+    // | pendientes (los últimos registros del lote, no procesados por cola llena: se reenvían)
+    public static byte[] codificarAcuse(int aceptados, int descartados, int pendientes) {
+        return ByteBuffer.allocate(12).putInt(aceptados).putInt(descartados).putInt(pendientes).array();
+    }
+
+    // Para clientes Java, pruebas y benchmarks
+    public static ByteBuffer codificar(long[] conductorIds, double[] latitudes, double[] longitudes, long[] marcasTiempo) {
+        int registros = conductorIds.length;
+        ByteBuffer lote = ByteBuffer.allocate(TAMANO_CABECERA + registros * TAMANO_REGISTRO);
+        lote.putInt(MAGIA).putInt(registros);
+        for (int i = 0; i < registros; i++) {
+            lote.putLong(conductorIds[i])
+                    .putInt((int) Math.round(latitudes[i] * ESCALA_GRADOS))
+                    .putInt((int) Math.round(longitudes[i] * ESCALA_GRADOS))
+                    .putLong(marcasTiempo[i]);
+        }
+        return lote.flip();
+    }
+
+    private static int inicio(ByteBuffer lote, int registro) {
+        return lote.position() + TAMANO_CABECERA + registro * TAMANO_REGISTRO;
+    }
+}
@@ -0,0 +1,438 @@
+package com.example.backend_logistica.util;
+
+import java.util.Arrays;
+
+// Orden de visita de las paradas de un conductor (camino abierto que sale de su posición y no vuelve):
+// vecino más cercano y después mejora local con 2-opt y Or-opt hasta un óptimo local o hasta agotar el
+// plazo. Cada parada puede exigir que otra se visite antes (la recolección antes de la entrega del mismo
+// envío) y ningún movimiento rompe esa precedencia. Las coordenadas se proyectan a un plano local en km y
+// las búsquedas de vecinos usan una rejilla, así que 10 000 paradas se ordenan sin matriz de distancias.
+public final class OptimizadorRuta {
+
+    public static final int SIN_PREDECESOR = -1;
+
+    private static final int VECINOS = 10;
+    private static final int MAX_LARGO_OR_OPT = 3;
+    private static final double EPSILON_KM = 1e-9;
+
+    public record Resultado(int[] orden, double distanciaKm, boolean optimoLocal) {
+    }
+
+    private final int n;
+    private final double[] x;
+    private final double[] y;
+    private final int[] predecesor;
+    private final int[] dependiente;
+    private final Rejilla rejilla;
+    private final int[] ruta;
+    private final int[] posicion;
+
+    private OptimizadorRuta(double[] latitudes, double[] longitudes, int[] predecesores, double latitudInicio, double longitudInicio) {
+        n = latitudes.length;
+        // La posición de salida es el punto n
+        x = new double[n + 1];
+        y = new double[n + 1];
+        double kmPorGradoLongitud = Math.cos(Math.toRadians(latitudInicio)) * GeoUtils.KM_POR_GRADO_LATITUD;
+        for (int i = 0; i < n; i++) {
+            x[i] = (longitudes[i] - longitudInicio) * kmPorGradoLongitud;
+            y[i] = (latitudes[i] - latitudInicio) * GeoUtils.KM_POR_GRADO_LATITUD;
+        }
+        predecesor = predecesores.clone();
+        dependiente = new int[n];
+        Arrays.fill(dependiente, SIN_PREDECESOR);
+        for (int i = 0; i < n; i++) {
+            int p = predecesor[i];
+            if (p == SIN_PREDECESOR) {
+                continue;
+            }
+            if (p < 0 || p >= n || p == i || dependiente[p] != SIN_PREDECESOR) {
+                throw new IllegalArgumentException("Precedencia no válida en la parada " + i);
+            }
+            dependiente[p] = i;
+        }
+        rejilla = new Rejilla(x, y);
+        ruta = new int[n];
+        posicion = new int[n + 1];
+    }
+
+    // latitudes[i], longitudes[i]: parada i. predecesores[i]: parada que debe ir antes de i o SIN_PREDECESOR
+    // (cada parada puede ser predecesora de una sola). plazoNanos acota solo la mejora local: el vecino más
+    // cercano siempre termina, de modo que el resultado es una ruta válida aunque el plazo sea 0.
+    public static Resultado ordenar(double[] latitudes, double[] longitudes, int[] predecesores,
+                                    double latitudInicio, double longitudInicio, long plazoNanos) {
+        long limite = System.nanoTime() + plazoNanos;
+        OptimizadorRuta optimizador = new OptimizadorRuta(latitudes, longitudes, predecesores, latitudInicio, longitudInicio);
+        if (optimizador.n == 0) {
+            return new Resultado(new int[0], 0, true);
+        }
+        optimizador.vecinoMasCercano();
+        boolean optimoLocal = optimizador.mejorar(limite);
+        return new Resultado(optimizador.ruta.clone(), optimizador.longitud(), optimoLocal);
+    }
+
+    private void vecinoMasCercano() {
+        Rejilla.Disponibles disponibles = rejilla.disponibles();
+        for (int i = 0; i < n; i++) {
+            if (predecesor[i] == SIN_PREDECESOR) {
+                disponibles.agregar(i);
+            }
+        }
+        int actual = n;
+        for (int k = 0; k < n; k++) {
+            int siguiente = disponibles.masCercano(x[actual], y[actual]);
+            if (siguiente < 0) {
+                throw new IllegalArgumentException("Las precedencias de las paradas forman un ciclo");
+            }
+            disponibles.quitar(siguiente);
+            if (dependiente[siguiente] != SIN_PREDECESOR) {
+                disponibles.agregar(dependiente[siguiente]);
+            }
+            ruta[k] = siguiente;
+            posicion[siguiente] = k;
+            actual = siguiente;
+        }
+        posicion[n] = -1;
+    }
+
+    private boolean mejorar(long limite) {
+        int[][] vecinos = rejilla.vecinosMasCercanos(VECINOS);
+        boolean mejoro = true;
+        while (mejoro) {
+            if (System.nanoTime() - limite > 0) {
+                return false;
+            }
+            mejoro = dosOpt(vecinos, limite) | orOpt(vecinos, limite);
+        }
+        return true;
+    }
+
+    // Invertir ruta[i..j] cambia las aristas (a, ruta[i]) y (ruta[j], ruta[j + 1]) por (a, ruta[j]) y
+    // (ruta[i], ruta[j + 1]); se prueban solo los j cuya parada es vecina cercana de a
+    private boolean dosOpt(int[][] vecinos, long limite) {
+        boolean mejoro = false;
+        for (int i = 0; i < n; i++) {
+            if ((i & 255) == 0 && System.nanoTime() - limite > 0) {
+                return mejoro;
+            }
+            int a = anterior(i);
+            for (int c : vecinos[a]) {
+                if (c == n) {
+                    continue;
+                }
+                int j = posicion[c];
+                if (j <= i) {
+                    continue;
+                }
+                int b = ruta[i];
+                double delta = d(a, c) - d(a, b);
+                if (j + 1 < n) {
+                    delta += d(b, ruta[j + 1]) - d(c, ruta[j + 1]);
+                }
+                if (delta < -EPSILON_KM && inversionPermitida(i, j)) {
+                    invertir(i, j);
+                    mejoro = true;
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    // Mueve ruta[a..a+largo-1] (sin invertir) detrás de una parada vecina de su primera parada o al inicio
+    private boolean orOpt(int[][] vecinos, long limite) {
+        boolean mejoro = false;
+        for (int largo = 1; largo <= MAX_LARGO_OR_OPT; largo++) {
+            for (int a = 0; a + largo <= n; a++) {
+                if ((a & 255) == 0 && System.nanoTime() - limite > 0) {
+                    return mejoro;
+                }
+                int fin = a + largo - 1;
+                int primera = ruta[a];
+                int ultima = ruta[fin];
+                int antes = anterior(a);
+                double ahorro = d(antes, primera);
+                if (fin + 1 < n) {
+                    ahorro += d(ultima, ruta[fin + 1]) - d(antes, ruta[fin + 1]);
+                }
+                for (int c : vecinos[primera]) {
+                    int q = posicion[c]; // -1 para la salida: el tramo pasa a ser el primero
+                    if (q >= a - 1 && q <= fin) {
+                        continue;
+                    }
+                    double costo = d(c, primera);
+                    if (q + 1 < n) {
+                        costo += d(ultima, ruta[q + 1]) - d(c, ruta[q + 1]);
+                    }
+                    if (costo - ahorro < -EPSILON_KM && movimientoPermitido(a, fin, q)) {
+                        mover(a, fin, q);
+                        mejoro = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    // Al invertir, una parada y su predecesora dentro del tramo quedarían en el orden contrario
+    private boolean inversionPermitida(int i, int j) {
+        for (int k = i; k <= j; k++) {
+            int p = predecesor[ruta[k]];
+            if (p != SIN_PREDECESOR && posicion[p] >= i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Hacia delante, las paradas entre el tramo y q pasan a ir antes: ninguna puede depender del tramo.
+    // Hacia atrás, las paradas entre q y el tramo pasan a ir después: ninguna puede ser predecesora del tramo.
+    private boolean movimientoPermitido(int a, int fin, int q) {
+        for (int k = a; k <= fin; k++) {
+            int parada = ruta[k];
+            if (q > fin) {
+                int dependienteParada = dependiente[parada];
+                if (dependienteParada != SIN_PREDECESOR && posicion[dependienteParada] > fin && posicion[dependienteParada] <= q) {
+                    return false;
+                }
+            } else {
+                int predecesorParada = predecesor[parada];
+                if (predecesorParada != SIN_PREDECESOR && posicion[predecesorParada] > q && posicion[predecesorParada] < a) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void invertir(int i, int j) {
+        while (i < j) {
+            int temporal = ruta[i];
+            ruta[i] = ruta[j];
+            ruta[j] = temporal;
+            posicion[ruta[i]] = i;
+            posicion[ruta[j]] = j;
+            i++;
+            j--;
+        }
+    }
+
+    private void mover(int a, int fin, int q) {
+        int largo = fin - a + 1;
+        int[] tramo = Arrays.copyOfRange(ruta, a, fin + 1);
+        int desde;
+        int hasta;
+        if (q > fin) {
+            System.arraycopy(ruta, fin + 1, ruta, a, q - fin);
+            System.arraycopy(tramo, 0, ruta, q - largo + 1, largo);
+            desde = a;
+            hasta = q;
+        } else {
+            System.arraycopy(ruta, q + 1, ruta, q + 1 + largo, a - q - 1);
+            System.arraycopy(tramo, 0, ruta, q + 1, largo);
+            desde = q + 1;
+            hasta = fin;
+        }
+        for (int k = desde; k <= hasta; k++) {
+            posicion[ruta[k]] = k;
+        }
+    }
+
+    private int anterior(int indice) {
+        return indice == 0 ? n : ruta[indice - 1];
+    }
+
+    private double longitud() {
+        double total = 0;
+        int anterior = n;
+        for (int parada : ruta) {
+            total += d(anterior, parada);
+            anterior = parada;
+        }
+        return total;
+    }
+
+    private double d(int a, int b) {
+        return Math.hypot(x[a] - x[b], y[a] - y[b]);
+    }
+
+    // Rejilla uniforme sobre todos los puntos (incluida la salida) con unos pocos puntos por celda
+    private static final class Rejilla {
+        private static final int MAX_CELDAS_POR_EJE = 2048;
+
+        private final double[] x;
+        private final double[] y;
+        private final double minX;
+        private final double minY;
+        private final double lado;
+        private final int columnas;
+        private final int filas;
+        private final int[] inicioCelda;
+        private final int[] puntosPorCelda;
+
+        Rejilla(double[] x, double[] y) {
+            this.x = x;
+            this.y = y;
+            int total = x.length;
+            double minimoX = Double.MAX_VALUE, minimoY = Double.MAX_VALUE, maximoX = -Double.MAX_VALUE, maximoY = -Double.MAX_VALUE;
+            for (int i = 0; i < total; i++) {
+                minimoX = Math.min(minimoX, x[i]);
+                minimoY = Math.min(minimoY, y[i]);
+                maximoX = Math.max(maximoX, x[i]);
+                maximoY = Math.max(maximoY, y[i]);
+            }
+            minX = minimoX;
+            minY = minimoY;
+            double area = Math.max(maximoX - minimoX, 1e-6) * Math.max(maximoY - minimoY, 1e-6);
+            // Como mucho MAX_CELDAS_POR_EJE por eje, también con los puntos alineados en una recta
+            lado = Math.max(Math.sqrt(area * 2 / total),
+                    Math.max(maximoX - minimoX, maximoY - minimoY) / (MAX_CELDAS_POR_EJE - 1) + 1e-9);
+            columnas = (int) ((maximoX - minimoX) / lado) + 1;
+            filas = (int) ((maximoY - minimoY) / lado) + 1;
+            // Índice estático (en orden de celda) para las listas de vecinos
+            inicioCelda = new int[columnas * filas + 1];
+            for (int i = 0; i < total; i++) {
+                inicioCelda[celda(i) + 1]++;
+            }
+            for (int c = 0; c < columnas * filas; c++) {
+                inicioCelda[c + 1] += inicioCelda[c];
+            }
+            puntosPorCelda = new int[total];
+            int[] siguiente = Arrays.copyOf(inicioCelda, inicioCelda.length - 1);
+            for (int i = 0; i < total; i++) {
+                puntosPorCelda[siguiente[celda(i)]++] = i;
+            }
+        }
+
+        int columna(double valor) {
+            return Math.min(columnas - 1, Math.max(0, (int) ((valor - minX) / lado)));
+        }
+
+        int fila(double valor) {
+            return Math.min(filas - 1, Math.max(0, (int) ((valor - minY) / lado)));
+        }
+
+        int celda(int punto) {
+            return fila(y[punto]) * columnas + columna(x[punto]);
+        }
+
+        // Los k más cercanos de cada punto, recorriendo anillos de celdas hasta que el anillo siguiente
+        // no pueda contener nada más cerca que el k-ésimo encontrado
+        int[][] vecinosMasCercanos(int k) {
+            int total = x.length;
+            int[][] vecinos = new int[total][];
+            int[] mejores = new int[k];
+            double[] distancias = new double[k];
+            for (int p = 0; p < total; p++) {
+                int encontrados = 0;
+                int columnaP = columna(x[p]);
+                int filaP = fila(y[p]);
+                for (int anillo = 0; anillo <= Math.max(columnas, filas); anillo++) {
+                    if (encontrados == k && distancias[k - 1] <= (anillo - 1) * lado) {
+                        break;
+                    }
+                    for (int f = filaP - anillo; f <= filaP + anillo; f++) {
+                        if (f < 0 || f >= filas) {
+                            continue;
+                        }
+                        boolean borde = f == filaP - anillo || f == filaP + anillo;
+                        for (int c = columnaP - anillo; c <= columnaP + anillo; c += borde ? 1 : Math.max(1, 2 * anillo)) {
+                            if (c < 0 || c >= columnas) {
+                                continue;
+                            }
+                            int celda = f * columnas + c;
+                            for (int i = inicioCelda[celda]; i < inicioCelda[celda + 1]; i++) {
+                                int q = puntosPorCelda[i];
+                                if (q == p) {
+                                    continue;
+                                }
+                                double distancia = Math.hypot(x[p] - x[q], y[p] - y[q]);
+                                if (encontrados < k || distancia < distancias[encontrados - 1]) {
+                                    int hueco = encontrados < k ? encontrados++ : k - 1;
+                                    while (hueco > 0 && distancias[hueco - 1] > distancia) {
+                                        distancias[hueco] = distancias[hueco - 1];
+                                        mejores[hueco] = mejores[hueco - 1];
+                                        hueco--;
+                                    }
+                                    distancias[hueco] = distancia;
+                                    mejores[hueco] = q;
+                                }
+                            }
+                        }
+                    }
+                }
+                vecinos[p] = Arrays.copyOf(mejores, encontrados);
+            }
+            return vecinos;
+        }
+
+        Disponibles disponibles() {
+            return new Disponibles();
+        }
+
+        // Puntos aún no visitados y ya visitables, por celda, con altas y bajas en O(1)
+        final class Disponibles {
+            private final int[][] porCelda = new int[columnas * filas][];
+            private final int[] tamanos = new int[columnas * filas];
+            private final int[] indiceEnCelda = new int[x.length];
+            private int total;
+
+            void agregar(int punto) {
+                int celda = celda(punto);
+                int[] lista = porCelda[celda];
+                if (lista == null) {
+                    lista = porCelda[celda] = new int[4];
+                } else if (tamanos[celda] == lista.length) {
+                    lista = porCelda[celda] = Arrays.copyOf(lista, lista.length * 2);
+                }
+                indiceEnCelda[punto] = tamanos[celda];
+                lista[tamanos[celda]++] = punto;
+                total++;
+            }
+
+            void quitar(int punto) {
+                int celda = celda(punto);
+                int[] lista = porCelda[celda];
+                int ultimo = lista[--tamanos[celda]];
+                lista[indiceEnCelda[punto]] = ultimo;
+                indiceEnCelda[ultimo] = indiceEnCelda[punto];
+                total--;
+            }
+
+            int masCercano(double px, double py) {
+                if (total == 0) {
+                    return -1;
+                }
+                int mejor = -1;
+                double mejorDistancia = Double.MAX_VALUE;
+                int columnaP = columna(px);
+                int filaP = fila(py);
+                for (int anillo = 0; anillo <= Math.max(columnas, filas); anillo++) {
+                    if (mejor >= 0 && mejorDistancia <= (anillo - 1) * lado) {
+                        break;
+                    }
+                    for (int f = filaP - anillo; f <= filaP + anillo; f++) {
+                        if (f < 0 || f >= filas) {
+                            continue;
+                        }
+                        boolean borde = f == filaP - anillo || f == filaP + anillo;
+                        for (int c = columnaP - anillo; c <= columnaP + anillo; c += borde ? 1 : Math.max(1, 2 * anillo)) {
+                            if (c < 0 || c >= columnas) {
+                                continue;
+                            }
+                            int celda = f * columnas + c;
+                            for (int i = 0; i < tamanos[celda]; i++) {
+                                int q = porCelda[celda][i];
+                                double distancia = Math.hypot(px - x[q], py - y[q]);
+                                if (distancia < mejorDistancia) {
+                                    mejorDistancia = distancia;
+                                    mejor = q;
+                                }
+                            }
+                        }
+                    }
+                }
+                return mejor;
+            }
+        }
+    }
+}
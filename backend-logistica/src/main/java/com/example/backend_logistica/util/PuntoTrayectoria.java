@@ -0,0 +1,5 @@
+package com.example.backend_logistica.util;
+
+// Punto de una trayectoria (marcaTiempo en milisegundos epoch)
+public record PuntoTrayectoria(long marcaTiempo, double latitud, double longitud) {
+}
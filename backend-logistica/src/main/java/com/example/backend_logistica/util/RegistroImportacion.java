@@ -0,0 +1,71 @@
+package com.example.backend_logistica.util;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+// Fila de una carga masiva: campos por nombre tal como llegaron (texto) o el error de formato de la línea.
+// Cada campo se busca por su nombre plano y por el anidado de la exportación NDJSON ("clienteId" o
+// "cliente.id"), así que lo exportado por /exportar se puede volver a importar. Vacío equivale a ausente.
+public record RegistroImportacion(long linea, Map<String, String> campos, String error) {
+
+    public static final int MAX_LARGO_TEXTO = 255; // VARCHAR(255) del esquema
+
+    public static RegistroImportacion conError(long linea, String error) {
+        return new RegistroImportacion(linea, Map.of(), error);
+    }
+
+    public String texto(String nombre, boolean requerido) {
+        String valor = valor(nombre, requerido);
+        if (valor != null && valor.length() > MAX_LARGO_TEXTO) {
+            throw new IllegalArgumentException("El campo " + nombre + " supera " + MAX_LARGO_TEXTO + " caracteres");
+        }
+        return valor;
+    }
+
+    public Long entero(String nombre, boolean requerido) {
+        String valor = valor(nombre, requerido);
+        try {
+            return valor != null ? Long.valueOf(valor) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El campo " + nombre + " no es un entero: " + valor);
+        }
+    }
+
+    public Double decimal(String nombre, boolean requerido) {
+        String valor = valor(nombre, requerido);
+        try {
+            return valor != null ? Double.valueOf(valor) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El campo " + nombre + " no es un número: " + valor);
+        }
+    }
+
+    // ISO-8601 sin zona, el formato de las fechas en la exportación (2024-05-01T10:15:30)
+    public Timestamp fecha(String nombre, boolean requerido) {
+        String valor = valor(nombre, requerido);
+        try {
+            return valor != null ? Timestamp.valueOf(LocalDateTime.parse(valor)) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("El campo " + nombre + " no es una fecha ISO-8601: " + valor);
+        }
+    }
+
+    private String valor(String nombre, boolean requerido) {
+        String valor = campos.get(nombre);
+        if (valor == null && nombre.endsWith("Id")) {
+            valor = campos.get(nombre.substring(0, nombre.length() - 2) + ".id");
+        }
+        if (valor != null) {
+            valor = valor.strip();
+        }
+        if (valor == null || valor.isEmpty()) {
+            if (requerido) {
+                throw new IllegalArgumentException("Falta el campo " + nombre);
+            }
+            return null;
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.backend_logistica.util;
+
+import java.util.Locale;
+import java.util.Optional;
+
+// Punto del envío que rodea una geocerca. En geocerca_envio se guarda el código
+public enum TipoGeocerca {
+
+    ORIGEN(1),
+    DESTINO(2);
+
+    private final int codigo;
+
+    TipoGeocerca(int codigo) {
+        this.codigo = codigo;
+    }
+
+    public int getCodigo() {
+        return codigo;
+    }
+
+    public static TipoGeocerca desdeCodigo(int codigo) {
+        for (TipoGeocerca tipo : values()) {
+            if (tipo.codigo == codigo) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Código de geocerca desconocido: " + codigo);
+    }
+
+    // Valores recibidos en la URL ("origen", "DESTINO"...)
+    public static Optional<TipoGeocerca> buscar(String texto) {
+        if (texto == null) {
+            return Optional.empty();
+        }
+        String buscado = texto.trim().toUpperCase(Locale.ROOT);
+        for (TipoGeocerca tipo : values()) {
+            if (tipo.name().equals(buscado)) {
+                return Optional.of(tipo);
+            }
+        }
+        return Optional.empty();
+    }
+}
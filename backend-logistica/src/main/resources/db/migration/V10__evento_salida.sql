@@ -0,0 +1,12 @@
+-- Bandeja de salida de eventos de dominio (BusEventos). Cada evento se inserta en la misma transacción que el
+-- cambio que lo origina y RepartidorEventos lo borra al entregarlo al transporte, así que la tabla sólo guarda
+-- lo pendiente. El orden de entrega es el de id; agregado_id (envío o conductor) reparte la entrega entre hilos
+-- sin desordenar los eventos de un mismo agregado. carga es el evento en JSON.
+CREATE TABLE evento_salida (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    tipo VARCHAR(64) NOT NULL,
+    agregado_id BIGINT NOT NULL,
+    carga VARCHAR(4000) NOT NULL,
+    fecha DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
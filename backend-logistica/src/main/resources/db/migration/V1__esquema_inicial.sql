@@ -0,0 +1,79 @@
+-- Esquema de partida para bases nuevas, equivalente al que generaba spring.jpa.hibernate.ddl-auto=update
+-- con las entidades actuales. Las bases existentes no lo ejecutan (spring.flyway.baseline-on-migrate las marca
+-- en la versión 1) y pueden diferir: las migraciones posteriores corrigen esas diferencias (V2, V11 en MySQL).
+-- Sintaxis común a MySQL 8 y a H2 en modo MySQL (pruebas y benchmarks).
+
+CREATE TABLE vehiculo (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    matricula VARCHAR(255),
+    tipo VARCHAR(255),
+    modelo VARCHAR(255),
+    marca VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE conductor (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(255),
+    apellido VARCHAR(255),
+    disponible BOOLEAN NOT NULL,
+    vehiculo_id BIGINT,
+    ubicacion_actual_latitud DOUBLE,
+    ubicacion_actual_longitud DOUBLE,
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_conductor_vehiculo UNIQUE (vehiculo_id),
+    CONSTRAINT fk_conductor_vehiculo FOREIGN KEY (vehiculo_id) REFERENCES vehiculo (id)
+);
+
+CREATE TABLE clientes (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(255),
+    direccion VARCHAR(255),
+    telefono VARCHAR(255),
+    email VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE pedido (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    numero_pedido VARCHAR(255),
+    estado VARCHAR(255),
+    fecha_entrega_estimada DATETIME(6),
+    fecha_creacion DATETIME(6),
+    cliente_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_pedido_cliente FOREIGN KEY (cliente_id) REFERENCES clientes (id)
+);
+
+CREATE TABLE envio (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    pedido_id BIGINT,
+    conductor_id BIGINT,
+    vehiculo_id BIGINT,
+    fecha_entrega_estimada DATETIME(6),
+    fecha_creacion DATETIME(6),
+    fecha_entrega_real DATETIME(6),
+    estado_envio VARCHAR(255),
+    ubicacion_origen_latitud DOUBLE,
+    ubicacion_origen_longitud DOUBLE,
+    ubicacion_destino_latitud DOUBLE,
+    ubicacion_destino_longitud DOUBLE,
+    codigo_qr_entrega VARCHAR(255),
+    firma_digital_entrega VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_envio_pedido FOREIGN KEY (pedido_id) REFERENCES pedido (id),
+    CONSTRAINT fk_envio_conductor FOREIGN KEY (conductor_id) REFERENCES conductor (id),
+    CONSTRAINT fk_envio_vehiculo FOREIGN KEY (vehiculo_id) REFERENCES vehiculo (id)
+);
+
+CREATE TABLE notificacion_fallida (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    device_token VARCHAR(255),
+    titulo VARCHAR(255),
+    cuerpo VARCHAR(1000),
+    intentos INT NOT NULL,
+    ultimo_error VARCHAR(1000),
+    fecha_fallo DATETIME(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,17 @@
+-- Índices compuestos para el historial de envíos paginado por fecha (keyset sobre fecha_creacion, id).
+-- Con el id al final, la condición del cursor y el ORDER BY fecha_creacion DESC, id DESC se
+-- resuelven recorriendo el índice hacia atrás, sin ordenar en memoria.
+
+-- Filas anteriores a que asignarEnvio registrara la fecha de creación: se aproxima con la entrega
+-- estimada, que siempre se fijaba a tres horas de la asignación
+UPDATE envio SET fecha_creacion = TIMESTAMPADD(HOUR, -3, fecha_entrega_estimada)
+WHERE fecha_creacion IS NULL AND fecha_entrega_estimada IS NOT NULL;
+
+-- Conductores creados con ddl-auto=update antes de que la columna de bloqueo optimista fuera obligatoria
+UPDATE conductor SET version = 0 WHERE version IS NULL;
+
+CREATE INDEX idx_envio_conductor_fecha ON envio (conductor_id, fecha_creacion, id);
+CREATE INDEX idx_envio_estado_fecha ON envio (estado_envio, fecha_creacion, id);
+CREATE INDEX idx_envio_pedido_fecha ON envio (pedido_id, fecha_creacion, id);
+CREATE INDEX idx_envio_fecha ON envio (fecha_creacion, id);
+CREATE INDEX idx_pedido_cliente ON pedido (cliente_id, id);
@@ -0,0 +1,21 @@
+-- Agregados precalculados de envíos (rollups) por hora y por día, para cada conductor, vehículo,
+-- cliente y estado. Los mantiene AgregadorResumenEnvios a partir de los eventos de los envíos;
+-- los reportes leen sólo los periodos pedidos, sin recorrer la tabla envio.
+CREATE TABLE resumen_envios (
+    granularidad VARCHAR(8) NOT NULL,
+    dimension VARCHAR(16) NOT NULL,
+    clave VARCHAR(64) NOT NULL,
+    periodo DATETIME NOT NULL,
+    envios_asignados BIGINT NOT NULL DEFAULT 0,
+    envios_entregados BIGINT NOT NULL DEFAULT 0,
+    entregas_a_tiempo BIGINT NOT NULL DEFAULT 0,
+    segundos_entrega_total BIGINT NOT NULL DEFAULT 0,
+    cambios_estado BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, dimension, clave, periodo)
+);
+
+-- Totales de todas las claves de una dimensión en un rango de periodos (rankings)
+CREATE INDEX idx_resumen_envios_periodo ON resumen_envios (granularidad, dimension, periodo);
+
+-- Reconstrucción de un día de entregas (AgregadorResumenEnvios.reconstruir)
+CREATE INDEX idx_envio_fecha_entrega ON envio (fecha_entrega_real);
@@ -0,0 +1,19 @@
+-- Historial de posiciones de los conductores: cada fila es un tramo de hasta unos minutos de un
+-- conductor, con los puntos simplificados y codificados (CodificacionTrayectoria). Sin clave foránea
+-- a conductor a propósito: el historial debe sobrevivir a la baja del conductor mientras se retenga.
+-- Las filas más antiguas que ubicaciones.historial.retencion-dias se purgan cada noche.
+CREATE TABLE tramo_trayectoria (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    conductor_id BIGINT NOT NULL,
+    inicio_ms BIGINT NOT NULL,
+    fin_ms BIGINT NOT NULL,
+    puntos INT NOT NULL,
+    datos BLOB NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Trayectoria de un conductor en una ventana de tiempo (inicio acotado por la duración máxima de un tramo)
+CREATE INDEX idx_tramo_conductor_inicio ON tramo_trayectoria (conductor_id, inicio_ms);
+
+-- Purga por retención
+CREATE INDEX idx_tramo_fin ON tramo_trayectoria (fin_ms);
@@ -0,0 +1,53 @@
+-- Máquina de estados de los envíos (EstadoEnvio). Hasta ahora estado_envio era texto libre: los
+-- envíos con fecha de entrega quedan como entregados y las variantes conocidas (las que usaba la app, con o
+-- sin tildes y en cualquier caja) pasan a su etiqueta.
+UPDATE envio SET estado_envio = 'Entregado' WHERE fecha_entrega_real IS NOT NULL;
+UPDATE envio SET estado_envio = 'Pendiente de Recolección'
+WHERE LOWER(TRIM(estado_envio)) IN ('pendiente de recolección', 'pendiente de recoleccion', 'pendiente', 'asignado');
+UPDATE envio SET estado_envio = 'Recogido'
+WHERE LOWER(TRIM(estado_envio)) IN ('recogido', 'recolectado');
+UPDATE envio SET estado_envio = 'En Tránsito'
+WHERE LOWER(TRIM(estado_envio)) IN ('en tránsito', 'en transito', 'en camino');
+UPDATE envio SET estado_envio = 'Entregado' WHERE LOWER(TRIM(estado_envio)) = 'entregado';
+UPDATE envio SET estado_envio = 'Cancelado' WHERE LOWER(TRIM(estado_envio)) = 'cancelado';
+
+-- Lo que no se reconoce vuelve al estado inicial para que la conversión a enum no falle al leer la fila,
+-- pero antes se guarda el texto original para revisarlo a mano. Sin clave foránea, como evento_envio.
+CREATE TABLE estado_envio_no_reconocido (
+    envio_id BIGINT NOT NULL,
+    estado_original VARCHAR(255),
+    fecha DATETIME(6) NOT NULL,
+    PRIMARY KEY (envio_id)
+);
+INSERT INTO estado_envio_no_reconocido (envio_id, estado_original, fecha)
+SELECT id, estado_envio, CURRENT_TIMESTAMP FROM envio
+WHERE estado_envio IS NULL
+   OR estado_envio NOT IN ('Pendiente de Recolección', 'Recogido', 'En Tránsito', 'Entregado', 'Cancelado');
+UPDATE envio SET estado_envio = 'Pendiente de Recolección'
+WHERE estado_envio IS NULL
+   OR estado_envio NOT IN ('Pendiente de Recolección', 'Recogido', 'En Tránsito', 'Entregado', 'Cancelado');
+
+-- Bloqueo optimista y clave de idempotencia de la última transición aplicada
+ALTER TABLE envio ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE envio ADD COLUMN ultima_clave_idempotencia VARCHAR(64);
+
+-- Registro de transiciones (solo inserción): el estado de llegada como código (EstadoEnvio.codigo); el de
+-- partida es el de la fila anterior del mismo envío. Sin clave foránea, como tramo_trayectoria: el
+-- registro se conserva aunque se borre el envío.
+CREATE TABLE evento_envio (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    envio_id BIGINT NOT NULL,
+    estado SMALLINT NOT NULL,
+    fecha DATETIME(6) NOT NULL,
+    clave_idempotencia VARCHAR(64),
+    PRIMARY KEY (id)
+);
+
+-- Eventos de un envío en orden y reintentos con una clave ya usada (las filas sin clave no chocan)
+CREATE UNIQUE INDEX uk_evento_envio_clave ON evento_envio (envio_id, clave_idempotencia);
+
+-- Historia de los envíos anteriores a este registro, reconstruida a partir de sus fechas
+INSERT INTO evento_envio (envio_id, estado, fecha)
+SELECT id, 1, fecha_creacion FROM envio WHERE fecha_creacion IS NOT NULL;
+INSERT INTO evento_envio (envio_id, estado, fecha)
+SELECT id, 4, fecha_entrega_real FROM envio WHERE fecha_entrega_real IS NOT NULL;
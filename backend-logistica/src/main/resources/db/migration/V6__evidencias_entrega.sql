@@ -0,0 +1,5 @@
+-- Evidencias de entrega fuera de la fila del envío (AlmacenEvidencias): el envío guarda sólo la referencia
+-- al archivo, "<sha256>.<extensión>". firma_digital_entrega deja de leerse; se conserva con los valores
+-- anteriores (texto enviado por la app) hasta migrarlos al almacén, y después puede eliminarse.
+ALTER TABLE envio ADD COLUMN firma_entrega VARCHAR(80);
+ALTER TABLE envio ADD COLUMN foto_entrega VARCHAR(80);
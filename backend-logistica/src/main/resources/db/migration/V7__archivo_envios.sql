@@ -0,0 +1,34 @@
+-- Almacenamiento frío de envíos (ArchivoEnvios): los envíos entregados o cancelados con más de N días pasan
+-- de envio a envio_archivo por bloques. envio queda con el conjunto vivo (asignaciones, rutas, seguimiento,
+-- ETAs) y sus índices no crecen con la historia. Mismas columnas que envio más la fecha de archivo; la clave
+-- incluye fecha_creacion para poder particionar por ella (db/vendor/mysql) y no hay claves foráneas, que
+-- MySQL no admite en tablas particionadas: como evento_envio, el archivo conserva los ids aunque se borre
+-- el pedido, el conductor o el vehículo.
+CREATE TABLE envio_archivo (
+    id BIGINT NOT NULL,
+    pedido_id BIGINT,
+    conductor_id BIGINT,
+    vehiculo_id BIGINT,
+    fecha_entrega_estimada DATETIME(6),
+    fecha_creacion DATETIME(6) NOT NULL,
+    fecha_entrega_real DATETIME(6),
+    estado_envio VARCHAR(255),
+    ubicacion_origen_latitud DOUBLE,
+    ubicacion_origen_longitud DOUBLE,
+    ubicacion_destino_latitud DOUBLE,
+    ubicacion_destino_longitud DOUBLE,
+    codigo_qr_entrega VARCHAR(255),
+    firma_digital_entrega VARCHAR(255),
+    firma_entrega VARCHAR(80),
+    foto_entrega VARCHAR(80),
+    ultima_clave_idempotencia VARCHAR(64),
+    version BIGINT NOT NULL,
+    fecha_archivo DATETIME(6) NOT NULL,
+    PRIMARY KEY (id, fecha_creacion)
+);
+
+-- Los mismos recorridos que V2__indices_historial_envios.sql; la búsqueda por id usa la clave primaria
+CREATE INDEX idx_archivo_conductor_fecha ON envio_archivo (conductor_id, fecha_creacion, id);
+CREATE INDEX idx_archivo_estado_fecha ON envio_archivo (estado_envio, fecha_creacion, id);
+CREATE INDEX idx_archivo_pedido_fecha ON envio_archivo (pedido_id, fecha_creacion, id);
+CREATE INDEX idx_archivo_fecha ON envio_archivo (fecha_creacion, id);
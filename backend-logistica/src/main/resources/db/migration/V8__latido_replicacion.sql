@@ -0,0 +1,10 @@
+-- Latido de replicación (ReplicasLectura): la primaria actualiza la única fila con su hora en milisegundos y
+-- cada réplica calcula su retraso con el valor que le ha llegado. El 0 inicial deja las réplicas fuera de
+-- servicio hasta el primer latido replicado.
+CREATE TABLE latido_replicacion (
+    id INT NOT NULL,
+    marca_ms BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO latido_replicacion (id, marca_ms) VALUES (1, 0);
@@ -0,0 +1,9 @@
+-- Geocercas poligonales de un envío (tipo: 1 origen, 2 destino, TipoGeocerca.codigo). Sin fila, la geocerca
+-- es un círculo alrededor de las coordenadas del envío. Vértices como "lat lon;lat lon;..." (grados). Sin
+-- clave foránea, como evento_envio: las filas de envíos borrados se ignoran al cargar.
+CREATE TABLE geocerca_envio (
+    envio_id BIGINT NOT NULL,
+    tipo SMALLINT NOT NULL,
+    vertices VARCHAR(8000) NOT NULL,
+    PRIMARY KEY (envio_id, tipo)
+);
@@ -0,0 +1,78 @@
+package com.example.backend_logistica;
+
+import com.example.backend_logistica.model.Cliente;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.model.Pedido;
+import com.example.backend_logistica.repository.ClienteRepository;
+import com.example.backend_logistica.repository.ConductorRepository;
+import com.example.backend_logistica.repository.EnvioRepository;
+import com.example.backend_logistica.repository.PedidoRepository;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Datos mínimos para las pruebas sobre H2: conductor, cliente, pedido y un envío ya asignado. Se añade con
+// @Import(SemillasPrueba.class); los nombres llevan una secuencia para no repetirse dentro de un mismo contexto
+@TestComponent
+public class SemillasPrueba {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private final ConductorRepository conductorRepository;
+    private final ClienteRepository clienteRepository;
+    private final PedidoRepository pedidoRepository;
+    private final EnvioRepository envioRepository;
+
+    public SemillasPrueba(ConductorRepository conductorRepository, ClienteRepository clienteRepository,
+                          PedidoRepository pedidoRepository, EnvioRepository envioRepository) {
+        this.conductorRepository = conductorRepository;
+        this.clienteRepository = clienteRepository;
+        this.pedidoRepository = pedidoRepository;
+        this.envioRepository = envioRepository;
+    }
+
+    // Sin posición: la primera llega con un ping
+    public Conductor conductor(String nombre, boolean disponible) {
+        Conductor conductor = new Conductor();
+        conductor.setNombre("Conductor " + nombre + " " + SECUENCIA.incrementAndGet());
+        conductor.setApellido("Prueba");
+        conductor.setDisponible(disponible);
+        return conductorRepository.save(conductor);
+    }
+
+    public Cliente cliente(String nombre) {
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente " + nombre + " " + SECUENCIA.incrementAndGet());
+        return clienteRepository.save(cliente);
+    }
+
+    public Pedido pedido(Cliente cliente, String prefijo) {
+        Pedido pedido = new Pedido();
+        pedido.setNumeroPedido(prefijo + "-" + SECUENCIA.incrementAndGet());
+        pedido.setEstado("Nuevo");
+        pedido.setCliente(cliente);
+        return pedidoRepository.save(pedido);
+    }
+
+    // Envío asignado a un conductor propio (no disponible), sin origen ni destino
+    public Envio envioAsignado(String nombre) {
+        return envioAsignado(nombre, null, null, null, null);
+    }
+
+    public Envio envioAsignado(String nombre, Double latitudOrigen, Double longitudOrigen,
+                               Double latitudDestino, Double longitudDestino) {
+        Envio envio = new Envio();
+        envio.setPedido(pedido(cliente(nombre), nombre.toUpperCase()));
+        envio.setConductor(conductor(nombre, false));
+        envio.setEstadoEnvio(EstadoEnvio.ASIGNADO);
+        envio.setFechaCreacion(LocalDateTime.now());
+        envio.setUbicacionOrigenLatitud(latitudOrigen);
+        envio.setUbicacionOrigenLongitud(longitudOrigen);
+        envio.setUbicacionDestinoLatitud(latitudDestino);
+        envio.setUbicacionDestinoLongitud(longitudDestino);
+        return envioRepository.save(envio);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.backend_logistica.config;
+
+import com.example.backend_logistica.dto.ConductorDTO;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.services.ConductorService;
+import com.example.backend_logistica.services.EnvioService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Enrutado de lecturas con dos bases H2 en memoria: la de la aplicación hace de primaria y una segunda, migrada
+// aparte, de réplica. Sin replicación real, cada base recibe conductores distintos y el latido se escribe a mano
+// en la réplica, así el resultado de cada operación dice de qué base salió.
+@SpringBootTest(properties = {
+        "datasource.replicas.urls=" + LecturaEnReplicasTest.URL_REPLICA,
+        "datasource.replicas.retraso-maximo-ms=60000",
+        "datasource.replicas.intervalo-latido-ms=3600000" // Las comprobaciones las lanza la prueba
+})
+@DirtiesContext // El contexto queda con una réplica configurada
+class LecturaEnReplicasTest {
+
+    static final String URL_REPLICA = "jdbc:h2:mem:replica-lectura;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String INSERTAR_CONDUCTOR =
+            "INSERT INTO conductor (nombre, apellido, disponible, version) VALUES (?, 'Prueba', TRUE, 0)";
+    private static final String CONTAR_CONDUCTOR = "SELECT COUNT(*) FROM conductor WHERE nombre = ?";
+
+    @Autowired
+    private ConductorService conductorService;
+
+    @Autowired
+    private EnvioService envioService;
+
+    @Autowired
+    private ReplicasLectura replicasLectura;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // Sin transacción: siempre la primaria
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void prepararReplica() {
+        Flyway.configure().dataSource(URL_REPLICA, "sa", "").locations("classpath:db/migration").load().migrate();
+        replica = new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", ""));
+    }
+
+    @Test
+    void lecturasDeSoloLecturaVanALaReplicaYEscriturasALaPrimaria() {
+        jdbcTemplate.update(INSERTAR_CONDUCTOR, "PRIMARIA-1");
+        replica.update(INSERTAR_CONDUCTOR, "REPLICA-1");
+        replicarLatido(System.currentTimeMillis());
+
+        assertThat(nombresConductores()).contains("REPLICA-1").doesNotContain("PRIMARIA-1");
+
+        // Una lectura dentro de una transacción de escritura usa la conexión de esa transacción
+        List<String> dentroDeEscritura = new TransactionTemplate(transactionManager).execute(estado -> nombresConductores());
+        assertThat(dentroDeEscritura).contains("PRIMARIA-1").doesNotContain("REPLICA-1");
+
+        Conductor nuevo = new Conductor();
+        nuevo.setNombre("NUEVO-1");
+        nuevo.setApellido("Prueba");
+        nuevo.setDisponible(true);
+        conductorService.guardarConductor(nuevo);
+        assertThat(jdbcTemplate.queryForObject(CONTAR_CONDUCTOR, Integer.class, "NUEVO-1")).isEqualTo(1);
+        assertThat(replica.queryForObject(CONTAR_CONDUCTOR, Integer.class, "NUEVO-1")).isZero();
+    }
+
+    @Test
+    void replicaRetrasadaDevuelveLasLecturasALaPrimaria() {
+        jdbcTemplate.update(INSERTAR_CONDUCTOR, "PRIMARIA-2");
+        replica.update(INSERTAR_CONDUCTOR, "REPLICA-2");
+        replicarLatido(System.currentTimeMillis());
+        assertThat(nombresConductores()).contains("REPLICA-2");
+
+        replicarLatido(System.currentTimeMillis() - 600_000); // Diez minutos por detrás
+        assertThat(nombresConductores()).contains("PRIMARIA-2").doesNotContain("REPLICA-2");
+
+        replicarLatido(System.currentTimeMillis()); // Se pone al día y vuelve a recibir lecturas
+        assertThat(nombresConductores()).contains("REPLICA-2").doesNotContain("PRIMARIA-2");
+    }
+
+    @Test
+    void elPingDeUnEnvioRecienCreadoLoLeeDeLaPrimaria() {
+        jdbcTemplate.update(INSERTAR_CONDUCTOR, "PRIMARIA-3");
+        Long conductorId = jdbcTemplate.queryForObject("SELECT id FROM conductor WHERE nombre = ?", Long.class, "PRIMARIA-3");
+        jdbcTemplate.update("INSERT INTO envio (conductor_id, estado_envio, fecha_creacion) VALUES (?, 'Pendiente de Recolección', NOW())",
+                conductorId);
+        Long envioId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM envio WHERE conductor_id = ?", Long.class, conductorId);
+        replicarLatido(System.currentTimeMillis()); // Réplica al día, pero todavía sin el envío
+
+        EnvioDTO envio = envioService.actualizarUbicacionConductor(envioId, -0.18, -78.48);
+
+        assertThat(envio.getId()).isEqualTo(envioId);
+        assertThat(envio.getConductor().getId()).isEqualTo(conductorId);
+    }
+
+    private void replicarLatido(long marcaMs) {
+        replica.update("UPDATE latido_replicacion SET marca_ms = ? WHERE id = 1", marcaMs);
+        replicasLectura.comprobar();
+    }
+
+    private List<String> nombresConductores() {
+        return conductorService.obtenerPaginaConductores(0L, 1000).stream().map(ConductorDTO::getNombre).toList();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.services.CachesReferencia;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// PUT /api/conductores/{id} exige la "version" del último GET: sin ella 428 y con una ya superada 409. Una
+// actualización confirmada saca al conductor de la caché y el siguiente GET devuelve los datos nuevos
+@SpringBootTest
+@Import(SemillasPrueba.class)
+@AutoConfigureMockMvc
+class ActualizacionConductorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void sinVersionSeRechazaYNoCambiaNada() throws Exception {
+        Conductor conductor = semillas.conductor("Sin version", true);
+
+        mockMvc.perform(put("/api/conductores/" + conductor.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo("Renombrado", null)))
+                .andExpect(status().isPreconditionRequired());
+
+        mockMvc.perform(get("/api/conductores/" + conductor.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value(conductor.getNombre()))
+                .andExpect(jsonPath("$.version").value(conductor.getVersion()));
+    }
+
+    @Test
+    void unaActualizacionConfirmadaSacaAlConductorDeLaCache() throws Exception {
+        Conductor conductor = semillas.conductor("Cacheado", true);
+        String url = "/api/conductores/" + conductor.getId();
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value(conductor.getNombre()));
+        assertThat(cacheManager.getCache(CachesReferencia.CONDUCTORES).get(conductor.getId())).isNotNull();
+
+        mockMvc.perform(put(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo("Renombrado", conductor.getVersion())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(conductor.getVersion() + 1));
+        assertThat(cacheManager.getCache(CachesReferencia.CONDUCTORES).get(conductor.getId())).isNull();
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("Renombrado"))
+                .andExpect(jsonPath("$.version").value(conductor.getVersion() + 1));
+
+        // Otra edición hecha sobre el GET anterior llega con la versión ya superada
+        mockMvc.perform(put(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(cuerpo("Pisado", conductor.getVersion())))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get(url))
+                .andExpect(jsonPath("$.nombre").value("Renombrado"));
+    }
+
+    private static String cuerpo(String nombre, Long version) {
+        return """
+                {"nombre": "%s", "apellido": "Prueba", "disponible": true, "version": %s}
+                """.formatted(nombre, version);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.SemillasPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Con la cola de ingesta llena, el ping de un envío debe responder 429 para que el cliente espere y reintente
+@SpringBootTest(properties = {
+        "ubicaciones.ingesta.capacidad-cola=" + ColaUbicacionesLlenaTest.CAPACIDAD,
+        "ubicaciones.ingesta.intervalo-flush-ms=3600000" // Nada vacía la cola durante la prueba
+})
+@Import(SemillasPrueba.class)
+@AutoConfigureMockMvc
+@DirtiesContext // Deja la cola de ingesta llena
+class ColaUbicacionesLlenaTest {
+
+    static final int CAPACIDAD = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Test
+    void conLaColaLlenaElPingDeUnEnvioResponde429() throws Exception {
+        Long envioId = semillas.envioAsignado("Cola").getId();
+        String url = "/api/envios/" + envioId + "/ubicacion";
+
+        for (int i = 0; i < CAPACIDAD; i++) {
+            mockMvc.perform(post(url).param("latitud", "-0.18").param("longitud", String.valueOf(-78.48 + i * 0.001)))
+                    .andExpect(status().isAccepted());
+        }
+        mockMvc.perform(post(url).param("latitud", "-0.18").param("longitud", "-78.47"))
+                .andExpect(status().isTooManyRequests());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.model.Cliente;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.model.Pedido;
+import com.example.backend_logistica.model.Vehiculo;
+import com.example.backend_logistica.repository.ClienteRepository;
+import com.example.backend_logistica.repository.ConductorRepository;
+import com.example.backend_logistica.repository.EnvioRepository;
+import com.example.backend_logistica.repository.PedidoRepository;
+import com.example.backend_logistica.repository.VehiculoRepository;
+import com.example.backend_logistica.services.ConductorService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Cada endpoint de lectura debe resolverse con un número fijo de sentencias SQL, independiente
+// del número de filas: si alguien vuelve a serializar entidades o quita un entity graph, falla aquí.
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ConsultasSqlPorEndpointTest {
+
+    private static final int FILAS_POR_ENTIDAD = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private VehiculoRepository vehiculoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EnvioRepository envioRepository;
+
+    @Autowired
+    private ConductorRepository conductorRepository;
+
+    @Autowired
+    private ConductorService conductorService;
+
+    private Long vehiculoId;
+    private Long conductorId;
+    private Long clienteId;
+    private Long pedidoId;
+    private Long envioId;
+
+    @BeforeAll
+    void sembrarDatos() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < FILAS_POR_ENTIDAD; i++) {
+            Vehiculo vehiculo = new Vehiculo();
+            vehiculo.setMatricula("PBA-000" + i);
+            vehiculo.setTipo("Moto");
+            vehiculo = vehiculoRepository.save(vehiculo);
+
+            Conductor conductor = new Conductor();
+            conductor.setNombre("Conductor " + i);
+            conductor.setApellido("Prueba");
+            conductor.setDisponible(true);
+            conductor.setVehiculo(vehiculo);
+            conductor.setUbicacionActualLatitud(-0.18 + i * 0.001);
+            conductor.setUbicacionActualLongitud(-78.48);
+            conductorId = conductorService.guardarConductor(conductor).getId(); // Pasa por el índice geoespacial
+
+            Cliente cliente = new Cliente();
+            cliente.setNombre("Cliente " + i);
+            cliente.setEmail("cliente" + i + "@example.com");
+            cliente = clienteRepository.save(cliente);
+
+            Pedido pedido = new Pedido();
+            pedido.setNumeroPedido("PED-" + i);
+            pedido.setEstado("Nuevo");
+            pedido.setFechaCreacion(ahora);
+            pedido.setCliente(cliente);
+            pedido = pedidoRepository.save(pedido);
+
+            Envio envio = new Envio();
+            envio.setPedido(pedido);
+            envio.setConductor(conductorRepository.getReferenceById(conductorId));
+            envio.setVehiculo(vehiculo);
+            envio.setEstadoEnvio(EstadoEnvio.ASIGNADO);
+            envio.setFechaCreacion(ahora);
+            envio = envioRepository.save(envio);
+
+            vehiculoId = vehiculo.getId();
+            clienteId = cliente.getId();
+            pedidoId = pedido.getId();
+            envioId = envio.getId();
+        }
+    }
+
+    @ParameterizedTest(name = "{0} -> {1} sentencia(s)")
+    @CsvSource({
+            "/api/clientes, 1",
+            "/api/clientes/{cliente}, 1",
+            "/api/vehiculos, 1",
+            "/api/vehiculos/{vehiculo}, 1",
+            "/api/conductores, 1",
+            "/api/conductores/{conductor}, 1",
+            "/api/conductores/disponibles, 1",
+            "/api/conductores/cercanos?lat=-0.18&lon=-78.48&k=3, 1",
+            "/api/pedidos, 1",
+            "/api/pedidos/{pedido}, 1",
+            "/api/envios, 1",
+            "/api/envios/{envio}, 1",
+            "/api/envios/historial/conductor/{conductor}, 1",
+            "/api/envios/historial/cliente/{cliente}, 1",
+            "/api/envios/historial/fechas?inicio=2000-01-01T00:00:00&fin=2100-01-01T00:00:00, 1"
+    })
+    void cadaEndpointEjecutaUnNumeroFijoDeSentencias(String plantilla, long sentenciasEsperadas) throws Exception {
+        String url = plantilla
+                .replace("{cliente}", String.valueOf(clienteId))
+                .replace("{vehiculo}", String.valueOf(vehiculoId))
+                .replace("{conductor}", String.valueOf(conductorId))
+                .replace("{pedido}", String.valueOf(pedidoId))
+                .replace("{envio}", String.valueOf(envioId));
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        assertThat(estadisticas.getPrepareStatementCount())
+                .as("Sentencias SQL ejecutadas por GET %s", url)
+                .isEqualTo(sentenciasEsperadas);
+    }
+}
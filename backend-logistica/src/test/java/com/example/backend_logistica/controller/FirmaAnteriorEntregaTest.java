@@ -0,0 +1,62 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.SemillasPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Entregas anteriores a V6: sólo tienen firma_digital_entrega (el texto que envió la app). El envío sigue
+// anunciando la URL de su firma y GET /firma devuelve ese texto; sin ninguna de las dos columnas, 404
+@SpringBootTest
+@Import(SemillasPrueba.class)
+@AutoConfigureMockMvc
+class FirmaAnteriorEntregaTest {
+
+    private static final String FIRMA_ANTERIOR = "/storage/emulated/0/Firmas/firma_2023-11-04.png";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void laFirmaDeUnaEntregaAnteriorSeSirveComoTexto() throws Exception {
+        Long envioId = semillas.envioAsignado("Firma").getId();
+        jdbcTemplate.update("UPDATE envio SET firma_digital_entrega = ? WHERE id = ?", FIRMA_ANTERIOR, envioId);
+
+        mockMvc.perform(get("/api/envios/" + envioId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firmaDigitalEntrega").value("/api/envios/" + envioId + "/firma"));
+        MvcResult resultado = mockMvc.perform(get("/api/envios/" + envioId + "/firma")).andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/plain;charset=UTF-8"))
+                .andExpect(content().string(FIRMA_ANTERIOR));
+    }
+
+    @Test
+    void sinFirmaNiNuevaNiAnteriorResponde404() throws Exception {
+        Long envioId = semillas.envioAsignado("Sin firma").getId();
+
+        mockMvc.perform(get("/api/envios/" + envioId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firmaDigitalEntrega").doesNotExist());
+        mockMvc.perform(get("/api/envios/" + envioId + "/firma"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.dto.ErrorImportacionDTO;
+import com.example.backend_logistica.dto.ResultadoImportacionDTO;
+import com.example.backend_logistica.model.Cliente;
+import com.example.backend_logistica.repository.ClienteRepository;
+import com.example.backend_logistica.services.ImportacionMasivaService;
+import com.example.backend_logistica.services.TipoImportacion;
+import com.example.backend_logistica.util.LectorRegistros;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Importación masiva de punta a punta sobre H2: bloques de 2 registros para ver el batch por bloque, errores
+// por línea del lector, de la conversión y de las claves foráneas, y el 429 cuando ya hay una importación en
+// curso (max-simultaneas=1)
+@SpringBootTest(properties = {
+        "importacion.registros-por-bloque=2",
+        "importacion.max-simultaneas=1"
+})
+@AutoConfigureMockMvc
+@DirtiesContext // Espía el JdbcTemplate compartido
+class ImportacionMasivaTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ImportacionMasivaService importacionMasivaService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void losClientesSeInsertanPorBloquesYCadaLineaInvalidaSeInforma() throws Exception {
+        String csv = """
+                nombre,direccion,telefono,email
+                Importado Uno,"Av. Amazonas, 123",0991,uno@correo.ec
+                Importado Dos,"Calle ""Larga""
+                segunda línea",0992,dos@correo.ec
+                ,Sin nombre,0993,
+                Importado Tres,,0994
+                Importado Cuatro,,,
+                "Importado Cinco,,,
+                """;
+        clearInvocations(jdbcTemplate);
+
+        ResultadoImportacionDTO resultado = importar("/api/clientes/importar", LectorRegistros.TIPO_CSV, csv);
+
+        // Uno, Dos y Cuatro son válidos: un bloque lleno y uno final con el resto
+        assertThat(resultado.getRegistrosLeidos()).isEqualTo(6);
+        assertThat(resultado.getRegistrosInsertados()).isEqualTo(3);
+        assertThat(resultado.getRegistrosConError()).isEqualTo(3);
+        assertThat(resultado.getErrores()).extracting(ErrorImportacionDTO::getLinea, ErrorImportacionDTO::getMensaje)
+                .containsExactly(
+                        tuple(5L, "Falta el campo nombre"),
+                        tuple(6L, "Se esperaban 4 campos y hay 3"),
+                        tuple(8L, "Comillas sin cerrar"));
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO clientes"), anyList(), any(int[].class));
+        assertThat(clienteRepository.findAll()).extracting(Cliente::getNombre, Cliente::getDireccion)
+                .contains(tuple("Importado Uno", "Av. Amazonas, 123"),
+                        tuple("Importado Dos", "Calle \"Larga\"\nsegunda línea"),
+                        tuple("Importado Cuatro", null));
+    }
+
+    @Test
+    void losPedidosConUnClienteInexistenteSeRechazanSinPerderElRestoDelBloque() throws Exception {
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente Importación");
+        Long clienteId = clienteRepository.save(cliente).getId();
+        String ndjson = String.join("\n",
+                "{\"numeroPedido\":\"IMP-1\",\"estado\":\"Nuevo\",\"clienteId\":" + clienteId + "}",
+                "{\"numeroPedido\":\"IMP-2\",\"cliente\":{\"id\":999999}}",
+                "{\"numeroPedido\":\"IMP-3\",\"cliente\":{\"id\":" + clienteId + "},\"fechaCreacion\":\"2024-05-01T10:15:30\"}",
+                "{\"numeroPedido\":\"IMP-4\",",
+                "",
+                "{\"numeroPedido\":\"IMP-5\",\"clienteId\":\"abc\"}",
+                "[1, 2]");
+
+        ResultadoImportacionDTO resultado = importar("/api/pedidos/importar", LectorRegistros.TIPO_NDJSON, ndjson);
+
+        assertThat(resultado.getRegistrosLeidos()).isEqualTo(6); // La línea vacía no cuenta
+        assertThat(resultado.getRegistrosInsertados()).isEqualTo(2);
+        assertThat(resultado.getErrores()).extracting(ErrorImportacionDTO::getLinea).containsExactly(2L, 4L, 6L, 7L);
+        assertThat(resultado.getErrores().get(0).getMensaje()).isEqualTo("No existe clienteId 999999");
+        assertThat(resultado.getErrores().get(1).getMensaje()).startsWith("JSON no válido");
+        assertThat(resultado.getErrores().get(2).getMensaje()).isEqualTo("El campo clienteId no es un entero: abc");
+        assertThat(resultado.getErrores().get(3).getMensaje()).isEqualTo("Se esperaba un objeto JSON");
+        assertThat(jdbcTemplate.queryForList("SELECT numero_pedido FROM pedido WHERE cliente_id = ? ORDER BY numero_pedido",
+                String.class, clienteId)).containsExactly("IMP-1", "IMP-3");
+    }
+
+    @Test
+    void unCsvSinCabeceraResponde400() throws Exception {
+        mockMvc.perform(post("/api/clientes/importar").contentType(LectorRegistros.TIPO_CSV).content(""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void conUnaImportacionEnCursoOtraResponde429() throws Exception {
+        // La primera importación queda leyendo de una entrada que no llega hasta que la prueba la libera
+        CountDownLatch leyendo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        InputStream entradaLenta = new InputStream() {
+            private final InputStream cabecera = new ByteArrayInputStream("nombre\n".getBytes(StandardCharsets.UTF_8));
+
+            @Override
+            public int read() throws IOException {
+                leyendo.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return cabecera.read();
+            }
+        };
+        CompletableFuture<ResultadoImportacionDTO> enCurso = CompletableFuture.supplyAsync(() -> {
+            try {
+                return importacionMasivaService.importar(TipoImportacion.CLIENTES, LectorRegistros.TIPO_CSV, entradaLenta);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(leyendo.await(5, TimeUnit.SECONDS)).isTrue();
+
+        mockMvc.perform(post("/api/clientes/importar").contentType(LectorRegistros.TIPO_CSV).content("nombre\nOtro\n"))
+                .andExpect(status().isTooManyRequests());
+
+        liberar.countDown();
+        assertThat(enCurso.get(5, TimeUnit.SECONDS).getRegistrosLeidos()).isZero();
+        // Terminada la primera, el cupo queda libre
+        mockMvc.perform(post("/api/clientes/importar").contentType(LectorRegistros.TIPO_CSV).content("nombre\nOtro\n"))
+                .andExpect(status().isOk());
+    }
+
+    private ResultadoImportacionDTO importar(String url, String tipoContenido, String cuerpo) throws Exception {
+        String respuesta = mockMvc.perform(post(url).contentType(tipoContenido).content(cuerpo.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return objectMapper.readValue(respuesta, ResultadoImportacionDTO.class);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.backend_logistica.controller;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.services.IngestaUbicacionesService;
+import com.example.backend_logistica.services.PosicionConductor;
+import com.example.backend_logistica.util.LoteUbicacionesBinario;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /api/conductores/ubicaciones: un cuerpo corto o corrupto es un error del cliente (400, nunca 500) y un
+// lote válido deja las mismas posiciones que el ping de un conductor por POST /api/conductores/{id}/ubicacion
+@SpringBootTest
+@Import(SemillasPrueba.class)
+@AutoConfigureMockMvc
+class RegistroLoteUbicacionesTest {
+
+    private static final String URL_LOTE = "/api/conductores/ubicaciones";
+    private static final double LATITUD = -0.1807123;
+    private static final double LONGITUD = -78.4678001;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private IngestaUbicacionesService ingestaUbicaciones;
+
+    @Test
+    void unLoteCortoOCorruptoResponde400() throws Exception {
+        byte[] valido = LoteUbicacionesBinario.codificar(new long[]{1L}, new double[]{LATITUD},
+                new double[]{LONGITUD}, new long[]{System.currentTimeMillis()}).array();
+        byte[] sinMagia = valido.clone();
+        sinMagia[3] = 0;
+        byte[] conCantidadEnorme = valido.clone();
+        ByteBuffer.wrap(conCantidadEnorme).putInt(4, Integer.MAX_VALUE);
+
+        for (byte[] cuerpo : new byte[][]{new byte[0], Arrays.copyOf(valido, 5), Arrays.copyOf(valido, valido.length - 3),
+                Arrays.copyOf(valido, valido.length + 24), sinMagia, conCantidadEnorme}) {
+            mockMvc.perform(post(URL_LOTE).contentType(LoteUbicacionesBinario.TIPO_CONTENIDO).content(cuerpo))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void unLoteValidoDejaLasMismasPosicionesQueElPingIndividual() throws Exception {
+        Long porPing = semillas.conductor("Ping", true).getId();
+        Long porLote = semillas.conductor("Lote", true).getId();
+
+        mockMvc.perform(post("/api/conductores/" + porPing + "/ubicacion")
+                        .param("latitud", String.valueOf(LATITUD)).param("longitud", String.valueOf(LONGITUD)))
+                .andExpect(status().isAccepted());
+        long ahora = System.currentTimeMillis();
+        byte[] lote = LoteUbicacionesBinario.codificar(
+                new long[]{porLote, Long.MAX_VALUE, porLote}, // Conductor inexistente en medio
+                new double[]{LATITUD, LATITUD, 91},           // Latitud fuera de rango al final
+                new double[]{LONGITUD, LONGITUD, LONGITUD},
+                new long[]{ahora, ahora, ahora}).array();
+
+        byte[] acuse = mockMvc.perform(post(URL_LOTE).contentType(LoteUbicacionesBinario.TIPO_CONTENIDO).content(lote))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteBuffer contadores = ByteBuffer.wrap(acuse);
+        assertThat(contadores.getInt()).as("aceptados").isEqualTo(1);
+        assertThat(contadores.getInt()).as("descartados").isEqualTo(2);
+        assertThat(contadores.getInt()).as("pendientes").isEqualTo(0);
+
+        PosicionConductor esperada = ingestaUbicaciones.obtenerUltimaPosicion(porPing).orElseThrow();
+        PosicionConductor recibida = ingestaUbicaciones.obtenerUltimaPosicion(porLote).orElseThrow();
+        assertThat(recibida.latitud()).isEqualTo(esperada.latitud());
+        assertThat(recibida.longitud()).isEqualTo(esperada.longitud());
+        mockMvc.perform(get("/api/conductores/" + porLote))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ubicacionActualLatitud").value(LATITUD))
+                .andExpect(jsonPath("$.ubicacionActualLongitud").value(LONGITUD));
+    }
+}
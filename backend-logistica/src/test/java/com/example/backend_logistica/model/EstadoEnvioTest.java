@@ -0,0 +1,107 @@
+package com.example.backend_logistica.model;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Máquina de estados de los envíos sin Spring: qué transiciones se permiten, cómo se leen los estados que
+// envían los clientes y que las etiquetas antiguas de estado_envio, normalizadas por V5, se puedan convertir.
+class EstadoEnvioTest {
+
+    private static final String URL_MIGRACION = "jdbc:h2:mem:estados-legados;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void soloSeAvanzaYLosEstadosFinalesNoCambian() {
+        assertThat(EstadoEnvio.ASIGNADO.puedePasarA(EstadoEnvio.RECOGIDO)).isTrue();
+        assertThat(EstadoEnvio.ASIGNADO.puedePasarA(EstadoEnvio.ENTREGADO)).isTrue(); // Entrega sin recolección informada
+        assertThat(EstadoEnvio.RECOGIDO.puedePasarA(EstadoEnvio.EN_TRANSITO)).isTrue();
+        assertThat(EstadoEnvio.EN_TRANSITO.puedePasarA(EstadoEnvio.CANCELADO)).isTrue();
+
+        assertThat(EstadoEnvio.EN_TRANSITO.puedePasarA(EstadoEnvio.RECOGIDO)).isFalse();
+        assertThat(EstadoEnvio.RECOGIDO.puedePasarA(EstadoEnvio.RECOGIDO)).isFalse();
+        assertThat(EstadoEnvio.RECOGIDO.puedePasarA(EstadoEnvio.ASIGNADO)).isFalse();
+        for (EstadoEnvio destino : EstadoEnvio.values()) {
+            assertThat(EstadoEnvio.ENTREGADO.puedePasarA(destino)).as("Entregado -> %s", destino).isFalse();
+            assertThat(EstadoEnvio.CANCELADO.puedePasarA(destino)).as("Cancelado -> %s", destino).isFalse();
+        }
+    }
+
+    @Test
+    void losClientesPuedenUsarNombreOEtiquetaSinImportarMayusculasNiTildes() {
+        assertThat(EstadoEnvio.buscar("EN_TRANSITO")).contains(EstadoEnvio.EN_TRANSITO);
+        assertThat(EstadoEnvio.buscar("en tránsito")).contains(EstadoEnvio.EN_TRANSITO);
+        assertThat(EstadoEnvio.buscar(" En Transito ")).contains(EstadoEnvio.EN_TRANSITO);
+        assertThat(EstadoEnvio.buscar("pendiente de recolección")).contains(EstadoEnvio.ASIGNADO);
+        assertThat(EstadoEnvio.buscar("entregado")).contains(EstadoEnvio.ENTREGADO);
+        assertThat(EstadoEnvio.buscar("perdido")).isEmpty();
+        assertThat(EstadoEnvio.buscar(" ")).isEmpty();
+        assertThat(EstadoEnvio.buscar(null)).isEmpty();
+    }
+
+    @Test
+    void laColumnaGuardaLaEtiquetaYAceptaVariantesAntiguas() {
+        EstadoEnvioConverter conversor = new EstadoEnvioConverter();
+        for (EstadoEnvio estado : EstadoEnvio.values()) {
+            assertThat(conversor.convertToEntityAttribute(conversor.convertToDatabaseColumn(estado))).isEqualTo(estado);
+            assertThat(EstadoEnvio.desdeCodigo(estado.getCodigo())).isEqualTo(estado);
+        }
+        assertThat(conversor.convertToDatabaseColumn(EstadoEnvio.EN_TRANSITO)).isEqualTo("En Tránsito");
+        assertThat(conversor.convertToDatabaseColumn(null)).isNull();
+        assertThat(conversor.convertToEntityAttribute(null)).isNull();
+        // Variantes que V5 deja en MySQL (compara sin distinguir mayúsculas ni tildes)
+        assertThat(conversor.convertToEntityAttribute("en transito")).isEqualTo(EstadoEnvio.EN_TRANSITO);
+        assertThat(conversor.convertToEntityAttribute("ENTREGADO")).isEqualTo(EstadoEnvio.ENTREGADO);
+        assertThatThrownBy(() -> conversor.convertToEntityAttribute("En camino")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EstadoEnvio.desdeCodigo(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void losEstadosDeTextoLibreQuedanLegiblesTrasLaMigracionV5() {
+        DriverManagerDataSource base = new DriverManagerDataSource(URL_MIGRACION, "sa", "");
+        Flyway.configure().dataSource(base).locations("classpath:db/migration").target("4").load().migrate();
+        JdbcTemplate jdbc = new JdbcTemplate(base);
+        // Texto libre de antes de la máquina de estados; el primero ya entregado aunque diga otra cosa
+        List<Object[]> legados = Arrays.asList(
+                new Object[]{"En camino", "2024-05-01 10:00:00"},
+                new Object[]{"Pendiente de Recolección", null},
+                new Object[]{"En Tránsito", null},
+                new Object[]{"Extraviado", null},
+                new Object[]{null, null},
+                new Object[]{"Cancelado", null},
+                new Object[]{"PENDIENTE", null},
+                new Object[]{" en transito ", null},
+                new Object[]{"En camino", null},
+                new Object[]{"recolectado", null},
+                new Object[]{"entregado", null});
+        for (Object[] fila : legados) {
+            jdbc.update("INSERT INTO envio (estado_envio, fecha_creacion, fecha_entrega_real) VALUES (?, TIMESTAMP '2024-05-01 08:00:00', ?)",
+                    fila[0], fila[1]);
+        }
+        List<Long> ids = jdbc.queryForList("SELECT id FROM envio ORDER BY id", Long.class);
+
+        Flyway.configure().dataSource(base).locations("classpath:db/migration").load().migrate();
+
+        // Las variantes conocidas quedan con la etiqueta exacta, no sólo legibles por el conversor
+        assertThat(jdbc.queryForList("SELECT estado_envio FROM envio ORDER BY id", String.class)).containsExactly(
+                "Entregado", "Pendiente de Recolección", "En Tránsito", "Pendiente de Recolección", "Pendiente de Recolección",
+                "Cancelado", "Pendiente de Recolección", "En Tránsito", "En Tránsito", "Recogido", "Entregado");
+        // Las no reconocidas vuelven al estado inicial pero su texto original queda registrado
+        List<Map<String, Object>> noReconocidos = jdbc.queryForList(
+                "SELECT envio_id, estado_original FROM estado_envio_no_reconocido ORDER BY envio_id");
+        assertThat(noReconocidos).extracting(fila -> ((Number) fila.get("ENVIO_ID")).longValue()).containsExactly(ids.get(3), ids.get(4));
+        assertThat(noReconocidos).extracting(fila -> fila.get("ESTADO_ORIGINAL")).containsExactly("Extraviado", null);
+        // Historia reconstruida: alta de todos y entrega del que tenía fecha de entrega
+        Map<String, Object> eventos = jdbc.queryForMap(
+                "SELECT COUNT(*) AS total, SUM(CASE WHEN estado = 4 THEN 1 ELSE 0 END) AS entregas FROM evento_envio");
+        assertThat(((Number) eventos.get("TOTAL")).intValue()).isEqualTo(legados.size() + 1);
+        assertThat(((Number) eventos.get("ENTREGAS")).intValue()).isEqualTo(1);
+    }
+}
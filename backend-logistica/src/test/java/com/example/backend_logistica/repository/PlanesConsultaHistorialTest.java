@@ -0,0 +1,114 @@
+package com.example.backend_logistica.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Los historiales de envíos deben resolverse con los índices compuestos de las migraciones, no recorriendo
+// la tabla: se siembra un volumen que haga caro el recorrido completo, se actualizan las estadísticas y se
+// comprueba el plan (EXPLAIN de H2) del acceso que hace cada consulta de EnvioRepository.findHistorial*.
+// Si una migración elimina un índice o una consulta deja de poder usarlo, falla aquí.
+@SpringBootTest
+@DirtiesContext // Siembra miles de envíos; el resto de pruebas usa un contexto nuevo
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlanesConsultaHistorialTest {
+
+    private static final int CONDUCTORES = 50;
+    private static final int PEDIDOS_POR_CLIENTE = 10;
+    private static final int ENVIOS_POR_PEDIDO = 8;
+
+    // Condición de cursor y orden de EnvioRepository.ANTES_DEL_CURSOR, con la primera página como cursor
+    private static final String ANTES_DEL_CURSOR = " AND (e.fecha_creacion < TIMESTAMP '9999-12-31 00:00:00'"
+            + " OR (e.fecha_creacion = TIMESTAMP '9999-12-31 00:00:00' AND e.id < 9223372036854775807))"
+            + " ORDER BY e.fecha_creacion DESC, e.id DESC LIMIT 100";
+    private static final String RANGO_DE_UN_DIA = " e.fecha_creacion BETWEEN TIMESTAMP '2025-01-10 00:00:00' AND TIMESTAMP '2025-01-11 00:00:00'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void sembrarDatos() {
+        LocalDateTime inicio = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < CONDUCTORES; i++) {
+            filas.add(new Object[]{"PLN-" + i, "Moto"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vehiculo (matricula, tipo) VALUES (?, ?)", filas);
+        List<Long> vehiculoIds = jdbcTemplate.queryForList("SELECT id FROM vehiculo ORDER BY id", Long.class);
+
+        filas.clear();
+        List<Object[]> clientes = new ArrayList<>();
+        for (int i = 0; i < CONDUCTORES; i++) {
+            filas.add(new Object[]{"Conductor " + i, true, vehiculoIds.get(i)});
+            clientes.add(new Object[]{"Cliente " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO conductor (nombre, disponible, vehiculo_id) VALUES (?, ?, ?)", filas);
+        jdbcTemplate.batchUpdate("INSERT INTO clientes (nombre) VALUES (?)", clientes);
+        List<Long> conductorIds = jdbcTemplate.queryForList("SELECT id FROM conductor ORDER BY id", Long.class);
+        List<Long> clienteIds = jdbcTemplate.queryForList("SELECT id FROM clientes ORDER BY id", Long.class);
+
+        filas.clear();
+        for (Long clienteId : clienteIds) {
+            for (int p = 0; p < PEDIDOS_POR_CLIENTE; p++) {
+                filas.add(new Object[]{"PLN-" + clienteId + "-" + p, clienteId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pedido (numero_pedido, cliente_id) VALUES (?, ?)", filas);
+        List<Long> pedidoIds = jdbcTemplate.queryForList("SELECT id FROM pedido ORDER BY id", Long.class);
+
+        filas.clear();
+        int n = 0;
+        for (Long pedidoId : pedidoIds) {
+            for (int e = 0; e < ENVIOS_POR_PEDIDO; e++, n++) {
+                filas.add(new Object[]{pedidoId, conductorIds.get(n % CONDUCTORES), Timestamp.valueOf(inicio.plusMinutes(17L * n)),
+                        n % 4 == 0 ? "Pendiente de Recolección" : "Entregado"});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO envio (pedido_id, conductor_id, fecha_creacion, estado_envio) VALUES (?, ?, ?, ?)", filas);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void historialPorConductorUsaIndiceConductorFecha() {
+        String plan = plan("SELECT e.id FROM envio e WHERE e.conductor_id = 7" + ANTES_DEL_CURSOR);
+        assertThat(plan).containsIgnoringCase("IDX_ENVIO_CONDUCTOR_FECHA");
+        assertThat(plan).doesNotContainIgnoringCase("ENVIO.tableScan");
+    }
+
+    @Test
+    void historialPorClienteUsaIndicesDePedidoYEnvio() {
+        String plan = plan("SELECT e.id FROM envio e JOIN pedido p ON p.id = e.pedido_id WHERE p.cliente_id = 3" + ANTES_DEL_CURSOR);
+        assertThat(plan).containsIgnoringCase("IDX_ENVIO_PEDIDO_FECHA");
+        assertThat(plan).doesNotContainIgnoringCase("ENVIO.tableScan");
+        assertThat(plan).doesNotContainIgnoringCase("PEDIDO.tableScan");
+    }
+
+    @Test
+    void historialPorFechasUsaIndiceFecha() {
+        String plan = plan("SELECT e.id FROM envio e WHERE" + RANGO_DE_UN_DIA + ANTES_DEL_CURSOR);
+        assertThat(plan).containsIgnoringCase("IDX_ENVIO_FECHA");
+        assertThat(plan).doesNotContainIgnoringCase("ENVIO.tableScan");
+    }
+
+    @Test
+    void historialPorEstadoYFechasUsaIndiceEstadoFecha() {
+        String plan = plan("SELECT e.id FROM envio e WHERE e.estado_envio = 'Entregado' AND" + RANGO_DE_UN_DIA + ANTES_DEL_CURSOR);
+        assertThat(plan).containsIgnoringCase("IDX_ENVIO_ESTADO_FECHA");
+        assertThat(plan).doesNotContainIgnoringCase("ENVIO.tableScan");
+    }
+
+    private String plan(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.backend_logistica.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Almacén de evidencias sobre un directorio temporal, sin Spring: deduplicación por SHA-256, tipo por los bytes
+// mágicos (no por lo que diga el cliente), el límite de 5 MB y la descarga en bloques sin sendfile
+class AlmacenEvidenciasTest {
+
+    private static final long TAMANO_MAXIMO = 5L * 1024 * 1024;
+    private static final byte[] CABECERA_PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] CABECERA_JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+    private static final byte[] CABECERA_WEBP = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'};
+
+    @TempDir
+    Path directorio;
+
+    private final SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+
+    @Test
+    void laMismaEvidenciaSubidaDosVecesOcupaUnSoloArchivo() throws IOException {
+        AlmacenEvidencias almacen = crearAlmacen();
+        byte[] firma = imagen(CABECERA_PNG, 200_000);
+
+        String primera = almacen.guardar(new ByteArrayInputStream(firma));
+        String repetida = almacen.guardar(new ByteArrayInputStream(firma));
+        String otra = almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_PNG, 200_001)));
+
+        assertThat(repetida).isEqualTo(primera);
+        assertThat(otra).isNotEqualTo(primera);
+        assertThat(primera).matches("[0-9a-f]{64}\\.png");
+        assertThat(archivos()).containsExactlyInAnyOrder(
+                directorio.resolve(primera.substring(0, 2)).resolve(primera),
+                directorio.resolve(otra.substring(0, 2)).resolve(otra));
+        assertThat(metricas.get("evidencias.subidas").tag("resultado", "repetida").counter().count()).isEqualTo(1);
+        assertThat(metricas.get("evidencias.bytes").tag("resultado", "guardado").counter().count())
+                .isEqualTo(firma.length * 2 + 1);
+    }
+
+    @Test
+    void elTipoSaleDeLosBytesMagicosYLoDemasSeRechaza() throws IOException {
+        AlmacenEvidencias almacen = crearAlmacen();
+
+        assertThat(almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_PNG, 100)))).endsWith(".png");
+        assertThat(almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_JPEG, 100)))).endsWith(".jpg");
+        assertThat(almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_WEBP, 100)))).endsWith(".webp");
+
+        // Texto, un PDF, un PNG truncado antes de completar su firma y una subida vacía
+        for (byte[] contenido : List.of("/storage/emulated/0/firma.png".getBytes(), "%PDF-1.7".getBytes(),
+                Arrays.copyOf(CABECERA_PNG, 4), new byte[0])) {
+            assertThatThrownBy(() -> almacen.guardar(new ByteArrayInputStream(contenido)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("PNG, JPEG o WebP");
+        }
+        assertThat(archivos()).hasSize(3); // Sin temporales olvidados
+    }
+
+    @Test
+    void seAdmitenHastaCincoMegasExactos() throws IOException {
+        AlmacenEvidencias almacen = crearAlmacen();
+
+        String justa = almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_JPEG, TAMANO_MAXIMO)));
+        assertThatThrownBy(() -> almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_JPEG, TAMANO_MAXIMO + 1))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("La evidencia supera " + TAMANO_MAXIMO + " bytes");
+
+        assertThat(almacen.abrir(justa).orElseThrow().tamano()).isEqualTo(TAMANO_MAXIMO);
+        assertThat(archivos()).hasSize(1);
+    }
+
+    @Test
+    void laDescargaDevuelveElArchivoTalCual() throws IOException {
+        AlmacenEvidencias almacen = crearAlmacen();
+        byte[] foto = imagen(CABECERA_WEBP, 300_000); // Varios bloques de 64 KB y uno incompleto
+        String referencia = almacen.guardar(new ByteArrayInputStream(foto));
+
+        AlmacenEvidencias.ArchivoEvidencia archivo = almacen.abrir(referencia).orElseThrow();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        almacen.enviar(archivo).writeTo(salida);
+
+        assertThat(archivo.tamano()).isEqualTo(foto.length);
+        assertThat(archivo.tipoContenido()).isEqualTo("image/webp");
+        assertThat(archivo.hash()).isEqualTo(referencia.substring(0, 64));
+        assertThat(salida.toByteArray()).isEqualTo(foto);
+    }
+
+    @Test
+    void unaReferenciaMalFormadaOInexistenteNoAbreNada() throws IOException {
+        AlmacenEvidencias almacen = crearAlmacen();
+        String referencia = almacen.guardar(new ByteArrayInputStream(imagen(CABECERA_PNG, 100)));
+        Files.writeString(directorio.resolve("fuera.png"), "no es una evidencia");
+
+        assertThat(almacen.abrir(null)).isEmpty();
+        assertThat(almacen.abrir("../fuera.png")).isEmpty();
+        assertThat(almacen.abrir(referencia.toUpperCase())).isEmpty();
+        assertThat(almacen.abrir(referencia.replace(".png", ".gif"))).isEmpty();
+        assertThat(almacen.abrir("0".repeat(64) + ".png")).isEmpty(); // Formato válido, archivo inexistente
+        assertThat(almacen.abrir(referencia)).isPresent();
+    }
+
+    private AlmacenEvidencias crearAlmacen() throws IOException {
+        return new AlmacenEvidencias(metricas, directorio.toString(), TAMANO_MAXIMO);
+    }
+
+    private List<Path> archivos() throws IOException {
+        try (Stream<Path> rutas = Files.walk(directorio)) {
+            return rutas.filter(Files::isRegularFile).filter(ruta -> !ruta.getFileName().toString().equals("fuera.png")).toList();
+        }
+    }
+
+    // La cabecera seguida de relleno que depende de la posición, hasta el tamaño pedido
+    private static byte[] imagen(byte[] cabecera, long tamano) {
+        byte[] contenido = new byte[(int) tamano];
+        for (int i = 0; i < contenido.length; i++) {
+            contenido[i] = (byte) (i * 31 + 7);
+        }
+        System.arraycopy(cabecera, 0, contenido, 0, Math.min(cabecera.length, contenido.length));
+        return contenido;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.model.Cliente;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.repository.EnvioRepository;
+import com.example.backend_logistica.util.CursorHistorial;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Archivado contra H2: los entregados y cancelados con más de 90 días pasan a envio_archivo en bloques de 2 y
+// desaparecen de envio; el resto se queda. Los historiales paginados mezclan las dos tablas en el orden del
+// cursor (fecha de creación y id, descendente), también con empates de fecha a uno y otro lado del límite.
+// Contexto propio para controlar el contenido de envio_archivo; la compactación nocturna no se programa
+@SpringBootTest(properties = {
+        "envios.archivo.tamano-bloque=2",
+        "envios.archivo.cron=-",
+        "eventos.salida.intervalo-ms=3600000" // El repartidor no vacía evento_salida
+})
+@Import(SemillasPrueba.class)
+class ArchivoEnviosTest {
+
+    private static final String IDS_EN = "SELECT id FROM %s WHERE conductor_id = ? ORDER BY id";
+
+    @Autowired
+    private ArchivoEnvios archivoEnvios;
+
+    @Autowired
+    private EnvioService envioService;
+
+    @Autowired
+    private EnvioRepository envioRepository;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry metricas;
+
+    private final LocalDateTime ahora = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Test
+    void losFinalesAntiguosPasanAlArchivoPorBloquesYSalenDeEnvio() {
+        Conductor conductor = semillas.conductor("Archivo", false);
+        Cliente cliente = semillas.cliente("Archivo");
+        List<Long> archivables = new ArrayList<>();
+        for (int dias = 100; dias < 105; dias++) {
+            archivables.add(envio(conductor, cliente, ahora.minusDays(dias), EstadoEnvio.ENTREGADO).getId());
+        }
+        archivables.add(envio(conductor, cliente, ahora.minusDays(95), EstadoEnvio.CANCELADO).getId());
+        archivables.add(envio(conductor, cliente, ahora.minusDays(200), EstadoEnvio.CANCELADO).getId());
+        List<Long> vivos = List.of(
+                envio(conductor, cliente, ahora.minusDays(120), EstadoEnvio.EN_TRANSITO).getId(), // Antiguo, sin cerrar
+                envio(conductor, cliente, ahora.minusDays(10), EstadoEnvio.ENTREGADO).getId(),
+                envio(conductor, cliente, ahora.minusDays(89), EstadoEnvio.CANCELADO).getId());
+        double archivadosAntes = metricas.get("envios.archivados").counter().count();
+
+        archivoEnvios.compactar();
+
+        assertThat(jdbcTemplate.queryForList(String.format(IDS_EN, "envio_archivo"), Long.class, conductor.getId()))
+                .containsExactlyInAnyOrderElementsOf(archivables);
+        assertThat(jdbcTemplate.queryForList(String.format(IDS_EN, "envio"), Long.class, conductor.getId()))
+                .containsExactlyInAnyOrderElementsOf(vivos);
+        assertThat(metricas.get("envios.archivados").counter().count() - archivadosAntes).isEqualTo(archivables.size());
+        // La fila archivada conserva sus columnas y sigue encontrándose por id
+        Long entregado = archivables.get(0);
+        assertThat(jdbcTemplate.queryForObject("SELECT estado_envio FROM envio_archivo WHERE id = ?", String.class, entregado))
+                .isEqualTo(EstadoEnvio.ENTREGADO.getEtiqueta());
+        assertThat(jdbcTemplate.queryForObject("SELECT fecha_entrega_real FROM envio_archivo WHERE id = ?", Timestamp.class, entregado))
+                .isEqualTo(Timestamp.valueOf(ahora.minusDays(100).plusHours(2)));
+        assertThat(envioService.obtenerEnvioPorId(entregado).orElseThrow().getFechaCreacion()).isEqualTo(ahora.minusDays(100));
+        assertThat(archivoEnvios.limiteArchivo()).isPresent();
+
+        // Una segunda pasada no encuentra nada que mover
+        archivoEnvios.compactar();
+        assertThat(metricas.get("envios.archivados").counter().count() - archivadosAntes).isEqualTo(archivables.size());
+        assertThat(jdbcTemplate.queryForList(String.format(IDS_EN, "envio"), Long.class, conductor.getId()))
+                .containsExactlyInAnyOrderElementsOf(vivos);
+    }
+
+    @Test
+    void losHistorialesMezclanEnvioYArchivoEnElOrdenDelCursor() {
+        Conductor conductor = semillas.conductor("Historial", false);
+        Cliente cliente = semillas.cliente("Historial");
+        List<Envio> envios = new ArrayList<>();
+        for (int dias : new int[]{1, 30, 89, 91, 150, 300}) {
+            envios.add(envio(conductor, cliente, ahora.minusDays(dias), EstadoEnvio.ENTREGADO));
+        }
+        // Empates de fecha: uno se archiva y el otro, sin cerrar, sigue en envio
+        for (int dias : new int[]{120, 200}) {
+            envios.add(envio(conductor, cliente, ahora.minusDays(dias), EstadoEnvio.CANCELADO));
+            envios.add(envio(conductor, cliente, ahora.minusDays(dias), EstadoEnvio.EN_TRANSITO));
+            envios.add(envio(conductor, cliente, ahora.minusDays(dias), EstadoEnvio.ENTREGADO));
+        }
+        archivoEnvios.compactar();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM envio_archivo WHERE conductor_id = ?", Integer.class,
+                conductor.getId())).isEqualTo(7);
+
+        List<Long> esperados = envios.stream()
+                .sorted(Comparator.comparing(Envio::getFechaCreacion).thenComparing(Envio::getId).reversed())
+                .map(Envio::getId)
+                .toList();
+        for (int limite : new int[]{1, 2, 3, 5, 20}) {
+            assertThat(recorrer(limite, cursor -> envioService.obtenerHistorialEnviosPorConductor(conductor.getId(), cursor, limite)))
+                    .as("Por conductor, páginas de %d", limite).isEqualTo(esperados);
+            assertThat(recorrer(limite, cursor -> envioService.obtenerHistorialEnviosPorCliente(cliente.getId(), cursor, limite)))
+                    .as("Por cliente, páginas de %d", limite).isEqualTo(esperados);
+        }
+
+        // Por fechas y estado, contra las dos tablas leídas directamente
+        LocalDateTime desde = ahora.minusDays(250);
+        LocalDateTime hasta = ahora.minusDays(2);
+        List<Long> entregados = jdbcTemplate.queryForList("SELECT id FROM (SELECT id, fecha_creacion FROM envio "
+                        + "WHERE estado_envio = ? AND fecha_creacion BETWEEN ? AND ? UNION ALL SELECT id, fecha_creacion "
+                        + "FROM envio_archivo WHERE estado_envio = ? AND fecha_creacion BETWEEN ? AND ?) h "
+                        + "ORDER BY fecha_creacion DESC, id DESC", Long.class,
+                EstadoEnvio.ENTREGADO.getEtiqueta(), Timestamp.valueOf(desde), Timestamp.valueOf(hasta),
+                EstadoEnvio.ENTREGADO.getEtiqueta(), Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+        assertThat(entregados).hasSizeGreaterThanOrEqualTo(5);
+        assertThat(recorrer(2, cursor -> envioService.obtenerHistorialEnviosPorRangoFechas(desde, hasta, EstadoEnvio.ENTREGADO, cursor, 2)))
+                .isEqualTo(entregados);
+    }
+
+    // Ids de todas las páginas, cada una pedida con el cursor del último envío de la anterior
+    private static List<Long> recorrer(int limite, Function<CursorHistorial, List<EnvioDTO>> pagina) {
+        List<Long> ids = new ArrayList<>();
+        CursorHistorial cursor = CursorHistorial.PRIMERA_PAGINA;
+        List<EnvioDTO> envios;
+        do {
+            envios = pagina.apply(cursor);
+            assertThat(envios).hasSizeLessThanOrEqualTo(limite);
+            envios.forEach(envio -> ids.add(envio.getId()));
+            if (!envios.isEmpty()) {
+                EnvioDTO ultimo = envios.get(envios.size() - 1);
+                cursor = new CursorHistorial(ultimo.getFechaCreacion(), ultimo.getId());
+            }
+        } while (envios.size() == limite);
+        return ids;
+    }
+
+    private Envio envio(Conductor conductor, Cliente cliente, LocalDateTime creacion, EstadoEnvio estado) {
+        Envio envio = new Envio();
+        envio.setPedido(semillas.pedido(cliente, "ARC"));
+        envio.setConductor(conductor);
+        envio.setEstadoEnvio(estado);
+        envio.setFechaCreacion(creacion);
+        envio.setFechaEntregaEstimada(creacion.plusHours(3));
+        envio.setFechaEntregaReal(estado == EstadoEnvio.ENTREGADO ? creacion.plusHours(2) : null);
+        return envioRepository.save(envio);
+    }
+}
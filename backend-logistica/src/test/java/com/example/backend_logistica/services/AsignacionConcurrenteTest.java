@@ -0,0 +1,204 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.model.Cliente;
+import com.example.backend_logistica.model.Conductor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Prueba de estrés: muchas asignaciones simultáneas desde el mismo origen (todas compiten por los
+// mismos conductores cercanos) no deben ocupar dos veces a ningún conductor ni chocar en la base de datos.
+@SpringBootTest
+@Import(SemillasPrueba.class)
+@DirtiesContext // Deja la flota marcada como ocupada; el resto de pruebas usa un contexto nuevo
+class AsignacionConcurrenteTest {
+
+    private static final int HILOS = 64;
+    private static final double LATITUD_ORIGEN = -0.18;
+    private static final double LONGITUD_ORIGEN = -78.48;
+
+    @Autowired
+    private EnvioService envioService;
+
+    @Autowired
+    private ConductorService conductorService;
+
+    @Autowired
+    private IndiceGeoespacialConductores indiceGeoespacial;
+
+    @Autowired
+    private ReservasConductores reservasConductores;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ExecutorService ejecutor;
+
+    @BeforeEach
+    void prepararFlota() {
+        // Cada escenario parte de una flota nueva: lo sembrado antes queda ocupado
+        jdbcTemplate.update("UPDATE conductor SET disponible = false");
+        indiceGeoespacial.cargarIndice();
+        ejecutor = Executors.newFixedThreadPool(HILOS);
+    }
+
+    @AfterEach
+    void detenerEjecutor() {
+        ejecutor.shutdownNow();
+    }
+
+    @Test
+    void asignacionesConcurrentesNoRepitenConductor() throws Exception {
+        List<Long> conductores = sembrarConductores(HILOS * 2);
+        List<Long> pedidos = sembrarPedidos(HILOS * 2);
+
+        Resultado resultado = asignarEnParalelo(pedidos);
+
+        assertThat(resultado.asignados).hasSize(pedidos.size());
+        assertThat(new HashSet<>(resultado.asignados)).hasSize(resultado.asignados.size());
+        assertThat(resultado.sinConductor.get()).isZero();
+        assertThat(resultado.conflictosOptimistas.get()).isZero();
+        assertThat(conductores).containsAll(resultado.asignados);
+        verificarBaseDeDatos(resultado.asignados);
+    }
+
+    @Test
+    void conMasPeticionesQueConductoresSoloSeAsignanLosDisponibles() throws Exception {
+        List<Long> conductores = sembrarConductores(HILOS / 2);
+        List<Long> pedidos = sembrarPedidos(HILOS * 2);
+
+        Resultado resultado = asignarEnParalelo(pedidos);
+
+        assertThat(resultado.asignados).hasSize(conductores.size());
+        assertThat(new HashSet<>(resultado.asignados)).containsExactlyInAnyOrderElementsOf(conductores);
+        assertThat(resultado.sinConductor.get()).isEqualTo(pedidos.size() - conductores.size());
+        assertThat(resultado.conflictosOptimistas.get()).isZero();
+        verificarBaseDeDatos(resultado.asignados);
+    }
+
+    @Test
+    void losConductoresSinPosicionTampocoSeAsignanDosVeces() throws Exception {
+        // Sin ubicación no están en la rejilla: se llega a ellos por el recorrido de findByDisponibleTrue, que
+        // puede leerse antes de que otra asignación confirme. La reserva debe verlos ocupados igualmente
+        List<Long> conductores = new ArrayList<>(sembrarConductores(HILOS / 4));
+        conductores.addAll(sembrarConductoresSinPosicion(HILOS / 2));
+        List<Long> pedidos = sembrarPedidos(HILOS * 2);
+
+        Resultado resultado = asignarEnParalelo(pedidos);
+
+        assertThat(resultado.asignados).hasSize(conductores.size());
+        assertThat(new HashSet<>(resultado.asignados)).containsExactlyInAnyOrderElementsOf(conductores);
+        assertThat(resultado.sinConductor.get()).isEqualTo(pedidos.size() - conductores.size());
+        assertThat(resultado.conflictosOptimistas.get()).isZero();
+        verificarBaseDeDatos(resultado.asignados);
+    }
+
+    private Resultado asignarEnParalelo(List<Long> pedidos) throws Exception {
+        Resultado resultado = new Resultado();
+        CountDownLatch listos = new CountDownLatch(pedidos.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Long>> futuros = new ArrayList<>(pedidos.size());
+        for (Long pedidoId : pedidos) {
+            Callable<Long> tarea = () -> {
+                listos.countDown();
+                salida.await();
+                try {
+                    EnvioDTO envio = envioService.asignarEnvio(pedidoId, LATITUD_ORIGEN, LONGITUD_ORIGEN);
+                    return envio.getConductor().getId();
+                } catch (IllegalStateException e) {
+                    resultado.sinConductor.incrementAndGet();
+                } catch (OptimisticLockingFailureException e) {
+                    resultado.conflictosOptimistas.incrementAndGet();
+                }
+                return null;
+            };
+            futuros.add(ejecutor.submit(tarea));
+        }
+        listos.await(30, TimeUnit.SECONDS);
+        salida.countDown();
+        for (Future<Long> futuro : futuros) {
+            Long conductorId = futuro.get(60, TimeUnit.SECONDS);
+            if (conductorId != null) {
+                resultado.asignados.add(conductorId);
+            }
+        }
+        assertThat(reservasConductores.obtenerReservasActivas()).isZero();
+        return resultado;
+    }
+
+    private void verificarBaseDeDatos(List<Long> asignados) {
+        Integer duplicados = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT conductor_id FROM envio GROUP BY conductor_id HAVING COUNT(*) > 1) d", Integer.class);
+        assertThat(duplicados).isZero();
+        for (Long conductorId : asignados) {
+            Boolean disponible = jdbcTemplate.queryForObject("SELECT disponible FROM conductor WHERE id = ?", Boolean.class, conductorId);
+            assertThat(disponible).isFalse();
+        }
+    }
+
+    private List<Long> sembrarConductores(int cantidad) {
+        List<Long> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Conductor conductor = new Conductor();
+            conductor.setNombre("Conductor " + i);
+            conductor.setApellido("Estrés");
+            conductor.setDisponible(true);
+            conductor.setUbicacionActualLatitud(LATITUD_ORIGEN + (i % 10) * 0.002);
+            conductor.setUbicacionActualLongitud(LONGITUD_ORIGEN + (i / 10) * 0.002);
+            ids.add(conductorService.guardarConductor(conductor).getId());
+        }
+        return ids;
+    }
+
+    private List<Long> sembrarConductoresSinPosicion(int cantidad) {
+        List<Long> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Conductor conductor = new Conductor();
+            conductor.setNombre("Conductor sin posición " + i);
+            conductor.setApellido("Estrés");
+            conductor.setDisponible(true);
+            ids.add(conductorService.guardarConductor(conductor).getId());
+        }
+        return ids;
+    }
+
+    private List<Long> sembrarPedidos(int cantidad) {
+        Cliente cliente = semillas.cliente("Estrés");
+        List<Long> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ids.add(semillas.pedido(cliente, "EST").getId());
+        }
+        return ids;
+    }
+
+    private static final class Resultado {
+        final List<Long> asignados = new ArrayList<>();
+        final AtomicInteger sinConductor = new AtomicInteger();
+        final AtomicInteger conflictosOptimistas = new AtomicInteger();
+    }
+}
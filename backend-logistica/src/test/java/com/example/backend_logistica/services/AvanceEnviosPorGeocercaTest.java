@@ -0,0 +1,120 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.dto.EventoEnvioDTO;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import com.example.backend_logistica.repository.EnvioRepository;
+import com.example.backend_logistica.util.GeoUtils;
+import com.example.backend_logistica.util.TipoGeocerca;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Recorrido completo de un conductor por las geocercas de su envío: los pings pasan por MotorGeocercas (sin la
+// ingesta) y cada pasada de procesarPendientes publica las detecciones, que AvanceEnviosPorGeocerca aplica
+@SpringBootTest(properties = {
+        "geocercas.intervalo-ms=3600000", // Las pasadas las hace la prueba
+        "eventos.salida.intervalo-ms=3600000"
+})
+@Import(SemillasPrueba.class)
+@RecordApplicationEvents
+@DirtiesContext // Deja el envío vigilado en el índice de geocercas
+class AvanceEnviosPorGeocercaTest {
+
+    private static final double METROS_POR_GRADO = GeoUtils.KM_POR_GRADO_LATITUD * 1000;
+    private static final double LATITUD_ORIGEN = -0.18;
+    private static final double LATITUD_DESTINO = -0.20;
+    private static final double LONGITUD = -78.48;
+
+    @Autowired
+    private MotorGeocercas motorGeocercas;
+
+    @Autowired
+    private AvanceEnviosPorGeocerca avanceEnvios;
+
+    @Autowired
+    private EnvioService envioService;
+
+    @Autowired
+    private EnvioRepository envioRepository;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private ApplicationEvents eventosAplicacion;
+
+    private long marcaTiempo = System.currentTimeMillis();
+
+    @Test
+    void elEnvioAvanzaConLasLlegadasYSalidasSinRebotarEnElBorde() {
+        Envio envio = semillas.envioAsignado("Geocercas", LATITUD_ORIGEN, LONGITUD, LATITUD_DESTINO, LONGITUD);
+        Long envioId = envio.getId();
+        Long conductorId = envio.getConductor().getId();
+        assertThat(motorGeocercas.obtenerGeocercas(envioId)).isPresent(); // Lo empieza a vigilar
+
+        ping(conductorId, LATITUD_ORIGEN, 500);
+        assertThat(estado(envioId)).isEqualTo(EstadoEnvio.ASIGNADO);
+
+        ping(conductorId, LATITUD_ORIGEN, 20); // Llega a recoger
+        assertThat(estado(envioId)).isEqualTo(EstadoEnvio.RECOGIDO);
+
+        // Maniobrando junto al borde (radio 150 m, margen 50 m): ni salida ni otra llegada
+        ping(conductorId, LATITUD_ORIGEN, 180);
+        ping(conductorId, LATITUD_ORIGEN, 90);
+        ping(conductorId, LATITUD_ORIGEN, 190);
+        assertThat(detecciones()).hasSize(1);
+        assertThat(estado(envioId)).isEqualTo(EstadoEnvio.RECOGIDO);
+
+        ping(conductorId, LATITUD_ORIGEN, -300); // Sale hacia el destino, al sur
+        assertThat(estado(envioId)).isEqualTo(EstadoEnvio.EN_TRANSITO);
+        assertThat(motorGeocercas.obtenerGeocercas(envioId).orElseThrow()).hasSize(1); // El origen ya no se vigila
+
+        ping(conductorId, LATITUD_DESTINO, 0); // Llega al destino: ya estaba en tránsito
+        ping(conductorId, LATITUD_DESTINO, -400); // Se va sin entregar: la entrega la registra el conductor
+        assertThat(estado(envioId)).isEqualTo(EstadoEnvio.EN_TRANSITO);
+
+        List<EnvioEnGeocercaEvent> detecciones = detecciones();
+        assertThat(detecciones).extracting(EnvioEnGeocercaEvent::geocerca, EnvioEnGeocercaEvent::llegada)
+                .containsExactly(
+                        tuple(TipoGeocerca.ORIGEN, true),
+                        tuple(TipoGeocerca.ORIGEN, false),
+                        tuple(TipoGeocerca.DESTINO, true),
+                        tuple(TipoGeocerca.DESTINO, false));
+        assertThat(detecciones).extracting(EnvioEnGeocercaEvent::avanzarA)
+                .containsExactly(EstadoEnvio.RECOGIDO, EstadoEnvio.EN_TRANSITO, EstadoEnvio.EN_TRANSITO, null);
+
+        // Una detección repetida (otra instancia de la aplicación) no registra la transición otra vez
+        avanceEnvios.avanzar(detecciones.get(0));
+        avanceEnvios.avanzar(detecciones.get(1));
+        assertThat(envioService.obtenerEventos(envioId)).extracting(EventoEnvioDTO::claveIdempotencia)
+                .containsExactly("geocerca-" + envioId + "-" + EstadoEnvio.RECOGIDO.getCodigo(),
+                        "geocerca-" + envioId + "-" + EstadoEnvio.EN_TRANSITO.getCodigo());
+    }
+
+    // Ping a tantos metros al norte de la latitud dada y la pasada que publica sus detecciones
+    private void ping(Long conductorId, double latitud, double metrosAlNorte) {
+        marcaTiempo += 5_000;
+        motorGeocercas.evaluar(List.of(new PosicionConductor(conductorId, latitud + metrosAlNorte / METROS_POR_GRADO,
+                LONGITUD, marcaTiempo)));
+        motorGeocercas.procesarPendientes();
+    }
+
+    private List<EnvioEnGeocercaEvent> detecciones() {
+        return eventosAplicacion.stream(EnvioEnGeocercaEvent.class).toList();
+    }
+
+    private EstadoEnvio estado(Long envioId) {
+        return envioRepository.findById(envioId).orElseThrow().getEstadoEnvio();
+    }
+}
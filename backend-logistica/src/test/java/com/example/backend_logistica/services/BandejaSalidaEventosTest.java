@@ -0,0 +1,138 @@
+package com.example.backend_logistica.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Bandeja de salida con el transporte en memoria: los eventos sólo existen si su transacción confirma y llegan
+// a los consumidores en orden por agregado aunque se repartan entre varias particiones. Se usan eventos de
+// ubicación de conductores inexistentes para que los consumidores de la aplicación los ignoren.
+@SpringBootTest(properties = {
+        "eventos.salida.intervalo-ms=3600000", // El reparto lo lanza la prueba
+        "eventos.salida.tamano-lote=7" // Varios lotes por prueba
+})
+@DirtiesContext // Contexto con un consumidor de prueba
+class BandejaSalidaEventosTest {
+
+    private static final long PRIMER_CONDUCTOR = 900_000L;
+
+    @Autowired
+    private BusEventos busEventos;
+
+    @Autowired
+    private RepartidorEventos repartidorEventos;
+
+    @Autowired
+    private ConsumidorPrueba consumidor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TestConfiguration
+    static class Configuracion {
+        @Bean
+        ConsumidorPrueba consumidorPrueba() {
+            return new ConsumidorPrueba();
+        }
+    }
+
+    static class ConsumidorPrueba implements ConsumidorEventos {
+        final Queue<UbicacionActualizadaEvent> recibidos = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void consumir(EventoDominio evento) {
+            if (evento instanceof UbicacionActualizadaEvent ubicacion && ubicacion.conductorId() >= PRIMER_CONDUCTOR) {
+                recibidos.add(ubicacion);
+            }
+        }
+    }
+
+    @BeforeEach
+    void vaciar() {
+        repartidorEventos.repartir();
+        esperarTransporte();
+        consumidor.recibidos.clear();
+    }
+
+    @Test
+    void losEventosConfirmadosLleganEnOrdenPorAgregado() {
+        int conductores = 5;
+        int eventosPorConductor = 10;
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        for (int marca = 0; marca < eventosPorConductor; marca++) {
+            long marcaTiempo = marca;
+            transaccion.executeWithoutResult(estado -> {
+                List<UbicacionActualizadaEvent> eventos = new ArrayList<>();
+                for (int i = 0; i < conductores; i++) {
+                    eventos.add(new UbicacionActualizadaEvent(PRIMER_CONDUCTOR + i, -0.18, -78.48, marcaTiempo));
+                }
+                busEventos.publicarTodos(eventos);
+            });
+        }
+
+        repartidorEventos.repartir();
+        esperarTransporte();
+
+        assertThat(consumidor.recibidos).hasSize(conductores * eventosPorConductor);
+        Map<Long, Long> ultimaMarca = new HashMap<>();
+        for (UbicacionActualizadaEvent evento : consumidor.recibidos) {
+            Long anterior = ultimaMarca.put(evento.conductorId(), evento.marcaTiempo());
+            assertThat(anterior == null ? -1 : anterior).isLessThan(evento.marcaTiempo());
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM evento_salida", Integer.class)).isZero();
+    }
+
+    @Test
+    void unaTransaccionDeshechaNoPublicaNada() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            busEventos.publicar(new UbicacionActualizadaEvent(PRIMER_CONDUCTOR, -0.18, -78.48, 1));
+            estado.setRollbackOnly();
+        });
+
+        repartidorEventos.repartir();
+        esperarTransporte();
+
+        assertThat(consumidor.recibidos).isEmpty();
+    }
+
+    @Test
+    void publicarFueraDeUnaTransaccionFalla() {
+        assertThatThrownBy(() -> busEventos.publicar(new UbicacionActualizadaEvent(PRIMER_CONDUCTOR, -0.18, -78.48, 1)))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    // El transporte en memoria consume en sus propios hilos: se espera a que no llegue nada nuevo
+    private void esperarTransporte() {
+        try {
+            int anterior = -1;
+            while (consumidor.recibidos.size() != anterior) {
+                anterior = consumidor.recibidos.size();
+                TimeUnit.MILLISECONDS.sleep(200);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.model.NotificacionFallida;
+import com.example.backend_logistica.repository.NotificacionFallidaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Sin Spring: un proveedor push que siempre falla de forma transitoria y un backoff largo dejan la notificación
+// esperando su reintento al detener el despachador, que debe darle un último intento y guardarla como fallida
+class DespachadorNotificacionesTest {
+
+    @Test
+    void losReintentosPendientesAlDetenerseAcabanEnNotificacionFallida() throws Exception {
+        ClienteMensajeriaPush proveedor = mock(ClienteMensajeriaPush.class);
+        when(proveedor.enviarLote(anyList()))
+                .thenAnswer(invocacion -> Collections.nCopies(invocacion.<List<?>>getArgument(0).size(),
+                        ResultadoEnvioPush.fallo(true, "UNAVAILABLE")));
+        NotificacionFallidaRepository fallidas = mock(NotificacionFallidaRepository.class);
+        SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+        DespachadorNotificaciones despachador = new DespachadorNotificaciones(proveedor, fallidas, metricas,
+                500, 10, 5, 3_600_000, 3_600_000, 100, false);
+        despachador.iniciar();
+
+        despachador.encolar(new NotificacionPush("token-1", "Envío", "En camino"));
+        verify(proveedor, timeout(5000)).enviarLote(anyList());
+        esperarReintentoProgramado(metricas); // Primer intento fallido: el reintento espera su backoff
+
+        despachador.detener();
+
+        verify(proveedor, times(2)).enviarLote(anyList()); // Último intento al detenerse, sin esperar el backoff
+        ArgumentCaptor<NotificacionFallida> guardada = ArgumentCaptor.forClass(NotificacionFallida.class);
+        verify(fallidas).save(guardada.capture());
+        assertThat(guardada.getValue().getDeviceToken()).isEqualTo("token-1");
+        assertThat(guardada.getValue().getIntentos()).isEqualTo(2);
+        assertThat(despachador.obtenerTamanoCola()).isZero();
+    }
+
+    private static void esperarReintentoProgramado(SimpleMeterRegistry metricas) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (metricas.get("notificaciones.push.reintentos").gauge().value() < 1) {
+            assertThat(System.currentTimeMillis()).as("Reintento programado").isLessThan(limite);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
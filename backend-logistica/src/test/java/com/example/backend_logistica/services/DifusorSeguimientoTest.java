@@ -0,0 +1,206 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.EstadoEnvioEnVivoDTO;
+import com.example.backend_logistica.dto.UbicacionEnVivoDTO;
+import com.example.backend_logistica.model.EstadoEnvio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Sin Spring ni servidor: cada suscripción usa un EmisorDePrueba que registra lo enviado y puede quedarse
+// bloqueado en send (cliente que no lee) o fallar (cliente desconectado). vigilar se llama a mano
+class DifusorSeguimientoTest {
+
+    private static final long PLAZO_ENVIO_MS = 100;
+    private static final String LATIDO = "latido";
+    private static final long CONDUCTOR = 7L;
+    private static final long OTRO_CONDUCTOR = 8L;
+
+    private SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+    private DifusorSeguimiento difusor = crearDifusor(3_600_000);
+
+    @AfterEach
+    void detener() {
+        difusor.detener();
+    }
+
+    @Test
+    void unSuscriptorLentoSeDesconectaSinFrenarALosDemas() throws Exception {
+        EmisorDePrueba lento = suscribirEnvio(1L, CONDUCTOR, null);
+        lento.bloqueo = new CountDownLatch(1); // No se libera: el cliente nunca vuelve a leer
+        EmisorDePrueba rapido = suscribirEnvio(2L, CONDUCTOR, null);
+        EmisorDePrueba region = (EmisorDePrueba) difusor.suscribirRegion(-0.3, -0.1, -78.6, -78.4).orElseThrow();
+
+        difusor.publicar(posicion(CONDUCTOR, 1_000));
+        assertThat(lento.enviando.await(5, TimeUnit.SECONDS)).isTrue();
+        for (long marca = 2_000; marca <= 5_000; marca += 1_000) {
+            difusor.publicar(posicion(CONDUCTOR, marca));
+        }
+        esperarHasta(() -> ultimaMarca(rapido) == 5_000 && ultimaMarca(region) == 5_000, "Los clientes rápidos reciben todo");
+
+        TimeUnit.MILLISECONDS.sleep(PLAZO_ENVIO_MS * 2);
+        difusor.vigilar();
+
+        assertThat(lento.completado).isTrue();
+        assertThat(lento.recibidos).isEmpty();
+        assertThat(metricas.get("seguimiento.desconexiones").counter().count()).isEqualTo(1);
+        assertThat(suscriptores()).isEqualTo(2);
+        difusor.publicar(posicion(CONDUCTOR, 6_000));
+        esperarHasta(() -> ultimaMarca(rapido) == 6_000 && ultimaMarca(region) == 6_000, "Siguen recibiendo tras el corte");
+        assertThat(rapido.completado).isFalse();
+    }
+
+    @Test
+    void mientrasUnEnvioEstaEnCursoSoloQuedaLaUltimaPosicionDeCadaConductor() throws Exception {
+        EmisorDePrueba emisor = (EmisorDePrueba) difusor.suscribirRegion(-0.3, -0.1, -78.6, -78.4).orElseThrow();
+        CountDownLatch bloqueo = new CountDownLatch(1);
+        emisor.bloqueo = bloqueo;
+
+        difusor.publicar(posicion(CONDUCTOR, 1_000));
+        assertThat(emisor.enviando.await(5, TimeUnit.SECONDS)).isTrue();
+        difusor.publicar(posicion(CONDUCTOR, 2_000));
+        difusor.publicar(posicion(OTRO_CONDUCTOR, 2_500));
+        difusor.publicar(posicion(CONDUCTOR, 3_000));
+        difusor.publicar(posicion(CONDUCTOR, 4_000));
+        bloqueo.countDown();
+
+        esperarHasta(() -> metricas.get("seguimiento.eventos").tag("resultado", "enviado").counter().count() == 3,
+                "Tres eventos entregados");
+        List<UbicacionEnVivoDTO> ubicaciones = emisor.recibidos.stream().map(UbicacionEnVivoDTO.class::cast).toList();
+        assertThat(ubicaciones.get(0).getMarcaTiempo()).isEqualTo(1_000);
+        assertThat(ubicaciones.subList(1, 3)).extracting(UbicacionEnVivoDTO::getConductorId, UbicacionEnVivoDTO::getMarcaTiempo)
+                .containsExactlyInAnyOrder(
+                        tuple(CONDUCTOR, 4_000L),
+                        tuple(OTRO_CONDUCTOR, 2_500L));
+        assertThat(metricas.get("seguimiento.eventos").tag("resultado", "coalescido").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void losInactivosRecibenLatidoYLosDesconectadosSeRetiran() throws Exception {
+        difusor.detener();
+        metricas = new SimpleMeterRegistry(); // El medidor de suscriptores queda ligado al primer difusor
+        difusor = crearDifusor(0); // Cada pasada del vigilante toca latido
+        EmisorDePrueba inactivo = suscribirEnvio(1L, CONDUCTOR, posicion(CONDUCTOR, 1_000));
+        esperarHasta(() -> ultimaMarca(inactivo) == 1_000, "La posición inicial llega al suscribirse");
+        EmisorDePrueba caido = suscribirEnvio(2L, OTRO_CONDUCTOR, null);
+        caido.desconectado = true;
+
+        difusor.vigilar();
+
+        esperarHasta(() -> inactivo.recibidos.contains(LATIDO), "Latido al inactivo");
+        esperarHasta(() -> suscriptores() == 1, "El desconectado se retira al fallar el latido");
+        difusor.publicar(posicion(OTRO_CONDUCTOR, 2_000));
+        assertThat(caido.intentos.get()).isEqualTo(1);
+
+        // Al entregarse el envío el cliente recibe el estado final y la conexión se cierra
+        difusor.notificarEstado(new EnvioEstadoCambiadoEvent(1L, CONDUCTOR, null, null, EstadoEnvio.ENTREGADO,
+                LocalDateTime.now(), null, null, null));
+        esperarHasta(() -> inactivo.completado, "Conexión cerrada al entregar");
+        assertThat(inactivo.recibidos.get(inactivo.recibidos.size() - 1)).isInstanceOf(EstadoEnvioEnVivoDTO.class);
+        assertThat(suscriptores()).isZero();
+    }
+
+    @Test
+    void alcanzadoElMaximoNoSeAdmitenMasSuscripciones() {
+        for (long envioId = 1; envioId <= 3; envioId++) {
+            assertThat(difusor.suscribirEnvio(envioId, CONDUCTOR, null)).isPresent();
+        }
+
+        assertThat(difusor.suscribirEnvio(4L, CONDUCTOR, null)).isEmpty();
+        assertThat(difusor.suscribirRegion(-0.3, -0.1, -78.6, -78.4)).isEmpty();
+    }
+
+    private DifusorSeguimiento crearDifusor(long intervaloLatidoMs) {
+        // 3 suscriptores como máximo, 4 hilos de envío de plataforma
+        return new DifusorSeguimiento(metricas, 3, 3_600_000, PLAZO_ENVIO_MS, intervaloLatidoMs, 500, 4, false) {
+            @Override
+            SseEmitter crearEmisor() {
+                return new EmisorDePrueba();
+            }
+        };
+    }
+
+    private EmisorDePrueba suscribirEnvio(Long envioId, Long conductorId, PosicionConductor posicionInicial) {
+        return (EmisorDePrueba) difusor.suscribirEnvio(envioId, conductorId, posicionInicial).orElseThrow();
+    }
+
+    private double suscriptores() {
+        return metricas.get("seguimiento.suscriptores").gauge().value();
+    }
+
+    private static PosicionConductor posicion(Long conductorId, long marcaTiempo) {
+        return new PosicionConductor(conductorId, -0.2, -78.5, marcaTiempo);
+    }
+
+    private static long ultimaMarca(EmisorDePrueba emisor) {
+        for (int i = emisor.recibidos.size() - 1; i >= 0; i--) {
+            if (emisor.recibidos.get(i) instanceof UbicacionEnVivoDTO ubicacion) {
+                return ubicacion.getMarcaTiempo();
+            }
+        }
+        return -1;
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion, String descripcion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicion.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as(descripcion).isLessThan(limite);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    // Guarda los datos de cada evento (los DTO y LATIDO por cada comentario) en lugar de escribirlos en una respuesta
+    private static final class EmisorDePrueba extends SseEmitter {
+
+        final List<Object> recibidos = new CopyOnWriteArrayList<>();
+        final CountDownLatch enviando = new CountDownLatch(1);
+        final AtomicInteger intentos = new AtomicInteger();
+        volatile CountDownLatch bloqueo; // Con valor, send espera a que se libere: cliente que no lee
+        volatile boolean desconectado;
+        volatile boolean completado;
+
+        @Override
+        public void send(SseEventBuilder evento) throws IOException {
+            intentos.incrementAndGet();
+            enviando.countDown();
+            if (desconectado) {
+                throw new IOException("Broken pipe");
+            }
+            CountDownLatch espera = bloqueo;
+            if (espera != null) {
+                try {
+                    espera.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Envío interrumpido", e);
+                }
+            }
+            for (ResponseBodyEmitter.DataWithMediaType dato : evento.build()) {
+                if (!(dato.getData() instanceof String texto)) {
+                    recibidos.add(dato.getData());
+                } else if (texto.startsWith(":" + LATIDO)) {
+                    recibidos.add(LATIDO);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completado = true;
+        }
+    }
+}
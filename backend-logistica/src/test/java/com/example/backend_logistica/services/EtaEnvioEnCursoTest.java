@@ -0,0 +1,75 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.dto.EtaEnvioDTO;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// ETA de un envío en curso cuyo conductor aún no envió ninguna posición: se estima desde el origen y, con el
+// primer ping, pasa a incluir el viaje del conductor hasta el origen. Puntos en el centro de su celda
+@SpringBootTest(properties = {
+        "eta.factor-desvio=1.35",
+        "eta.minutos-recoleccion=10",
+        "eta.minutos-entrega=5",
+        "eta.lado-celda-grados=" + EtaEnvioEnCursoTest.LADO_CELDA,
+        "eta.intervalo-recalculo-ms=3600000" // Las pasadas las hace la prueba
+})
+@Import(SemillasPrueba.class)
+@DirtiesContext // Deja el envío seguido en MotorEta
+class EtaEnvioEnCursoTest {
+
+    static final double LADO_CELDA = 0.0025;
+    private static final double FACTOR_DESVIO = 1.35;
+    private static final long SEGUNDOS_FIJOS = (10 + 5) * 60;
+
+    private static final double LATITUD_CONDUCTOR = centro(-80);
+    private static final double LONGITUD_CONDUCTOR = centro(-31_400);
+    private static final double LATITUD_ORIGEN = centro(-72);
+    private static final double LONGITUD_ORIGEN = centro(-31_395);
+    private static final double LATITUD_DESTINO = centro(-40);
+    private static final double LONGITUD_DESTINO = centro(-31_390);
+
+    @Autowired
+    private MotorEta motorEta;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Test
+    void sinPosicionDelConductorSeEstimaDesdeElOrigenHastaSuPrimerPing() {
+        Envio envio = semillas.envioAsignado("Eta", LATITUD_ORIGEN, LONGITUD_ORIGEN, LATITUD_DESTINO, LONGITUD_DESTINO);
+        double kmHastaOrigen = FACTOR_DESVIO * GeoUtils.distanciaKm(LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR, LATITUD_ORIGEN, LONGITUD_ORIGEN);
+        double kmHastaDestino = FACTOR_DESVIO * GeoUtils.distanciaKm(LATITUD_ORIGEN, LONGITUD_ORIGEN, LATITUD_DESTINO, LONGITUD_DESTINO);
+
+        EtaEnvioDTO sinPosicion = motorEta.obtenerEta(envio.getId()).orElseThrow();
+
+        assertThat(sinPosicion.isRecogido()).isFalse();
+        assertThat(sinPosicion.getPerfilVelocidad()).isEqualTo(PerfilVelocidad.AUTO.name()); // Sin vehículo
+        assertThat(sinPosicion.getDistanciaRestanteKm()).isCloseTo(kmHastaDestino, within(1e-9));
+        assertThat(sinPosicion.getSegundosRestantes()).isEqualTo(segundos(kmHastaDestino) + SEGUNDOS_FIJOS);
+
+        motorEta.actualizarPosicion(new PosicionConductor(envio.getConductor().getId(), LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR,
+                System.currentTimeMillis()));
+        motorEta.recalcularPendientes();
+
+        EtaEnvioDTO conPosicion = motorEta.obtenerEta(envio.getId()).orElseThrow();
+        assertThat(conPosicion.getDistanciaRestanteKm()).isCloseTo(kmHastaOrigen + kmHastaDestino, within(1e-9));
+        assertThat(conPosicion.getSegundosRestantes()).isEqualTo(segundos(kmHastaOrigen + kmHastaDestino) + SEGUNDOS_FIJOS);
+    }
+
+    private static long segundos(double km) {
+        return Math.round(km / PerfilVelocidad.AUTO.getKmPorHora() * 3600);
+    }
+
+    private static double centro(int celda) {
+        return (celda + 0.5) * LADO_CELDA;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// buscarCercanos contra un recorrido completo de los mismos conductores, sin base de datos (cargarIndice no se
+// usa). Se comparan distancias y no IDs para no depender del orden de los empates. Parte de la flota está justo
+// sobre los bordes de celda (múltiplos de 0,01°) y otra parte a cientos de km, fuera de los anillos. Los cambios
+// al azar incluyen ocupar o liberar conductores que en ese momento no tienen posición
+class IndiceGeoespacialConductoresTest {
+
+    private static final double CELDA = 0.01;
+
+    private final IndiceGeoespacialConductores indice = new IndiceGeoespacialConductores(null);
+    private final Map<Long, Posicion> flota = new HashMap<>();
+    private final Set<Long> ocupados = new HashSet<>();
+    private final Random aleatorio = new Random(42);
+
+    @Test
+    void losKMasCercanosCoincidenConUnRecorridoCompleto() {
+        long id = 1;
+        for (int i = 0; i < 300; i++) {
+            colocar(id++, -0.2 + (aleatorio.nextDouble() - 0.5) * 0.3, -78.5 + (aleatorio.nextDouble() - 0.5) * 0.3, true);
+        }
+        for (int i = 0; i < 60; i++) {
+            colocar(id++, borde(-0.2, 10), borde(-78.5, 10), aleatorio.nextBoolean());
+        }
+        for (int i = 0; i < 20; i++) {
+            colocar(id++, -0.2 + (aleatorio.nextDouble() - 0.5) * 8, -78.5 + (aleatorio.nextDouble() - 0.5) * 8, true);
+        }
+
+        for (int ronda = 0; ronda < 30; ronda++) {
+            for (int cambio = 0; cambio < 20; cambio++) {
+                cambiarAlAzar(id);
+            }
+            for (int consulta = 0; consulta < 10; consulta++) {
+                boolean enBorde = consulta % 2 == 0;
+                double latitud = enBorde ? borde(-0.2, 15) : -0.2 + (aleatorio.nextDouble() - 0.5) * 0.4;
+                double longitud = enBorde ? borde(-78.5, 15) : -78.5 + (aleatorio.nextDouble() - 0.5) * 0.4;
+                for (int k : new int[]{1, 5, 25, 1_000}) {
+                    assertIgualAlRecorrido(latitud, longitud, k);
+                }
+            }
+        }
+    }
+
+    @Test
+    void unConductorJustoAlOtroLadoDelBordeNoSeQuedaFuera() {
+        // La consulta está sobre el borde sur de su celda. A, al este en el primer anillo, está a 1,11306 km;
+        // B, al sur en el segundo anillo, a 1,11196 km. Con un grado de 111,32 km el primer anillo parecía
+        // cubrir hasta 1,1131 km y se devolvía A
+        colocar(1L, 0.0, 0.005 + 0.01001, true);
+        colocar(2L, -0.0100001, 0.005, true);
+
+        assertThat(indice.buscarCercanos(0.0, 0.005, 1)).containsExactly(2L);
+        assertIgualAlRecorrido(0.0, 0.005, 1);
+    }
+
+    @Test
+    void losOcupadosYLosQueSalenDelIndiceNoSeDevuelven() {
+        colocar(1L, -0.2, -78.5, true);
+        colocar(2L, -0.2001, -78.5, true);
+        colocar(3L, -0.21, -78.5, true);
+
+        marcar(1L, false);
+        indice.actualizarPosicion(2L, null, null); // Sin posición válida sale del índice
+        flota.remove(2L);
+
+        assertThat(indice.buscarCercanos(-0.2, -78.5, 3)).containsExactly(3L);
+        assertThat(indice.figuraComoOcupado(1L)).isTrue();
+
+        marcar(1L, true);
+        mover(3L, -0.5, -78.5); // Se mueve y conserva su disponibilidad
+        assertThat(indice.buscarCercanos(-0.2, -78.5, 3)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void unConductorOcupadoSinPosicionFiguraComoOcupado() {
+        marcar(7L, false); // Asignado sin haber enviado nunca su ubicación
+        assertThat(indice.figuraComoOcupado(7L)).isTrue();
+
+        mover(7L, -0.2, -78.5); // Su primer ping no lo vuelve disponible
+        assertThat(indice.figuraComoOcupado(7L)).isTrue();
+        assertThat(indice.buscarCercanos(-0.2, -78.5, 1)).isEmpty();
+
+        indice.actualizarPosicion(7L, null, null); // Pierde la posición, no la ocupación
+        assertThat(indice.figuraComoOcupado(7L)).isTrue();
+
+        marcar(7L, true);
+        mover(7L, -0.2, -78.5);
+        assertThat(indice.figuraComoOcupado(7L)).isFalse();
+        assertThat(indice.buscarCercanos(-0.2, -78.5, 1)).containsExactly(7L);
+
+        marcar(7L, false);
+        indice.eliminar(7L); // Conductor borrado
+        assertThat(indice.figuraComoOcupado(7L)).isFalse();
+    }
+
+    private void cambiarAlAzar(long siguienteId) {
+        long id = 1 + aleatorio.nextInt((int) siguienteId - 1);
+        switch (aleatorio.nextInt(5)) {
+            case 0 -> // Se mueve un poco, a veces a un borde de celda
+                    mover(id, aleatorio.nextBoolean() ? borde(-0.2, 10) : -0.2 + (aleatorio.nextDouble() - 0.5) * 0.3,
+                            -78.5 + (aleatorio.nextDouble() - 0.5) * 0.3);
+            case 1 -> marcar(id, false);
+            case 2 -> marcar(id, true);
+            case 3 -> { // Deja de tener posición válida
+                indice.actualizarPosicion(id, null, null);
+                flota.remove(id);
+            }
+            default -> {
+                indice.eliminar(id);
+                flota.remove(id);
+                ocupados.remove(id);
+            }
+        }
+    }
+
+    private void colocar(long id, double latitud, double longitud, boolean disponible) {
+        indice.actualizarPosicion(id, latitud, longitud, disponible);
+        flota.put(id, new Posicion(latitud, longitud));
+        marcarEnModelo(id, disponible);
+    }
+
+    private void mover(long id, double latitud, double longitud) {
+        indice.actualizarPosicion(id, latitud, longitud);
+        flota.put(id, new Posicion(latitud, longitud));
+    }
+
+    private void marcar(long id, boolean disponible) {
+        indice.marcarDisponibilidad(id, disponible);
+        marcarEnModelo(id, disponible);
+    }
+
+    private void marcarEnModelo(long id, boolean disponible) {
+        if (disponible) {
+            ocupados.remove(id);
+        } else {
+            ocupados.add(id);
+        }
+    }
+
+    // Un múltiplo de 0,01° a no más de celdas de distancia del centro dado
+    private double borde(double centro, int celdas) {
+        return (Math.round(centro / CELDA) + aleatorio.nextInt(2 * celdas + 1) - celdas) * CELDA;
+    }
+
+    private void assertIgualAlRecorrido(double latitud, double longitud, int k) {
+        List<Double> esperadas = new ArrayList<>();
+        for (Map.Entry<Long, Posicion> conductor : flota.entrySet()) {
+            if (!ocupados.contains(conductor.getKey())) {
+                Posicion posicion = conductor.getValue();
+                esperadas.add(GeoUtils.distanciaKm(latitud, longitud, posicion.latitud(), posicion.longitud()));
+            }
+        }
+        esperadas.sort(null);
+        esperadas = esperadas.subList(0, Math.min(k, esperadas.size()));
+
+        List<Double> obtenidas = new ArrayList<>();
+        for (Long id : indice.buscarCercanos(latitud, longitud, k)) {
+            Posicion conductor = flota.get(id);
+            assertThat(conductor).as("Conductor %d fuera de la flota", id).isNotNull();
+            assertThat(ocupados.contains(id)).as("Conductor %d ocupado", id).isFalse();
+            obtenidas.add(GeoUtils.distanciaKm(latitud, longitud, conductor.latitud(), conductor.longitud()));
+        }
+        assertThat(obtenidas).as("k=%d en (%f, %f)", k, latitud, longitud).isEqualTo(esperadas);
+    }
+
+    private record Posicion(double latitud, double longitud) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.repository.ConductorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// Sin Spring ni base de datos: el JdbcTemplate es un mock que registra cada lote y el flush se llama a mano.
+// Varios pings del mismo conductor se reducen a una fila con el más reciente, cada flush escribe un único lote
+// ordenado por ID y un lote que falla vuelve en el siguiente flush sin pisar posiciones más nuevas
+class IngestaUbicacionesServiceTest {
+
+    private static final int TAMANO_LOTE = 2;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final HistorialUbicacionesService historial = mock(HistorialUbicacionesService.class);
+    private final MotorGeocercas motorGeocercas = mock(MotorGeocercas.class);
+    private final DifusorSeguimiento difusor = mock(DifusorSeguimiento.class);
+    private final SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+    private final IngestaUbicacionesService ingesta = new IngestaUbicacionesService(mock(ConductorRepository.class),
+            mock(IndiceGeoespacialConductores.class), difusor, historial, mock(MotorEta.class), motorGeocercas,
+            jdbcTemplate, mock(PlatformTransactionManager.class), mock(BusEventos.class), metricas, 100, TAMANO_LOTE, false);
+
+    @Test
+    void variosPingsDeUnConductorSeEscribenComoUnaFilaConElMasReciente() {
+        ingesta.registrarPing(1L, -0.10, -78.40, 1_000);
+        ingesta.registrarPing(1L, -0.30, -78.60, 3_000);
+        ingesta.registrarPing(1L, -0.20, -78.50, 2_000); // Llega tarde: no sustituye a la de 3 000
+        ingesta.registrarPing(2L, -0.15, -78.45, 1_500);
+
+        ingesta.escribirPendientes();
+
+        assertThat(lotesEscritos()).containsExactly(List.of(
+                new PosicionConductor(1L, -0.30, -78.60, 3_000),
+                new PosicionConductor(2L, -0.15, -78.45, 1_500)));
+        assertThat(ingesta.obtenerUltimaPosicion(1L).orElseThrow().marcaTiempo()).isEqualTo(3_000);
+        verify(difusor, never()).publicar(new PosicionConductor(1L, -0.20, -78.50, 2_000));
+        // El historial y las geocercas reciben todos los pings, no sólo el último de cada conductor
+        verify(historial).registrar(argumentoConTamano(4));
+        verify(motorGeocercas).evaluar(argumentoConTamano(4));
+    }
+
+    @Test
+    void cadaFlushEscribeUnLoteOrdenadoPorIdYDrenaLaCola() {
+        for (long conductorId = 5; conductorId >= 1; conductorId--) {
+            ingesta.registrarPing(conductorId, -0.2, -78.5, 1_000);
+        }
+        assertThat(ingesta.obtenerTamanoCola()).isEqualTo(5);
+
+        ingesta.escribirPendientes();
+        ingesta.escribirPendientes(); // Sin pings nuevos no escribe nada
+
+        List<List<PosicionConductor>> lotes = lotesEscritos();
+        assertThat(lotes).hasSize(1);
+        assertThat(lotes.get(0)).extracting(PosicionConductor::conductorId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(ingesta.obtenerTamanoCola()).isZero();
+        assertThat(metricas.get("ubicaciones.ingesta.flush.filas").summary().totalAmount()).isEqualTo(5);
+    }
+
+    @Test
+    void unLoteFallidoVuelveEnElSiguienteFlushSinPisarPosicionesMasNuevas() {
+        doThrow(new QueryTimeoutException("Tiempo de espera agotado")).doReturn(new int[0][])
+                .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        ingesta.registrarPing(1L, -0.10, -78.40, 1_000);
+        ingesta.registrarPing(2L, -0.20, -78.50, 1_000);
+        ingesta.registrarPing(3L, -0.30, -78.60, 1_000);
+
+        ingesta.escribirPendientes();
+
+        assertThat(metricas.get("ubicaciones.ingesta.reintentos").gauge().value()).isEqualTo(3);
+        assertThat(metricas.get("ubicaciones.ingesta.flush.reintentadas").counter().count()).isEqualTo(3);
+
+        // Entre los dos flush el conductor 1 se mueve y al 2 le llega un ping atrasado
+        ingesta.registrarPing(1L, -0.11, -78.41, 2_000);
+        ingesta.registrarPing(2L, -0.19, -78.49, 500);
+        ingesta.escribirPendientes();
+
+        List<List<PosicionConductor>> lotes = lotesEscritos();
+        assertThat(lotes).hasSize(2);
+        assertThat(lotes.get(1)).containsExactly(
+                new PosicionConductor(1L, -0.11, -78.41, 2_000),
+                new PosicionConductor(2L, -0.20, -78.50, 1_000),
+                new PosicionConductor(3L, -0.30, -78.60, 1_000));
+        assertThat(metricas.get("ubicaciones.ingesta.reintentos").gauge().value()).isZero();
+        // Lo reintentado ya estaba en el historial: el segundo flush sólo le pasa los dos pings nuevos
+        verify(historial).registrar(argumentoConTamano(3));
+        verify(historial).registrar(argumentoConTamano(2));
+    }
+
+    // Copia de cada lote recibido por batchUpdate, en orden
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<List<PosicionConductor>> lotesEscritos() {
+        ArgumentCaptor<Collection<PosicionConductor>> lotes = ArgumentCaptor.forClass((Class) Collection.class);
+        verify(jdbcTemplate, atLeast(0)).batchUpdate(anyString(), lotes.capture(), eq(TAMANO_LOTE), any());
+        List<List<PosicionConductor>> copias = new ArrayList<>();
+        for (Collection<PosicionConductor> lote : lotes.getAllValues()) {
+            copias.add(List.copyOf(lote));
+        }
+        return copias;
+    }
+
+    private static List<PosicionConductor> argumentoConTamano(int tamano) {
+        return argThat(lista -> lista != null && lista.size() == tamano);
+    }
+}
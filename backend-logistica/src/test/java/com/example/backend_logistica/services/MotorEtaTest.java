@@ -0,0 +1,131 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.util.GeoUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Estimaciones de MotorEta sin Spring ni base de datos (estimarEntrega y estimarLlegadas no consultan nada).
+// Los puntos están en el centro de su celda, así la distancia cacheada por par de celdas es exactamente la
+// haversine entre ellos y cada caso tiene un resultado fijo
+class MotorEtaTest {
+
+    private static final double FACTOR_DESVIO = 1.35;
+    private static final long MINUTOS_RECOLECCION = 10;
+    private static final long MINUTOS_ENTREGA = 5;
+    private static final long HORAS_SIN_DESTINO = 3;
+    private static final double LADO_CELDA = 0.0025;
+    private static final LocalDateTime DESDE = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    // Conductor, origen y destino en Quito: unos 3 y 9 km en línea recta
+    private static final double LATITUD_CONDUCTOR = centro(-80);
+    private static final double LONGITUD_CONDUCTOR = centro(-31_400);
+    private static final double LATITUD_ORIGEN = centro(-72);
+    private static final double LONGITUD_ORIGEN = centro(-31_395);
+    private static final double LATITUD_DESTINO = centro(-40);
+    private static final double LONGITUD_DESTINO = centro(-31_390);
+
+    private final MotorEta motorEta = new MotorEta(null, new SimpleMeterRegistry(), FACTOR_DESVIO, MINUTOS_RECOLECCION,
+            MINUTOS_ENTREGA, HORAS_SIN_DESTINO, LADO_CELDA, 1_000, 48);
+
+    @Test
+    void cadaPerfilRecorreElTrayectoASuVelocidad() {
+        double km = kmPorCarretera(LATITUD_ORIGEN, LONGITUD_ORIGEN, LATITUD_DESTINO, LONGITUD_DESTINO);
+        String[] tipos = {"Moto", "auto", "Furgoneta", "Camión", "bicicleta"};
+        PerfilVelocidad[] perfiles = {PerfilVelocidad.MOTO, PerfilVelocidad.AUTO, PerfilVelocidad.FURGONETA,
+                PerfilVelocidad.CAMION, PerfilVelocidad.BICICLETA};
+
+        for (int i = 0; i < tipos.length; i++) {
+            assertThat(segundosHastaEntrega(tipos[i], null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN))
+                    .as(tipos[i])
+                    .isEqualTo(segundosViaje(km, perfiles[i]) + (MINUTOS_RECOLECCION + MINUTOS_ENTREGA) * 60);
+        }
+        // Tipo desconocido o sin vehículo: perfil de auto
+        assertThat(segundosHastaEntrega(null, null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN))
+                .isEqualTo(segundosHastaEntrega("Sedán", null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN))
+                .isEqualTo(segundosHastaEntrega("auto", null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN));
+        assertThat(segundosHastaEntrega("Moto", null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN))
+                .isLessThan(segundosHastaEntrega("Camión", null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN));
+    }
+
+    @Test
+    void sinPosicionDelConductorSeEstimaDesdeElOrigen() {
+        double kmHastaOrigen = kmPorCarretera(LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR, LATITUD_ORIGEN, LONGITUD_ORIGEN);
+        double kmHastaDestino = kmPorCarretera(LATITUD_ORIGEN, LONGITUD_ORIGEN, LATITUD_DESTINO, LONGITUD_DESTINO);
+        long segundosFijos = (MINUTOS_RECOLECCION + MINUTOS_ENTREGA) * 60;
+
+        long conPosicion = segundosHastaEntrega("auto", LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR, LATITUD_ORIGEN, LONGITUD_ORIGEN);
+        long sinPosicion = segundosHastaEntrega("auto", null, null, LATITUD_ORIGEN, LONGITUD_ORIGEN);
+        // Una latitud fuera de rango cuenta como posición desconocida
+        long conPosicionInvalida = segundosHastaEntrega("auto", 91.0, LONGITUD_CONDUCTOR, LATITUD_ORIGEN, LONGITUD_ORIGEN);
+
+        assertThat(conPosicion).isEqualTo(segundosViaje(kmHastaOrigen + kmHastaDestino, PerfilVelocidad.AUTO) + segundosFijos);
+        assertThat(sinPosicion).isEqualTo(segundosViaje(kmHastaDestino, PerfilVelocidad.AUTO) + segundosFijos);
+        assertThat(conPosicionInvalida).isEqualTo(sinPosicion);
+    }
+
+    @Test
+    void sinOrigenSeVaDelConductorAlDestinoYSinNadaQuedanLosTiemposFijos() {
+        long segundosFijos = (MINUTOS_RECOLECCION + MINUTOS_ENTREGA) * 60;
+        double kmDirectos = kmPorCarretera(LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR, LATITUD_DESTINO, LONGITUD_DESTINO);
+
+        assertThat(segundosHastaEntrega("auto", LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR, null, null))
+                .isEqualTo(segundosViaje(kmDirectos, PerfilVelocidad.AUTO) + segundosFijos);
+        assertThat(segundosHastaEntrega("auto", null, null, null, null)).isEqualTo(segundosFijos);
+    }
+
+    @Test
+    void sinDestinoSeMantieneElPlazoFijo() {
+        LocalDateTime estimada = motorEta.estimarEntrega("Moto", LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR,
+                LATITUD_ORIGEN, LONGITUD_ORIGEN, null, null, DESDE);
+
+        assertThat(estimada).isEqualTo(DESDE.plusHours(HORAS_SIN_DESTINO));
+    }
+
+    @Test
+    void dentroDeUnaMismaCeldaLaEstimacionNoCambia() {
+        // A un tercio de celda del centro: misma celda, misma distancia cacheada
+        double desplazamiento = LADO_CELDA / 3;
+
+        assertThat(segundosHastaEntrega("auto", LATITUD_CONDUCTOR + desplazamiento, LONGITUD_CONDUCTOR - desplazamiento,
+                LATITUD_ORIGEN, LONGITUD_ORIGEN))
+                .isEqualTo(segundosHastaEntrega("auto", LATITUD_CONDUCTOR, LONGITUD_CONDUCTOR, LATITUD_ORIGEN, LONGITUD_ORIGEN));
+    }
+
+    @Test
+    void lasLlegadasDeUnaRutaSumanLosTiemposDeLasParadasAnteriores() {
+        // Recolección a 3 km, entrega a 6 km y otra entrega en el mismo punto
+        LocalDateTime[] llegadas = motorEta.estimarLlegadas("Moto", new double[]{3, 6, 6}, new boolean[]{true, false, false}, DESDE);
+
+        long recoleccion = MINUTOS_RECOLECCION * 60;
+        long entrega = MINUTOS_ENTREGA * 60;
+        assertThat(llegadas).containsExactly(
+                DESDE.plusSeconds(segundosViaje(3 * FACTOR_DESVIO, PerfilVelocidad.MOTO)),
+                DESDE.plusSeconds(segundosViaje(6 * FACTOR_DESVIO, PerfilVelocidad.MOTO) + recoleccion),
+                DESDE.plusSeconds(segundosViaje(6 * FACTOR_DESVIO, PerfilVelocidad.MOTO) + recoleccion + entrega));
+        assertThat(Duration.between(DESDE, llegadas[0]).toSeconds()).isEqualTo(486); // 3 km × 1,35 a 30 km/h
+    }
+
+    private long segundosHastaEntrega(String tipoVehiculo, Double latitudConductor, Double longitudConductor,
+                                      Double latitudOrigen, Double longitudOrigen) {
+        LocalDateTime estimada = motorEta.estimarEntrega(tipoVehiculo, latitudConductor, longitudConductor,
+                latitudOrigen, longitudOrigen, LATITUD_DESTINO, LONGITUD_DESTINO, DESDE);
+        return Duration.between(DESDE, estimada).toSeconds();
+    }
+
+    private static long segundosViaje(double kmPorCarretera, PerfilVelocidad perfil) {
+        return Math.round(kmPorCarretera / perfil.getKmPorHora() * 3600);
+    }
+
+    private static double kmPorCarretera(double latitud1, double longitud1, double latitud2, double longitud2) {
+        return FACTOR_DESVIO * GeoUtils.distanciaKm(latitud1, longitud1, latitud2, longitud2);
+    }
+
+    private static double centro(int celda) {
+        return (celda + 0.5) * LADO_CELDA;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.dto.ParadaRutaDTO;
+import com.example.backend_logistica.dto.RutaConductorDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Rutas de conductores con varios envíos a la vez, sin base de datos: planificar solo usa el optimizador y
+// MotorEta.estimarLlegadas. Cada envío sin recoger aporta recolección y entrega, uno ya recogido solo la
+// entrega y uno sin destino queda fuera del orden
+class PlanificadorRutasTest {
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    private final MotorEta motorEta = new MotorEta(null, new SimpleMeterRegistry(), 1.35, 10, 5, 3, 0.0025, 1_000, 48);
+    private final PlanificadorRutas planificador = new PlanificadorRutas(null, null, motorEta, new SimpleMeterRegistry(), 2, 200);
+
+    @AfterEach
+    void detener() {
+        planificador.detener();
+    }
+
+    @Test
+    void laRutaDeUnConductorConVariosEnviosRespetaRecoleccionAntesQueEntrega() {
+        List<RutaConductorDTO> rutas = planificador.planificar(List.of(
+                problema(1L, -0.180, -78.480),
+                problema(2L, null, null)), DESDE);
+
+        assertThat(rutas).extracting(RutaConductorDTO::getConductorId).containsExactly(1L, 2L);
+        for (RutaConductorDTO ruta : rutas) {
+            assertThat(ruta.getEnviosSinDestino()).containsExactly(104L);
+            // Recolección y entrega de 101 y 103, solo la entrega de 102 (ya recogido)
+            assertThat(ruta.getParadas()).extracting(ParadaRutaDTO::getEnvioId, ParadaRutaDTO::getTipo)
+                    .containsExactlyInAnyOrder(
+                            tuple(101L, ParadaRutaDTO.RECOLECCION), tuple(101L, ParadaRutaDTO.ENTREGA),
+                            tuple(102L, ParadaRutaDTO.ENTREGA),
+                            tuple(103L, ParadaRutaDTO.RECOLECCION), tuple(103L, ParadaRutaDTO.ENTREGA));
+            assertRutaCoherente(ruta);
+        }
+
+        // Sin posición la ruta sale de su primera parada, que no puede ser la entrega de un envío sin recoger
+        ParadaRutaDTO primera = rutas.get(1).getParadas().get(0);
+        assertThat(primera.getDistanciaAcumuladaKm()).isEqualTo(0);
+        assertThat(primera.getTipo().equals(ParadaRutaDTO.RECOLECCION) || primera.getEnvioId().equals(102L)).isTrue();
+    }
+
+    // Cuatro envíos en Quito: 101 y 103 sin recoger, 102 ya recogido y 104 sin destino
+    private static ProblemaRuta problema(Long conductorId, Double latitud, Double longitud) {
+        List<ParadaPendiente> paradas = new ArrayList<>();
+        List<Long> sinDestino = new ArrayList<>();
+        PlanificadorRutas.agregarParadas(paradas, sinDestino, 101L, false, -0.150, -78.490, -0.220, -78.500);
+        PlanificadorRutas.agregarParadas(paradas, sinDestino, 102L, true, -0.160, -78.470, -0.170, -78.460);
+        PlanificadorRutas.agregarParadas(paradas, sinDestino, 103L, false, -0.210, -78.510, -0.140, -78.480);
+        PlanificadorRutas.agregarParadas(paradas, sinDestino, 104L, false, -0.190, -78.475, null, null);
+        return new ProblemaRuta(conductorId, "Moto", latitud, longitud, paradas, sinDestino);
+    }
+
+    private static void assertRutaCoherente(RutaConductorDTO ruta) {
+        List<ParadaRutaDTO> paradas = ruta.getParadas();
+        Map<Long, Integer> recoleccionPorEnvio = new HashMap<>();
+        double kmAnterior = 0;
+        LocalDateTime llegadaAnterior = DESDE;
+        for (int k = 0; k < paradas.size(); k++) {
+            ParadaRutaDTO parada = paradas.get(k);
+            assertThat(parada.getOrden()).isEqualTo(k + 1);
+            assertThat(parada.getDistanciaAcumuladaKm()).isGreaterThanOrEqualTo(kmAnterior);
+            assertThat(parada.getLlegadaEstimada()).isAfterOrEqualTo(llegadaAnterior);
+            if (parada.getTipo().equals(ParadaRutaDTO.RECOLECCION)) {
+                recoleccionPorEnvio.put(parada.getEnvioId(), k);
+            } else if (!parada.getEnvioId().equals(102L)) {
+                assertThat(recoleccionPorEnvio).as("Entrega de %d antes de su recolección", parada.getEnvioId())
+                        .containsKey(parada.getEnvioId());
+            }
+            kmAnterior = parada.getDistanciaAcumuladaKm();
+            llegadaAnterior = parada.getLlegadaEstimada();
+        }
+        assertThat(ruta.getDistanciaTotalKm()).isEqualTo(kmAnterior);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.model.Conductor;
+import com.example.backend_logistica.model.Envio;
+import com.example.backend_logistica.model.EstadoEnvio;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Los agregados que AgregadorResumenEnvios mantiene con los eventos deben coincidir con un GROUP BY hecho desde
+// cero sobre envio (y envio_archivo): asignaciones por hora y día de creación, entregas por la de entrega real,
+// a tiempo si no pasan de la estimada. Los cancelados cuentan como asignados y nunca como entregados.
+// cambios_estado no se compara: los estados intermedios no quedan en envio. Contexto propio (base vacía) para
+// comparar las tablas enteras; el flush programado no corre y se llama a mano
+@SpringBootTest(properties = {
+        "reportes.resumen.intervalo-flush-ms=3600000",
+        "eventos.salida.intervalo-ms=3600000" // El repartidor no vacía evento_salida
+})
+@Import(SemillasPrueba.class)
+class ResumenEnviosIncrementalTest {
+
+    private static final String HECHOS = "(SELECT pedido_id, conductor_id, vehiculo_id, fecha_creacion, "
+            + "fecha_entrega_estimada, fecha_entrega_real FROM envio UNION ALL SELECT pedido_id, conductor_id, vehiculo_id, "
+            + "fecha_creacion, fecha_entrega_estimada, fecha_entrega_real FROM envio_archivo) e LEFT JOIN pedido p ON p.id = e.pedido_id";
+    private static final String ASIGNACIONES = "SELECT clave, periodo, COUNT(*) FROM (SELECT CAST(%s AS VARCHAR(64)) AS clave, "
+            + "DATE_TRUNC(%s, e.fecha_creacion) AS periodo FROM " + HECHOS + ") h "
+            + "WHERE clave IS NOT NULL AND periodo IS NOT NULL GROUP BY clave, periodo";
+    private static final String ENTREGAS = "SELECT clave, periodo, COUNT(*), SUM(a_tiempo), SUM(segundos) FROM ("
+            + "SELECT CAST(%s AS VARCHAR(64)) AS clave, DATE_TRUNC(%s, e.fecha_entrega_real) AS periodo, "
+            + "CASE WHEN e.fecha_entrega_real <= e.fecha_entrega_estimada THEN 1 ELSE 0 END AS a_tiempo, "
+            + "COALESCE(GREATEST(0, FLOOR(EXTRACT(EPOCH FROM e.fecha_entrega_real) - EXTRACT(EPOCH FROM e.fecha_creacion))), 0) AS segundos "
+            + "FROM " + HECHOS + " WHERE e.fecha_entrega_real IS NOT NULL) h WHERE clave IS NOT NULL GROUP BY clave, periodo";
+    private static final String INCREMENTAL = "SELECT granularidad, dimension, clave, periodo, envios_asignados, "
+            + "envios_entregados, entregas_a_tiempo, segundos_entrega_total FROM resumen_envios";
+
+    @Autowired
+    private EnvioService envioService;
+
+    @Autowired
+    private AgregadorResumenEnvios agregador;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void losEventosDeAsignacionEntregaYCancelacionSumanLoMismoQueUnGroupBy() {
+        for (int i = 0; i < 8; i++) {
+            Conductor conductor = semillas.conductor("Resumen", true);
+            if (i % 2 == 0) {
+                jdbcTemplate.update("INSERT INTO vehiculo (matricula, tipo) VALUES (?, 'Moto')", "RES-" + conductor.getId());
+                jdbcTemplate.update("UPDATE conductor SET vehiculo_id = (SELECT id FROM vehiculo WHERE matricula = ?) WHERE id = ?",
+                        "RES-" + conductor.getId(), conductor.getId());
+            }
+        }
+        List<Long> envios = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Long pedidoId = semillas.pedido(semillas.cliente("Resumen " + i % 3), "RES").getId(); // Clientes con varios envíos
+            envios.add(envioService.asignarEnvio(pedidoId).getId());
+        }
+
+        envioService.registrarEntrega(envios.get(0), null, null);
+        envioService.cambiarEstado(envios.get(1), EstadoEnvio.RECOGIDO, null);
+        envioService.registrarEntrega(envios.get(1), null, null);
+        // Entregas tardías: la estimada ya pasó
+        jdbcTemplate.update("UPDATE envio SET fecha_entrega_estimada = ? WHERE id IN (?, ?)",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(1)), envios.get(2), envios.get(3));
+        envioService.registrarEntrega(envios.get(2), null, null);
+        envioService.cambiarEstado(envios.get(3), EstadoEnvio.EN_TRANSITO, null);
+        envioService.registrarEntrega(envios.get(3), null, null);
+        // Cancelaciones, una en camino; después ya no admiten la entrega
+        envioService.cambiarEstado(envios.get(4), EstadoEnvio.CANCELADO, null);
+        envioService.cambiarEstado(envios.get(5), EstadoEnvio.EN_TRANSITO, null);
+        envioService.cambiarEstado(envios.get(5), EstadoEnvio.CANCELADO, null);
+        assertThatThrownBy(() -> envioService.registrarEntrega(envios.get(5), null, null))
+                .isInstanceOf(IllegalStateException.class);
+        // Una entrega repetida por la app no vuelve a contar; el 7 sigue en curso
+        envioService.registrarEntrega(envios.get(6), null, null, null, "entrega-6");
+        envioService.registrarEntrega(envios.get(6), null, null, null, "entrega-6");
+        envioService.cambiarEstado(envios.get(7), EstadoEnvio.RECOGIDO, null);
+
+        agregador.escribirPendientes();
+
+        Map<String, List<Long>> incremental = agregadosIncrementales();
+        assertThat(incremental).isEqualTo(agregadosDesdeCero());
+        assertThat(incremental.get("DIA|ESTADO|" + EstadoEnvio.ENTREGADO.getEtiqueta() + "|" + LocalDate.now().atStartOfDay()))
+                .as("Entregados hoy: asignados, entregados, a tiempo").startsWith(0L, 5L, 3L);
+    }
+
+    @Test
+    void lasEntregasTardiasDeOtroPeriodoYLaReconstruccionTambienCoinciden() {
+        LocalDateTime hace3Dias = LocalDate.now().minusDays(3).atStartOfDay();
+        LocalDateTime hace2Dias = hace3Dias.plusDays(1);
+        List<EnvioEstadoCambiadoEvent> eventos = new ArrayList<>();
+        // Creado antes de medianoche y entregado pasada, después de la estimada
+        eventos.addAll(historico("Medianoche", hace3Dias.plusHours(23).plusMinutes(50), hace3Dias.plusHours(23).plusMinutes(59),
+                EstadoEnvio.ENTREGADO, hace2Dias.plusMinutes(20)));
+        // A tiempo en la hora siguiente, y otro entregado justo a la hora estimada
+        eventos.addAll(historico("Hora", hace3Dias.plusHours(10).plusMinutes(15), hace3Dias.plusHours(12),
+                EstadoEnvio.ENTREGADO, hace3Dias.plusHours(11).plusMinutes(5)));
+        eventos.addAll(historico("Justo", hace2Dias.plusHours(14), hace2Dias.plusHours(14).plusSeconds(30),
+                EstadoEnvio.ENTREGADO, hace2Dias.plusHours(14).plusSeconds(30)));
+        // Sin estimación nunca es a tiempo
+        eventos.addAll(historico("Sin estimada", hace2Dias.plusHours(22), null,
+                EstadoEnvio.ENTREGADO, hace2Dias.plusDays(1).plusHours(7).plusMinutes(30)));
+        // Cancelado al día siguiente de crearse
+        eventos.addAll(historico("Cancelado", hace3Dias.plusHours(9), hace3Dias.plusHours(11),
+                EstadoEnvio.CANCELADO, hace2Dias.plusHours(8)));
+        // Los eventos no llegan en orden: una entrega tardía puede confirmarse después de asignaciones posteriores
+        Collections.shuffle(eventos, new Random(7));
+        eventos.forEach(agregador::registrar);
+
+        agregador.escribirPendientes();
+        assertThat(agregadosIncrementales()).isEqualTo(agregadosDesdeCero());
+
+        agregador.reconstruir(hace3Dias.toLocalDate(), LocalDate.now().minusDays(1));
+        assertThat(agregadosIncrementales()).isEqualTo(agregadosDesdeCero());
+    }
+
+    // Deja el envío con sus fechas en el pasado y devuelve los eventos que se habrían publicado entonces
+    private List<EnvioEstadoCambiadoEvent> historico(String nombre, LocalDateTime creacion, LocalDateTime estimada,
+                                                     EstadoEnvio estadoFinal, LocalDateTime cierre) {
+        Envio envio = semillas.envioAsignado(nombre);
+        LocalDateTime entrega = estadoFinal == EstadoEnvio.ENTREGADO ? cierre : null;
+        jdbcTemplate.update("UPDATE envio SET fecha_creacion = ?, fecha_entrega_estimada = ?, fecha_entrega_real = ?, "
+                        + "estado_envio = ? WHERE id = ?",
+                Timestamp.valueOf(creacion), estimada != null ? Timestamp.valueOf(estimada) : null,
+                entrega != null ? Timestamp.valueOf(entrega) : null, estadoFinal.getEtiqueta(), envio.getId());
+        Long conductorId = envio.getConductor().getId();
+        Long clienteId = envio.getPedido().getCliente().getId();
+        return List.of(
+                new EnvioEstadoCambiadoEvent(envio.getId(), conductorId, null, clienteId, EstadoEnvio.ASIGNADO, creacion,
+                        creacion, estimada, null),
+                new EnvioEstadoCambiadoEvent(envio.getId(), conductorId, null, clienteId, estadoFinal, cierre,
+                        creacion, estimada, entrega));
+    }
+
+    // granularidad|dimension|clave|periodo -> asignados, entregados, a tiempo, segundos. Sin las filas que sólo
+    // tienen cambios de estado intermedios
+    private Map<String, List<Long>> agregadosIncrementales() {
+        Map<String, List<Long>> filas = new TreeMap<>();
+        jdbcTemplate.query(INCREMENTAL, (RowCallbackHandler) rs -> {
+            List<Long> valores = List.of(rs.getLong(5), rs.getLong(6), rs.getLong(7), rs.getLong(8));
+            if (valores.stream().anyMatch(valor -> valor != 0)) {
+                filas.put(clave(rs.getString(1), rs.getString(2), rs.getString(3), rs.getTimestamp(4)), valores);
+            }
+        });
+        return filas;
+    }
+
+    private Map<String, List<Long>> agregadosDesdeCero() {
+        Map<String, List<Long>> filas = new TreeMap<>();
+        for (GranularidadResumen granularidad : GranularidadResumen.values()) {
+            String unidad = granularidad == GranularidadResumen.HORA ? "HOUR" : "DAY";
+            for (DimensionResumen dimension : DimensionResumen.values()) {
+                jdbcTemplate.query(String.format(ASIGNACIONES, columna(dimension, EstadoEnvio.ASIGNADO), unidad), (RowCallbackHandler) rs ->
+                        sumar(filas, clave(granularidad.name(), dimension.name(), rs.getString(1), rs.getTimestamp(2)),
+                                rs.getLong(3), 0, 0, 0));
+                jdbcTemplate.query(String.format(ENTREGAS, columna(dimension, EstadoEnvio.ENTREGADO), unidad), (RowCallbackHandler) rs ->
+                        sumar(filas, clave(granularidad.name(), dimension.name(), rs.getString(1), rs.getTimestamp(2)),
+                                0, rs.getLong(3), rs.getLong(4), rs.getLong(5)));
+            }
+        }
+        return filas;
+    }
+
+    private static String columna(DimensionResumen dimension, EstadoEnvio estado) {
+        return switch (dimension) {
+            case CONDUCTOR -> "e.conductor_id";
+            case VEHICULO -> "e.vehiculo_id";
+            case CLIENTE -> "p.cliente_id";
+            case ESTADO -> "'" + estado.getEtiqueta() + "'";
+        };
+    }
+
+    private static void sumar(Map<String, List<Long>> filas, String clave, long asignados, long entregados,
+                              long aTiempo, long segundos) {
+        filas.merge(clave, List.of(asignados, entregados, aTiempo, segundos), (a, b) ->
+                List.of(a.get(0) + b.get(0), a.get(1) + b.get(1), a.get(2) + b.get(2), a.get(3) + b.get(3)));
+    }
+
+    private static String clave(String granularidad, String dimension, String clave, Timestamp periodo) {
+        return granularidad + "|" + dimension + "|" + clave + "|" + periodo.toLocalDateTime();
+    }
+}
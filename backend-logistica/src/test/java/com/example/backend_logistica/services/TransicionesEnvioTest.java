@@ -0,0 +1,118 @@
+package com.example.backend_logistica.services;
+
+import com.example.backend_logistica.SemillasPrueba;
+import com.example.backend_logistica.dto.EnvioDTO;
+import com.example.backend_logistica.dto.EventoEnvioDTO;
+import com.example.backend_logistica.model.EstadoEnvio;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+// Transiciones de estado contra la base: un reintento con la misma clave de idempotencia no escribe de nuevo,
+// las transiciones no permitidas fallan y una clave que otra petición inserta a la vez no rompe la llamada
+@SpringBootTest(properties = "eventos.salida.intervalo-ms=3600000") // El repartidor no vacía evento_salida
+@Import(SemillasPrueba.class)
+@DirtiesContext // RegistroEventosEnvio espiado
+class TransicionesEnvioTest {
+
+    @Autowired
+    private EnvioService envioService;
+
+    @Autowired
+    private SemillasPrueba semillas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private RegistroEventosEnvio registroEventos;
+
+    @Test
+    void repetirUnaClaveDevuelveElEnvioSinVolverAEscribir() {
+        Long envioId = semillas.envioAsignado("Transiciones").getId();
+
+        EnvioDTO recogido = envioService.cambiarEstado(envioId, EstadoEnvio.RECOGIDO, "clave-1");
+        EnvioDTO repetido = envioService.cambiarEstado(envioId, EstadoEnvio.RECOGIDO, "clave-1");
+
+        assertThat(recogido.getEstadoEnvio()).isEqualTo(EstadoEnvio.RECOGIDO.getEtiqueta());
+        assertThat(repetido.getEstadoEnvio()).isEqualTo(EstadoEnvio.RECOGIDO.getEtiqueta());
+        assertThat(repetido.getVersion()).isEqualTo(recogido.getVersion());
+
+        // Una clave anterior a la última ya no es ultimaClaveIdempotencia: se reconoce en evento_envio
+        envioService.cambiarEstado(envioId, EstadoEnvio.EN_TRANSITO, "clave-2");
+        EnvioDTO tardio = envioService.cambiarEstado(envioId, EstadoEnvio.RECOGIDO, "clave-1");
+        // Sin clave, pedir el estado actual tampoco escribe
+        EnvioDTO mismoEstado = envioService.cambiarEstado(envioId, EstadoEnvio.EN_TRANSITO, null);
+
+        assertThat(tardio.getEstadoEnvio()).isEqualTo(EstadoEnvio.EN_TRANSITO.getEtiqueta());
+        assertThat(mismoEstado.getVersion()).isEqualTo(tardio.getVersion());
+        assertThat(envioService.obtenerEventos(envioId)).extracting(EventoEnvioDTO::claveIdempotencia)
+                .containsExactly("clave-1", "clave-2");
+    }
+
+    @Test
+    void lasTransicionesNoPermitidasFallanYUnEnvioCanceladoYaNoCambia() {
+        Long envioId = semillas.envioAsignado("Transiciones").getId();
+        envioService.cambiarEstado(envioId, EstadoEnvio.EN_TRANSITO, "a");
+
+        assertThatThrownBy(() -> envioService.cambiarEstado(envioId, EstadoEnvio.RECOGIDO, "b"))
+                .isInstanceOf(IllegalStateException.class);
+
+        envioService.cambiarEstado(envioId, EstadoEnvio.CANCELADO, "c");
+        envioService.cambiarEstado(envioId, EstadoEnvio.CANCELADO, "c"); // Reintento de la cancelación
+
+        assertThatThrownBy(() -> envioService.cambiarEstado(envioId, EstadoEnvio.EN_TRANSITO, "d"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> envioService.cambiarEstado(envioId, EstadoEnvio.ENTREGADO, "e"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(envioService.obtenerEventos(envioId)).extracting(EventoEnvioDTO::claveIdempotencia)
+                .containsExactly("a", "c");
+        assertThat(contarEventosSalida("EnvioCanceladoEvent", envioId)).isEqualTo(1);
+    }
+
+    @Test
+    void laEntregaSinRecoleccionInformadaSePublicaUnaSolaVez() {
+        Long envioId = semillas.envioAsignado("Transiciones").getId();
+
+        EnvioDTO entregado = envioService.cambiarEstado(envioId, EstadoEnvio.ENTREGADO, "entrega");
+        EnvioDTO repetido = envioService.cambiarEstado(envioId, EstadoEnvio.ENTREGADO, "entrega");
+
+        assertThat(entregado.getEstadoEnvio()).isEqualTo(EstadoEnvio.ENTREGADO.getEtiqueta());
+        assertThat(entregado.getFechaEntregaReal()).isNotNull();
+        assertThat(repetido.getFechaEntregaReal()).isEqualTo(entregado.getFechaEntregaReal());
+        assertThat(contarEventosSalida("EnvioEntregadoEvent", envioId)).isEqualTo(1);
+    }
+
+    @Test
+    void unaClaveInsertadaPorOtraPeticionALaVezNoFallaNiCambiaElEstado() {
+        Long envioId = semillas.envioAsignado("Transiciones").getId();
+        // La otra petición inserta su evento después de que esta compruebe la clave: choca con uk_evento_envio_clave
+        doReturn(false).when(registroEventos).claveAplicada(eq(envioId), eq("carrera"));
+        jdbcTemplate.update("INSERT INTO evento_envio (envio_id, estado, fecha, clave_idempotencia) VALUES (?, ?, ?, ?)",
+                envioId, EstadoEnvio.RECOGIDO.getCodigo(), Timestamp.valueOf(LocalDateTime.now()), "carrera");
+
+        EnvioDTO resultado = envioService.cambiarEstado(envioId, EstadoEnvio.RECOGIDO, "carrera");
+
+        assertThat(resultado.getEstadoEnvio()).isEqualTo(EstadoEnvio.ASIGNADO.getEtiqueta());
+        assertThat(envioService.obtenerEventos(envioId)).extracting(EventoEnvioDTO::claveIdempotencia)
+                .containsExactly("carrera");
+    }
+
+    private int contarEventosSalida(String tipo, Long envioId) {
+        Integer filas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM evento_salida WHERE tipo = ? AND agregado_id = ?",
+                Integer.class, tipo, envioId);
+        return filas != null ? filas : 0;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.backend_logistica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Corrección del método húngaro: el benchmark sólo mide tiempos. Las matrices pequeñas se comparan con la
+// fuerza bruta sobre todas las asignaciones posibles, en las dos orientaciones rectangulares.
+class AlgoritmoHungaroTest {
+
+    private static final double COSTO_SIN_UBICACION_KM = 50_000; // El de AsignacionLoteService
+
+    @Test
+    void coincideConLaFuerzaBrutaEnMatricesAleatorias() {
+        Random aleatorio = new Random(7L);
+        for (int caso = 0; caso < 500; caso++) {
+            int filas = 1 + aleatorio.nextInt(6);
+            int columnas = 1 + aleatorio.nextInt(6);
+            double[] costos = new double[filas * columnas];
+            for (int k = 0; k < costos.length; k++) {
+                // Enteros pequeños para que haya empates, como conductores a la misma distancia
+                costos[k] = aleatorio.nextInt(4) == 0 ? aleatorio.nextInt(5) : aleatorio.nextDouble() * 100;
+            }
+
+            int[] asignacion = AlgoritmoHungaro.resolver(costos, filas, columnas);
+
+            String matriz = filas + " x " + columnas + " " + Arrays.toString(costos);
+            assertValida(asignacion, filas, columnas);
+            assertThat(total(costos, columnas, asignacion)).as(matriz)
+                    .isCloseTo(minimoPorFuerzaBruta(costos, filas, columnas), within(1e-9));
+        }
+    }
+
+    @Test
+    void conMasColumnasQueFilasCadaFilaRecibeSuMejorColumnaPosible() {
+        // La fila 0 prefiere la columna 0, pero la fila 1 sólo tiene una columna barata: la misma
+        double[] costos = {
+                1, 2, 9, 9,
+                1, 9, 9, 9
+        };
+
+        int[] asignacion = AlgoritmoHungaro.resolver(costos, 2, 4);
+
+        assertThat(asignacion).containsExactly(1, 0);
+    }
+
+    @Test
+    void conMasFilasQueColumnasLasFilasSobrantesQuedanSinAsignar() {
+        double[] costos = {
+                5, 5,
+                1, 9,
+                9, 1,
+                7, 7
+        };
+
+        int[] asignacion = AlgoritmoHungaro.resolver(costos, 4, 2);
+
+        assertThat(asignacion).containsExactly(AlgoritmoHungaro.SIN_ASIGNAR, 0, 1, AlgoritmoHungaro.SIN_ASIGNAR);
+    }
+
+    @Test
+    void sinUbicacionesTodosLosCostesIgualesSiguenDandoUnaAsignacionCompleta() {
+        for (int[] dimensiones : new int[][]{{3, 5}, {5, 3}, {4, 4}}) {
+            int filas = dimensiones[0];
+            int columnas = dimensiones[1];
+            double[] costos = new double[filas * columnas];
+            Arrays.fill(costos, COSTO_SIN_UBICACION_KM);
+
+            int[] asignacion = AlgoritmoHungaro.resolver(costos, filas, columnas);
+
+            assertValida(asignacion, filas, columnas);
+            assertThat(total(costos, columnas, asignacion)).isEqualTo(Math.min(filas, columnas) * COSTO_SIN_UBICACION_KM);
+        }
+    }
+
+    @Test
+    void unaMatrizVaciaNoAsignaNada() {
+        assertThat(AlgoritmoHungaro.resolver(new double[0], 3, 0))
+                .containsExactly(AlgoritmoHungaro.SIN_ASIGNAR, AlgoritmoHungaro.SIN_ASIGNAR, AlgoritmoHungaro.SIN_ASIGNAR);
+        assertThat(AlgoritmoHungaro.resolver(new double[0], 0, 3)).isEmpty();
+    }
+
+    // Columnas distintas y tantas filas asignadas como permite la dimensión menor
+    private static void assertValida(int[] asignacion, int filas, int columnas) {
+        assertThat(asignacion).hasSize(filas);
+        int[] asignadas = Arrays.stream(asignacion).filter(columna -> columna != AlgoritmoHungaro.SIN_ASIGNAR).toArray();
+        assertThat(asignadas).hasSize(Math.min(filas, columnas)).doesNotHaveDuplicates();
+        assertThat(Arrays.stream(asignadas).allMatch(columna -> columna >= 0 && columna < columnas)).isTrue();
+    }
+
+    private static double total(double[] costos, int columnas, int[] asignacion) {
+        double total = 0;
+        for (int fila = 0; fila < asignacion.length; fila++) {
+            if (asignacion[fila] != AlgoritmoHungaro.SIN_ASIGNAR) {
+                total += costos[fila * columnas + asignacion[fila]];
+            }
+        }
+        return total;
+    }
+
+    // Mínimo entre todas las formas de emparejar la dimensión menor con elementos distintos de la mayor
+    private static double minimoPorFuerzaBruta(double[] costos, int filas, int columnas) {
+        return filas <= columnas
+                ? minimo(costos, filas, columnas, 0, new boolean[columnas], false)
+                : minimo(costos, columnas, filas, 0, new boolean[filas], true);
+    }
+
+    private static double minimo(double[] costos, int n, int m, int i, boolean[] usadas, boolean traspuesta) {
+        if (i == n) {
+            return 0;
+        }
+        double mejor = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < m; j++) {
+            if (!usadas[j]) {
+                usadas[j] = true;
+                double costo = traspuesta ? costos[j * n + i] : costos[i * m + j];
+                mejor = Math.min(mejor, costo + minimo(costos, n, m, i + 1, usadas, traspuesta));
+                usadas[j] = false;
+            }
+        }
+        return mejor;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.backend_logistica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+// Historial de trayectorias: la codificación de los tramos debe devolver los mismos puntos (a 1e-7 grados) y la
+// simplificación no debe alejar la trayectoria guardada de la real más que la tolerancia.
+class CodificacionTrayectoriaTest {
+
+    private static final double PRECISION_GRADOS = 0.5e-7 + 1e-12; // Redondeo a 1e-7 grados
+    private static final double METROS_POR_GRADO = GeoUtils.KM_POR_GRADO_LATITUD * 1000;
+
+    @Test
+    void diferenciasNegativasYValoresExtremosSobrevivenLaCodificacion() {
+        List<PuntoTrayectoria> puntos = List.of(
+                new PuntoTrayectoria(1_700_000_000_000L, -0.1807, -78.4678),
+                new PuntoTrayectoria(1_700_000_005_000L, -0.1812345, -78.4699999), // Hacia el sur y el oeste
+                new PuntoTrayectoria(1_700_000_004_000L, -0.1800001, -78.4600001), // Marca de tiempo anterior
+                new PuntoTrayectoria(1_700_000_010_000L, 90, 180),
+                new PuntoTrayectoria(1_700_000_011_000L, -90, -180),
+                new PuntoTrayectoria(0L, 0, 0));
+
+        assertMismosPuntos(CodificacionTrayectoria.decodificar(CodificacionTrayectoria.codificar(puntos)), puntos);
+    }
+
+    @Test
+    void cruzarElAntimeridianoNoPierdePrecision() {
+        List<PuntoTrayectoria> puntos = List.of(
+                new PuntoTrayectoria(1_000L, -17.7134, 179.9999999),
+                new PuntoTrayectoria(2_000L, -17.7135, -179.9999999),
+                new PuntoTrayectoria(3_000L, -17.7136, 179.9999998));
+
+        assertMismosPuntos(CodificacionTrayectoria.decodificar(CodificacionTrayectoria.codificar(puntos)), puntos);
+    }
+
+    @Test
+    void unaTrayectoriaLargaSeRecuperaEnteraYOcupaPocosBytesPorPunto() {
+        List<PuntoTrayectoria> puntos = recorridoAleatorio(new Random(3L), 100_000);
+
+        byte[] datos = CodificacionTrayectoria.codificar(puntos);
+
+        assertMismosPuntos(CodificacionTrayectoria.decodificar(datos), puntos);
+        assertThat(datos.length).isLessThan(puntos.size() * 10);
+    }
+
+    @Test
+    void unaTrayectoriaVaciaOTruncadaSeTrataSinErroresInesperados() {
+        assertThat(CodificacionTrayectoria.decodificar(CodificacionTrayectoria.codificar(List.of()))).isEmpty();
+
+        byte[] datos = CodificacionTrayectoria.codificar(recorridoAleatorio(new Random(5L), 10));
+        assertThatThrownBy(() -> CodificacionTrayectoria.decodificar(Arrays.copyOf(datos, datos.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void laSimplificacionConservaLosExtremosYNoSeAlejaMasQueLaTolerancia() {
+        double tolerancia = 5;
+        long maxIntervaloMs = 60_000;
+        List<PuntoTrayectoria> puntos = recorridoAleatorio(new Random(11L), 5_000);
+
+        List<PuntoTrayectoria> simplificados = DouglasPeucker.simplificar(puntos, tolerancia, maxIntervaloMs);
+
+        assertThat(simplificados.size()).isLessThan(puntos.size());
+        assertThat(simplificados.get(0)).isEqualTo(puntos.get(0));
+        assertThat(simplificados.get(simplificados.size() - 1)).isEqualTo(puntos.get(puntos.size() - 1));
+        // Cada punto descartado queda a menos de la tolerancia del segmento entre los conservados que lo rodean
+        int siguiente = 1;
+        for (int i = 1; i < puntos.size(); i++) {
+            PuntoTrayectoria punto = puntos.get(i);
+            if (punto == simplificados.get(siguiente)) { // Los conservados son los mismos objetos
+                siguiente++;
+                continue;
+            }
+            PuntoTrayectoria anterior = simplificados.get(siguiente - 1);
+            PuntoTrayectoria posterior = simplificados.get(siguiente);
+            assertThat(distanciaAlSegmentoMetros(punto, anterior, posterior)).as("Punto %d", i).isLessThanOrEqualTo(tolerancia);
+        }
+        assertThat(siguiente).isEqualTo(simplificados.size());
+    }
+
+    @Test
+    void unaParadaLargaConservaUnPuntoPorIntervaloMaximo() {
+        List<PuntoTrayectoria> puntos = new ArrayList<>();
+        for (int i = 0; i <= 600; i++) { // Diez minutos parado, un ping por segundo
+            puntos.add(new PuntoTrayectoria(i * 1000L, -0.18, -78.48));
+        }
+
+        List<PuntoTrayectoria> simplificados = DouglasPeucker.simplificar(puntos, 5, 60_000);
+
+        for (int i = 1; i < simplificados.size(); i++) {
+            assertThat(simplificados.get(i).marcaTiempo() - simplificados.get(i - 1).marcaTiempo()).isLessThanOrEqualTo(60_000);
+        }
+        assertThat(simplificados.size()).isLessThan(puntos.size() / 10);
+    }
+
+    // Conductor por Quito: un ping cada 1-5 s, avanzando unos metros con giros y algún tramo recto
+    private static List<PuntoTrayectoria> recorridoAleatorio(Random aleatorio, int cantidad) {
+        List<PuntoTrayectoria> puntos = new ArrayList<>(cantidad);
+        long tiempo = 1_700_000_000_000L;
+        double latitud = -0.18;
+        double longitud = -78.48;
+        double rumbo = 0;
+        for (int i = 0; i < cantidad; i++) {
+            puntos.add(new PuntoTrayectoria(tiempo, latitud, longitud));
+            tiempo += 1000 + aleatorio.nextInt(4000);
+            if (aleatorio.nextInt(20) == 0) {
+                rumbo = aleatorio.nextDouble() * 2 * Math.PI;
+            }
+            double metros = aleatorio.nextDouble() * 40;
+            latitud += Math.cos(rumbo) * metros / METROS_POR_GRADO + aleatorio.nextGaussian() * 1e-6;
+            longitud += Math.sin(rumbo) * metros / METROS_POR_GRADO + aleatorio.nextGaussian() * 1e-6;
+        }
+        return puntos;
+    }
+
+    private static void assertMismosPuntos(List<PuntoTrayectoria> decodificados, List<PuntoTrayectoria> originales) {
+        assertThat(decodificados).hasSameSizeAs(originales);
+        for (int i = 0; i < originales.size(); i++) {
+            PuntoTrayectoria original = originales.get(i);
+            PuntoTrayectoria decodificado = decodificados.get(i);
+            assertThat(decodificado.marcaTiempo()).isEqualTo(original.marcaTiempo());
+            assertThat(decodificado.latitud()).isCloseTo(original.latitud(), within(PRECISION_GRADOS));
+            assertThat(decodificado.longitud()).isCloseTo(original.longitud(), within(PRECISION_GRADOS));
+        }
+    }
+
+    // Misma proyección local que DouglasPeucker, calculada aparte
+    private static double distanciaAlSegmentoMetros(PuntoTrayectoria punto, PuntoTrayectoria a, PuntoTrayectoria b) {
+        double escalaLongitud = Math.cos(Math.toRadians(a.latitud())) * METROS_POR_GRADO;
+        double bx = (b.longitud() - a.longitud()) * escalaLongitud;
+        double by = (b.latitud() - a.latitud()) * METROS_POR_GRADO;
+        double px = (punto.longitud() - a.longitud()) * escalaLongitud;
+        double py = (punto.latitud() - a.latitud()) * METROS_POR_GRADO;
+        double longitudCuadrada = bx * bx + by * by;
+        double t = longitudCuadrada == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / longitudCuadrada));
+        return Math.hypot(px - t * bx, py - t * by);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.backend_logistica.util;
+
+import com.example.backend_logistica.util.IndiceGeocercas.Deteccion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Detección de llegadas y salidas sin Spring: una detección por cambio, nada mientras el conductor se mueve
+// dentro del margen de salida (histéresis) y los pings atrasados o de otro conductor no cuentan
+class IndiceGeocercasTest {
+
+    private static final double RADIO_METROS = 150;
+    private static final double MARGEN_METROS = 50;
+    private static final double METROS_POR_GRADO = GeoUtils.KM_POR_GRADO_LATITUD * 1000;
+    private static final double LATITUD = -0.18;
+    private static final double LONGITUD = -78.48;
+    private static final long ENVIO = 1L;
+    private static final long CONDUCTOR = 7L;
+
+    private final List<Deteccion> detecciones = new ArrayList<>();
+    private long marcaTiempo;
+
+    @Test
+    void unConductorParadoEnElBordeNoEntraYSaleConCadaPing() {
+        IndiceGeocercas indice = new IndiceGeocercas(MARGEN_METROS);
+        indice.registrar(ENVIO, CONDUCTOR, new Geocerca.Circulo(LATITUD, LONGITUD, RADIO_METROS), null);
+
+        ping(indice, 400);
+        assertThat(detecciones).isEmpty();
+
+        ping(indice, 140); // Dentro del radio: llegada
+        assertThat(detecciones).containsExactly(new Deteccion(ENVIO, CONDUCTOR, TipoGeocerca.ORIGEN, true, marcaTiempo));
+
+        // GPS oscilando alrededor del borde: fuera del radio pero dentro del margen, y de vuelta
+        for (double metros : new double[]{160, 145, 190, 120, 195, 150}) {
+            ping(indice, metros);
+        }
+        assertThat(detecciones).hasSize(1);
+
+        ping(indice, 210); // Más allá del radio más el margen: salida
+        assertThat(detecciones).hasSize(2);
+        assertThat(detecciones.get(1)).isEqualTo(new Deteccion(ENVIO, CONDUCTOR, TipoGeocerca.ORIGEN, false, marcaTiempo));
+
+        ping(indice, 170); // Fuera del radio: volver al margen no es otra llegada
+        assertThat(detecciones).hasSize(2);
+        ping(indice, 100);
+        assertThat(detecciones).hasSize(3);
+        assertThat(detecciones.get(2).llegada()).isTrue();
+    }
+
+    @Test
+    void elPoligonoAplicaElMismoMargenFueraDeSusLados() {
+        // Cuadrado de 200 m de lado centrado en el punto
+        double medio = 100 / METROS_POR_GRADO;
+        Geocerca.Poligono cuadrado = new Geocerca.Poligono(
+                new double[]{LATITUD - medio, LATITUD - medio, LATITUD + medio, LATITUD + medio},
+                new double[]{LONGITUD - medio, LONGITUD + medio, LONGITUD + medio, LONGITUD - medio});
+        IndiceGeocercas indice = new IndiceGeocercas(MARGEN_METROS);
+        indice.registrar(ENVIO, CONDUCTOR, null, cuadrado);
+
+        ping(indice, 120); // 20 m fuera del lado norte
+        assertThat(detecciones).isEmpty();
+        ping(indice, 0);
+        ping(indice, 140); // 40 m fuera: dentro del margen
+        assertThat(detecciones).hasSize(1);
+        assertThat(detecciones.get(0).tipo()).isEqualTo(TipoGeocerca.DESTINO);
+        ping(indice, 160);
+        assertThat(detecciones).hasSize(2);
+        assertThat(detecciones.get(1).llegada()).isFalse();
+    }
+
+    @Test
+    void losPingsAtrasadosYLosDeOtroConductorSeIgnoran() {
+        IndiceGeocercas indice = new IndiceGeocercas(MARGEN_METROS);
+        indice.registrar(ENVIO, CONDUCTOR, new Geocerca.Circulo(LATITUD, LONGITUD, RADIO_METROS), null);
+
+        indice.evaluar(CONDUCTOR + 1, LATITUD, LONGITUD, 1_000, detecciones::add);
+        assertThat(detecciones).isEmpty();
+
+        indice.evaluar(CONDUCTOR, LATITUD, LONGITUD, 2_000, detecciones::add);
+        indice.evaluar(CONDUCTOR, LATITUD + 1, LONGITUD, 1_500, detecciones::add); // Lejos, pero anterior al último
+        assertThat(detecciones).hasSize(1);
+        assertThat(detecciones.get(0).llegada()).isTrue();
+    }
+
+    @Test
+    void trasDejarDeVigilarElOrigenSoloQuedaElDestino() {
+        IndiceGeocercas indice = new IndiceGeocercas(MARGEN_METROS);
+        Geocerca.Circulo destino = new Geocerca.Circulo(LATITUD + 0.02, LONGITUD, RADIO_METROS);
+        indice.registrar(ENVIO, CONDUCTOR, new Geocerca.Circulo(LATITUD, LONGITUD, RADIO_METROS), destino);
+        assertThat(indice.cantidadGeocercas()).isEqualTo(2);
+
+        indice.dejarDeVigilar(ENVIO, TipoGeocerca.ORIGEN);
+        ping(indice, 0);
+
+        assertThat(detecciones).isEmpty();
+        assertThat(indice.geocerca(ENVIO, TipoGeocerca.ORIGEN)).isNull();
+        assertThat(indice.geocerca(ENVIO, TipoGeocerca.DESTINO)).isEqualTo(destino);
+
+        indice.dejarDeVigilar(ENVIO, TipoGeocerca.DESTINO);
+        assertThat(indice.vigila(ENVIO)).isFalse();
+        assertThat(indice.cantidadGeocercas()).isEqualTo(0);
+    }
+
+    // Ping del conductor a tantos metros al norte del punto, un segundo después del anterior
+    private void ping(IndiceGeocercas indice, double metrosAlNorte) {
+        marcaTiempo += 1_000;
+        indice.evaluar(CONDUCTOR, LATITUD + metrosAlNorte / METROS_POR_GRADO, LONGITUD, marcaTiempo, detecciones::add);
+    }
+}
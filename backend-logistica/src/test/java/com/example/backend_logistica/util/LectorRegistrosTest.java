@@ -0,0 +1,102 @@
+package com.example.backend_logistica.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Lectura de cargas masivas sin base de datos: comillas RFC 4180, número de la línea donde empieza cada
+// registro (también si ocupa varias) y líneas mal formadas que se informan sin cortar la lectura
+class LectorRegistrosTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void elCsvAdmiteComasSaltosYComillasDentroDeUnCampo() throws IOException {
+        List<RegistroImportacion> registros = leer("text/csv; charset=UTF-8",
+                "nombre, direccion\r\n"
+                        + "Uno,\"Av. Amazonas, 123\"\r\n"
+                        + "Dos,\"Calle \"\"Larga\"\"\nsegunda línea\"\r\n"
+                        + "\r\n"
+                        + "Tres,\n");
+
+        assertThat(registros).extracting(RegistroImportacion::linea).containsExactly(2L, 3L, 6L);
+        assertThat(registros).extracting(RegistroImportacion::error).containsOnlyNulls();
+        assertThat(registros.get(0).campos()).isEqualTo(Map.of("nombre", "Uno", "direccion", "Av. Amazonas, 123"));
+        assertThat(registros.get(1).texto("direccion", true)).isEqualTo("Calle \"Larga\"\nsegunda línea");
+        assertThat(registros.get(2).texto("direccion", false)).isNull(); // Vacío equivale a ausente
+    }
+
+    @Test
+    void unaLineaCsvMalFormadaSeInformaYLaLecturaSigue() throws IOException {
+        List<RegistroImportacion> registros = leer(LectorRegistros.TIPO_CSV,
+                "a,b\n"
+                        + "1,2,3\n"
+                        + "4,5\n"
+                        + "6,\"sin cerrar\n");
+
+        assertThat(registros).extracting(RegistroImportacion::linea).containsExactly(2L, 3L, 4L);
+        assertThat(registros).extracting(RegistroImportacion::error)
+                .containsExactly("Se esperaban 2 campos y hay 3", null, "Comillas sin cerrar");
+        assertThat(registros.get(1).entero("b", true)).isEqualTo(5L);
+    }
+
+    @Test
+    void elNdjsonAplanaLosObjetosAnidadosYDescartaLosNulos() throws IOException {
+        List<RegistroImportacion> registros = leer(LectorRegistros.TIPO_NDJSON,
+                "{\"numeroPedido\":\"P-1\",\"cliente\":{\"id\":7,\"nombre\":\"Ana\"},\"estado\":null}\n"
+                        + "\n"
+                        + "{\"numeroPedido\":\"P-2\",\n"
+                        + "\"texto suelto\"\n"
+                        + "{\"numeroPedido\":\"P-3\",\"clienteId\":8}");
+
+        assertThat(registros).extracting(RegistroImportacion::linea).containsExactly(1L, 3L, 4L, 5L);
+        assertThat(registros.get(0).campos())
+                .isEqualTo(Map.of("numeroPedido", "P-1", "cliente.id", "7", "cliente.nombre", "Ana"));
+        // clienteId se busca también como cliente.id, el formato de la exportación
+        assertThat(registros.get(0).entero("clienteId", true)).isEqualTo(7L);
+        assertThat(registros.get(0).texto("estado", false)).isNull();
+        assertThat(registros.get(1).error()).startsWith("JSON no válido");
+        assertThat(registros.get(2).error()).isEqualTo("Se esperaba un objeto JSON");
+        assertThat(registros.get(3).entero("clienteId", true)).isEqualTo(8L);
+    }
+
+    @Test
+    void losCamposInvalidosSeRechazanConSuNombre() throws IOException {
+        RegistroImportacion registro = leer(LectorRegistros.TIPO_CSV,
+                "id,latitud,fecha,nombre\nx,norte,ayer," + "n".repeat(RegistroImportacion.MAX_LARGO_TEXTO + 1) + "\n").get(0);
+
+        assertThatThrownBy(() -> registro.entero("id", true)).hasMessage("El campo id no es un entero: x");
+        assertThatThrownBy(() -> registro.decimal("latitud", true)).hasMessage("El campo latitud no es un número: norte");
+        assertThatThrownBy(() -> registro.fecha("fecha", true)).hasMessage("El campo fecha no es una fecha ISO-8601: ayer");
+        assertThatThrownBy(() -> registro.texto("nombre", true)).hasMessageContaining("supera");
+        assertThatThrownBy(() -> registro.texto("email", true)).hasMessage("Falta el campo email");
+    }
+
+    @Test
+    void unTipoDesconocidoOUnCsvSinCabeceraSeRechazan() {
+        assertThatThrownBy(() -> leer("application/json", "{}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leer(null, "a,b\n1,2\n")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leer(LectorRegistros.TIPO_CSV, "")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("El CSV no tiene fila de cabecera");
+    }
+
+    private List<RegistroImportacion> leer(String tipoContenido, String contenido) throws IOException {
+        LectorRegistros lector = LectorRegistros.abrir(tipoContenido,
+                new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)), objectMapper);
+        List<RegistroImportacion> registros = new ArrayList<>();
+        RegistroImportacion registro;
+        while ((registro = lector.siguiente()) != null) {
+            registros.add(registro);
+        }
+        return registros;
+    }
+}
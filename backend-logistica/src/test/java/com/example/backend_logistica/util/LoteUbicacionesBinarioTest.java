@@ -0,0 +1,79 @@
+package com.example.backend_logistica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Formato binario de los lotes de ubicaciones: lo que codifica un cliente se lee igual en el servidor y
+// cualquier cuerpo mal formado se rechaza en validar(), antes de leer un solo registro
+class LoteUbicacionesBinarioTest {
+
+    @Test
+    void losRegistrosSeLeenComoSeCodificaron() {
+        long[] conductores = {1L, Long.MAX_VALUE, 42L};
+        double[] latitudes = {-0.1807123, 90, -89.9999999};
+        double[] longitudes = {-78.4678001, -180, 179.9999999};
+        long[] marcas = {1_700_000_000_000L, 0L, 1_700_000_000_123L};
+
+        ByteBuffer lote = LoteUbicacionesBinario.codificar(conductores, latitudes, longitudes, marcas);
+
+        assertThat(LoteUbicacionesBinario.validar(lote)).isEqualTo(3);
+        for (int i = 0; i < conductores.length; i++) {
+            assertThat(LoteUbicacionesBinario.conductorId(lote, i)).isEqualTo(conductores[i]);
+            // Con 7 decimales el valor leído es el mismo double que daría el texto
+            assertThat(LoteUbicacionesBinario.latitud(lote, i)).isEqualTo(latitudes[i]);
+            assertThat(LoteUbicacionesBinario.longitud(lote, i)).isEqualTo(longitudes[i]);
+            assertThat(LoteUbicacionesBinario.marcaTiempo(lote, i)).isEqualTo(marcas[i]);
+        }
+    }
+
+    @Test
+    void unLoteVacioEsValido() {
+        ByteBuffer lote = LoteUbicacionesBinario.codificar(new long[0], new double[0], new double[0], new long[0]);
+
+        assertThat(LoteUbicacionesBinario.validar(lote)).isEqualTo(0);
+    }
+
+    @Test
+    void losLotesMalFormadosSeRechazan() {
+        byte[] valido = LoteUbicacionesBinario.codificar(new long[]{1L, 2L}, new double[]{-0.18, -0.19},
+                new double[]{-78.48, -78.49}, new long[]{1_000L, 2_000L}).array();
+
+        assertRechazado(new byte[0]);
+        assertRechazado(Arrays.copyOf(valido, 7)); // Cabecera incompleta
+        assertRechazado(Arrays.copyOf(valido, valido.length - 1)); // Último registro truncado
+        assertRechazado(Arrays.copyOf(valido, valido.length + 1)); // Bytes de más
+        assertRechazado(conCantidad(valido, 3));
+        assertRechazado(conCantidad(valido, -1));
+        assertRechazado(conCantidad(valido, LoteUbicacionesBinario.MAX_REGISTROS + 1));
+        assertRechazado(conCantidad(valido, Integer.MAX_VALUE)); // Multiplicado por 24 desbordaría un int
+        byte[] sinMagia = valido.clone();
+        sinMagia[0] = 'X';
+        assertRechazado(sinMagia);
+    }
+
+    @Test
+    void elAcuseLlevaLosTresContadores() {
+        ByteBuffer acuse = ByteBuffer.wrap(LoteUbicacionesBinario.codificarAcuse(5, 2, 9));
+
+        assertThat(acuse.remaining()).isEqualTo(12);
+        assertThat(acuse.getInt()).isEqualTo(5);
+        assertThat(acuse.getInt()).isEqualTo(2);
+        assertThat(acuse.getInt()).isEqualTo(9);
+    }
+
+    private static void assertRechazado(byte[] cuerpo) {
+        assertThatThrownBy(() -> LoteUbicacionesBinario.validar(ByteBuffer.wrap(cuerpo)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] conCantidad(byte[] lote, int registros) {
+        byte[] copia = lote.clone();
+        ByteBuffer.wrap(copia).putInt(4, registros);
+        return copia;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.backend_logistica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+// OptimizadorRuta.ordenar sobre instancias fijas: precedencias, ciclos, plazo agotado y una instancia en línea
+// donde el vecino más cercano se equivoca. Con plazo 0 la mejora local no llega a empezar, así que el resultado
+// es exactamente el recorrido del vecino más cercano y sirve de referencia
+class OptimizadorRutaTest {
+
+    private static final int SIN = OptimizadorRuta.SIN_PREDECESOR;
+    private static final long PLAZO_AMPLIO = TimeUnit.SECONDS.toNanos(10);
+    private static final double KM_POR_GRADO_ECUADOR = GeoUtils.KM_POR_GRADO_LATITUD;
+
+    @Test
+    void ningunaMejoraRompeLasPrecedencias() {
+        // 1 000 envíos: recolección en i y entrega en i + 1 000, repartidas al azar en unos 20 × 20 km
+        Instancia instancia = instanciaAleatoria(2_000, 1_000, 7);
+
+        OptimizadorRuta.Resultado inicial = ordenar(instancia, 0);
+        OptimizadorRuta.Resultado mejorado = ordenar(instancia, PLAZO_AMPLIO);
+
+        assertThat(mejorado.optimoLocal()).isTrue();
+        assertThat(mejorado.distanciaKm()).isLessThan(inicial.distanciaKm());
+        assertPermutacionValida(mejorado.orden(), instancia.predecesores());
+    }
+
+    @Test
+    void unaRecoleccionLejanaVaAntesQueSuEntregaCercana() {
+        // Salida en 0, entrega del envío a 1 km y su recolección a 3 km: sin la precedencia iría primero a la entrega
+        double[] longitudes = {3 / KM_POR_GRADO_ECUADOR, 1 / KM_POR_GRADO_ECUADOR};
+
+        OptimizadorRuta.Resultado resultado = OptimizadorRuta.ordenar(new double[]{0, 0}, longitudes,
+                new int[]{SIN, 0}, 0, 0, PLAZO_AMPLIO);
+
+        assertThat(resultado.orden()).containsExactly(0, 1);
+        assertThat(resultado.distanciaKm()).isCloseTo(5, within(1e-9));
+    }
+
+    @Test
+    void lasPrecedenciasCiclicasONoValidasSeRechazan() {
+        double[] ceros = new double[3];
+        double[] longitudes = {0.01, 0.02, 0.03};
+
+        assertThatThrownBy(() -> OptimizadorRuta.ordenar(ceros, longitudes, new int[]{2, 0, 1}, 0, 0, PLAZO_AMPLIO))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ciclo");
+        assertThatThrownBy(() -> OptimizadorRuta.ordenar(ceros, longitudes, new int[]{SIN, 1, SIN}, 0, 0, PLAZO_AMPLIO))
+                .isInstanceOf(IllegalArgumentException.class); // Predecesora de sí misma
+        assertThatThrownBy(() -> OptimizadorRuta.ordenar(ceros, longitudes, new int[]{SIN, 0, 0}, 0, 0, PLAZO_AMPLIO))
+                .isInstanceOf(IllegalArgumentException.class); // Predecesora de dos paradas
+        assertThatThrownBy(() -> OptimizadorRuta.ordenar(ceros, longitudes, new int[]{SIN, 3, SIN}, 0, 0, PLAZO_AMPLIO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void conPlazoCeroDevuelveUnaRutaValidaSinOptimoLocal() {
+        Instancia instancia = instanciaAleatoria(500, 200, 11);
+
+        OptimizadorRuta.Resultado resultado = ordenar(instancia, 0);
+
+        assertThat(resultado.optimoLocal()).isFalse();
+        assertPermutacionValida(resultado.orden(), instancia.predecesores());
+        assertThat(resultado.distanciaKm()).isGreaterThan(0);
+    }
+
+    @Test
+    void mejoraElRecorridoDelVecinoMasCercano() {
+        // En línea desde 0: paradas a +1, -1,5 y +4 km. El vecino más cercano recorre 1 + 2,5 + 5,5 = 9 km;
+        // empezar por -1,5 deja 1,5 + 2,5 + 3 = 7 km, el óptimo
+        double[] longitudes = {1 / KM_POR_GRADO_ECUADOR, -1.5 / KM_POR_GRADO_ECUADOR, 4 / KM_POR_GRADO_ECUADOR};
+        int[] sinPrecedencias = {SIN, SIN, SIN};
+
+        OptimizadorRuta.Resultado vecinoMasCercano = OptimizadorRuta.ordenar(new double[3], longitudes, sinPrecedencias, 0, 0, 0);
+        OptimizadorRuta.Resultado mejorado = OptimizadorRuta.ordenar(new double[3], longitudes, sinPrecedencias, 0, 0, PLAZO_AMPLIO);
+
+        assertThat(vecinoMasCercano.orden()).containsExactly(0, 1, 2);
+        assertThat(vecinoMasCercano.distanciaKm()).isCloseTo(9, within(1e-9));
+        assertThat(mejorado.orden()).containsExactly(1, 0, 2);
+        assertThat(mejorado.distanciaKm()).isCloseTo(7, within(1e-9));
+        assertThat(mejorado.optimoLocal()).isTrue();
+
+        // Y en una instancia grande nunca queda peor que el vecino más cercano
+        Instancia instancia = instanciaAleatoria(3_000, 0, 3);
+        assertThat(ordenar(instancia, PLAZO_AMPLIO).distanciaKm()).isLessThanOrEqualTo(ordenar(instancia, 0).distanciaKm());
+    }
+
+    @Test
+    void sinParadasLaRutaEstaVacia() {
+        OptimizadorRuta.Resultado resultado = OptimizadorRuta.ordenar(new double[0], new double[0], new int[0], -0.2, -78.5, 0);
+
+        assertThat(resultado.orden()).isEmpty();
+        assertThat(resultado.distanciaKm()).isEqualTo(0);
+        assertThat(resultado.optimoLocal()).isTrue();
+    }
+
+    private record Instancia(double[] latitudes, double[] longitudes, int[] predecesores) {
+    }
+
+    // Paradas al azar alrededor de Quito; la parada i + envios es la entrega cuya recolección es la parada i
+    private static Instancia instanciaAleatoria(int paradas, int envios, long semilla) {
+        Random aleatorio = new Random(semilla);
+        double[] latitudes = new double[paradas];
+        double[] longitudes = new double[paradas];
+        int[] predecesores = new int[paradas];
+        Arrays.fill(predecesores, SIN);
+        for (int i = 0; i < paradas; i++) {
+            latitudes[i] = -0.2 + (aleatorio.nextDouble() - 0.5) * 0.18;
+            longitudes[i] = -78.5 + (aleatorio.nextDouble() - 0.5) * 0.18;
+        }
+        for (int i = 0; i < envios; i++) {
+            predecesores[i + envios] = i;
+        }
+        return new Instancia(latitudes, longitudes, predecesores);
+    }
+
+    private static OptimizadorRuta.Resultado ordenar(Instancia instancia, long plazoNanos) {
+        return OptimizadorRuta.ordenar(instancia.latitudes(), instancia.longitudes(), instancia.predecesores(),
+                -0.2, -78.5, plazoNanos);
+    }
+
+    private static void assertPermutacionValida(int[] orden, int[] predecesores) {
+        int[] posicion = new int[orden.length];
+        Arrays.fill(posicion, -1);
+        for (int k = 0; k < orden.length; k++) {
+            assertThat(posicion[orden[k]]).as("Parada %d repetida", orden[k]).isEqualTo(-1);
+            posicion[orden[k]] = k;
+        }
+        assertThat(orden).hasSize(predecesores.length);
+        for (int i = 0; i < predecesores.length; i++) {
+            if (predecesores[i] != SIN) {
+                assertThat(posicion[predecesores[i]]).as("Parada %d antes que su predecesora", i).isLessThan(posicion[i]);
+            }
+        }
+    }
+}
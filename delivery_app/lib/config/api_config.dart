@@ -9,6 +9,8 @@ class ApiConfig {
   static const String vehiculosEndpoint = '/vehiculos';
   static const String pedidosEndpoint = '/pedidos';
   static const String enviosEndpoint = '/envios';
+  static const String seguimientoEndpoint = '/seguimiento';
+  static const String locationBatchContentType = 'application/vnd.logistica.ubicaciones';
   
   // Timeout durations
   static const int connectionTimeout = 30000; // 30 seconds
@@ -9,6 +9,7 @@ import 'package:delivery_app/widgets/qr_scanner_widget.dart';
 import 'package:delivery_app/widgets/signature_pad.dart';
 import 'package:provider/provider.dart';
 import 'package:intl/intl.dart';
+import 'package:uuid/uuid.dart';
 
 class EnvioDetailScreen extends StatefulWidget {
   const EnvioDetailScreen({super.key});
@@ -25,6 +26,10 @@ class _EnvioDetailScreenState extends State<EnvioDetailScreen> {
   bool _showSignaturePad = false;
   String? _scannedQrCode;
   String? _signatureImagePath;
+  // Reused when the user retries the same action after an error, so the server applies it only once
+  String? _pendingStatus;
+  String? _pendingStatusKey;
+  String? _deliveryKey;
   final LocationService _locationService = LocationService();
 
   @override
@@ -38,16 +43,23 @@ class _EnvioDetailScreenState extends State<EnvioDetailScreen> {
       _isUpdatingStatus = true;
     });
 
+    if (_pendingStatus != newStatus) {
+      _pendingStatus = newStatus;
+      _pendingStatusKey = const Uuid().v4();
+    }
+
     try {
       final apiService = Provider.of<ApiService>(context, listen: false);
-      final updatedEnvio = _envio.copyWith(
-        estadoEnvio: newStatus,
+      final result = await apiService.changeEnvioStatus(
+        _envio.id!,
+        newStatus,
+        idempotencyKey: _pendingStatusKey,
       );
 
-      final result = await apiService.updateEnvio(updatedEnvio);
-
       setState(() {
         _envio = result;
+        _pendingStatus = null;
+        _pendingStatusKey = null;
       });
 
       if (mounted) {
@@ -81,16 +93,20 @@ class _EnvioDetailScreenState extends State<EnvioDetailScreen> {
       _isLoading = true;
     });
 
+    _deliveryKey ??= const Uuid().v4();
+
     try {
       final apiService = Provider.of<ApiService>(context, listen: false);
       final result = await apiService.registerDelivery(
         _envio.id!,
         codigoQrEntrega: _scannedQrCode,
-        firmaDigitalEntrega: _signatureImagePath,
+        signaturePath: _signatureImagePath,
+        idempotencyKey: _deliveryKey,
       );
 
       setState(() {
         _envio = result;
+        _deliveryKey = null;
         _showQrScanner = false;
         _showSignaturePad = false;
       });
@@ -589,7 +605,8 @@ class _EnvioDetailScreenState extends State<EnvioDetailScreen> {
                             borderRadius: BorderRadius.circular(8),
                           ),
                           child: Image.network(
-                            _envio.firmaDigitalEntrega!,
+                            Provider.of<ApiService>(context, listen: false)
+                                .proofOfDeliveryUrl(_envio.firmaDigitalEntrega!),
                             fit: BoxFit.contain,
                             errorBuilder: (context, error, stackTrace) {
                               return const Center(
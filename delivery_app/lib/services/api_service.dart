@@ -1,4 +1,5 @@
 import 'dart:convert';
+import 'dart:typed_data';
 import 'package:delivery_app/config/api_config.dart';
 import 'package:delivery_app/models/cliente_model.dart';
 import 'package:delivery_app/models/conductor_model.dart';
@@ -6,6 +7,7 @@ import 'package:delivery_app/models/envio_model.dart';
 import 'package:delivery_app/models/pedido_model.dart';
 import 'package:delivery_app/models/vehiculo_model.dart';
 import 'package:http/http.dart' as http;
+import 'package:uuid/uuid.dart';
 
 class ApiService {
   final String baseUrl;
@@ -56,6 +58,15 @@ class ApiService {
     return _handleResponse(response);
   }
 
+  // Transition endpoints: the server applies a given key at most once, so a retry after a
+  // timeout returns the current shipment instead of repeating the transition
+  Map<String, String> _idempotentHeaders(String? idempotencyKey) {
+    return {
+      ...ApiConfig.getHeaders(),
+      'Idempotency-Key': idempotencyKey ?? const Uuid().v4(),
+    };
+  }
+
   dynamic _handleResponse(http.Response response) {
     if (response.statusCode >= 200 && response.statusCode < 300) {
       if (response.body.isEmpty) return null;
@@ -132,11 +143,42 @@ class ApiService {
     return (response as List).map((json) => Conductor.fromJson(json)).toList();
   }
 
-  Future<Conductor> updateConductorLocation(String id, double latitud, double longitud) async {
-    final response = await _post(
+  // The backend answers 202 Accepted without a body: the ping is queued and written in batches
+  Future<void> updateConductorLocation(String id, double latitud, double longitud) async {
+    await _post(
       '${ApiConfig.conductoresEndpoint}/$id/ubicacion?latitud=$latitud&longitud=$longitud',
     );
-    return Conductor.fromJson(response);
+  }
+
+  // Sends buffered pings in the compact binary format (see LoteUbicacionesBinario on the server):
+  // 8-byte header + 24 bytes per record, big-endian. Returns how many records at the end of the
+  // batch were not processed because the server queue was full; the caller should resend them.
+  Future<int> sendLocationBatch(
+      List<({int conductorId, double latitud, double longitud, DateTime timestamp})> pings) async {
+    final data = ByteData(8 + pings.length * 24);
+    data.setInt32(0, 0x55424C31);
+    data.setInt32(4, pings.length);
+    var offset = 8;
+    for (final ping in pings) {
+      data.setInt64(offset, ping.conductorId);
+      data.setInt32(offset + 8, (ping.latitud * 1e7).round());
+      data.setInt32(offset + 12, (ping.longitud * 1e7).round());
+      data.setInt64(offset + 16, ping.timestamp.millisecondsSinceEpoch);
+      offset += 24;
+    }
+    final response = await _httpClient.post(
+      Uri.parse('$baseUrl${ApiConfig.conductoresEndpoint}/ubicaciones'),
+      headers: {
+        'Content-Type': ApiConfig.locationBatchContentType,
+        'Accept': ApiConfig.locationBatchContentType,
+      },
+      body: data.buffer.asUint8List(),
+    );
+    if (response.statusCode != 202 && response.statusCode != 429) {
+      throw Exception('API Error: ${response.statusCode}');
+    }
+    // Ack: accepted | discarded | pending (int32 each)
+    return ByteData.sublistView(response.bodyBytes).getInt32(8);
   }
 
   // Vehiculo API methods
@@ -212,6 +254,15 @@ class ApiService {
     return Envio.fromJson(response);
   }
 
+  // Status changes go through the shipment state machine; PUT no longer changes the status
+  Future<Envio> changeEnvioStatus(String envioId, String estado, {String? idempotencyKey}) async {
+    final response = await _post(
+      '${ApiConfig.enviosEndpoint}/$envioId/estado?estado=${Uri.encodeQueryComponent(estado)}',
+      headers: _idempotentHeaders(idempotencyKey),
+    );
+    return Envio.fromJson(response);
+  }
+
   Future<Envio> updateEnvio(Envio envio) async {
     final response = await _put(
       '${ApiConfig.enviosEndpoint}/${envio.id}',
@@ -229,20 +280,31 @@ class ApiService {
     return Envio.fromJson(response);
   }
 
-  Future<Envio> registerDelivery(String envioId, {String? codigoQrEntrega, String? firmaDigitalEntrega}) async {
-    String endpoint = '${ApiConfig.enviosEndpoint}/registrar-entrega/$envioId';
-    
+  // The signature image is uploaded as a multipart file; the backend stores it out of line and the
+  // shipment only returns its URL (see proofOfDeliveryUrl)
+  Future<Envio> registerDelivery(String envioId, {String? codigoQrEntrega, String? signaturePath, String? idempotencyKey}) async {
+    final request = http.MultipartRequest(
+      'POST',
+      Uri.parse('$baseUrl${ApiConfig.enviosEndpoint}/registrar-entrega/$envioId'),
+    );
+    final headers = _idempotentHeaders(idempotencyKey)..remove('Content-Type');
+    request.headers.addAll(headers);
+
     if (codigoQrEntrega != null) {
-      endpoint += '?codigoQrEntrega=$codigoQrEntrega';
+      request.fields['codigoQrEntrega'] = codigoQrEntrega;
     }
-    
-    if (firmaDigitalEntrega != null) {
-      endpoint += endpoint.contains('?') ? '&' : '?';
-      endpoint += 'firmaDigitalEntrega=$firmaDigitalEntrega';
+
+    if (signaturePath != null) {
+      request.files.add(await http.MultipartFile.fromPath('firma', signaturePath));
     }
-    
-    final response = await _post(endpoint);
-    return Envio.fromJson(response);
+
+    final response = await http.Response.fromStream(await _httpClient.send(request));
+    return Envio.fromJson(_handleResponse(response));
+  }
+
+  // Shipment JSON carries server-relative paths (e.g. /api/envios/5/firma) for proof-of-delivery images
+  String proofOfDeliveryUrl(String path) {
+    return Uri.parse(baseUrl).resolve(path).toString();
   }
 
   Future<Envio> updateDeliveryLocation(String envioId, double latitud, double longitud) async {
@@ -268,5 +330,48 @@ class ApiService {
     );
     return (response as List).map((json) => Envio.fromJson(json)).toList();
   }
-}
 
+  // Live tracking over Server-Sent Events instead of polling getEnvioById/getConductores.
+  // Each item is {'event': 'ubicacion' | 'estado', 'data': <decoded JSON>}; the stream ends
+  // when the backend closes it (the shipment was delivered).
+  Stream<Map<String, dynamic>> trackEnvio(String envioId) {
+    return _eventStream('${ApiConfig.seguimientoEndpoint}/envios/$envioId');
+  }
+
+  // Positions of every driver inside the box (at most 1 degree per side)
+  Stream<Map<String, dynamic>> trackRegion(double latitudMin, double latitudMax, double longitudMin, double longitudMax) {
+    return _eventStream(
+      '${ApiConfig.seguimientoEndpoint}/region?latitudMin=$latitudMin&latitudMax=$latitudMax'
+      '&longitudMin=$longitudMin&longitudMax=$longitudMax',
+    );
+  }
+
+  Stream<Map<String, dynamic>> _eventStream(String endpoint) async* {
+    final request = http.Request('GET', Uri.parse('$baseUrl$endpoint'));
+    request.headers.addAll(ApiConfig.getHeaders());
+    request.headers['Accept'] = 'text/event-stream';
+    final response = await _httpClient.send(request);
+    if (response.statusCode != 200) {
+      throw Exception('API Error: ${response.statusCode}');
+    }
+
+    String? event;
+    final data = StringBuffer();
+    final lines = response.stream.transform(utf8.decoder).transform(const LineSplitter());
+    await for (final line in lines) {
+      if (line.isEmpty) {
+        if (data.isNotEmpty) {
+          yield {'event': event ?? 'message', 'data': jsonDecode(data.toString())};
+        }
+        event = null;
+        data.clear();
+      } else if (line.startsWith('event:')) {
+        event = line.substring(6).trim();
+      } else if (line.startsWith('data:')) {
+        if (data.isNotEmpty) data.write('\n');
+        data.write(line.substring(5).trimLeft());
+      }
+      // "id:" lines and ":latido" keep-alive comments are ignored
+    }
+  }
+}